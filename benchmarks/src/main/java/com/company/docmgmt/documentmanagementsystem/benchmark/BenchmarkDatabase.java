@@ -0,0 +1,113 @@
+package com.company.docmgmt.documentmanagementsystem.benchmark;
+
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+import com.company.docmgmt.documentmanagementsystem.util.SchemaMigrator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * 基准测试用的嵌入式H2数据库
+ * 每次试验(trial)开始时重建表结构并按参数灌入数据，数据量通过 -p documents=... 等参数调整。
+ * 用户1为管理员(拥有全部权限)，其余用户为普通用户，文档按轮转方式分配给各个用户。
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    public static final String ADMIN_USERNAME = "admin";
+    public static final String USER_USERNAME = "user2";
+    public static final String PASSWORD = "password";
+
+    static {
+        // 必须在DatabaseUtil类初始化之前设置；显式传入 -Ddocmgmt.db.url 时以传入的为准
+        if (System.getProperty("docmgmt.db.url") == null) {
+            System.setProperty("docmgmt.db.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        }
+        // 默认关闭JDBC语句跟踪，避免代理开销和灌数据时的慢查询输出混进测量结果
+        if (System.getProperty("docmgmt.slowQuery.thresholdMs") == null) {
+            System.setProperty("docmgmt.slowQuery.thresholdMs", "-1");
+        }
+    }
+
+    @Param({"1000", "10000"})
+    public int documents;
+
+    @Param({"10"})
+    public int users;
+
+    @Param({"2000"})
+    public int contentLength;
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        seed(documents, users, contentLength);
+    }
+
+    /**
+     * 重建表结构并灌入数据，供不使用本状态类的基准测试(例如需要先设置连接池参数的)直接调用
+     * @param documents 文档数
+     * @param users 用户数，用户1为管理员
+     * @param contentLength 每篇文档正文的字符数
+     */
+    public static void seed(int documents, int users, int contentLength) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+        // 表结构、索引和内置角色/权限与应用使用同一套迁移脚本，基准测试的执行计划与生产一致
+        SchemaMigrator.migrate();
+
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            // 内置角色：1=ADMIN(全部权限)，2=USER(没有 list:all 和 user:manage)
+            try (PreparedStatement insertUser = conn.prepareStatement(
+                    "INSERT INTO users (username, password, email) VALUES (?, ?, ?)");
+                 PreparedStatement insertRole = conn.prepareStatement(
+                         "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)")) {
+                for (int i = 1; i <= users; i++) {
+                    insertUser.setString(1, i == 1 ? ADMIN_USERNAME : "user" + i);
+                    insertUser.setString(2, PASSWORD);
+                    insertUser.setString(3, "user" + i + "@example.com");
+                    insertUser.executeUpdate();
+                    insertRole.setInt(1, i);
+                    insertRole.setInt(2, i == 1 ? 1 : 2);
+                    insertRole.executeUpdate();
+                }
+            }
+
+            String word = "lorem ipsum 文档内容 ";
+            String content = word.repeat(contentLength / word.length() + 1).substring(0, contentLength);
+            try (PreparedStatement insertDoc = conn.prepareStatement(
+                    "INSERT INTO documents (title, content, owner_user_id, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)")) {
+                long base = System.currentTimeMillis() - documents * 1000L;
+                for (int i = 0; i < documents; i++) {
+                    Timestamp ts = new Timestamp(base + i * 1000L);
+                    insertDoc.setString(1, "Document " + i);
+                    insertDoc.setString(2, content);
+                    insertDoc.setInt(3, i % users + 1);
+                    insertDoc.setString(4, i % 3 == 0 ? "PUBLISHED" : "DRAFT");
+                    insertDoc.setTimestamp(5, ts);
+                    insertDoc.setTimestamp(6, ts);
+                    insertDoc.addBatch();
+                    if (i % 1000 == 999) {
+                        insertDoc.executeBatch();
+                    }
+                }
+                insertDoc.executeBatch();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        DatabaseUtil.shutdown();
+    }
+}
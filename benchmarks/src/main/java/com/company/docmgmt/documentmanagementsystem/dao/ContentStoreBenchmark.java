@@ -0,0 +1,105 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import com.company.docmgmt.documentmanagementsystem.benchmark.BenchmarkDatabase;
+import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.WriteResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大文档正文的读写基准：一次性读出整个正文 (findById) 与流式读取 (openContentReader) 的对比，流式写入，
+ * 以及保存与已有文档正文相同的新文档 (saveDuplicate，blob已存在时只计算哈希，不再写入分块)
+ * contentLength 不超过内联阈值时走内联路径，超过时走blob路径；加 -prof gc 可以看到两种读取方式的内存分配差异
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentStoreBenchmark {
+
+    @Param({"16384", "4194304"})
+    public int contentLength;
+
+    private DocumentDao documentDao;
+    private String content;
+    private int documentId;
+    private int ownerId;
+    private int version;
+    private final char[] buffer = new char[8192];
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        BenchmarkDatabase.seed(10, 2, 100);
+        documentDao = new DocumentDao();
+
+        // 接近真实文本的正文：重复的词加上变化的数字，压缩率不会过分理想
+        StringBuilder text = new StringBuilder(contentLength + 32);
+        for (int i = 0; text.length() < contentLength; i++) {
+            text.append("段落 ").append(i * 7919 % 100003).append(" quarterly report revenue ");
+        }
+        content = text.substring(0, contentLength);
+
+        ownerId = 2;
+        Document document = new Document();
+        document.setTitle("large");
+        document.setContent(content);
+        document.setOwnerUserId(ownerId);
+        document.setStatus("DRAFT");
+        documentDao.save(document);
+        documentId = document.getId();
+    }
+
+    @Benchmark
+    public int findById() {
+        return documentDao.findById(documentId).orElseThrow().getContent().length();
+    }
+
+    @Benchmark
+    public long openContentReader() throws IOException {
+        long chars = 0;
+        try (Reader reader = documentDao.openContentReader(documentId, null).orElseThrow()) {
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                chars += n;
+            }
+        }
+        return chars;
+    }
+
+    @Benchmark
+    public boolean saveDuplicate() {
+        Document document = new Document();
+        document.setTitle("copy");
+        document.setContent(content);
+        document.setOwnerUserId(ownerId);
+        document.setStatus("DRAFT");
+        return documentDao.save(document);
+    }
+
+    @Benchmark
+    public WriteResult writeContentOwned() {
+        WriteResult result = documentDao.writeContentOwned(documentId, version, ownerId, new StringReader(content));
+        if (result.isSuccess()) {
+            version++;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,89 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import com.company.docmgmt.documentmanagementsystem.benchmark.BenchmarkDatabase;
+import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DocumentDao 的查询与行映射基准
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentDaoBenchmark {
+
+    private DocumentDao documentDao;
+    private int documents;
+    private int ownerId;
+
+    // mapRowToDocument 使用的可滚动结果集，只在试验开始时查询一次
+    private Connection connection;
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    private int row;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkDatabase database) throws SQLException {
+        documentDao = new DocumentDao();
+        documents = database.documents;
+        ownerId = database.users; // 普通用户，拥有约 documents / users 个文档
+
+        connection = DatabaseUtil.getConnection();
+        statement = connection.prepareStatement("SELECT * FROM documents ORDER BY id",
+                ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        resultSet = statement.executeQuery();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        resultSet.close();
+        statement.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public List<Document> findAll() {
+        return documentDao.findAll();
+    }
+
+    @Benchmark
+    public List<Document> findByOwnerId() {
+        return documentDao.findByOwnerId(ownerId);
+    }
+
+    @Benchmark
+    public Optional<Document> findById() {
+        return documentDao.findById(ThreadLocalRandom.current().nextInt(documents) + 1);
+    }
+
+    @Benchmark
+    public Document mapRowToDocument() throws SQLException {
+        row = row % documents + 1;
+        resultSet.absolute(row);
+        return documentDao.mapRowToDocument(resultSet);
+    }
+}
@@ -0,0 +1,44 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import com.company.docmgmt.documentmanagementsystem.benchmark.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录时加载权限的三表连接查询基准
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PermissionDaoBenchmark {
+
+    private PermissionDao permissionDao;
+    private int users;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkDatabase database) {
+        permissionDao = new PermissionDao();
+        users = database.users;
+    }
+
+    @Benchmark
+    public Set<String> findPermissionsByUserId() {
+        return permissionDao.findPermissionsByUserId(ThreadLocalRandom.current().nextInt(users) + 1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import com.company.docmgmt.documentmanagementsystem.benchmark.BenchmarkDatabase;
+import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.User;
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池PreparedStatement缓存对单次查询延迟的影响
+ * statementCacheSize=0 时每次调用都重新prepare，=64 时复用连接上已经prepare过的语句。
+ * 连接池在第一次使用时按系统属性创建，所以每组参数都在独立的JVM(fork)中运行，且不使用 {@link BenchmarkDatabase} 状态。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatementCacheBenchmark {
+
+    private static final int DOCUMENTS = 10000;
+    private static final int USERS = 10;
+
+    @Param({"0", "64"})
+    public int statementCacheSize;
+
+    private DocumentDao documentDao;
+    private UserDao userDao;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        System.setProperty("docmgmt.pool.statementCacheSize", String.valueOf(statementCacheSize));
+        BenchmarkDatabase.seed(DOCUMENTS, USERS, 2000);
+        documentDao = new DocumentDao();
+        userDao = new UserDao();
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        System.out.println();
+        System.out.println(DatabaseUtil.getPoolStats());
+        DatabaseUtil.shutdown();
+    }
+
+    @Benchmark
+    public Optional<Document> documentFindById() {
+        return documentDao.findById(ThreadLocalRandom.current().nextInt(DOCUMENTS) + 1);
+    }
+
+    @Benchmark
+    public Optional<User> userFindByUsername() {
+        int id = ThreadLocalRandom.current().nextInt(2, USERS + 1);
+        return userDao.findByUsername("user" + id);
+    }
+}
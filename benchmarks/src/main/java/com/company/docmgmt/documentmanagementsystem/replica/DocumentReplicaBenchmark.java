@@ -0,0 +1,104 @@
+package com.company.docmgmt.documentmanagementsystem.replica;
+
+import com.company.docmgmt.documentmanagementsystem.benchmark.BenchmarkDatabase;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.service.AuthService;
+import com.company.docmgmt.documentmanagementsystem.service.DocumentListSource;
+import com.company.docmgmt.documentmanagementsystem.service.DocumentService;
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 刷新文档列表的代价：直接从中心数据库重新统计并加载第一页 (reloadFromService)，
+ * 与先增量同步本地副本、再从本地加载 (syncAndReload) 的对比
+ * 每次调用前修改 changes 篇文档；同步的代价随 changes 变化，与 documents 基本无关
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentReplicaBenchmark {
+
+    @Param({"0", "10"})
+    public int changes;
+
+    private DocumentService documentService;
+    private DocumentReplica replica;
+    private Path directory;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkDatabase database) throws SQLException, IOException {
+        documentService = new DocumentService(AuthService.getInstance()
+                .authenticate(BenchmarkDatabase.ADMIN_USERNAME, BenchmarkDatabase.PASSWORD)
+                .orElseThrow());
+        directory = Files.createTempDirectory("replica-benchmark");
+        replica = new DocumentReplica(directory.resolve("replica"), "all", documentService);
+        replica.sync();
+    }
+
+    @Setup(Level.Invocation)
+    public void touchDocuments() throws SQLException {
+        if (changes == 0) {
+            return;
+        }
+        // updated_at随UPDATE自动更新，这些文档进入下一次同步的变更
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE documents SET title = ? WHERE id = ?")) {
+            round++;
+            for (int i = 1; i <= changes; i++) {
+                stmt.setString(1, "Document " + i + " r" + round);
+                stmt.setInt(2, i);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        replica.close();
+        try (var files = Files.walk(directory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int reloadFromService() {
+        return reload(documentService);
+    }
+
+    @Benchmark
+    public int syncAndReload() {
+        replica.sync();
+        return reload(replica);
+    }
+
+    private static int reload(DocumentListSource source) {
+        Page<DocumentSummary> firstPage = source.getVisibleDocumentSummariesPage(null, DocumentService.DEFAULT_PAGE_SIZE);
+        return source.countVisibleDocuments() + firstPage.getItems().size();
+    }
+}
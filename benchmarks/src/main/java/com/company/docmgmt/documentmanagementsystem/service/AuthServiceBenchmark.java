@@ -0,0 +1,59 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.benchmark.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限检查基准：预编译的权限常量与按名称查找两种方式
+ * 权限检查不访问数据库，只需要最小的数据量
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthServiceBenchmark {
+
+    @Param({BenchmarkDatabase.ADMIN_USERNAME, BenchmarkDatabase.USER_USERNAME})
+    public String username;
+
+    private AuthService authService;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkDatabase database) {
+        authService = AuthService.getInstance();
+        if (!authService.login(username, BenchmarkDatabase.PASSWORD)) {
+            throw new IllegalStateException("Failed to log in benchmark user " + username);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        authService.logout();
+    }
+
+    @Benchmark
+    public boolean hasPermission() {
+        return authService.hasPermission(Permissions.DOCUMENT_LIST_ALL);
+    }
+
+    @Benchmark
+    public boolean hasPermissionByName() {
+        return authService.hasPermission("document:list:all");
+    }
+}
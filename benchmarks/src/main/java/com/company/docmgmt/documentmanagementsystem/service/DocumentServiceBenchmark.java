@@ -0,0 +1,55 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.benchmark.BenchmarkDatabase;
+import com.company.docmgmt.documentmanagementsystem.model.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文档列表加载基准：管理员走全表查询，普通用户走按所有者查询
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentServiceBenchmark {
+
+    @Param({BenchmarkDatabase.ADMIN_USERNAME, BenchmarkDatabase.USER_USERNAME})
+    public String username;
+
+    private DocumentService documentService;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkDatabase database) {
+        if (!AuthService.getInstance().login(username, BenchmarkDatabase.PASSWORD)) {
+            throw new IllegalStateException("Failed to log in benchmark user " + username);
+        }
+        documentService = new DocumentService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AuthService.getInstance().logout();
+    }
+
+    @Benchmark
+    public List<Document> getVisibleDocuments() {
+        return documentService.getVisibleDocuments();
+    }
+}
@@ -0,0 +1,44 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.benchmark.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录时解析用户权限：缓存的 角色 -> 权限 矩阵，与 PermissionDaoBenchmark 的三表连接查询对比
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PermissionResolverBenchmark {
+
+    private PermissionResolver permissionResolver;
+    private int users;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkDatabase database) {
+        permissionResolver = PermissionResolver.getInstance();
+        permissionResolver.reload(); // 数据库在每次试验开始时重建
+        users = database.users;
+    }
+
+    @Benchmark
+    public PermissionSet resolve() {
+        return permissionResolver.resolve(ThreadLocalRandom.current().nextInt(users) + 1);
+    }
+}
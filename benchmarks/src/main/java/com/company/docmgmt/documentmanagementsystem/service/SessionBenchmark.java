@@ -0,0 +1,79 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.benchmark.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多会话并发负载：大量会话同时存在时，多个线程并发地按令牌查找会话、检查权限、登录和登出
+ * 线程数可以通过 -t 覆盖，会话数通过 -p sessions=... 调整
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class SessionBenchmark {
+
+    @Param({"5000"})
+    public int sessions;
+
+    private AuthService authService;
+    private String[] usernames;
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkDatabase database) {
+        authService = AuthService.getInstance();
+        usernames = new String[database.users];
+        for (int i = 0; i < usernames.length; i++) {
+            usernames[i] = i == 0 ? BenchmarkDatabase.ADMIN_USERNAME : "user" + (i + 1);
+        }
+        tokens = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            tokens[i] = authService.authenticate(usernames[i % usernames.length], BenchmarkDatabase.PASSWORD)
+                    .orElseThrow(() -> new IllegalStateException("Failed to log in benchmark user"))
+                    .getToken();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (String token : tokens) {
+            authService.logout(token);
+        }
+    }
+
+    @Benchmark
+    public boolean findSessionAndCheckPermission() {
+        String token = tokens[ThreadLocalRandom.current().nextInt(tokens.length)];
+        return authService.findSession(token)
+                .map(context -> context.hasPermission(Permissions.DOCUMENT_CREATE))
+                .orElseThrow(() -> new IllegalStateException("Session lost under load"));
+    }
+
+    @Benchmark
+    public boolean authenticateAndLogout() {
+        String username = usernames[ThreadLocalRandom.current().nextInt(usernames.length)];
+        SecurityContext context = authService.authenticate(username, BenchmarkDatabase.PASSWORD)
+                .orElseThrow(() -> new IllegalStateException("Failed to log in benchmark user"));
+        return authService.logout(context.getToken());
+    }
+}
@@ -1,14 +1,46 @@
 // MainApp.java
 package com.company.docmgmt.documentmanagementsystem;
 
+import com.company.docmgmt.documentmanagementsystem.metrics.MetricsReporter;
+import com.company.docmgmt.documentmanagementsystem.search.SearchIndex;
+import com.company.docmgmt.documentmanagementsystem.service.RemoteClient;
+import com.company.docmgmt.documentmanagementsystem.service.ServiceExecutor;
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+import com.company.docmgmt.documentmanagementsystem.util.SchemaMigrator;
 import com.company.docmgmt.documentmanagementsystem.view.manager.ViewManager;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 
 public class MainApp extends Application {
     @Override
     public void start(Stage stage) {
+        MetricsReporter.start();            // 按配置启动指标日志/文件/端点
         ViewManager.setPrimaryStage(stage); // 将主舞台交给管理器
-        ViewManager.showLoginView();      // 首先显示登录视图
+        if (RemoteClient.isConfigured()) {
+            // 远程模式下由服务端访问数据库，本机不连接数据库
+            ViewManager.showLoginView();    // 首先显示登录视图
+            return;
+        }
+        // 建表或把表结构升级到最新版本，在后台线程上执行，完成后再显示登录视图，不阻塞JavaFX应用线程
+        // 清理和回收作用于整个数据库，由服务端或一台机器上的定时任务执行 (见 DatabaseMaintenance)，桌面客户端不执行
+        ServiceExecutor.supplyAsync(() -> {
+            SchemaMigrator.migrate();
+            return null;
+        }).whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                error.printStackTrace();
+                Platform.exit();
+                return;
+            }
+            ViewManager.showLoginView();    // 首先显示登录视图
+        }));
+    }
+
+    @Override
+    public void stop() {
+        MetricsReporter.stop(); // 退出前输出最后一次指标文件
+        SearchIndex.closeDefault(); // 退出时把全文索引写成快照
+        DatabaseUtil.shutdown(); // 退出时关闭连接池
     }
 }
@@ -0,0 +1,173 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
+import com.company.docmgmt.documentmanagementsystem.model.Attachment;
+import com.company.docmgmt.documentmanagementsystem.model.WriteResult;
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 文档附件的数据访问：附件行只保存名称、大小和内容的哈希，内容存放在 {@link BlobStore} 中，
+ * 相同内容的附件 (以及与之相同的大正文) 只存一份。附件随文档通过外键级联删除。
+ */
+public class AttachmentDao {
+
+    // 所有者检查合并进写语句，与 DocumentDao 的 *Owned 方法一致
+    static final String SQL_INSERT_OWNED = "INSERT INTO document_attachments (document_id, name, blob_hash, size_bytes)"
+            + " SELECT id, ?, ?, ? FROM documents WHERE id = ? AND owner_user_id = ?";
+    static final String SQL_FIND_BY_DOCUMENT_ID =
+            "SELECT id, document_id, name, size_bytes, created_at FROM document_attachments WHERE document_id = ? ORDER BY id";
+    static final String SQL_FIND_BY_DOCUMENT_ID_AND_OWNER = "SELECT a.id, a.document_id, a.name, a.size_bytes, a.created_at"
+            + " FROM document_attachments a JOIN documents d ON d.id = a.document_id"
+            + " WHERE a.document_id = ? AND d.owner_user_id = ? ORDER BY a.id";
+    static final String SQL_FIND_HASH = "SELECT blob_hash FROM document_attachments WHERE id = ?";
+    static final String SQL_FIND_HASH_BY_OWNER = "SELECT a.blob_hash FROM document_attachments a"
+            + " JOIN documents d ON d.id = a.document_id WHERE a.id = ? AND d.owner_user_id = ?";
+    static final String SQL_DELETE_OWNED = "DELETE FROM document_attachments"
+            + " WHERE id = ? AND document_id IN (SELECT id FROM documents WHERE owner_user_id = ?)";
+    private static final String SQL_EXISTS = "SELECT 1 FROM document_attachments WHERE id = ?";
+
+    private static final Operation ADD_OWNED = Metrics.operation("AttachmentDao.addOwned");
+    private static final Operation FIND_BY_DOCUMENT_ID = Metrics.operation("AttachmentDao.findByDocumentId");
+    private static final Operation OPEN_CONTENT = Metrics.operation("AttachmentDao.openContent");
+    private static final Operation DELETE_OWNED = Metrics.operation("AttachmentDao.deleteOwned");
+
+    /**
+     * 以指定用户的身份为文档添加附件：内容边读边写入blob存储，相同的内容已经存在时不再重复写入
+     * 写入blob和插入附件行在同一个事务中，文档不存在或不属于该用户时整个事务回滚
+     * @param attachment 附件 (需要documentId和name)，成功后回填ID和大小
+     * @param ownerId 执行操作的用户ID，只能为该用户拥有的文档添加附件
+     * @param data 附件内容，读到末尾为止，由调用方关闭
+     * @return SUCCESS、NOT_FOUND、FORBIDDEN 或 FAILED
+     */
+    public WriteResult addOwned(Attachment attachment, int ownerId, InputStream data) {
+        try (Operation.Sample sample = ADD_OWNED.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_OWNED, Statement.RETURN_GENERATED_KEYS)) {
+
+            // 未提交的事务在连接归还时由连接池回滚
+            conn.setAutoCommit(false);
+            BlobStore.StoredBlob blob = BlobStore.getInstance().put(conn, data::transferTo);
+            stmt.setString(1, attachment.getName());
+            stmt.setString(2, blob.getHash());
+            stmt.setLong(3, blob.getSize());
+            stmt.setInt(4, attachment.getDocumentId());
+            stmt.setInt(5, ownerId);
+            int rowsAffected = stmt.executeUpdate();
+            sample.rows(rowsAffected);
+            if (rowsAffected == 0) {
+                return DocumentDao.diagnose(conn, attachment.getDocumentId(), ownerId);
+            }
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    attachment.setId(generatedKeys.getInt(1));
+                }
+            }
+            conn.commit();
+            attachment.setSizeBytes(blob.getSize());
+            return WriteResult.SUCCESS;
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+            return WriteResult.FAILED;
+        }
+    }
+
+    /**
+     * 查找文档的附件 (不读取内容)
+     * @param documentId 文档ID
+     * @param ownerId 只返回该用户拥有的文档的附件；为null时不检查所有者
+     * @return 附件列表，按添加顺序
+     */
+    public List<Attachment> findByDocumentId(int documentId, Integer ownerId) {
+        List<Attachment> attachments = new ArrayList<>();
+        try (Operation.Sample sample = FIND_BY_DOCUMENT_ID.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     ownerId == null ? SQL_FIND_BY_DOCUMENT_ID : SQL_FIND_BY_DOCUMENT_ID_AND_OWNER)) {
+
+            stmt.setInt(1, documentId);
+            if (ownerId != null) {
+                stmt.setInt(2, ownerId);
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                attachments.add(new Attachment(rs.getInt("id"), rs.getInt("document_id"), rs.getString("name"),
+                        rs.getLong("size_bytes"), rs.getTimestamp("created_at").toLocalDateTime()));
+            }
+            sample.rows(attachments.size());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return attachments;
+    }
+
+    /**
+     * 打开附件内容：从本地缓存文件读取 (大文件通过内存映射)，返回的流不占用数据库连接
+     * @param id 附件ID
+     * @param ownerId 只打开该用户拥有的文档的附件；为null时不检查所有者
+     * @return 附件内容，使用完毕后必须关闭；附件不存在(或不属于该用户)时为空
+     */
+    public Optional<InputStream> openContent(int id, Integer ownerId) {
+        try (Operation.Sample sample = OPEN_CONTENT.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ownerId == null ? SQL_FIND_HASH : SQL_FIND_HASH_BY_OWNER)) {
+
+            stmt.setInt(1, id);
+            if (ownerId != null) {
+                stmt.setInt(2, ownerId);
+            }
+            String hash;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    sample.success();
+                    return Optional.empty();
+                }
+                hash = rs.getString(1);
+            }
+            InputStream in = BlobStore.getInstance().open(conn, hash);
+            sample.rows(1);
+            return Optional.of(in);
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Failed to open attachment: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 以指定用户的身份删除附件，所有者在DELETE的WHERE条件中检查；内容的blob由回收任务在不再被引用时删除
+     * @param id 附件ID
+     * @param ownerId 执行删除的用户ID，只能删除该用户拥有的文档的附件
+     * @return SUCCESS、NOT_FOUND、FORBIDDEN 或 FAILED
+     */
+    public WriteResult deleteOwned(int id, int ownerId) {
+        try (Operation.Sample sample = DELETE_OWNED.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_DELETE_OWNED)) {
+
+            stmt.setInt(1, id);
+            stmt.setInt(2, ownerId);
+            int rowsAffected = stmt.executeUpdate();
+            sample.rows(rowsAffected);
+            if (rowsAffected > 0) {
+                BlobStore.getInstance().scheduleCollection();
+                return WriteResult.SUCCESS;
+            }
+            // 没有命中任何行时才查一次，区分附件不存在和不属于该用户
+            try (PreparedStatement exists = conn.prepareStatement(SQL_EXISTS)) {
+                exists.setInt(1, id);
+                try (ResultSet rs = exists.executeQuery()) {
+                    return rs.next() ? WriteResult.FORBIDDEN : WriteResult.NOT_FOUND;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return WriteResult.FAILED;
+        }
+    }
+}
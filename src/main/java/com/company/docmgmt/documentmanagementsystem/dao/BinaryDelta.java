@@ -0,0 +1,233 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 两段字节之间的二进制差异，用于修订历史 (见 {@link RevisionStore})
+ * <p>
+ * 差异由两种指令组成：COPY 从旧数据的某个位置复制一段，INSERT 插入差异中携带的字节。先比较公共前缀和后缀，
+ * 中间部分把旧数据按 {@value #BLOCK} 字节的块建哈希索引，在新数据上滚动哈希查找相同的块并向两侧延伸，
+ * 移动过的段落也能复制。差异的大小与修改的字节数成正比，与文档大小基本无关。
+ * <p>
+ * 格式：旧数据长度、新数据长度 (都是varint)，然后是指令序列。每条指令以varint (长度 &lt;&lt; 1 | 类型) 开头，
+ * COPY (类型1) 后面是旧数据中的起始位置 (varint)，INSERT (类型0) 后面是要插入的字节。
+ */
+final class BinaryDelta {
+
+    // 最短能被识别为COPY的长度，也是索引的块大小
+    private static final int BLOCK = 16;
+    private static final int PRIME = 0x01000193;
+
+    private BinaryDelta() {
+    }
+
+    /**
+     * 计算从base到target的差异
+     * @param base 旧数据
+     * @param target 新数据
+     * @return 差异
+     */
+    static byte[] encode(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+
+        int prefix = 0;
+        int maxPrefix = Math.min(base.length, target.length);
+        while (prefix < maxPrefix && base[prefix] == target[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix && base[base.length - 1 - suffix] == target[target.length - 1 - suffix]) {
+            suffix++;
+        }
+        if (prefix > 0) {
+            writeCopy(out, 0, prefix);
+        }
+        encodeMiddle(out, base, target, prefix, target.length - suffix);
+        if (suffix > 0) {
+            writeCopy(out, base.length - suffix, suffix);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 把差异应用到旧数据上
+     * @param base 旧数据，必须与计算差异时的旧数据相同
+     * @param delta {@link #encode} 的结果
+     * @return 新数据
+     * @throws IllegalArgumentException 差异损坏或与旧数据不匹配
+     */
+    static byte[] apply(byte[] base, byte[] delta) {
+        int[] pos = {0};
+        if (readVarint(delta, pos) != base.length) {
+            throw new IllegalArgumentException("Delta does not match base length " + base.length);
+        }
+        byte[] target = new byte[readVarint(delta, pos)];
+        int written = 0;
+        while (pos[0] < delta.length) {
+            int header = readVarint(delta, pos);
+            int length = header >>> 1;
+            if (written + length > target.length) {
+                throw new IllegalArgumentException("Corrupt delta: output overflow");
+            }
+            if ((header & 1) == 1) {
+                int offset = readVarint(delta, pos);
+                if (offset + length > base.length) {
+                    throw new IllegalArgumentException("Corrupt delta: copy out of range");
+                }
+                System.arraycopy(base, offset, target, written, length);
+            } else {
+                if (pos[0] + length > delta.length) {
+                    throw new IllegalArgumentException("Corrupt delta: truncated insert");
+                }
+                System.arraycopy(delta, pos[0], target, written, length);
+                pos[0] += length;
+            }
+            written += length;
+        }
+        if (written != target.length) {
+            throw new IllegalArgumentException("Corrupt delta: expected " + target.length + " bytes, got " + written);
+        }
+        return target;
+    }
+
+    // --- Private Helper Methods ---
+
+    /**
+     * 编码 target[from, to)：在旧数据中查找至少 BLOCK 字节的相同段落，其余作为插入
+     */
+    private static void encodeMiddle(ByteArrayOutputStream out, byte[] base, byte[] target, int from, int to) {
+        if (to - from < BLOCK || base.length < BLOCK) {
+            writeInsert(out, target, from, to);
+            return;
+        }
+        // 旧数据中每个对齐块的起始位置，开放寻址；同一哈希只保留第一个
+        int slots = Integer.highestOneBit(Math.max(base.length / BLOCK, 1) * 2) * 2;
+        int[] table = new int[slots];
+        int mask = slots - 1;
+        for (int offset = 0; offset + BLOCK <= base.length; offset += BLOCK) {
+            int h = hash(base, offset);
+            int slot = mix(h) & mask;
+            while (table[slot] != 0 && hash(base, table[slot] - 1) != h) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == 0) {
+                table[slot] = offset + 1;
+            }
+        }
+        int power = 1; // PRIME^(BLOCK-1)，滚动哈希时移出最早的字节
+        for (int i = 1; i < BLOCK; i++) {
+            power *= PRIME;
+        }
+
+        int literal = from;
+        int i = from;
+        int h = hash(target, i);
+        while (i + BLOCK <= to) {
+            int match = find(table, mask, base, target, i, h);
+            if (match < 0) {
+                if (i + BLOCK < to) {
+                    h = (h - target[i] * power) * PRIME + target[i + BLOCK];
+                }
+                i++;
+                continue;
+            }
+            // 向前延伸到尚未输出的插入部分，向后延伸到不再相同为止
+            int start = i;
+            int baseStart = match;
+            while (start > literal && baseStart > 0 && base[baseStart - 1] == target[start - 1]) {
+                start--;
+                baseStart--;
+            }
+            int end = i + BLOCK;
+            int baseEnd = match + BLOCK;
+            while (end < to && baseEnd < base.length && base[baseEnd] == target[end]) {
+                end++;
+                baseEnd++;
+            }
+            if (start > literal) {
+                writeInsert(out, target, literal, start);
+            }
+            writeCopy(out, baseStart, end - start);
+            literal = end;
+            i = end;
+            if (i + BLOCK <= to) {
+                h = hash(target, i);
+            }
+        }
+        if (literal < to) {
+            writeInsert(out, target, literal, to);
+        }
+    }
+
+    /**
+     * @return 旧数据中与 target[i, i+BLOCK) 相同的块的起始位置，没有时返回-1
+     */
+    private static int find(int[] table, int mask, byte[] base, byte[] target, int i, int h) {
+        int slot = mix(h) & mask;
+        while (table[slot] != 0) {
+            int offset = table[slot] - 1;
+            if (hash(base, offset) == h && regionMatches(base, offset, target, i)) {
+                return offset;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(byte[] a, int aOffset, byte[] b, int bOffset) {
+        for (int k = 0; k < BLOCK; k++) {
+            if (a[aOffset + k] != b[bOffset + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int h = 0;
+        for (int k = 0; k < BLOCK; k++) {
+            h = h * PRIME + data[offset + k];
+        }
+        return h;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static void writeCopy(ByteArrayOutputStream out, int offset, int length) {
+        writeVarint(out, (length << 1) | 1);
+        writeVarint(out, offset);
+    }
+
+    private static void writeInsert(ByteArrayOutputStream out, byte[] data, int from, int to) {
+        writeVarint(out, (to - from) << 1);
+        out.write(data, from, to - from);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (pos[0] >= data.length) {
+                throw new IllegalArgumentException("Corrupt delta: truncated varint");
+            }
+            byte b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt delta: varint too long");
+    }
+}
@@ -0,0 +1,528 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * 按内容寻址的blob存储：超过内联阈值的文档正文和附件按内容的SHA-256存放，相同的内容只存一份
+ * <p>
+ * 数据压缩后分块存放在数据库中 (content_blobs 和 blob_chunks，见 {@link ContentStore})，连接同一个数据库的所有实例都能读到。
+ * 本地目录 (-Ddocmgmt.blob.cacheDir) 是解压后数据的读缓存：文件以哈希命名，内容永远不会变，因此不需要失效；
+ * 不小于 docmgmt.blob.mmapMinBytes 的缓存文件通过内存映射读取。缓存总大小超过 docmgmt.blob.cacheMaxMb 时删除最早写入的文件。
+ * <p>
+ * 引用blob的是 documents.content_hash、document_attachments.blob_hash 和 document_revisions.content_hash (修订快照) 中的行，
+ * 引用数由这几列上的索引统计，不单独保存计数，删除文档时不需要维护引用计数。
+ * 删除文档或附件、替换正文之后调度一次回收 ({@link #scheduleCollection()})，
+ * 删除没有任何引用、并且最近 docmgmt.blob.gcGraceSec 秒内没有被写入或复用过的blob。
+ */
+public final class BlobStore {
+
+    private static final long MMAP_MIN_BYTES = Long.getLong("docmgmt.blob.mmapMinBytes", 1024 * 1024);
+    private static final long CACHE_MAX_BYTES = Long.getLong("docmgmt.blob.cacheMaxMb", 512) * 1024 * 1024;
+    // 回收时跳过最近写入或复用过的blob：引用它的事务可能还没有提交
+    private static final long GC_GRACE_MILLIS = Long.getLong("docmgmt.blob.gcGraceSec", 60) * 1000;
+    private static final int GC_BATCH_SIZE = 500;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    static final String SQL_TOUCH = "UPDATE content_blobs SET acquired_at = ? WHERE hash = ?";
+    private static final String SQL_INSERT = "INSERT INTO content_blobs (hash, codec, size_bytes, acquired_at) VALUES (?, ?, ?, ?)";
+    static final String SQL_FIND_CODEC = "SELECT codec FROM content_blobs WHERE hash = ?";
+    private static final String UNREFERENCED = "acquired_at < ?"
+            + " AND NOT EXISTS (SELECT 1 FROM documents d WHERE d.content_hash = content_blobs.hash)"
+            + " AND NOT EXISTS (SELECT 1 FROM document_attachments a WHERE a.blob_hash = content_blobs.hash)"
+            + " AND NOT EXISTS (SELECT 1 FROM document_revisions r WHERE r.content_hash = content_blobs.hash)";
+    private static final String SQL_FIND_GARBAGE = "SELECT hash FROM content_blobs WHERE " + UNREFERENCED + " LIMIT ?";
+    // 逐个删除时再检查一次引用，查出候选之后又被引用的blob不会被删除；分块由外键级联删除
+    static final String SQL_DELETE_GARBAGE = "DELETE FROM content_blobs WHERE hash = ? AND " + UNREFERENCED;
+
+    private static final Operation PUT = Metrics.operation("BlobStore.put");
+    private static final Operation OPEN = Metrics.operation("BlobStore.open");
+    private static final Operation FILL_CACHE = Metrics.operation("BlobStore.fillCache");
+    private static final Operation COLLECT_GARBAGE = Metrics.operation("BlobStore.collectGarbage");
+
+    private static BlobStore instance;
+
+    private final Path cacheDir;
+    private final Object cacheLock = new Object();
+    private long cacheBytes = -1;
+    private final AtomicBoolean collectionScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService collector;
+
+    private BlobStore(Path cacheDir) {
+        this.cacheDir = cacheDir;
+        this.collector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "blob-collector");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 获取应用默认的blob存储，缓存目录可通过 -Ddocmgmt.blob.cacheDir 配置
+     * @return blob存储实例
+     */
+    public static synchronized BlobStore getInstance() {
+        if (instance == null) {
+            String dir = System.getProperty("docmgmt.blob.cacheDir",
+                    Paths.get(System.getProperty("user.home"), ".docmgmt", "blob-cache").toString());
+            instance = new BlobStore(Paths.get(dir));
+        }
+        return instance;
+    }
+
+    /**
+     * 存入一段数据，相同内容已经存在时只刷新 acquired_at，不再写入分块
+     * 在调用方的事务中执行，由调用方提交或回滚；调用方在同一个事务中写入引用这个哈希的行
+     * @param conn 调用方的连接 (已关闭自动提交)
+     * @param data 要存入的数据
+     * @return 数据的SHA-256 (小写十六进制)
+     */
+    String put(Connection conn, byte[] data) throws SQLException {
+        String hash = HexFormat.of().formatHex(sha256().digest(data));
+        try (Operation.Sample sample = PUT.start()) {
+            if (!acquire(conn, hash, data.length)) {
+                ContentStore.writeChunks(conn, hash, new ByteArrayInputStream(data), ContentStore.CODEC);
+            }
+            sample.success();
+        } catch (IOException e) {
+            throw new SQLException("Failed to write blob: " + e.getMessage(), e);
+        }
+        return hash;
+    }
+
+    /**
+     * 以流的方式存入数据：先写到缓存目录下的临时文件并同时计算哈希，内容已经存在时不再写入分块，
+     * 否则从临时文件压缩写入。写完的临时文件直接放进读缓存。事务规则同 {@link #put(Connection, byte[])}
+     * @param conn 调用方的连接 (已关闭自动提交)
+     * @param source 把数据写到给定的输出流中，不需要关闭输出流
+     * @return 数据的哈希和字节数
+     */
+    StoredBlob put(Connection conn, BlobSource source) throws SQLException, IOException {
+        try (Operation.Sample sample = PUT.start()) {
+            Path spool = createTempFile();
+            try {
+                MessageDigest digest = sha256();
+                try (OutputStream out = new DigestOutputStream(Files.newOutputStream(spool), digest)) {
+                    source.writeTo(out);
+                }
+                String hash = HexFormat.of().formatHex(digest.digest());
+                long size = Files.size(spool);
+                if (!acquire(conn, hash, size)) {
+                    try (InputStream in = Files.newInputStream(spool)) {
+                        ContentStore.writeChunks(conn, hash, in, ContentStore.CODEC);
+                    }
+                }
+                // 即使事务最终回滚，缓存文件的内容仍然与哈希一致，留在缓存中没有问题
+                addToCache(spool, hash, size);
+                sample.success();
+                return new StoredBlob(hash, size);
+            } finally {
+                Files.deleteIfExists(spool);
+            }
+        }
+    }
+
+    /**
+     * 打开一个blob，缓存中没有时先从数据库解压到缓存目录，之后只读本地文件
+     * 返回的流不占用数据库连接，conn在本方法返回后即可归还
+     * @param conn 连接
+     * @param hash blob的SHA-256
+     * @return 解压后的数据，使用完毕后必须关闭
+     * @throws SQLException blob不存在或读取失败
+     */
+    InputStream open(Connection conn, String hash) throws SQLException, IOException {
+        try (Operation.Sample sample = OPEN.start()) {
+            InputStream in;
+            try {
+                in = openFile(cached(conn, hash));
+            } catch (NoSuchFileException e) {
+                // 读取之前刚好被缓存淘汰，重新填充一次
+                in = openFile(cached(conn, hash));
+            }
+            sample.success();
+            return in;
+        }
+    }
+
+    /**
+     * 把一个UTF-8文本blob读成字符串，大文件直接从内存映射解码，不经过中间的字节数组
+     * @param conn 连接
+     * @param hash blob的SHA-256
+     * @return 文本
+     */
+    String readString(Connection conn, String hash) throws SQLException, IOException {
+        try (Operation.Sample sample = OPEN.start()) {
+            String text;
+            try {
+                text = readFile(cached(conn, hash));
+            } catch (NoSuchFileException e) {
+                text = readFile(cached(conn, hash));
+            }
+            sample.success();
+            return text;
+        }
+    }
+
+    /**
+     * 在后台调度一次回收，已经调度过且尚未执行时不重复调度
+     * 延迟一个宽限期执行，刚刚失去引用的blob届时已经可以回收
+     */
+    void scheduleCollection() {
+        if (collectionScheduled.compareAndSet(false, true)) {
+            collector.schedule(() -> {
+                collectionScheduled.set(false);
+                collectGarbage();
+            }, GC_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 删除没有被任何文档或附件引用、并且宽限期内没有被写入或复用的blob，以及它们的缓存文件
+     * 启动时调用一次，之后由写操作按需调度
+     * @return 删除的blob数
+     */
+    public int collectGarbage() {
+        int deleted = 0;
+        try (Operation.Sample sample = COLLECT_GARBAGE.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement find = conn.prepareStatement(SQL_FIND_GARBAGE);
+             PreparedStatement delete = conn.prepareStatement(SQL_DELETE_GARBAGE)) {
+
+            Timestamp cutoff = new Timestamp(System.currentTimeMillis() - GC_GRACE_MILLIS);
+            List<String> candidates;
+            int deletedInRound;
+            do {
+                candidates = new ArrayList<>();
+                find.setTimestamp(1, cutoff);
+                find.setInt(2, GC_BATCH_SIZE);
+                try (ResultSet rs = find.executeQuery()) {
+                    while (rs.next()) {
+                        candidates.add(rs.getString(1));
+                    }
+                }
+                deletedInRound = 0;
+                for (String hash : candidates) {
+                    delete.setString(1, hash);
+                    delete.setTimestamp(2, cutoff);
+                    if (delete.executeUpdate() > 0) {
+                        deletedInRound++;
+                        evict(hash);
+                    }
+                }
+                deleted += deletedInRound;
+            } while (candidates.size() == GC_BATCH_SIZE && deletedInRound > 0);
+            sample.rows(deleted);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return deleted;
+    }
+
+    /**
+     * 复用已经存在的blob，或者插入一行新的blob
+     * @return blob已经存在时返回true；否则插入新行并返回false，由调用方写入分块
+     */
+    private static boolean acquire(Connection conn, String hash, long size) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (touch(conn, hash, now)) {
+            return true;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT)) {
+            stmt.setString(1, hash);
+            stmt.setString(2, ContentStore.CODEC.getName());
+            stmt.setLong(3, size);
+            stmt.setTimestamp(4, now);
+            stmt.executeUpdate();
+            return false;
+        } catch (SQLException e) {
+            // 并发写入相同内容的事务先提交了，改为复用它写入的blob
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23") && touch(conn, hash, now)) {
+                return true;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean touch(Connection conn, String hash, Timestamp now) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_TOUCH)) {
+            stmt.setTimestamp(1, now);
+            stmt.setString(2, hash);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * @return 缓存文件的路径，缓存中没有时从数据库填充
+     */
+    private Path cached(Connection conn, String hash) throws SQLException, IOException {
+        Path file = cacheFile(hash);
+        if (Files.exists(file)) {
+            return file;
+        }
+        try (Operation.Sample sample = FILL_CACHE.start()) {
+            ContentCodec codec;
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_FIND_CODEC)) {
+                stmt.setString(1, hash);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Blob not found: " + hash);
+                    }
+                    codec = ContentCodec.of(rs.getString(1));
+                }
+            }
+            Path spool = createTempFile();
+            try {
+                MessageDigest digest = sha256();
+                try (InputStream in = ContentStore.openBlobChunks(conn, hash, codec);
+                     OutputStream out = new DigestOutputStream(Files.newOutputStream(spool), digest)) {
+                    in.transferTo(out);
+                }
+                if (!hash.equals(HexFormat.of().formatHex(digest.digest()))) {
+                    throw new IOException("Blob content does not match its hash: " + hash);
+                }
+                addToCache(spool, hash, Files.size(spool));
+            } finally {
+                Files.deleteIfExists(spool);
+            }
+            sample.success();
+        }
+        return file;
+    }
+
+    private static InputStream openFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MMAP_MIN_BYTES && size <= Integer.MAX_VALUE) {
+                // 映射在通道关闭后仍然有效
+                return new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        }
+        return Files.newInputStream(file);
+    }
+
+    private static String readFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MMAP_MIN_BYTES && size <= Integer.MAX_VALUE) {
+                return StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)).toString();
+            }
+        }
+        return Files.readString(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 缓存文件按哈希的前两个字符分目录存放，避免单个目录下文件过多
+     */
+    private Path cacheFile(String hash) {
+        return cacheDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private Path createTempFile() throws IOException {
+        Files.createDirectories(cacheDir);
+        return Files.createTempFile(cacheDir, "blob-", TEMP_SUFFIX);
+    }
+
+    private void addToCache(Path spool, String hash, long size) throws IOException {
+        Path file = cacheFile(hash);
+        Files.createDirectories(file.getParent());
+        try {
+            Files.move(spool, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // 其他线程已经放进了缓存，内容相同
+            return;
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(spool, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        synchronized (cacheLock) {
+            if (cacheBytes < 0) {
+                cacheBytes = scanCache(null);
+            } else {
+                cacheBytes += size;
+            }
+            if (cacheBytes > CACHE_MAX_BYTES) {
+                // 一次删到上限的90%，避免每次填充都遍历目录
+                cacheBytes = scanCache(CACHE_MAX_BYTES * 9 / 10);
+            }
+        }
+    }
+
+    private void evict(String hash) {
+        Path file = cacheFile(hash);
+        try {
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                synchronized (cacheLock) {
+                    if (cacheBytes >= 0) {
+                        cacheBytes -= size;
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // 没有缓存过
+        } catch (IOException e) {
+            System.err.println("删除blob缓存文件失败: " + file + " " + e.getMessage());
+        }
+    }
+
+    /**
+     * 统计缓存总大小；给出上限时按写入时间从早到晚删除文件，直到总大小不超过上限
+     * @return 删除之后的缓存总大小
+     */
+    private long scanCache(Long limit) {
+        List<Path> files = new ArrayList<>();
+        List<BasicFileAttributes> attributes = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(cacheDir, 2)) {
+            walk.filter(path -> !path.getFileName().toString().endsWith(TEMP_SUFFIX)).forEach(path -> {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attrs.isRegularFile()) {
+                        files.add(path);
+                        attributes.add(attrs);
+                    }
+                } catch (IOException e) {
+                    // 遍历期间被删除
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("遍历blob缓存目录失败: " + e.getMessage());
+            return 0;
+        }
+        long total = 0;
+        for (BasicFileAttributes attrs : attributes) {
+            total += attrs.size();
+        }
+        if (limit == null || total <= limit) {
+            return total;
+        }
+        List<Integer> order = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> attributes.get(a).lastModifiedTime().compareTo(attributes.get(b).lastModifiedTime()));
+        for (int i : order) {
+            if (total <= limit) {
+                break;
+            }
+            try {
+                // 已经映射的文件在Windows上无法删除，跳过即可
+                Files.deleteIfExists(files.get(i));
+                total -= attributes.get(i).size();
+            } catch (IOException e) {
+                System.err.println("淘汰blob缓存文件失败: " + files.get(i) + " " + e.getMessage());
+            }
+        }
+        return total;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 以流的方式提供要存入的数据
+     */
+    @FunctionalInterface
+    interface BlobSource {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 存入的blob：哈希和 (解压后的) 字节数
+     */
+    static final class StoredBlob {
+        private final String hash;
+        private final long size;
+
+        private StoredBlob(String hash, long size) {
+            this.hash = hash;
+            this.size = size;
+        }
+
+        String getHash() {
+            return hash;
+        }
+
+        long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * 从内存映射的缓存文件中读取
+     */
+    private static final class MappedInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private MappedInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 分块数据的压缩格式，名称保存在 content_blobs.codec (旧版本分块为 documents.content_codec) 中，读取时按各自的格式解压
+ * 通过 -Ddocmgmt.content.codec=deflate|none 选择新写入的blob使用的格式
+ */
+enum ContentCodec {
+    /**
+     * 不压缩，适合已经压缩过的内容
+     */
+    NONE("none"),
+    /**
+     * Deflate压缩，默认使用最快的压缩级别 (-Ddocmgmt.content.deflateLevel 可调)
+     */
+    DEFLATE("deflate");
+
+    private static final int DEFLATE_LEVEL = Integer.getInteger("docmgmt.content.deflateLevel", Deflater.BEST_SPEED);
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String name;
+
+    ContentCodec(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @param name 格式名称，不区分大小写
+     * @return 对应的格式
+     * @throws IllegalArgumentException 未知的格式
+     */
+    static ContentCodec of(String name) {
+        for (ContentCodec codec : values()) {
+            if (codec.name.equals(name.toLowerCase(Locale.ROOT))) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown content codec: " + name);
+    }
+
+    /**
+     * 包装输出流，写入的数据被压缩后写到out；关闭返回的流时写出剩余数据并关闭out
+     */
+    OutputStream compress(OutputStream out) {
+        if (this == NONE) {
+            return out;
+        }
+        Deflater deflater = new Deflater(DEFLATE_LEVEL);
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // 自定义的Deflater不会被DeflaterOutputStream释放，需要手动释放本地内存
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * 包装输入流，从返回的流中读到的是解压后的数据；关闭返回的流时关闭in
+     */
+    InputStream decompress(InputStream in) {
+        if (this == NONE) {
+            return in;
+        }
+        return new InflaterInputStream(in);
+    }
+}
@@ -0,0 +1,270 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 大文档正文和附件的分块存储
+ * 不超过内联阈值的正文仍然存放在 documents.content 中，读写只需一条语句；超过阈值的正文和附件作为blob
+ * (见 {@link BlobStore}) 压缩后切成固定大小的块，按内容的SHA-256和顺序号存入 blob_chunks 表。读写都以流的方式进行，
+ * 不需要把整个正文放进内存。
+ * <p>
+ * 旧版本按文档存放在 document_chunks 中的分块 (documents.content_codec 不为NULL) 仍然可以读取，文档下次写入时改存为blob。
+ * <p>
+ * 可通过系统属性调整：docmgmt.content.inlineMaxChars (内联阈值，字符数)、docmgmt.content.chunkBytes (每块字节数)、
+ * docmgmt.content.codec (新写入的blob使用的压缩格式)。
+ */
+final class ContentStore {
+
+    static final int INLINE_MAX_CHARS = Integer.getInteger("docmgmt.content.inlineMaxChars", 64 * 1024);
+    static final int CHUNK_BYTES = Integer.getInteger("docmgmt.content.chunkBytes", 256 * 1024);
+    static final ContentCodec CODEC = ContentCodec.of(System.getProperty("docmgmt.content.codec", "deflate"));
+
+    // 每攒够这么多块执行一次批量插入，限制单次发送的数据量
+    private static final int CHUNKS_PER_BATCH = 16;
+    private static final int COPY_BUFFER_BYTES = 8192;
+
+    static final String SQL_INSERT_BLOB_CHUNK = "INSERT INTO blob_chunks (hash, seq, data) VALUES (?, ?, ?)";
+    static final String SQL_FIND_BLOB_CHUNKS = "SELECT data FROM blob_chunks WHERE hash = ? ORDER BY seq";
+    // 旧版本按文档存放的分块，只读
+    static final String SQL_FIND_CHUNKS = "SELECT data FROM document_chunks WHERE document_id = ? ORDER BY seq";
+    // 文档改为内联存放或改存为blob后留下的旧分块
+    static final String SQL_DELETE_ORPHAN_CHUNKS =
+            "DELETE FROM document_chunks WHERE document_id IN (SELECT id FROM documents WHERE content_codec IS NULL)";
+
+    private ContentStore() {
+    }
+
+    /**
+     * @return 正文是否内联存放在 documents.content 中
+     */
+    static boolean isInline(String content) {
+        return content == null || content.length() <= INLINE_MAX_CHARS;
+    }
+
+    /**
+     * 把数据压缩后写入一个blob的分块，在调用方的事务中执行，由调用方提交或回滚
+     * @param conn 调用方的连接 (已关闭自动提交)
+     * @param hash blob的SHA-256，content_blobs 中对应的行由调用方插入
+     * @param data 要写入的数据，读到末尾为止，由调用方关闭
+     * @param codec 压缩格式
+     */
+    static void writeChunks(Connection conn, String hash, InputStream data, ContentCodec codec) throws SQLException, IOException {
+        try (PreparedStatement insert = conn.prepareStatement(SQL_INSERT_BLOB_CHUNK)) {
+            ChunkOutputStream chunks = new ChunkOutputStream(insert, hash);
+            try (OutputStream out = codec.compress(chunks)) {
+                byte[] buffer = new byte[COPY_BUFFER_BYTES];
+                int n;
+                while ((n = data.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+            } catch (ChunkWriteException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * 打开blob分块的解压流，按顺序号逐块读取，同一时间只有一块在内存中
+     * 关闭返回的流时关闭查询，但不关闭连接
+     * @param conn 连接，在返回的流关闭之前不能关闭
+     * @param hash blob的SHA-256
+     * @param codec blob的压缩格式
+     * @return 解压后的数据
+     */
+    static InputStream openBlobChunks(Connection conn, String hash, ContentCodec codec) throws SQLException {
+        return openChunks(conn, SQL_FIND_BLOB_CHUNKS, hash, codec);
+    }
+
+    /**
+     * 打开旧版本按文档存放的分块，规则同 {@link #openBlobChunks(Connection, String, ContentCodec)}
+     * @param documentId 文档ID
+     * @param codec 文档的压缩格式 (documents.content_codec)
+     * @return 正文的UTF-8字节流
+     */
+    static InputStream openChunks(Connection conn, int documentId, ContentCodec codec) throws SQLException {
+        return openChunks(conn, SQL_FIND_CHUNKS, documentId, codec);
+    }
+
+    private static InputStream openChunks(Connection conn, String sql, Object key, ContentCodec codec) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            // 每块都不小，逐块从服务器取回
+            stmt.setFetchSize(1);
+            stmt.setObject(1, key);
+            return codec.decompress(new ChunkInputStream(stmt, stmt.executeQuery()));
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 把写入的字节切成固定大小的块，攒够一批后批量插入
+     */
+    private static final class ChunkOutputStream extends OutputStream {
+        private final PreparedStatement insert;
+        private final String hash;
+        private final byte[] buffer = new byte[CHUNK_BYTES];
+        private int count;
+        private int seq;
+        private int pending;
+        private boolean closed;
+
+        private ChunkOutputStream(PreparedStatement insert, String hash) {
+            this.insert = insert;
+            this.hash = hash;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (count > 0 || seq == 0) {
+                flushChunk();
+            }
+            executePending();
+        }
+
+        private void flushChunk() throws ChunkWriteException {
+            try {
+                byte[] data = new byte[count];
+                System.arraycopy(buffer, 0, data, 0, count);
+                insert.setString(1, hash);
+                insert.setInt(2, seq++);
+                insert.setBytes(3, data);
+                insert.addBatch();
+                count = 0;
+                if (++pending == CHUNKS_PER_BATCH) {
+                    executePending();
+                }
+            } catch (SQLException e) {
+                throw new ChunkWriteException(e);
+            }
+        }
+
+        private void executePending() throws ChunkWriteException {
+            if (pending == 0) {
+                return;
+            }
+            try {
+                insert.executeBatch();
+                pending = 0;
+            } catch (SQLException e) {
+                throw new ChunkWriteException(e);
+            }
+        }
+    }
+
+    /**
+     * 按顺序号逐块读取分块数据
+     */
+    private static final class ChunkInputStream extends InputStream {
+        private final PreparedStatement stmt;
+        private final ResultSet rs;
+        private byte[] chunk = new byte[0];
+        private int position;
+        private boolean done;
+
+        private ChunkInputStream(PreparedStatement stmt, ResultSet rs) {
+            this.stmt = stmt;
+            this.rs = rs;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureData()) {
+                return -1;
+            }
+            return chunk[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureData()) {
+                return -1;
+            }
+            int n = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private boolean ensureData() throws IOException {
+            while (position == chunk.length) {
+                if (done) {
+                    return false;
+                }
+                try {
+                    if (rs.next()) {
+                        chunk = rs.getBytes(1);
+                        position = 0;
+                    } else {
+                        done = true;
+                    }
+                } catch (SQLException e) {
+                    throw new IOException("Failed to read content chunk: " + e.getMessage(), e);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                rs.close();
+                stmt.close();
+            } catch (SQLException e) {
+                throw new IOException("Failed to close content chunks: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 在OutputStream接口中传递插入分块时的SQLException，由 {@link #writeChunks} 还原
+     */
+    private static final class ChunkWriteException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private ChunkWriteException(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+}
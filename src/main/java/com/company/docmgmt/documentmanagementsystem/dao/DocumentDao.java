@@ -1,29 +1,144 @@
 package com.company.docmgmt.documentmanagementsystem.dao;
 
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
 import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentChange;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentEvent;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentRevision;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.model.PageCursor;
+import com.company.docmgmt.documentmanagementsystem.model.WriteResult;
 import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class DocumentDao {
 
+    // 命名的SQL语句：每次调用使用同一个字符串，连接池按SQL缓存PreparedStatement (批量方法与单条方法共用同一语句)
+    // 包内可见的语句由 QueryPlanChecker 在启动时检查执行计划
+    private static final String SQL_FIND_ALL = "SELECT * FROM documents ORDER BY created_at DESC";
+    static final String SQL_FIND_BY_OWNER_ID = "SELECT * FROM documents WHERE owner_user_id = ? ORDER BY created_at DESC";
+    private static final String SQL_COUNT_ALL = "SELECT COUNT(*) FROM documents";
+    static final String SQL_COUNT_BY_OWNER_ID = "SELECT COUNT(*) FROM documents WHERE owner_user_id = ?";
+    static final String SQL_FIND_BY_ID = "SELECT * FROM documents WHERE id = ?";
+    private static final String SQL_STREAM_ALL = "SELECT * FROM documents ORDER BY created_at DESC, id DESC";
+    private static final String SQL_STREAM_BY_OWNER_ID = "SELECT * FROM documents WHERE owner_user_id = ? ORDER BY created_at DESC, id DESC";
+    // 正文超过内联阈值时content为NULL、content_hash为正文的SHA-256，正文存放在blob存储中 (见 BlobStore)
+    private static final String SQL_INSERT = "INSERT INTO documents (title, content, content_hash, owner_user_id, status) VALUES (?, ?, ?, ?, ?)";
+    // 乐观并发控制：只有版本号与读取时一致才更新，同时版本号加一
+    // 写入正文时清空content_codec，旧版本的分块由 deleteOrphanChunks 清理
+    static final String SQL_UPDATE = "UPDATE documents SET title = ?, content = ?, content_hash = ?, content_codec = NULL, status = ?, version = version + 1 WHERE id = ? AND version = ?";
+    static final String SQL_DELETE = "DELETE FROM documents WHERE id = ?";
+    // 所有者检查合并进写语句：一次往返完成检查和写入，二者之间不会被其他事务插入
+    static final String SQL_UPDATE_OWNED = "UPDATE documents SET title = ?, content = ?, content_hash = ?, content_codec = NULL, status = ?, version = version + 1 WHERE id = ? AND version = ? AND owner_user_id = ?";
+    static final String SQL_UPDATE_CONTENT_OWNED = "UPDATE documents SET content = ?, content_hash = ?, content_codec = NULL, version = version + 1 WHERE id = ? AND version = ? AND owner_user_id = ?";
+    static final String SQL_DELETE_OWNED = "DELETE FROM documents WHERE id = ? AND owner_user_id = ?";
+    // 写语句没有命中任何行时才执行，用于区分失败原因
+    private static final String SQL_FIND_OWNER_AND_VERSION = "SELECT owner_user_id, version FROM documents WHERE id = ?";
+    private static final String SQL_FIND_CONTENT = "SELECT content, content_codec, content_hash FROM documents WHERE id = ?";
+    private static final String SQL_FIND_OWNER_AND_CREATED_AT = "SELECT owner_user_id, created_at FROM documents WHERE id = ?";
+    private static final String SQL_FIND_CONTENT_BY_OWNER = "SELECT content, content_codec, content_hash FROM documents WHERE id = ? AND owner_user_id = ?";
+    // 删除的文档在同一个事务中记入墓碑，供客户端的本地副本增量同步 (见 findChanges)
+    // 批量删除在DELETE之前用相同的参数执行；单条删除已知所有者，DELETE命中后直接插入
+    static final String SQL_INSERT_TOMBSTONE = "INSERT INTO document_tombstones (document_id, owner_user_id)"
+            + " SELECT id, owner_user_id FROM documents WHERE id = ?";
+    static final String SQL_INSERT_TOMBSTONE_OWNED = "INSERT INTO document_tombstones (document_id, owner_user_id)"
+            + " SELECT id, owner_user_id FROM documents WHERE id = ? AND owner_user_id = ?";
+    private static final String SQL_INSERT_TOMBSTONE_VALUES = "INSERT INTO document_tombstones (document_id, owner_user_id) VALUES (?, ?)";
+    static final String SQL_PRUNE_TOMBSTONES = "DELETE FROM document_tombstones WHERE deleted_at < ?";
+    // 变更通知的发件箱：创建、修改和删除与事件在同一个事务中写入 (见 DocumentEventDispatcher)
+    // 已知所有者时直接插入；更新之后该行已被本事务锁住，从文档行读出所有者；批量删除与墓碑一样在DELETE之前执行
+    private static final String SQL_INSERT_EVENT = "INSERT INTO document_events (event_type, document_id, owner_user_id) VALUES (?, ?, ?)";
+    static final String SQL_INSERT_UPDATED_EVENT = "INSERT INTO document_events (event_type, document_id, owner_user_id)"
+            + " SELECT 'UPDATED', id, owner_user_id FROM documents WHERE id = ?";
+    static final String SQL_INSERT_DELETED_EVENT = "INSERT INTO document_events (event_type, document_id, owner_user_id)"
+            + " SELECT 'DELETED', id, owner_user_id FROM documents WHERE id = ?";
+    static final String SQL_INSERT_DELETED_EVENT_OWNED = "INSERT INTO document_events (event_type, document_id, owner_user_id)"
+            + " SELECT 'DELETED', id, owner_user_id FROM documents WHERE id = ? AND owner_user_id = ?";
+    static final String SQL_FIND_EVENTS_AFTER = "SELECT id, event_type, document_id, owner_user_id, created_at FROM document_events"
+            + " WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SQL_FIND_LAST_EVENT_ID = "SELECT MAX(id) FROM document_events";
+    static final String SQL_PRUNE_EVENTS = "DELETE FROM document_events WHERE created_at < ?";
+    // 按ID批量查找摘要时IN列表的最大长度
+    private static final int MAX_IDS_PER_QUERY = 100;
+
+    // 列表视图使用的列，不包含content
+    static final String SUMMARY_COLUMNS = "id, title, owner_user_id, status, created_at, updated_at";
+
+    // 每个方法的调用次数、错误数、行数和延迟
+    private static final Operation FIND_ALL = Metrics.operation("DocumentDao.findAll");
+    private static final Operation FIND_BY_OWNER_ID = Metrics.operation("DocumentDao.findByOwnerId");
+    private static final Operation FIND_ALL_SUMMARIES = Metrics.operation("DocumentDao.findAllSummaries");
+    private static final Operation FIND_SUMMARIES_BY_OWNER_ID = Metrics.operation("DocumentDao.findSummariesByOwnerId");
+    private static final Operation COUNT_ALL = Metrics.operation("DocumentDao.countAll");
+    private static final Operation COUNT_BY_OWNER_ID = Metrics.operation("DocumentDao.countByOwnerId");
+    private static final Operation FIND_SUMMARIES_AT = Metrics.operation("DocumentDao.findSummariesAt");
+    private static final Operation FIND_BY_ID = Metrics.operation("DocumentDao.findById");
+    private static final Operation FIND_PAGE = Metrics.operation("DocumentDao.findPage");
+    private static final Operation FIND_PAGE_BY_OWNER_ID = Metrics.operation("DocumentDao.findPageByOwnerId");
+    private static final Operation FIND_SUMMARY_PAGE = Metrics.operation("DocumentDao.findSummaryPage");
+    private static final Operation FIND_SUMMARY_PAGE_BY_OWNER_ID = Metrics.operation("DocumentDao.findSummaryPageByOwnerId");
+    private static final Operation STREAM_ALL = Metrics.operation("DocumentDao.streamAll");
+    private static final Operation STREAM_BY_OWNER_ID = Metrics.operation("DocumentDao.streamByOwnerId");
+    private static final Operation SAVE = Metrics.operation("DocumentDao.save");
+    private static final Operation UPDATE = Metrics.operation("DocumentDao.update");
+    private static final Operation SAVE_ALL = Metrics.operation("DocumentDao.saveAll");
+    private static final Operation UPDATE_ALL = Metrics.operation("DocumentDao.updateAll");
+    private static final Operation DELETE_ALL = Metrics.operation("DocumentDao.deleteAll");
+    private static final Operation UPDATE_OWNED = Metrics.operation("DocumentDao.updateOwned");
+    private static final Operation DELETE_OWNED = Metrics.operation("DocumentDao.deleteOwned");
+    private static final Operation UPDATE_ALL_OWNED = Metrics.operation("DocumentDao.updateAllOwned");
+    private static final Operation DELETE_ALL_OWNED = Metrics.operation("DocumentDao.deleteAllOwned");
+    private static final Operation OPEN_CONTENT = Metrics.operation("DocumentDao.openContent");
+    private static final Operation WRITE_CONTENT_OWNED = Metrics.operation("DocumentDao.writeContentOwned");
+    private static final Operation DELETE_ORPHAN_CHUNKS = Metrics.operation("DocumentDao.deleteOrphanChunks");
+    private static final Operation FIND_CHANGES = Metrics.operation("DocumentDao.findChanges");
+    private static final Operation PRUNE_TOMBSTONES = Metrics.operation("DocumentDao.pruneTombstones");
+    private static final Operation FIND_SUMMARIES_BY_IDS = Metrics.operation("DocumentDao.findSummariesByIds");
+    private static final Operation FIND_EVENTS = Metrics.operation("DocumentDao.findEvents");
+    private static final Operation PRUNE_EVENTS = Metrics.operation("DocumentDao.pruneEvents");
+    private static final Operation FIND_REVISIONS = Metrics.operation("DocumentDao.findRevisions");
+    private static final Operation FIND_REVISION = Metrics.operation("DocumentDao.findRevision");
+
     /**
-     * 查找所有文档
+     * 查找所有文档，大正文也会被完整读出；只需要列表信息时使用 {@link #findAllSummaries()}
      * @return 文档列表
      */
     public List<Document> findAll() {
         List<Document> documents = new ArrayList<>();
-        String sql = "SELECT * FROM documents ORDER BY created_at DESC";
-        try (Connection conn = DatabaseUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Operation.Sample sample = FIND_ALL.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_ALL);
+             ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
-                documents.add(mapRowToDocument(rs));
+                documents.add(mapRowWithContent(conn, rs));
             }
+            sample.rows(documents.size());
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -31,21 +146,22 @@ public class DocumentDao {
     }
 
     /**
-     * 根据创建者ID查找文档
+     * 根据创建者ID查找文档，大正文也会被完整读出；只需要列表信息时使用 {@link #findSummariesByOwnerId(int)}
      * @param ownerId 创建者的用户ID
      * @return 该用户创建的文档列表
      */
     public List<Document> findByOwnerId(int ownerId) {
         List<Document> documents = new ArrayList<>();
-        String sql = "SELECT * FROM documents WHERE owner_user_id = ? ORDER BY created_at DESC";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Operation.Sample sample = FIND_BY_OWNER_ID.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_BY_OWNER_ID)) {
 
             stmt.setInt(1, ownerId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                documents.add(mapRowToDocument(rs));
+                documents.add(mapRowWithContent(conn, rs));
             }
+            sample.rows(documents.size());
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -53,20 +169,189 @@ public class DocumentDao {
     }
 
     /**
-     * 根据文档ID查找文档
+     * 查找所有文档的摘要 (不读取content)
+     * @return 文档摘要列表
+     */
+    public List<DocumentSummary> findAllSummaries() {
+        List<DocumentSummary> summaries = new ArrayList<>();
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM documents ORDER BY created_at DESC";
+        try (Operation.Sample sample = FIND_ALL_SUMMARIES.start();
+             Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                summaries.add(mapRowToSummary(rs));
+            }
+            sample.rows(summaries.size());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return summaries;
+    }
+
+    /**
+     * 根据创建者ID查找文档摘要 (不读取content)
+     * @param ownerId 创建者的用户ID
+     * @return 该用户创建的文档摘要列表
+     */
+    public List<DocumentSummary> findSummariesByOwnerId(int ownerId) {
+        List<DocumentSummary> summaries = new ArrayList<>();
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM documents WHERE owner_user_id = ? ORDER BY created_at DESC";
+        try (Operation.Sample sample = FIND_SUMMARIES_BY_OWNER_ID.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, ownerId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                summaries.add(mapRowToSummary(rs));
+            }
+            sample.rows(summaries.size());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return summaries;
+    }
+
+    /**
+     * 统计文档总数
+     * @return 文档总数
+     */
+    public int countAll() {
+        try (Operation.Sample sample = COUNT_ALL.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_COUNT_ALL);
+             ResultSet rs = stmt.executeQuery()) {
+
+            sample.success();
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * 统计某个用户创建的文档数
+     * @param ownerId 创建者的用户ID
+     * @return 文档数
+     */
+    public int countByOwnerId(int ownerId) {
+        try (Operation.Sample sample = COUNT_BY_OWNER_ID.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_COUNT_BY_OWNER_ID)) {
+
+            stmt.setInt(1, ownerId);
+            ResultSet rs = stmt.executeQuery();
+            sample.success();
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * 按偏移量读取一段文档摘要，用于没有键集游标时的随机跳转 (例如直接拖动滚动条到中间)
+     * 顺序与键集分页一致；顺序翻页时应优先使用 {@link #findSummaryPage(PageCursor, int)}
+     * @param ownerId 创建者的用户ID，为null时不限制
+     * @param offset 起始偏移
+     * @param limit 读取条数
+     * @return 一页文档摘要，nextCursor指向本页之后的位置
+     */
+    public Page<DocumentSummary> findSummariesAt(Integer ownerId, int offset, int limit) {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM documents"
+                + (ownerId != null ? " WHERE owner_user_id = ?" : "")
+                + " ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?";
+        List<DocumentSummary> summaries = new ArrayList<>(limit);
+        try (Operation.Sample sample = FIND_SUMMARIES_AT.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            if (ownerId != null) {
+                stmt.setInt(index++, ownerId);
+            }
+            stmt.setInt(index++, limit);
+            stmt.setInt(index, offset);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                summaries.add(mapRowToSummary(rs));
+            }
+            sample.rows(summaries.size());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        PageCursor next = summaries.size() == limit ? PageCursor.after(summaries.get(limit - 1)) : null;
+        return new Page<>(summaries, next);
+    }
+
+    /**
+     * 按ID批量查找文档摘要 (不读取content)，用于把变更通知解析成变化后的行
+     * 每条语句最多查询 MAX_IDS_PER_QUERY 个ID；不存在(或不属于该用户)的ID被忽略
+     * @param ids 文档ID
+     * @param ownerId 只查找该用户拥有的文档，为null时不限制
+     * @return 文档摘要，顺序不定
+     * @throws RuntimeException 数据库不可用时，调用方据此区分"文档已删除"和"查询失败"
+     */
+    public List<DocumentSummary> findSummariesByIds(List<Integer> ids, Integer ownerId) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<DocumentSummary> summaries = new ArrayList<>(ids.size());
+        try (Operation.Sample sample = FIND_SUMMARIES_BY_IDS.start();
+             Connection conn = DatabaseUtil.getConnection()) {
+
+            for (List<Integer> chunk : chunks(ids, MAX_IDS_PER_QUERY)) {
+                String sql = "SELECT " + SUMMARY_COLUMNS + " FROM documents WHERE id IN ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")"
+                        + (ownerId != null ? " AND owner_user_id = ?" : "");
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    int index = 1;
+                    for (int id : chunk) {
+                        stmt.setInt(index++, id);
+                    }
+                    if (ownerId != null) {
+                        stmt.setInt(index, ownerId);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            summaries.add(mapRowToSummary(rs));
+                        }
+                    }
+                }
+            }
+            sample.rows(summaries.size());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read document summaries: " + e.getMessage(), e);
+        }
+        return summaries;
+    }
+
+    /**
+     * 根据文档ID查找文档，存放在blob中的大正文也会被完整读出
+     * 只需要逐段处理正文时使用 {@link #openContentReader(int, Integer)}
      * @param id 文档ID
      * @return 包含文档对象的Optional
      */
     public Optional<Document> findById(int id) {
-        String sql = "SELECT * FROM documents WHERE id = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Operation.Sample sample = FIND_BY_ID.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_BY_ID)) {
 
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return Optional.of(mapRowToDocument(rs));
+                Document document = mapRowWithContent(conn, rs);
+                sample.rows(1);
+                return Optional.of(document);
             }
+            sample.success();
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -74,40 +359,381 @@ public class DocumentDao {
     }
 
 
+    /**
+     * 键集分页查询所有文档，按 (created_at, id) 倒序，大正文也会被完整读出；只需要列表信息时使用 {@link #findSummaryPage}
+     * @param after 上一页返回的游标，查询第一页时传null
+     * @param pageSize 每页条数
+     * @return 一页文档
+     */
+    public Page<Document> findPage(PageCursor after, int pageSize) {
+        return findPage(FIND_PAGE, "*", this::mapRowWithContent, PageCursor::after, null, after, pageSize);
+    }
+
+    /**
+     * 键集分页查询某个用户创建的文档，按 (created_at, id) 倒序，正文规则同 {@link #findPage}
+     * @param ownerId 创建者的用户ID
+     * @param after 上一页返回的游标，查询第一页时传null
+     * @param pageSize 每页条数
+     * @return 一页文档
+     */
+    public Page<Document> findPageByOwnerId(int ownerId, PageCursor after, int pageSize) {
+        return findPage(FIND_PAGE_BY_OWNER_ID, "*", this::mapRowWithContent, PageCursor::after, ownerId, after, pageSize);
+    }
+
+    /**
+     * 键集分页查询所有文档的摘要 (不读取content)
+     * @param after 上一页返回的游标，查询第一页时传null
+     * @param pageSize 每页条数
+     * @return 一页文档摘要
+     */
+    public Page<DocumentSummary> findSummaryPage(PageCursor after, int pageSize) {
+        return findPage(FIND_SUMMARY_PAGE, SUMMARY_COLUMNS, (conn, rs) -> mapRowToSummary(rs), PageCursor::after, null, after, pageSize);
+    }
+
+    /**
+     * 键集分页查询某个用户创建的文档摘要 (不读取content)
+     * @param ownerId 创建者的用户ID
+     * @param after 上一页返回的游标，查询第一页时传null
+     * @param pageSize 每页条数
+     * @return 一页文档摘要
+     */
+    public Page<DocumentSummary> findSummaryPageByOwnerId(int ownerId, PageCursor after, int pageSize) {
+        return findPage(FIND_SUMMARY_PAGE_BY_OWNER_ID, SUMMARY_COLUMNS, (conn, rs) -> mapRowToSummary(rs), PageCursor::after, ownerId, after, pageSize);
+    }
+
+    /**
+     * 以流的方式遍历所有文档，结果集按fetchSize分批从数据库读取，内存占用与总行数无关。
+     * 大正文在遍历到该行时在同一个连接上完整读出，同一时间只有当前这篇在内存中。
+     * 返回的Stream持有数据库连接，必须在 try-with-resources 中使用。
+     * (MySQL需要在URL中开启 useCursorFetch=true，fetchSize才会生效，读取大正文的查询也才能在结果集打开时执行)
+     * @param fetchSize JDBC每批读取的行数
+     * @return 文档流
+     */
+    public Stream<Document> streamAll(int fetchSize) {
+        return stream(STREAM_ALL, SQL_STREAM_ALL, fetchSize, stmt -> { });
+    }
+
+    /**
+     * 以流的方式遍历某个用户创建的文档，用法同 {@link #streamAll(int)}
+     * @param ownerId 创建者的用户ID
+     * @param fetchSize JDBC每批读取的行数
+     * @return 文档流
+     */
+    public Stream<Document> streamByOwnerId(int ownerId, int fetchSize) {
+        return stream(STREAM_BY_OWNER_ID, SQL_STREAM_BY_OWNER_ID, fetchSize, stmt -> stmt.setInt(1, ownerId));
+    }
+
+    /**
+     * 读取游标之后发生的文档变更，按 (变更时间, 文档ID) 升序：新增和修改的文档取自documents (变更时间为updated_at)，
+     * 删除的文档取自墓碑。两个来源各自按索引顺序读取最多limit+1行，再在内存中归并
+     * 时间相同时墓碑排在前面，文档ID被重新使用时新文档不会被旧的删除覆盖
+     * @param ownerId 只返回该用户的文档的变更；为null时不限制
+     * @param after 上一批返回的游标，从头读取时传null
+     * @param limit 最多返回的条数
+     * @return 一批变更，nextCursor指向本批最后一条；读完时为null
+     */
+    public Page<DocumentChange> findChanges(Integer ownerId, PageCursor after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be greater than 0");
+        }
+        try (Operation.Sample sample = FIND_CHANGES.start();
+             Connection conn = DatabaseUtil.getConnection()) {
+
+            List<DocumentChange> upserts = findChanges(conn, documentChangesSql(ownerId != null, after != null),
+                    ownerId, after, limit + 1, (c, rs) -> DocumentChange.upsert(mapRowToSummary(rs)));
+            List<DocumentChange> deletes = findChanges(conn, tombstoneChangesSql(ownerId != null, after != null),
+                    ownerId, after, limit + 1,
+                    (c, rs) -> DocumentChange.deleted(rs.getInt("document_id"), rs.getTimestamp("deleted_at").toLocalDateTime()));
+
+            List<DocumentChange> changes = new ArrayList<>(Math.min(limit + 1, upserts.size() + deletes.size()));
+            int u = 0;
+            int d = 0;
+            while (changes.size() <= limit && (u < upserts.size() || d < deletes.size())) {
+                if (d >= deletes.size() || (u < upserts.size() && compare(upserts.get(u), deletes.get(d)) < 0)) {
+                    changes.add(upserts.get(u++));
+                } else {
+                    changes.add(deletes.get(d++));
+                }
+            }
+            sample.rows(Math.min(changes.size(), limit));
+            if (changes.size() > limit) {
+                changes.remove(limit);
+                return new Page<>(changes, PageCursor.after(changes.get(limit - 1)));
+            }
+            return new Page<>(changes, null);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read document changes: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<DocumentChange> findChanges(Connection conn, String sql, Integer ownerId, PageCursor after, int limit,
+                                                    RowMapper<DocumentChange> mapper) throws SQLException {
+        List<DocumentChange> changes = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (ownerId != null) {
+                stmt.setInt(index++, ownerId);
+            }
+            if (after != null) {
+                Timestamp changedAt = Timestamp.valueOf(after.getCreatedAt());
+                stmt.setTimestamp(index++, changedAt);
+                stmt.setTimestamp(index++, changedAt);
+                stmt.setInt(index++, after.getId());
+            }
+            stmt.setInt(index, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(mapper.map(conn, rs));
+                }
+            }
+        }
+        return changes;
+    }
+
+    private static int compare(DocumentChange upsert, DocumentChange delete) {
+        int byTime = upsert.getChangedAt().compareTo(delete.getChangedAt());
+        return byTime != 0 ? byTime : upsert.getDocumentId() < delete.getDocumentId() ? -1 : 1;
+    }
+
+    /**
+     * 新增和修改的文档的变更查询语句，参数依次为：owner_user_id(可选)、游标的时间两次和ID(可选)、LIMIT
+     */
+    static String documentChangesSql(boolean byOwner, boolean withCursor) {
+        return changesSql("documents", SUMMARY_COLUMNS, "updated_at", "id", byOwner, withCursor);
+    }
+
+    /**
+     * 墓碑的变更查询语句，参数同 {@link #documentChangesSql(boolean, boolean)}
+     */
+    static String tombstoneChangesSql(boolean byOwner, boolean withCursor) {
+        return changesSql("document_tombstones", "document_id, deleted_at", "deleted_at", "document_id", byOwner, withCursor);
+    }
+
+    private static String changesSql(String table, String columns, String timeColumn, String idColumn,
+                                      boolean byOwner, boolean withCursor) {
+        // 展开写法，并带上 时间列 >= ? 作为范围扫描的起点：只有OR条件时H2从索引开头逐行过滤，
+        // 同步时水位靠近最新的数据，扫描的行数会随总数增长
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM ").append(table);
+        List<String> conditions = new ArrayList<>();
+        if (byOwner) {
+            conditions.add("owner_user_id = ?");
+        }
+        if (withCursor) {
+            conditions.add(timeColumn + " >= ? AND (" + timeColumn + " > ? OR " + idColumn + " > ?)");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        return sql.append(" ORDER BY ").append(timeColumn).append(", ").append(idColumn).append(" LIMIT ?").toString();
+    }
+
+    private <T> Page<T> findPage(Operation operation, String columns, RowMapper<T> mapper, Function<T, PageCursor> cursorOf,
+                                 Integer ownerId, PageCursor after, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be greater than 0");
+        }
+        List<T> rows = new ArrayList<>(pageSize + 1);
+        try (Operation.Sample sample = operation.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(pageSql(columns, ownerId != null, after != null))) {
+
+            int index = 1;
+            if (ownerId != null) {
+                stmt.setInt(index++, ownerId);
+            }
+            if (after != null) {
+                Timestamp createdAt = Timestamp.valueOf(after.getCreatedAt());
+                stmt.setTimestamp(index++, createdAt);
+                stmt.setTimestamp(index++, createdAt);
+                stmt.setInt(index++, after.getId());
+            }
+            // 多取一行，用来判断是否还有下一页
+            stmt.setInt(index, pageSize + 1);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                rows.add(mapper.map(conn, rs));
+            }
+            sample.rows(Math.min(rows.size(), pageSize));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        if (rows.size() > pageSize) {
+            rows.remove(pageSize);
+            return new Page<>(rows, cursorOf.apply(rows.get(pageSize - 1)));
+        }
+        return new Page<>(rows, null);
+    }
+
+    /**
+     * 键集分页语句，参数依次为：owner_user_id(可选)、游标的created_at两次和id(可选)、LIMIT
+     */
+    static String pageSql(String columns, boolean byOwner, boolean withCursor) {
+        // 展开写法而不是行值比较 (created_at, id) < (?, ?)，保证MySQL能走 (created_at, id) 上的范围扫描
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM documents");
+        List<String> conditions = new ArrayList<>();
+        if (byOwner) {
+            conditions.add("owner_user_id = ?");
+        }
+        if (withCursor) {
+            conditions.add("(created_at < ? OR (created_at = ? AND id < ?))");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        return sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?").toString();
+    }
+
+    private Stream<Document> stream(Operation operation, String sql, int fetchSize, ParameterBinder binder) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        // 只统计打开流(执行查询)的耗时，逐行读取的时间由调用方决定
+        try (Operation.Sample sample = operation.start()) {
+            conn = DatabaseUtil.getConnection();
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            binder.bind(stmt);
+            ResultSet rs = stmt.executeQuery();
+            sample.success();
+
+            final Connection streamConn = conn;
+            final PreparedStatement streamStmt = stmt;
+            Spliterator<Document> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Document> action) {
+                    try {
+                        if (!rs.next()) {
+                            return false;
+                        }
+                        action.accept(mapRowWithContent(streamConn, rs));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new RuntimeException("Failed to read document stream: " + e.getMessage(), e);
+                    }
+                }
+            };
+            return StreamSupport.stream(spliterator, false).onClose(() -> closeQuietly(rs, streamStmt, streamConn));
+        } catch (SQLException e) {
+            closeQuietly(null, stmt, conn);
+            throw new RuntimeException("Failed to open document stream: " + e.getMessage(), e);
+        }
+    }
+
+    private static void closeQuietly(ResultSet rs, Statement stmt, Connection conn) {
+        for (AutoCloseable resource : new AutoCloseable[]{rs, stmt, conn}) {
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 为PreparedStatement绑定参数
+     */
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    /**
+     * 将ResultSet的当前行映射为对象
+     */
+    @FunctionalInterface
+    private interface RowMapper<T> {
+        T map(Connection conn, ResultSet rs) throws SQLException;
+    }
+
+
+    /**
+     * 将ResultSet的当前行映射到一个完整的Document对象，存放在blob (或旧版本分块) 中的大正文在同一个连接上读出
+     */
+    private Document mapRowWithContent(Connection conn, ResultSet rs) throws SQLException {
+        Document document = mapRowToDocument(rs);
+        String hash = rs.getString("content_hash");
+        String codec = rs.getString("content_codec");
+        if (hash != null) {
+            document.setContent(readBlob(conn, hash));
+        } else if (codec != null) {
+            document.setContent(readChunks(conn, document.getId(), ContentCodec.of(codec)));
+        }
+        return document;
+    }
+
     /**
      * 将ResultSet的当前行映射到一个Document对象
+     * 存放在blob (或旧版本分块) 中的大正文不在这里读取，content为null，由 {@link #mapRowWithContent} 补上
+     * 包可见，供基准测试直接测量映射开销
      * @param rs ResultSet
      * @return Document对象
      * @throws SQLException
      */
-    private Document mapRowToDocument(ResultSet rs) throws SQLException {
+    Document mapRowToDocument(ResultSet rs) throws SQLException {
         Document doc = new Document();
         doc.setId(rs.getInt("id"));
         doc.setTitle(rs.getString("title"));
-        doc.setContent(rs.getString("content"));
+        if (rs.getString("content_hash") == null && rs.getString("content_codec") == null) {
+            doc.setContent(rs.getString("content"));
+        }
         doc.setOwnerUserId(rs.getInt("owner_user_id"));
         doc.setStatus(rs.getString("status"));
         doc.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
         doc.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        doc.setVersion(rs.getInt("version"));
         return doc;
     }
 
+    /**
+     * 将ResultSet的当前行映射到一个DocumentSummary对象 (不读取content列)
+     * @param rs ResultSet
+     * @return DocumentSummary对象
+     * @throws SQLException
+     */
+    private DocumentSummary mapRowToSummary(ResultSet rs) throws SQLException {
+        DocumentSummary summary = new DocumentSummary();
+        summary.setId(rs.getInt("id"));
+        summary.setTitle(rs.getString("title"));
+        summary.setOwnerUserId(rs.getInt("owner_user_id"));
+        summary.setStatus(rs.getString("status"));
+        summary.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        summary.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        return summary;
+    }
+
     /**
      * 保存一个新文档到数据库
-     * @param document 要保存的文档对象 (ID应为空)
+     * 文档行、修订0和CREATED事件在同一个事务中写入；正文超过内联阈值时存入blob也在这个事务中完成，相同的正文已经存在时不再重复写入
+     * @param document 要保存的文档对象 (ID应为空)，保存成功后回填数据库生成的ID
      * @return 保存成功返回true
      */
     public boolean save(Document document) {
-        String sql = "INSERT INTO documents (title, content, owner_user_id, status) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Operation.Sample sample = SAVE.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS)) {
 
+            // 未提交的事务在连接归还时由连接池回滚
+            conn.setAutoCommit(false);
             stmt.setString(1, document.getTitle());
-            stmt.setString(2, document.getContent());
-            stmt.setInt(3, document.getOwnerUserId());
-            stmt.setString(4, document.getStatus());
+            String hash = bindContent(conn, stmt, 2, document.getContent());
+            stmt.setInt(4, document.getOwnerUserId());
+            stmt.setString(5, document.getStatus());
 
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        document.setId(generatedKeys.getInt(1));
+                    }
+                }
+                RevisionStore.recordCreated(conn, document, hash, document.getOwnerUserId());
+                insertEvent(conn, DocumentEvent.Type.CREATED, document.getId(), document.getOwnerUserId());
+                conn.commit();
+            }
+            sample.rows(rowsAffected);
             return rowsAffected > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -116,44 +742,724 @@ public class DocumentDao {
     }
 
     /**
-     * 更新一个已存在的文档
-     * @param document 要更新的文档对象 (必须包含ID)
-     * @return 更新成功返回true
+     * 更新一个已存在的文档，版本号与数据库中的不一致时不更新
+     * 更新后在同一个事务中写入修订历史 (见 {@link #findRevisions(int, Integer)})，不需要先读出更新前的文档；
+     * 没有命中任何行时才按主键查一次版本号，区分冲突和文档不存在
+     * @param document 要更新的文档对象 (必须包含ID和读取时的版本号)，成功后版本号更新为新值
+     * @return SUCCESS、CONFLICT、NOT_FOUND 或 FAILED
      */
-    public boolean update(Document document) {
-        String sql = "UPDATE documents SET title = ?, content = ?, status = ? WHERE id = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    public WriteResult update(Document document) {
+        return update(UPDATE, SQL_UPDATE, document, null);
+    }
 
-            stmt.setString(1, document.getTitle());
-            stmt.setString(2, document.getContent());
-            stmt.setString(3, document.getStatus());
-            stmt.setInt(4, document.getId());
+    /**
+     * 以指定用户的身份更新文档：所有者和版本号都在同一条UPDATE的WHERE条件中检查，修订历史同 {@link #update(Document)}
+     * 没有命中任何行时才按主键查一次，区分文档不存在、不属于该用户和版本冲突
+     * @param document 要更新的文档对象 (必须包含ID和读取时的版本号)，成功后版本号更新为新值
+     * @param ownerId 执行更新的用户ID，只能更新该用户拥有的文档
+     * @return SUCCESS、CONFLICT、NOT_FOUND、FORBIDDEN 或 FAILED
+     */
+    public WriteResult updateOwned(Document document, int ownerId) {
+        return update(UPDATE_OWNED, SQL_UPDATE_OWNED, document, ownerId);
+    }
 
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+    private WriteResult update(Operation operation, String sql, Document document, Integer ownerId) {
+        try (Operation.Sample sample = operation.start();
+             Connection conn = DatabaseUtil.getConnection()) {
+
+            // 更新文档行、修订历史、UPDATED事件和大正文的blob在同一个事务中，未提交的事务在连接归还时由连接池回滚
+            conn.setAutoCommit(false);
+            String hash;
+            int rowsAffected;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                hash = bindUpdate(conn, stmt, document);
+                if (ownerId != null) {
+                    stmt.setInt(7, ownerId);
+                }
+                rowsAffected = stmt.executeUpdate();
+            }
+            sample.rows(rowsAffected);
+            if (rowsAffected == 0) {
+                return diagnose(conn, document.getId(), ownerId);
+            }
+            RevisionStore.record(conn, document, hash, ownerId);
+            insertUpdatedEvent(conn, document.getId());
+            conn.commit();
+            document.setVersion(document.getVersion() + 1);
+            // 旧正文可能不再被引用
+            BlobStore.getInstance().scheduleCollection();
+            return WriteResult.SUCCESS;
         } catch (SQLException e) {
             e.printStackTrace();
-            return false;
+            return WriteResult.FAILED;
         }
     }
 
     /**
-     * 根据ID删除一个文档
+     * 以指定用户的身份删除文档，所有者在DELETE的WHERE条件中检查，规则同 {@link #updateOwned(Document, int)}
+     * 删除成功时在同一个事务中写入墓碑和DELETED事件
      * @param id 要删除的文档ID
-     * @return 删除成功返回true
+     * @param ownerId 执行删除的用户ID，只能删除该用户拥有的文档
+     * @return SUCCESS、NOT_FOUND、FORBIDDEN 或 FAILED
      */
-    public boolean delete(int id) {
-        String sql = "DELETE FROM documents WHERE id = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    public WriteResult deleteOwned(int id, int ownerId) {
+        try (Operation.Sample sample = DELETE_OWNED.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_DELETE_OWNED);
+             PreparedStatement tombstone = conn.prepareStatement(SQL_INSERT_TOMBSTONE_VALUES)) {
 
+            // 未提交的事务在连接归还时由连接池回滚
+            conn.setAutoCommit(false);
             stmt.setInt(1, id);
+            stmt.setInt(2, ownerId);
             int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            sample.rows(rowsAffected);
+            if (rowsAffected > 0) {
+                // 命中时所有者就是ownerId，墓碑和事件不需要再读文档
+                tombstone.setInt(1, id);
+                tombstone.setInt(2, ownerId);
+                tombstone.executeUpdate();
+                insertEvent(conn, DocumentEvent.Type.DELETED, id, ownerId);
+                conn.commit();
+                // 正文和附件的blob不在这里处理，由回收任务删除不再被引用的blob
+                BlobStore.getInstance().scheduleCollection();
+                return WriteResult.SUCCESS;
+            }
+            return diagnose(conn, id, ownerId);
         } catch (SQLException e) {
             e.printStackTrace();
-            return false;
+            return WriteResult.FAILED;
+        }
+    }
+
+    /**
+     * 以流的方式读取文档正文 (UTF-8编码)，不会把整个正文放进内存
+     * 存放在blob中的大正文从本地缓存文件读取，返回的流不占用数据库连接；旧版本的分块正文逐块读取和解压，
+     * 返回的流占用一个数据库连接。使用完毕后都必须关闭
+     * @param id 文档ID
+     * @param ownerId 只读取该用户拥有的文档；为null时不检查所有者
+     * @return 正文字节流，文档不存在(或不属于该用户)时为空；正文为NULL时是一个空流
+     */
+    public Optional<InputStream> openContentStream(int id, Integer ownerId) {
+        Connection conn = null;
+        try (Operation.Sample sample = OPEN_CONTENT.start()) {
+            conn = DatabaseUtil.getConnection();
+            String content;
+            String codec;
+            String hash;
+            try (PreparedStatement stmt = conn.prepareStatement(ownerId == null ? SQL_FIND_CONTENT : SQL_FIND_CONTENT_BY_OWNER)) {
+                stmt.setInt(1, id);
+                if (ownerId != null) {
+                    stmt.setInt(2, ownerId);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        sample.success();
+                        closeQuietly(null, null, conn);
+                        return Optional.empty();
+                    }
+                    content = rs.getString("content");
+                    codec = rs.getString("content_codec");
+                    hash = rs.getString("content_hash");
+                }
+            }
+            sample.rows(1);
+            if (hash != null) {
+                // 读到本地缓存之后就不再需要连接
+                Connection blobConn = conn;
+                conn = null;
+                try {
+                    return Optional.of(BlobStore.getInstance().open(blobConn, hash));
+                } finally {
+                    closeQuietly(null, null, blobConn);
+                }
+            }
+            if (codec == null) {
+                // 内联的正文不超过阈值，直接读出后归还连接
+                closeQuietly(null, null, conn);
+                return Optional.of(new ByteArrayInputStream(
+                        content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8)));
+            }
+            final Connection streamConn = conn;
+            return Optional.of(new FilterInputStream(ContentStore.openChunks(conn, id, ContentCodec.of(codec))) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        closeQuietly(null, null, streamConn);
+                    }
+                }
+            });
+        } catch (SQLException | IOException e) {
+            closeQuietly(null, null, conn);
+            throw new RuntimeException("Failed to open document content: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 以字符流的方式读取文档正文，规则同 {@link #openContentStream(int, Integer)}
+     * @param id 文档ID
+     * @param ownerId 只读取该用户拥有的文档；为null时不检查所有者
+     * @return 正文字符流，使用完毕后必须关闭
+     */
+    public Optional<Reader> openContentReader(int id, Integer ownerId) {
+        return openContentStream(id, ownerId).map(in -> new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 以流的方式替换文档正文，所有者和版本号的检查同 {@link #updateOwned(Document, int)}
+     * 先读入不超过内联阈值的部分：正文在阈值之内结束时内联存放；
+     * 否则把正文边读边写入blob (见 {@link BlobStore#put(Connection, BlobStore.BlobSource)})，整个正文不会同时出现在内存中。
+     * blob、文档行、修订历史和UPDATED事件在同一个事务中写入；新正文不在内存中，不计算差异，修订总是保存为快照
+     * @param id 文档ID
+     * @param expectedVersion 读取时的版本号
+     * @param ownerId 执行更新的用户ID
+     * @param content 新正文，读到末尾为止，由调用方关闭
+     * @return SUCCESS、CONFLICT、NOT_FOUND、FORBIDDEN 或 FAILED
+     */
+    public WriteResult writeContentOwned(int id, int expectedVersion, int ownerId, Reader content) {
+        try (Operation.Sample sample = WRITE_CONTENT_OWNED.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_UPDATE_CONTENT_OWNED)) {
+
+            String head = readUpTo(content, ContentStore.INLINE_MAX_CHARS + 1);
+            conn.setAutoCommit(false);
+            BlobStore.StoredBlob blob = null;
+            if (ContentStore.isInline(head)) {
+                stmt.setString(1, head);
+                stmt.setString(2, null);
+            } else {
+                blob = BlobStore.getInstance().put(conn, out -> {
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    writer.write(head);
+                    content.transferTo(writer);
+                    writer.flush();
+                });
+                stmt.setString(1, null);
+                stmt.setString(2, blob.getHash());
+            }
+            stmt.setInt(3, id);
+            stmt.setInt(4, expectedVersion);
+            stmt.setInt(5, ownerId);
+            int rowsAffected = stmt.executeUpdate();
+            sample.rows(rowsAffected);
+            if (rowsAffected == 0) {
+                return diagnose(conn, id, ownerId);
+            }
+            if (blob != null) {
+                RevisionStore.recordReplaced(conn, id, null, blob.getHash(), blob.getSize(), ownerId);
+            } else {
+                RevisionStore.recordReplaced(conn, id, head, null, head.getBytes(StandardCharsets.UTF_8).length, ownerId);
+            }
+            insertUpdatedEvent(conn, id);
+            conn.commit();
+            BlobStore.getInstance().scheduleCollection();
+            return WriteResult.SUCCESS;
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+            return WriteResult.FAILED;
+        }
+    }
+
+    /**
+     * 删除不再使用的旧版本分块：文档改为内联存放或改存为blob时为了保持一条语句不顺带删除旧分块，由这里统一清理
+     * 在启动时调用一次即可
+     * @return 删除的分块数
+     */
+    public int deleteOrphanChunks() {
+        try (Operation.Sample sample = DELETE_ORPHAN_CHUNKS.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ContentStore.SQL_DELETE_ORPHAN_CHUNKS)) {
+
+            int rowsAffected = stmt.executeUpdate();
+            sample.rows(rowsAffected);
+            return rowsAffected;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * 删除早于指定时间的墓碑；上次同步早于这个时间的本地副本会整体重建，不依赖这些墓碑
+     * 在启动时调用一次即可
+     * @param before 删除deleted_at早于该时间的墓碑
+     * @return 删除的墓碑数
+     */
+    public int pruneTombstones(LocalDateTime before) {
+        try (Operation.Sample sample = PRUNE_TOMBSTONES.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_PRUNE_TOMBSTONES)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(before));
+            int rowsAffected = stmt.executeUpdate();
+            sample.rows(rowsAffected);
+            return rowsAffected;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 按ID顺序读取发件箱中某个ID之后的事件
+     * @param afterId 只读取ID大于它的事件
+     * @param limit 最多读取条数
+     * @return 事件，按ID升序
+     * @throws RuntimeException 数据库不可用时
+     */
+    public List<DocumentEvent> findEventsAfter(long afterId, int limit) {
+        List<DocumentEvent> events = new ArrayList<>();
+        try (Operation.Sample sample = FIND_EVENTS.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_EVENTS_AFTER)) {
+
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(new DocumentEvent(rs.getLong("id"), DocumentEvent.Type.valueOf(rs.getString("event_type")),
+                            rs.getInt("document_id"), rs.getInt("owner_user_id"),
+                            rs.getTimestamp("created_at").toLocalDateTime()));
+                }
+            }
+            sample.rows(events.size());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read document events: " + e.getMessage(), e);
+        }
+        return events;
+    }
+
+    /**
+     * 发件箱中最大的事件ID，调度器启动时从这里开始，只分发之后的事件
+     * @return 最大的事件ID，没有事件时为0
+     * @throws RuntimeException 数据库不可用时
+     */
+    public long findLastEventId() {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_LAST_EVENT_ID);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read document events: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 删除早于指定时间的事件；离线超过这么久的订阅者重新连接时整体刷新，不依赖这些事件
+     * @param before 删除created_at早于该时间的事件
+     * @return 删除的事件数
+     */
+    public int pruneEvents(LocalDateTime before) {
+        try (Operation.Sample sample = PRUNE_EVENTS.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_PRUNE_EVENTS)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(before));
+            int rowsAffected = stmt.executeUpdate();
+            sample.rows(rowsAffected);
+            return rowsAffected;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * 列出文档的修订历史 (不含正文)
+     * @param documentId 文档ID
+     * @param ownerId 只列出该用户拥有的文档的历史；为null时不检查所有者
+     * @return 按修订号倒序的修订；文档没有被记录过的更新、不存在或不属于该用户时为空列表
+     */
+    public List<DocumentRevision> findRevisions(int documentId, Integer ownerId) {
+        try (Operation.Sample sample = FIND_REVISIONS.start();
+             Connection conn = DatabaseUtil.getConnection()) {
+            List<DocumentRevision> revisions = RevisionStore.list(conn, documentId, ownerId);
+            sample.rows(revisions.size());
+            return revisions;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 读取文档的某个历史修订：从最近的快照开始应用差异重建，最多读取一个快照间隔的行
+     * @param documentId 文档ID
+     * @param revision 修订号 (该次更新之后的版本号)
+     * @param ownerId 只读取该用户拥有的文档；为null时不检查所有者
+     * @return 该修订的文档，version 为修订号，updatedAt 为修订时间；修订不存在、文档不存在或不属于该用户时为空
+     */
+    public Optional<Document> findRevision(int documentId, int revision, Integer ownerId) {
+        try (Operation.Sample sample = FIND_REVISION.start();
+             Connection conn = DatabaseUtil.getConnection()) {
+            int owner;
+            LocalDateTime createdAt;
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_FIND_OWNER_AND_CREATED_AT)) {
+                stmt.setInt(1, documentId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next() || (ownerId != null && rs.getInt("owner_user_id") != ownerId)) {
+                        sample.success();
+                        return Optional.empty();
+                    }
+                    owner = rs.getInt("owner_user_id");
+                    createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+                }
+            }
+            Document document = RevisionStore.load(conn, documentId, revision);
+            if (document == null) {
+                sample.success();
+                return Optional.empty();
+            }
+            document.setOwnerUserId(owner);
+            document.setCreatedAt(createdAt);
+            sample.rows(1);
+            return Optional.of(document);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    private static void insertEvent(Connection conn, DocumentEvent.Type type, int id, int ownerId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_EVENT)) {
+            stmt.setString(1, type.name());
+            stmt.setInt(2, id);
+            stmt.setInt(3, ownerId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void insertUpdatedEvent(Connection conn, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_UPDATED_EVENT)) {
+            stmt.setInt(1, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static String readUpTo(Reader reader, int maxChars) throws IOException {
+        char[] buffer = new char[Math.min(maxChars, 8192)];
+        StringBuilder text = new StringBuilder();
+        int n;
+        while (text.length() < maxChars
+                && (n = reader.read(buffer, 0, Math.min(buffer.length, maxChars - text.length()))) != -1) {
+            text.append(buffer, 0, n);
+        }
+        return text.toString();
+    }
+
+    /**
+     * 批量保存新文档，每batchSize条为一批，用一次executeBatch发送，与这一批的修订0和CREATED事件在同一个事务中提交
+     * 某一批失败时只回滚该批，之前已提交的批次保留；成功保存的文档会回填生成的ID
+     * @param documents 要保存的文档 (ID应为空)
+     * @param batchSize 每批条数
+     * @return 成功保存的文档ID，按输入顺序
+     */
+    public List<Integer> saveAll(List<Document> documents, int batchSize) {
+        List<Integer> ids = new ArrayList<>(documents.size());
+        try (Operation.Sample sample = SAVE_ALL.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement revisions = conn.prepareStatement(RevisionStore.SQL_INSERT);
+             PreparedStatement events = conn.prepareStatement(SQL_INSERT_EVENT)) {
+
+            conn.setAutoCommit(false);
+            for (List<Document> chunk : chunks(documents, batchSize)) {
+                List<String> hashes = new ArrayList<>(chunk.size());
+                try {
+                    for (Document document : chunk) {
+                        stmt.setString(1, document.getTitle());
+                        hashes.add(bindContent(conn, stmt, 2, document.getContent()));
+                        stmt.setInt(4, document.getOwnerUserId());
+                        stmt.setString(5, document.getStatus());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                        for (int i = 0; i < chunk.size() && generatedKeys.next(); i++) {
+                            chunk.get(i).setId(generatedKeys.getInt(1));
+                        }
+                    }
+                    for (int i = 0; i < chunk.size(); i++) {
+                        Document document = chunk.get(i);
+                        RevisionStore.bindCreated(conn, revisions, document, hashes.get(i), document.getOwnerUserId());
+                        revisions.addBatch();
+                    }
+                    revisions.executeBatch();
+                    for (Document document : chunk) {
+                        events.setString(1, DocumentEvent.Type.CREATED.name());
+                        events.setInt(2, document.getId());
+                        events.setInt(3, document.getOwnerUserId());
+                        events.addBatch();
+                    }
+                    events.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+                for (Document document : chunk) {
+                    ids.add(document.getId());
+                }
+            }
+            sample.rows(ids.size());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return ids;
+    }
+
+    /**
+     * 批量更新文档的标题、内容和状态，分批提交，规则同 {@link #saveAll(List, int)}
+     * 与 {@link #update(Document)} 一样检查版本号，版本号不一致的文档不会被更新，也不计入返回值
+     * 更新成功的文档版本号加一，并在同一批的事务中写入修订历史和UPDATED事件
+     * @param documents 要更新的文档 (必须包含ID和读取时的版本号)
+     * @param batchSize 每批条数
+     * @return 实际更新的文档ID，按输入顺序
+     */
+    public List<Integer> updateAll(List<Document> documents, int batchSize) {
+        return updateInBatches(UPDATE_ALL, SQL_UPDATE, documents, null, batchSize);
+    }
+
+    /**
+     * 批量删除文档，分批提交，规则同 {@link #saveAll(List, int)}；墓碑和DELETED事件与删除在同一批的事务中写入
+     * @param ids 要删除的文档ID
+     * @param batchSize 每批条数
+     * @return 实际删除的行数
+     */
+    public int deleteAll(List<Integer> ids, int batchSize) {
+        return executeInBatches(DELETE_ALL, List.of(SQL_INSERT_TOMBSTONE, SQL_INSERT_DELETED_EVENT), SQL_DELETE, ids, batchSize,
+                (conn, stmt, id) -> stmt.setInt(1, id), null).size();
+    }
+
+    /**
+     * 以指定用户的身份批量更新文档，所有者和版本号在每条UPDATE中检查，分批提交，规则同 {@link #saveAll(List, int)}
+     * 不存在、不属于该用户或版本号不一致的文档不会被更新；更新成功的文档版本号加一，并在同一批的事务中写入修订历史和UPDATED事件
+     * @param documents 要更新的文档 (必须包含ID和读取时的版本号)
+     * @param ownerId 执行更新的用户ID
+     * @param batchSize 每批条数
+     * @return 实际更新的文档ID，按输入顺序
+     */
+    public List<Integer> updateAllOwned(List<Document> documents, int ownerId, int batchSize) {
+        return updateInBatches(UPDATE_ALL_OWNED, SQL_UPDATE_OWNED, documents, ownerId, batchSize);
+    }
+
+    /**
+     * 以指定用户的身份批量删除文档，所有者在每条DELETE中检查，分批提交，规则同 {@link #saveAll(List, int)}
+     * 墓碑和DELETED事件与删除在同一批的事务中写入
+     * @param ids 要删除的文档ID
+     * @param ownerId 执行删除的用户ID
+     * @param batchSize 每批条数
+     * @return 实际删除的文档ID，按输入顺序
+     */
+    public List<Integer> deleteAllOwned(List<Integer> ids, int ownerId, int batchSize) {
+        return executeInBatches(DELETE_ALL_OWNED, List.of(SQL_INSERT_TOMBSTONE_OWNED, SQL_INSERT_DELETED_EVENT_OWNED), SQL_DELETE_OWNED,
+                ids, batchSize, (conn, stmt, id) -> {
+                    stmt.setInt(1, id);
+                    stmt.setInt(2, ownerId);
+                }, null);
+    }
+
+    /**
+     * 分批执行UPDATE，实际更新了的文档在同一批的事务中写入修订历史 (见 {@link RevisionStore#record}) 和UPDATED事件，
+     * 全部批次结束后这些文档的版本号加一
+     * @param ownerId 要求的所有者，同时记为修订的创建者；为null时不检查
+     * @return 实际更新了的文档ID，按输入顺序
+     */
+    private List<Integer> updateInBatches(Operation operation, String sql, List<Document> documents, Integer ownerId,
+                                          int batchSize) {
+        Map<Document, String> hashes = new IdentityHashMap<>();
+        List<Document> updated = executeInBatches(operation, Collections.emptyList(), sql, documents, batchSize,
+                (conn, stmt, document) -> {
+                    hashes.put(document, bindUpdate(conn, stmt, document));
+                    if (ownerId != null) {
+                        stmt.setInt(7, ownerId);
+                    }
+                }, (conn, stmt, document) -> {
+                    RevisionStore.record(conn, document, hashes.get(document), ownerId);
+                    bindUpdatedEvent(conn, stmt, document);
+                });
+        List<Integer> ids = new ArrayList<>(updated.size());
+        for (Document document : updated) {
+            document.setVersion(document.getVersion() + 1);
+            ids.add(document.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 绑定UPDATE语句的前六个参数：title、content、content_hash、status、id、version
+     * @return 正文的blob哈希，内联存放时为null
+     */
+    private static String bindUpdate(Connection conn, PreparedStatement stmt, Document document) throws SQLException {
+        stmt.setString(1, document.getTitle());
+        String hash = bindContent(conn, stmt, 2, document.getContent());
+        stmt.setString(4, document.getStatus());
+        stmt.setInt(5, document.getId());
+        stmt.setInt(6, document.getVersion());
+        return hash;
+    }
+
+    private static void bindUpdatedEvent(Connection conn, PreparedStatement stmt, Document document) throws SQLException {
+        stmt.setInt(1, document.getId());
+    }
+
+    /**
+     * 绑定content和紧随其后的content_hash：正文超过内联阈值时先在调用方的事务中存入blob，content为NULL
+     * @return 正文的blob哈希，内联存放时为null
+     */
+    private static String bindContent(Connection conn, PreparedStatement stmt, int index, String content) throws SQLException {
+        if (ContentStore.isInline(content)) {
+            stmt.setString(index, content);
+            stmt.setString(index + 1, null);
+            return null;
+        }
+        String hash = BlobStore.getInstance().put(conn, content.getBytes(StandardCharsets.UTF_8));
+        stmt.setString(index, null);
+        stmt.setString(index + 1, hash);
+        return hash;
+    }
+
+    private static String readBlob(Connection conn, String hash) throws SQLException {
+        try {
+            return BlobStore.getInstance().readString(conn, hash);
+        } catch (IOException e) {
+            throw new SQLException("Failed to read document content: " + e.getMessage(), e);
+        }
+    }
+
+    private static String readChunks(Connection conn, int id, ContentCodec codec) throws SQLException {
+        StringBuilder content = new StringBuilder();
+        try (Reader reader = new InputStreamReader(ContentStore.openChunks(conn, id, codec), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[8192];
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read document content: " + e.getMessage(), e);
+        }
+        return content.toString();
+    }
+
+    /**
+     * 写语句没有命中任何行时查出原因
+     * @param ownerId 写语句要求的所有者，为null时不检查
+     * @return NOT_FOUND、FORBIDDEN，或者 (文档存在且属于该用户时) CONFLICT
+     */
+    static WriteResult diagnose(Connection conn, int id, Integer ownerId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_FIND_OWNER_AND_VERSION)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return WriteResult.NOT_FOUND;
+                }
+                if (ownerId != null && rs.getInt("owner_user_id") != ownerId) {
+                    return WriteResult.FORBIDDEN;
+                }
+                return WriteResult.CONFLICT;
+            }
+        }
+    }
+
+    /**
+     * 分批执行写语句
+     * @param beforeSqls 每一项先用相同的参数执行的语句 (例如删除前写入墓碑和事件)，与写语句在同一批、同一事务中
+     * @param afterBinder 不为null时，为实际写入了行的项绑定并执行 UPDATED 事件语句，与写语句在同一事务中
+     * @return 实际写入了行的输入项，按输入顺序
+     */
+    private <T> List<T> executeInBatches(Operation operation, List<String> beforeSqls, String sql, List<T> items, int batchSize,
+                                         BatchBinder<T> binder, BatchBinder<T> afterBinder) {
+        List<T> affected = new ArrayList<>();
+        try (Operation.Sample sample = operation.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             PreparedStatement after = afterBinder == null ? null : conn.prepareStatement(SQL_INSERT_UPDATED_EVENT)) {
+
+            List<PreparedStatement> before = new ArrayList<>(beforeSqls.size());
+            try {
+                for (String beforeSql : beforeSqls) {
+                    before.add(conn.prepareStatement(beforeSql));
+                }
+                conn.setAutoCommit(false);
+                for (List<T> chunk : chunks(items, batchSize)) {
+                    affected.addAll(executeBatch(conn, before, stmt, after, chunk, binder, afterBinder));
+                }
+            } finally {
+                // 语句要在连接归还之前关闭
+                for (PreparedStatement beforeStmt : before) {
+                    closeQuietly(null, beforeStmt, null);
+                }
+            }
+            sample.rows(affected.size());
+            if (!affected.isEmpty()) {
+                BlobStore.getInstance().scheduleCollection();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return affected;
+    }
+
+    /**
+     * 在一个事务中执行一批，失败时回滚该批
+     * @return 实际写入了行的项
+     */
+    private static <T> List<T> executeBatch(Connection conn, List<PreparedStatement> before, PreparedStatement stmt,
+                                            PreparedStatement after, List<T> chunk, BatchBinder<T> binder,
+                                            BatchBinder<T> afterBinder) throws SQLException {
+        List<T> chunkAffected = new ArrayList<>(chunk.size());
+        try {
+            for (T item : chunk) {
+                for (PreparedStatement beforeStmt : before) {
+                    binder.bind(conn, beforeStmt, item);
+                    beforeStmt.addBatch();
+                }
+                binder.bind(conn, stmt, item);
+                stmt.addBatch();
+            }
+            for (PreparedStatement beforeStmt : before) {
+                beforeStmt.executeBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length && i < chunk.size(); i++) {
+                // 驱动改写批量语句时可能只返回SUCCESS_NO_INFO，按写入成功计
+                if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                    chunkAffected.add(chunk.get(i));
+                }
+            }
+            if (after != null && !chunkAffected.isEmpty()) {
+                for (T item : chunkAffected) {
+                    afterBinder.bind(conn, after, item);
+                    after.addBatch();
+                }
+                after.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+        return chunkAffected;
+    }
+
+    private static <T> List<List<T>> chunks(List<T> items, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += batchSize) {
+            chunks.add(items.subList(from, Math.min(from + batchSize, items.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * 为批量语句中的一行绑定参数，大正文在这一批的事务中存入blob
+     */
+    @FunctionalInterface
+    private interface BatchBinder<T> {
+        void bind(Connection conn, PreparedStatement stmt, T item) throws SQLException;
+    }
+}
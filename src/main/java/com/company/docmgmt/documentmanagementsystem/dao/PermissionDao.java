@@ -1,16 +1,43 @@
 package com.company.docmgmt.documentmanagementsystem.dao;
 
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
 import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class PermissionDao {
 
+    // 命名的SQL语句：每次调用使用同一个字符串，连接池按SQL缓存PreparedStatement
+    static final String SQL_FIND_PERMISSIONS_BY_USER_ID = "SELECT p.permission_name " +
+            "FROM permissions p " +
+            "JOIN role_permissions rp ON p.id = rp.permission_id " +
+            "JOIN user_roles ur ON rp.role_id = ur.role_id " +
+            "WHERE ur.user_id = ?";
+    private static final String SQL_FIND_ALL_PERMISSION_NAMES = "SELECT permission_name FROM permissions ORDER BY id";
+    private static final String SQL_FIND_PERMISSION_NAMES_BY_ROLE = "SELECT rp.role_id, p.permission_name " +
+            "FROM role_permissions rp " +
+            "JOIN permissions p ON p.id = rp.permission_id";
+    private static final String SQL_GRANT_PERMISSION = "INSERT INTO role_permissions (role_id, permission_id) " +
+            "SELECT ?, id FROM permissions WHERE permission_name = ?";
+    private static final String SQL_REVOKE_PERMISSION = "DELETE FROM role_permissions " +
+            "WHERE role_id = ? AND permission_id IN (SELECT id FROM permissions WHERE permission_name = ?)";
+
+    private static final Operation FIND_PERMISSIONS_BY_USER_ID = Metrics.operation("PermissionDao.findPermissionsByUserId");
+    private static final Operation FIND_ALL_PERMISSION_NAMES = Metrics.operation("PermissionDao.findAllPermissionNames");
+    private static final Operation FIND_PERMISSION_NAMES_BY_ROLE = Metrics.operation("PermissionDao.findPermissionNamesByRole");
+    private static final Operation GRANT_PERMISSION = Metrics.operation("PermissionDao.grantPermission");
+    private static final Operation REVOKE_PERMISSION = Metrics.operation("PermissionDao.revokePermission");
+
     /**
      * 根据用户ID查询该用户所拥有的所有权限字符串
      * 这是RBAC的核心查询
@@ -20,14 +47,9 @@ public class PermissionDao {
     public Set<String> findPermissionsByUserId(int userId) {
         Set<String> permissions = new HashSet<>();
         // 这个SQL通过三表连接查询，从用户ID找到他所有角色下的所有权限
-        String sql = "SELECT p.permission_name " +
-                "FROM permissions p " +
-                "JOIN role_permissions rp ON p.id = rp.permission_id " +
-                "JOIN user_roles ur ON rp.role_id = ur.role_id " +
-                "WHERE ur.user_id = ?";
-
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Operation.Sample sample = FIND_PERMISSIONS_BY_USER_ID.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_PERMISSIONS_BY_USER_ID)) {
 
             stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
@@ -35,9 +57,95 @@ public class PermissionDao {
             while (rs.next()) {
                 permissions.add(rs.getString("permission_name"));
             }
+            sample.rows(permissions.size());
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return permissions;
     }
-}
\ No newline at end of file
+
+    /**
+     * 查询系统中定义的全部权限名称，按ID排序
+     * 用于启动时把权限名称注册到权限注册表
+     * @return 权限名称列表
+     * @throws RuntimeException 查询失败时
+     */
+    public List<String> findAllPermissionNames() {
+        List<String> names = new ArrayList<>();
+
+        try (Operation.Sample sample = FIND_ALL_PERMISSION_NAMES.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_ALL_PERMISSION_NAMES);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                names.add(rs.getString("permission_name"));
+            }
+            sample.rows(names.size());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read permission names: " + e.getMessage(), e);
+        }
+        return names;
+    }
+
+    /**
+     * 一次性读取整个 角色 -> 权限 矩阵，用于在内存中缓存权限解析结果
+     * @return 角色ID -> 权限名称列表 (没有任何权限的角色不出现)
+     * @throws RuntimeException 查询失败时
+     */
+    public Map<Integer, List<String>> findPermissionNamesByRole() {
+        Map<Integer, List<String>> matrix = new HashMap<>();
+        int rows = 0;
+
+        try (Operation.Sample sample = FIND_PERMISSION_NAMES_BY_ROLE.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_PERMISSION_NAMES_BY_ROLE);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                matrix.computeIfAbsent(rs.getInt("role_id"), id -> new ArrayList<>()).add(rs.getString("permission_name"));
+                rows++;
+            }
+            sample.rows(rows);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read role permissions: " + e.getMessage(), e);
+        }
+        return matrix;
+    }
+
+    /**
+     * 给角色授予权限
+     * @param roleId 角色ID
+     * @param permissionName 权限名称，必须已存在于 permissions 表
+     * @return 如果成功授予返回true，权限不存在、已授予或失败时返回false
+     */
+    public boolean grantPermission(int roleId, String permissionName) {
+        return executeGrantUpdate(GRANT_PERMISSION, SQL_GRANT_PERMISSION, roleId, permissionName);
+    }
+
+    /**
+     * 收回角色的权限
+     * @param roleId 角色ID
+     * @param permissionName 权限名称
+     * @return 如果成功收回返回true，否则返回false
+     */
+    public boolean revokePermission(int roleId, String permissionName) {
+        return executeGrantUpdate(REVOKE_PERMISSION, SQL_REVOKE_PERMISSION, roleId, permissionName);
+    }
+
+    private boolean executeGrantUpdate(Operation operation, String sql, int roleId, String permissionName) {
+        try (Operation.Sample sample = operation.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, roleId);
+            stmt.setString(2, permissionName);
+            int affectedRows = stmt.executeUpdate();
+            sample.rows(affectedRows);
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 启动时检查DAO查询的执行计划
+ * 对按条件查询的语句执行EXPLAIN，发现全表扫描时打印警告，用来发现缺失的索引(例如手工建表的旧数据库)。
+ * 读取全表的语句(findAll、streamAll等)本来就要扫描整张表，不在检查范围内。
+ * <p>
+ * 数据量很小时优化器本来就会选择全表扫描，所以只有估计行数不少于 docmgmt.db.explainMinRows (默认1000) 的表才会报警；
+ * 可以通过 -Ddocmgmt.db.explainCheck=false 关闭检查。
+ */
+public final class QueryPlanChecker {
+
+    // H2的执行计划中全表扫描显示为 /* PUBLIC.DOCUMENTS.tableScan */
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\*\\s*\"?(\\w+)\"?\\.\"?(\\w+)\"?\\.tableScan");
+
+    private static final Timestamp SAMPLE_TIME = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0));
+    private static final String SAMPLE_HASH = "0".repeat(64);
+
+    private QueryPlanChecker() {
+    }
+
+    /**
+     * 检查所有登记的查询并打印警告，应用启动时在表结构迁移之后调用
+     */
+    public static void warnOnTableScans() {
+        if (!Boolean.parseBoolean(System.getProperty("docmgmt.db.explainCheck", "true"))) {
+            return;
+        }
+        try {
+            for (String warning : check(Long.getLong("docmgmt.db.explainMinRows", 1000L))) {
+                System.err.println("[query-plan] 警告: " + warning);
+            }
+        } catch (SQLException e) {
+            System.err.println("[query-plan] 执行计划检查失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 对所有登记的查询执行EXPLAIN
+     * @param minRows 只报告估计行数不少于该值的表，0表示报告所有全表扫描
+     * @return 警告信息，每条对应一个查询中的一张表
+     * @throws SQLException 如果数据库访问失败
+     */
+    public static List<String> check(long minRows) throws SQLException {
+        List<String> warnings = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            boolean mysql = conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).matches(".*(mysql|mariadb).*");
+            for (Map.Entry<String, String> query : queries().entrySet()) {
+                List<String> scans = mysql ? mysqlTableScans(conn, query.getValue(), minRows)
+                        : h2TableScans(conn, query.getValue(), minRows);
+                for (String table : scans) {
+                    warnings.add(query.getKey() + " 对表 " + table + " 做全表扫描，请检查索引: " + query.getValue());
+                }
+            }
+        }
+        return warnings;
+    }
+
+    /**
+     * 需要走索引的查询，参数已替换成示例值
+     */
+    private static Map<String, String> queries() {
+        String summary = DocumentDao.SUMMARY_COLUMNS;
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("DocumentDao.findById", bind(DocumentDao.SQL_FIND_BY_ID, 1));
+        queries.put("DocumentDao.findByOwnerId", bind(DocumentDao.SQL_FIND_BY_OWNER_ID, 1));
+        queries.put("DocumentDao.countByOwnerId", bind(DocumentDao.SQL_COUNT_BY_OWNER_ID, 1));
+        queries.put("DocumentDao.update", bind(DocumentDao.SQL_UPDATE, "title", "content", SAMPLE_HASH, "DRAFT", 1, 0));
+        queries.put("DocumentDao.deleteAll", bind(DocumentDao.SQL_DELETE, 1));
+        queries.put("DocumentDao.updateOwned", bind(DocumentDao.SQL_UPDATE_OWNED, "title", "content", SAMPLE_HASH, "DRAFT", 1, 0, 1));
+        queries.put("DocumentDao.deleteOwned", bind(DocumentDao.SQL_DELETE_OWNED, 1, 1));
+        queries.put("DocumentDao.writeContentOwned", bind(DocumentDao.SQL_UPDATE_CONTENT_OWNED, "content", SAMPLE_HASH, 1, 0, 1));
+        queries.put("ContentStore.findChunks", bind(ContentStore.SQL_FIND_CHUNKS, 1));
+        queries.put("ContentStore.findBlobChunks", bind(ContentStore.SQL_FIND_BLOB_CHUNKS, SAMPLE_HASH));
+        queries.put("BlobStore.touch", bind(BlobStore.SQL_TOUCH, SAMPLE_TIME, SAMPLE_HASH));
+        queries.put("BlobStore.findCodec", bind(BlobStore.SQL_FIND_CODEC, SAMPLE_HASH));
+        queries.put("BlobStore.deleteGarbage", bind(BlobStore.SQL_DELETE_GARBAGE, SAMPLE_HASH, SAMPLE_TIME));
+        queries.put("RevisionStore.findLatest", bind(RevisionStore.SQL_FIND_LATEST, 1));
+        queries.put("RevisionStore.findByDocumentId", bind(RevisionStore.SQL_FIND_BY_DOCUMENT_ID_AND_OWNER, 1, 1));
+        queries.put("RevisionStore.findChain", bind(RevisionStore.SQL_FIND_CHAIN, 1, 1, 1, 1));
+        queries.put("AttachmentDao.findByDocumentId", bind(AttachmentDao.SQL_FIND_BY_DOCUMENT_ID_AND_OWNER, 1, 1));
+        queries.put("AttachmentDao.openContent", bind(AttachmentDao.SQL_FIND_HASH_BY_OWNER, 1, 1));
+        queries.put("AttachmentDao.deleteOwned", bind(AttachmentDao.SQL_DELETE_OWNED, 1, 1));
+        queries.put("DocumentDao.findSummaryPage", bind(DocumentDao.pageSql(summary, false, false), 51));
+        queries.put("DocumentDao.findSummaryPage(after)",
+                bind(DocumentDao.pageSql(summary, false, true), SAMPLE_TIME, SAMPLE_TIME, 1, 51));
+        queries.put("DocumentDao.findSummaryPageByOwnerId(after)",
+                bind(DocumentDao.pageSql(summary, true, true), 1, SAMPLE_TIME, SAMPLE_TIME, 1, 51));
+        queries.put("DocumentDao.findChanges(after)",
+                bind(DocumentDao.documentChangesSql(false, true), SAMPLE_TIME, SAMPLE_TIME, 1, 501));
+        queries.put("DocumentDao.findChangesByOwner(after)",
+                bind(DocumentDao.documentChangesSql(true, true), 1, SAMPLE_TIME, SAMPLE_TIME, 1, 501));
+        queries.put("DocumentDao.findTombstones(after)",
+                bind(DocumentDao.tombstoneChangesSql(false, true), SAMPLE_TIME, SAMPLE_TIME, 1, 501));
+        queries.put("DocumentDao.findTombstonesByOwner(after)",
+                bind(DocumentDao.tombstoneChangesSql(true, true), 1, SAMPLE_TIME, SAMPLE_TIME, 1, 501));
+        queries.put("DocumentDao.insertTombstoneOwned", bind(DocumentDao.SQL_INSERT_TOMBSTONE_OWNED, 1, 1));
+        queries.put("DocumentDao.pruneTombstones", bind(DocumentDao.SQL_PRUNE_TOMBSTONES, SAMPLE_TIME));
+        queries.put("UserDao.findByUsername", bind(UserDao.SQL_FIND_BY_USERNAME, "admin"));
+        queries.put("UserDao.findById", bind(UserDao.SQL_FIND_BY_ID, 1));
+        queries.put("RoleDao.findRolesByUserId", bind(RoleDao.SQL_FIND_ROLES_BY_USER_ID, 1));
+        queries.put("RoleDao.findRoleIdsByUserId", bind(RoleDao.SQL_FIND_ROLE_IDS_BY_USER_ID, 1));
+        queries.put("PermissionDao.findPermissionsByUserId", bind(PermissionDao.SQL_FIND_PERMISSIONS_BY_USER_ID, 1));
+        return queries;
+    }
+
+    /**
+     * 把参数直接写进SQL：EXPLAIN不一定能作为服务端预处理语句执行，且参数类型会影响能否使用索引
+     */
+    private static String bind(String sql, Object... params) {
+        StringBuilder bound = new StringBuilder(sql.length() + 32);
+        int param = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c != '?') {
+                bound.append(c);
+                continue;
+            }
+            Object value = params[param++];
+            if (value instanceof Number) {
+                bound.append(value);
+            } else {
+                bound.append('\'').append(value.toString().replace("'", "''")).append('\'');
+            }
+        }
+        if (param != params.length) {
+            throw new IllegalArgumentException("Expected " + param + " parameters for: " + sql);
+        }
+        return bound.toString();
+    }
+
+    private static List<String> mysqlTableScans(Connection conn, String sql, long minRows) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN " + sql)) {
+            while (rs.next()) {
+                if ("ALL".equalsIgnoreCase(rs.getString("type")) && rs.getLong("rows") >= minRows) {
+                    tables.add(rs.getString("table") + " (约" + rs.getLong("rows") + "行)");
+                }
+            }
+        }
+        return tables;
+    }
+
+    private static List<String> h2TableScans(Connection conn, String sql, long minRows) throws SQLException {
+        String plan;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN " + sql)) {
+            plan = rs.next() ? rs.getString(1) : "";
+        }
+        List<String> tables = new ArrayList<>();
+        Matcher matcher = H2_TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            long rows = h2RowCountEstimate(conn, matcher.group(1), matcher.group(2));
+            if (rows >= minRows) {
+                tables.add(matcher.group(2).toLowerCase(Locale.ROOT) + " (约" + rows + "行)");
+            }
+        }
+        return tables;
+    }
+
+    private static long h2RowCountEstimate(Connection conn, String schema, String table) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?")) {
+            stmt.setString(1, schema);
+            stmt.setString(2, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+}
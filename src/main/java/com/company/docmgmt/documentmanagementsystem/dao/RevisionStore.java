@@ -0,0 +1,287 @@
+package com.company.docmgmt.documentmanagementsystem.dao;
+
+import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentRevision;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文档的修订历史 (document_revisions)，在调用方的连接和事务中读写
+ * <p>
+ * 创建文档时写入修订0 (快照)，之后每次写入正文的更新写入一行，revision 是更新后的文档版本号。
+ * 一般的修订只保存相对上一个修订的差异 (见 {@link BinaryDelta})，差异以已存的最新修订 (修订头) 为基础计算，
+ * 更新时不需要先读出文档行；每隔 docmgmt.revisions.snapshotInterval 个修订 (以及差异比正文的一半还大时)
+ * 保存一次完整快照，重建任意修订最多读取一个快照间隔的行。快照的正文超过内联阈值时引用blob存储，不重复保存；
+ * 否则压缩后存放在 data 中。
+ * <p>
+ * 修订头不是上一个版本时 (升级前创建、还没有历史的文档) 把更新后的状态存为快照，历史从这个修订开始，
+ * 之前的版本不保存，不需要迁移数据。
+ */
+final class RevisionStore {
+
+    static final int SNAPSHOT_INTERVAL = Integer.getInteger("docmgmt.revisions.snapshotInterval", 20);
+
+    static final String SQL_FIND_LATEST = "SELECT revision, base_revision FROM document_revisions"
+            + " WHERE document_id = ? ORDER BY revision DESC LIMIT 1";
+    static final String SQL_INSERT = "INSERT INTO document_revisions (document_id, revision, base_revision, title, status,"
+            + " content_hash, codec, data, content_bytes, created_by, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // 流式替换正文后的快照：标题、状态和版本号在同一条语句中从更新后的文档行取得
+    private static final String SQL_INSERT_SNAPSHOT_OF_DOCUMENT = "INSERT INTO document_revisions (document_id, revision,"
+            + " base_revision, title, status, content_hash, codec, data, content_bytes, created_by, created_at)"
+            + " SELECT id, version, version, title, status, ?, ?, ?, ?, ?, ? FROM documents WHERE id = ?";
+    private static final String LIST_COLUMNS = "r.revision, r.base_revision, r.title, r.status, r.content_bytes,"
+            + " OCTET_LENGTH(r.data) AS stored_bytes, r.created_by, r.created_at";
+    static final String SQL_FIND_BY_DOCUMENT_ID = "SELECT " + LIST_COLUMNS + " FROM document_revisions r"
+            + " WHERE r.document_id = ? ORDER BY r.revision DESC";
+    static final String SQL_FIND_BY_DOCUMENT_ID_AND_OWNER = "SELECT " + LIST_COLUMNS + " FROM document_revisions r"
+            + " JOIN documents d ON d.id = r.document_id WHERE r.document_id = ? AND d.owner_user_id = ? ORDER BY r.revision DESC";
+    // 目标修订所在差异链上的所有行：从它的快照开始，到它为止
+    static final String SQL_FIND_CHAIN = "SELECT revision, base_revision, title, status, content_hash, codec, data, created_at"
+            + " FROM document_revisions WHERE document_id = ? AND revision <= ?"
+            + " AND revision >= (SELECT base_revision FROM document_revisions WHERE document_id = ? AND revision = ?)"
+            + " ORDER BY revision";
+
+    private RevisionStore() {
+    }
+
+    /**
+     * 记录新建的文档 (修订0，快照)，在插入文档行的同一个事务中调用
+     * @param document 新建的文档 (需要ID、标题、状态和完整正文)
+     * @param hash 正文的blob哈希，内联存放时为null
+     * @param createdBy 创建文档的用户ID
+     */
+    static void recordCreated(Connection conn, Document document, String hash, Integer createdBy) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(SQL_INSERT)) {
+            bindCreated(conn, insert, document, hash, createdBy);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * 为批量插入的 {@link #SQL_INSERT} 绑定新建文档的修订0，参数同 {@link #recordCreated}
+     */
+    static void bindCreated(Connection conn, PreparedStatement insert, Document document, String hash, Integer createdBy)
+            throws SQLException {
+        bindSnapshot(conn, insert, document.getId(), 0, document, hash, toBytes(document.getContent()), createdBy,
+                LocalDateTime.now());
+    }
+
+    /**
+     * 记录一次更新，在更新文档行之后、同一个事务中调用
+     * 修订头是上一个版本时，差异以修订头为基础计算；否则把更新后的状态存为快照
+     * @param conn 调用方的连接 (已关闭自动提交)
+     * @param after 更新后的文档 (需要ID、标题、状态和完整正文)，版本号仍是更新前的值，修订号为它加一
+     * @param afterHash 更新后正文的blob哈希，内联存放时为null
+     * @param createdBy 执行更新的用户ID，未知时为null
+     */
+    static void record(Connection conn, Document after, String afterHash, Integer createdBy) throws SQLException {
+        int documentId = after.getId();
+        int previous = after.getVersion();
+        int revision = previous + 1;
+        int base = -1;
+        try (PreparedStatement latest = conn.prepareStatement(SQL_FIND_LATEST)) {
+            latest.setInt(1, documentId);
+            try (ResultSet rs = latest.executeQuery()) {
+                if (rs.next() && rs.getInt("revision") == previous) {
+                    base = rs.getInt("base_revision");
+                }
+            }
+        }
+
+        byte[] newBytes = toBytes(after.getContent());
+        byte[] delta = null;
+        if (base >= 0 && revision - base < SNAPSHOT_INTERVAL) {
+            Document head = load(conn, documentId, previous);
+            if (head != null) {
+                delta = BinaryDelta.encode(toBytes(head.getContent()), newBytes);
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement(SQL_INSERT)) {
+            if (delta == null || delta.length > newBytes.length / 2) {
+                bindSnapshot(conn, insert, documentId, revision, after, afterHash, newBytes, createdBy, LocalDateTime.now());
+            } else {
+                bind(insert, documentId, revision, base, after, newBytes.length, createdBy, LocalDateTime.now());
+                insert.setString(6, null);
+                insert.setString(7, null);
+                insert.setBytes(8, delta);
+            }
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * 记录一次流式替换正文，在更新文档行之后、同一个事务中调用；新正文不在内存中，总是保存为快照
+     * @param content 内联存放的新正文，存入blob时为null
+     * @param hash 新正文的blob哈希，内联存放时为null
+     * @param contentBytes 新正文的字节数
+     * @param createdBy 执行更新的用户ID
+     */
+    static void recordReplaced(Connection conn, int documentId, String content, String hash, long contentBytes,
+                               Integer createdBy) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(SQL_INSERT_SNAPSHOT_OF_DOCUMENT)) {
+            if (hash != null) {
+                insert.setString(1, hash);
+                insert.setString(2, null);
+                insert.setBytes(3, null);
+            } else {
+                insert.setString(1, null);
+                insert.setString(2, ContentStore.CODEC.getName());
+                insert.setBytes(3, compress(toBytes(content)));
+            }
+            insert.setLong(4, contentBytes);
+            if (createdBy != null) {
+                insert.setInt(5, createdBy);
+            } else {
+                insert.setNull(5, Types.INTEGER);
+            }
+            insert.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+            insert.setInt(7, documentId);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * @param ownerId 只列出该用户拥有的文档的历史；为null时不检查所有者
+     * @return 文档的修订列表 (不含正文)，按修订号倒序；文档没有历史、不存在或不属于该用户时为空列表
+     */
+    static List<DocumentRevision> list(Connection conn, int documentId, Integer ownerId) throws SQLException {
+        List<DocumentRevision> revisions = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(ownerId == null ? SQL_FIND_BY_DOCUMENT_ID : SQL_FIND_BY_DOCUMENT_ID_AND_OWNER)) {
+            stmt.setInt(1, documentId);
+            if (ownerId != null) {
+                stmt.setInt(2, ownerId);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int revision = rs.getInt("revision");
+                    int createdBy = rs.getInt("created_by");
+                    revisions.add(new DocumentRevision(documentId, revision, rs.getString("title"), rs.getString("status"),
+                            rs.getInt("base_revision") == revision, rs.getInt("content_bytes"), rs.getInt("stored_bytes"),
+                            rs.wasNull() ? null : createdBy, rs.getTimestamp("created_at").toLocalDateTime()));
+                }
+            }
+        }
+        return revisions;
+    }
+
+    /**
+     * 重建一个修订：读出它所在的差异链，从快照开始依次应用差异
+     * @return 该修订的标题、状态和正文，version 为修订号，updatedAt 为修订的时间；修订不存在时为null
+     */
+    static Document load(Connection conn, int documentId, int revision) throws SQLException {
+        Document document = null;
+        byte[] content = null;
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_FIND_CHAIN)) {
+            stmt.setInt(1, documentId);
+            stmt.setInt(2, revision);
+            stmt.setInt(3, documentId);
+            stmt.setInt(4, revision);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (content == null) {
+                        if (rs.getInt("revision") != rs.getInt("base_revision")) {
+                            throw new SQLException("Revision chain of document " + documentId + " does not start with a snapshot");
+                        }
+                        content = readSnapshot(conn, rs.getString("content_hash"), rs.getString("codec"), rs.getBytes("data"));
+                    } else {
+                        content = BinaryDelta.apply(content, rs.getBytes("data"));
+                    }
+                    document = new Document();
+                    document.setId(documentId);
+                    document.setTitle(rs.getString("title"));
+                    document.setStatus(rs.getString("status"));
+                    document.setVersion(rs.getInt("revision"));
+                    document.setUpdatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Failed to rebuild revision " + revision + " of document " + documentId + ": " + e.getMessage(), e);
+        }
+        if (document == null || document.getVersion() != revision) {
+            return null;
+        }
+        document.setContent(new String(content, StandardCharsets.UTF_8));
+        return document;
+    }
+
+    // --- Private Helper Methods ---
+
+    private static void bind(PreparedStatement insert, int documentId, int revision, int base, Document document,
+                             int contentBytes, Integer createdBy, LocalDateTime createdAt) throws SQLException {
+        insert.setInt(1, documentId);
+        insert.setInt(2, revision);
+        insert.setInt(3, base);
+        insert.setString(4, document.getTitle());
+        insert.setString(5, document.getStatus());
+        insert.setInt(9, contentBytes);
+        if (createdBy != null) {
+            insert.setInt(10, createdBy);
+        } else {
+            insert.setNull(10, Types.INTEGER);
+        }
+        insert.setTimestamp(11, Timestamp.valueOf(createdAt != null ? createdAt : LocalDateTime.now()));
+    }
+
+    /**
+     * 绑定一个快照：已经存放在blob中的正文只保存哈希；超过内联阈值的旧版本分块正文改存为blob；其余压缩后存入data
+     */
+    private static void bindSnapshot(Connection conn, PreparedStatement insert, int documentId, int revision, Document document,
+                                     String hash, byte[] content, Integer createdBy, LocalDateTime createdAt) throws SQLException {
+        bind(insert, documentId, revision, revision, document, content.length, createdBy, createdAt);
+        if (hash == null && !ContentStore.isInline(document.getContent())) {
+            hash = BlobStore.getInstance().put(conn, content);
+        }
+        if (hash != null) {
+            insert.setString(6, hash);
+            insert.setString(7, null);
+            insert.setBytes(8, null);
+        } else {
+            insert.setString(6, null);
+            insert.setString(7, ContentStore.CODEC.getName());
+            insert.setBytes(8, compress(content));
+        }
+    }
+
+    private static byte[] readSnapshot(Connection conn, String hash, String codec, byte[] data) throws SQLException {
+        try {
+            if (hash != null) {
+                try (InputStream in = BlobStore.getInstance().open(conn, hash)) {
+                    return in.readAllBytes();
+                }
+            }
+            try (InputStream in = ContentCodec.of(codec).decompress(new ByteArrayInputStream(data))) {
+                return in.readAllBytes();
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read revision snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] compress(byte[] content) throws SQLException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length / 2 + 16);
+        try (OutputStream out = ContentStore.CODEC.compress(buffer)) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new SQLException("Failed to compress revision snapshot: " + e.getMessage(), e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] toBytes(String content) {
+        return content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8);
+    }
+}
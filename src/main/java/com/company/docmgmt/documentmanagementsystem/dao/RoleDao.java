@@ -1,5 +1,7 @@
 package com.company.docmgmt.documentmanagementsystem.dao;
 
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
 import com.company.docmgmt.documentmanagementsystem.model.Role;
 import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
 
@@ -8,10 +10,29 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class RoleDao {
 
+    // 命名的SQL语句：每次调用使用同一个字符串，连接池按SQL缓存PreparedStatement
+    static final String SQL_FIND_ROLES_BY_USER_ID = "SELECT r.* FROM roles r " +
+            "JOIN user_roles ur ON r.id = ur.role_id " +
+            "WHERE ur.user_id = ?";
+    static final String SQL_FIND_ROLE_IDS_BY_USER_ID = "SELECT role_id FROM user_roles WHERE user_id = ?";
+    private static final String SQL_FIND_ALL = "SELECT * FROM roles ORDER BY id";
+    private static final String SQL_FIND_ALL_USER_ROLES = "SELECT user_id, role_id FROM user_roles";
+    private static final String SQL_ASSIGN_ROLE = "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)";
+    private static final String SQL_REMOVE_ROLE = "DELETE FROM user_roles WHERE user_id = ? AND role_id = ?";
+
+    private static final Operation FIND_ROLES_BY_USER_ID = Metrics.operation("RoleDao.findRolesByUserId");
+    private static final Operation FIND_ROLE_IDS_BY_USER_ID = Metrics.operation("RoleDao.findRoleIdsByUserId");
+    private static final Operation FIND_ALL = Metrics.operation("RoleDao.findAll");
+    private static final Operation FIND_ALL_USER_ROLES = Metrics.operation("RoleDao.findAllUserRoles");
+    private static final Operation ASSIGN_ROLE = Metrics.operation("RoleDao.assignRole");
+    private static final Operation REMOVE_ROLE = Metrics.operation("RoleDao.removeRole");
+
     /**
      * 根据用户ID查询该用户所拥有的所有角色
      * @param userId 用户ID
@@ -19,26 +40,147 @@ public class RoleDao {
      */
     public List<Role> findRolesByUserId(int userId) {
         List<Role> roles = new ArrayList<>();
-        String sql = "SELECT r.* FROM roles r " +
-                "JOIN user_roles ur ON r.id = ur.role_id " +
-                "WHERE ur.user_id = ?";
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Operation.Sample sample = FIND_ROLES_BY_USER_ID.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_ROLES_BY_USER_ID)) {
 
             stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                Role role = new Role();
-                role.setId(rs.getInt("id"));
-                role.setRoleName(rs.getString("role_name"));
-                role.setDescription(rs.getString("description"));
-                roles.add(role);
+                roles.add(mapRowToRole(rs));
             }
+            sample.rows(roles.size());
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return roles;
     }
+
+    /**
+     * 查询某个用户的角色ID (只读 user_roles，走主键)
+     * @param userId 用户ID
+     * @return 角色ID列表
+     * @throws RuntimeException 查询失败时
+     */
+    public List<Integer> findRoleIdsByUserId(int userId) {
+        List<Integer> roleIds = new ArrayList<>();
+
+        try (Operation.Sample sample = FIND_ROLE_IDS_BY_USER_ID.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_ROLE_IDS_BY_USER_ID)) {
+
+            stmt.setInt(1, userId);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                roleIds.add(rs.getInt("role_id"));
+            }
+            sample.rows(roleIds.size());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read user roles: " + e.getMessage(), e);
+        }
+        return roleIds;
+    }
+
+    /**
+     * 查询所有角色
+     * @return 角色列表，按ID排序
+     * @throws RuntimeException 查询失败时
+     */
+    public List<Role> findAll() {
+        List<Role> roles = new ArrayList<>();
+
+        try (Operation.Sample sample = FIND_ALL.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_ALL);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                roles.add(mapRowToRole(rs));
+            }
+            sample.rows(roles.size());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read roles: " + e.getMessage(), e);
+        }
+        return roles;
+    }
+
+    /**
+     * 一次性读取全部用户-角色关系，用于在内存中物化权限视图
+     * @return 用户ID -> 角色ID列表
+     * @throws RuntimeException 查询失败时
+     */
+    public Map<Integer, List<Integer>> findAllUserRoleIds() {
+        Map<Integer, List<Integer>> userRoles = new HashMap<>();
+        int rows = 0;
+
+        try (Operation.Sample sample = FIND_ALL_USER_ROLES.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_ALL_USER_ROLES);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                userRoles.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>(2)).add(rs.getInt("role_id"));
+                rows++;
+            }
+            sample.rows(rows);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read user roles: " + e.getMessage(), e);
+        }
+        return userRoles;
+    }
+
+    /**
+     * 给用户分配角色
+     * @param userId 用户ID
+     * @param roleId 角色ID
+     * @return 如果成功分配返回true，已拥有该角色或失败时返回false
+     */
+    public boolean assignRole(int userId, int roleId) {
+        try (Operation.Sample sample = ASSIGN_ROLE.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_ASSIGN_ROLE)) {
+
+            stmt.setInt(1, userId);
+            stmt.setInt(2, roleId);
+            int affectedRows = stmt.executeUpdate();
+            sample.rows(affectedRows);
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 移除用户的某个角色
+     * @param userId 用户ID
+     * @param roleId 角色ID
+     * @return 如果成功移除返回true，否则返回false
+     */
+    public boolean removeRole(int userId, int roleId) {
+        try (Operation.Sample sample = REMOVE_ROLE.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_REMOVE_ROLE)) {
+
+            stmt.setInt(1, userId);
+            stmt.setInt(2, roleId);
+            int affectedRows = stmt.executeUpdate();
+            sample.rows(affectedRows);
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private Role mapRowToRole(ResultSet rs) throws SQLException {
+        Role role = new Role();
+        role.setId(rs.getInt("id"));
+        role.setRoleName(rs.getString("role_name"));
+        role.setDescription(rs.getString("description"));
+        return role;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.company.docmgmt.documentmanagementsystem.dao;
 
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
 import com.company.docmgmt.documentmanagementsystem.model.User;
 import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
 
@@ -11,22 +13,40 @@ import java.util.Optional;
 
 public class UserDao {
 
+    // 命名的SQL语句：每次调用使用同一个字符串，连接池按SQL缓存PreparedStatement
+    static final String SQL_FIND_BY_USERNAME = "SELECT * FROM users WHERE username = ?";
+    static final String SQL_FIND_BY_ID = "SELECT * FROM users WHERE id = ?";
+    private static final String SQL_FIND_ALL = "SELECT * FROM users ORDER BY id";
+    private static final String SQL_INSERT = "INSERT INTO users (username, password, email, created_at) VALUES (?, ?, ?, ?)";
+    private static final String SQL_UPDATE = "UPDATE users SET username = ?, password = ?, email = ? WHERE id = ?";
+    private static final String SQL_DELETE = "DELETE FROM users WHERE id = ?";
+
+    private static final Operation FIND_BY_USERNAME = Metrics.operation("UserDao.findByUsername");
+    private static final Operation FIND_BY_ID = Metrics.operation("UserDao.findById");
+    private static final Operation FIND_ALL = Metrics.operation("UserDao.findAll");
+    private static final Operation INSERT = Metrics.operation("UserDao.insert");
+    private static final Operation UPDATE = Metrics.operation("UserDao.update");
+    private static final Operation DELETE = Metrics.operation("UserDao.delete");
+
     /**
      * 根据用户名查找用户
      * @param username 用户名
      * @return 包含用户对象的Optional，如果找不到则为空
      */
     public Optional<User> findByUsername(String username) {
-        String sql = "SELECT * FROM users WHERE username = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Operation.Sample sample = FIND_BY_USERNAME.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_BY_USERNAME)) {
 
             stmt.setString(1, username);
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                return Optional.of(mapRowToUser(rs));
+                User user = mapRowToUser(rs);
+                sample.rows(1);
+                return Optional.of(user);
             }
+            sample.success();
         } catch (SQLException e) {
             e.printStackTrace(); // 在实际项目中应使用日志框架
         }
@@ -39,16 +59,19 @@ public class UserDao {
      * @return 包含用户对象的Optional，如果找不到则为空
      */
     public Optional<User> findById(int id) {
-        String sql = "SELECT * FROM users WHERE id = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Operation.Sample sample = FIND_BY_ID.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_BY_ID)) {
 
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                return Optional.of(mapRowToUser(rs));
+                User user = mapRowToUser(rs);
+                sample.rows(1);
+                return Optional.of(user);
             }
+            sample.success();
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -61,14 +84,15 @@ public class UserDao {
      */
     public List<User> findAll() {
         List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM users ORDER BY id";
-        try (Connection conn = DatabaseUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Operation.Sample sample = FIND_ALL.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_FIND_ALL);
+             ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
                 users.add(mapRowToUser(rs));
             }
+            sample.rows(users.size());
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -96,9 +120,9 @@ public class UserDao {
      * @return 插入后的用户对象，包含生成的ID
      */
     private User insert(User user) {
-        String sql = "INSERT INTO users (username, password, email, created_at) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Operation.Sample sample = INSERT.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setString(1, user.getUsername());
             stmt.setString(2, user.getPassword());
@@ -113,6 +137,7 @@ public class UserDao {
                     }
                 }
             }
+            sample.rows(affectedRows);
             return user;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -130,9 +155,9 @@ public class UserDao {
             throw new IllegalArgumentException("User ID must be greater than 0 for update operation");
         }
 
-        String sql = "UPDATE users SET username = ?, password = ?, email = ? WHERE id = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Operation.Sample sample = UPDATE.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_UPDATE)) {
 
             stmt.setString(1, user.getUsername());
             stmt.setString(2, user.getPassword());
@@ -143,6 +168,7 @@ public class UserDao {
             if (affectedRows == 0) {
                 throw new SQLException("No user found with ID: " + user.getId());
             }
+            sample.rows(affectedRows);
             return user;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -156,12 +182,13 @@ public class UserDao {
      * @return 如果成功删除返回true，否则返回false
      */
     public boolean delete(int id) {
-        String sql = "DELETE FROM users WHERE id = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Operation.Sample sample = DELETE.start();
+             Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_DELETE)) {
 
             stmt.setInt(1, id);
             int affectedRows = stmt.executeUpdate();
+            sample.rows(affectedRows);
             return affectedRows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
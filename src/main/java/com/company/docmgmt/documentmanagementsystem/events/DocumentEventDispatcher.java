@@ -0,0 +1,331 @@
+package com.company.docmgmt.documentmanagementsystem.events;
+
+import com.company.docmgmt.documentmanagementsystem.dao.DocumentDao;
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentEvent;
+import com.company.docmgmt.documentmanagementsystem.service.ServiceExecutor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 文档变更通知的调度器：从发件箱 (document_events) 按ID顺序读取新事件，分批分发给订阅者
+ * <p>
+ * 每个进程一个实例，有订阅者或长轮询请求之后才启动后台线程，每隔 docmgmt.events.pollMs (默认1000) 毫秒读取一次发件箱，
+ * 每次最多 docmgmt.events.batchSize (默认500) 条。本进程的写操作成功后调用 {@link #wakeUp()} 立即读取；
+ * 其他进程 (另一个桌面客户端、服务端) 写入的事件在下一次轮询时读到。
+ * <p>
+ * 自增ID按插入顺序分配，但事务可能以不同的顺序提交：读到的ID不连续时，缺少的ID可能属于尚未提交的事务。
+ * 调度器在缺口处最多等待 docmgmt.events.gapTimeoutMs (默认3000) 毫秒，超时后认为缺少的ID已经回滚，越过缺口继续。
+ * <p>
+ * 背压：每个订阅者有自己的有界队列 (docmgmt.events.queueCapacity，默认1000) 和串行的投递任务，处理得慢的订阅者
+ * 下一次回调时收到积压的全部事件；积压超过上限时丢弃队列，改为通知订阅者整体刷新 ({@link DocumentEventListener#onReset()})。
+ * 调度器不会被订阅者阻塞，内存占用也有上限。
+ * <p>
+ * 最近分发的 docmgmt.events.bufferSize (默认4096) 个事件保留在内存中，服务端的长轮询按游标从这里读取 ({@link #awaitEvents})，
+ * 不需要每个客户端各自查询数据库。
+ */
+public final class DocumentEventDispatcher {
+
+    private static final long POLL_MILLIS = Long.getLong("docmgmt.events.pollMs", 1000);
+    private static final long GAP_TIMEOUT_MILLIS = Long.getLong("docmgmt.events.gapTimeoutMs", 3000);
+    private static final int BATCH_SIZE = Integer.getInteger("docmgmt.events.batchSize", 500);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("docmgmt.events.queueCapacity", 1000);
+    private static final int BUFFER_SIZE = Integer.getInteger("docmgmt.events.bufferSize", 4096);
+    // 同时挂起的长轮询请求上限，超出的请求立即返回；服务端在JDK 17上使用固定大小的线程池，不能全部用来等待
+    private static final int MAX_WAITERS = Integer.getInteger("docmgmt.events.maxWaiters", 32);
+
+    private static final Operation POLL = Metrics.operation("DocumentEventDispatcher.poll");
+    private static final Operation DELIVER = Metrics.operation("DocumentEventDispatcher.deliver");
+
+    private static final DocumentEventDispatcher INSTANCE = new DocumentEventDispatcher();
+
+    private final DocumentDao documentDao = new DocumentDao();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean wakeUpScheduled = new AtomicBoolean();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private volatile ScheduledExecutorService poller;
+    private volatile boolean serving;
+
+    // 以下字段只在轮询线程上访问
+    private long cursor = -1; // 已分发到的事件ID，-1表示还没有读取起点
+    private long gapSince;    // 当前缺口第一次出现的时间，0表示没有缺口
+    private boolean failing;
+
+    // 最近分发的事件，供长轮询读取：合法的客户端游标在 [bufferStart, bufferEnd] 之间
+    private final Object bufferLock = new Object();
+    private final ArrayDeque<DocumentEvent> buffer = new ArrayDeque<>();
+    private long bufferStart = -1; // 缓存中第一个事件之前的游标
+    private long bufferEnd = -1;   // 已分发到的事件ID，-1表示调度器还没有读取起点
+
+    private DocumentEventDispatcher() {
+    }
+
+    public static DocumentEventDispatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 订阅文档变更通知，只收到订阅之后分发的事件
+     * @param filter 订阅者可见的事件 (例如只看自己的文档)
+     * @param listener 订阅者
+     * @return 订阅，不再需要时关闭
+     */
+    public Subscription subscribe(Predicate<DocumentEvent> filter, DocumentEventListener listener) {
+        Listener subscription = new Listener(filter, listener);
+        listeners.add(subscription);
+        start();
+        return subscription;
+    }
+
+    /**
+     * 本进程写入了事件，立即读取发件箱而不是等到下一次轮询；调度器没有启动时什么也不做
+     * 多次调用在轮询线程上合并为一次读取
+     */
+    public void wakeUp() {
+        ScheduledExecutorService executor = poller;
+        if (executor != null && wakeUpScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeUpScheduled.set(false);
+                poll();
+            });
+        }
+    }
+
+    /**
+     * 长轮询：返回游标之后、调用者可见的事件；没有时最多等待timeoutMillis毫秒
+     * @param after 上一次返回的游标 ({@link EventBatch#getLast()})；小于0时不返回事件，只返回当前游标作为起点
+     * @param limit 最多返回的事件数
+     * @param timeoutMillis 最长等待时间
+     * @param filter 调用者可见的事件
+     * @return 事件和下一次使用的游标；游标已经不在缓存范围内时reset为true
+     */
+    public EventBatch awaitEvents(long after, int limit, long timeoutMillis, Predicate<DocumentEvent> filter) {
+        serving = true;
+        start();
+        boolean mayWait = waiters.incrementAndGet() <= MAX_WAITERS;
+        long deadline = System.currentTimeMillis() + (mayWait ? timeoutMillis : 0);
+        try {
+            synchronized (bufferLock) {
+                while (true) {
+                    if (bufferEnd >= 0) {
+                        if (after < 0) {
+                            return EventBatch.empty(bufferEnd);
+                        }
+                        if (after < bufferStart || after > bufferEnd) {
+                            // 客户端断开太久，或者游标来自另一个数据库
+                            return new EventBatch(new ArrayList<>(), bufferEnd, true);
+                        }
+                        List<DocumentEvent> events = new ArrayList<>();
+                        long last = after;
+                        for (DocumentEvent event : buffer) {
+                            if (event.getId() <= after) {
+                                continue;
+                            }
+                            if (filter.test(event)) {
+                                if (events.size() >= limit) {
+                                    break;
+                                }
+                                events.add(event);
+                            }
+                            last = event.getId();
+                        }
+                        if (!events.isEmpty()) {
+                            return new EventBatch(events, last, false);
+                        }
+                    }
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return EventBatch.empty(bufferEnd >= 0 ? bufferEnd : after);
+                    }
+                    bufferLock.wait(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EventBatch.empty(after);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    // --- Private Helper Methods ---
+
+    private synchronized void start() {
+        if (poller != null) {
+            return;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "document-event-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::poll, 0, POLL_MILLIS, TimeUnit.MILLISECONDS);
+        poller = executor;
+    }
+
+    /**
+     * 读取并分发新事件，直到没有更多事件或遇到尚未超时的缺口；只在轮询线程上执行
+     */
+    private void poll() {
+        if (listeners.isEmpty() && !serving) {
+            return; // 所有订阅都已关闭：不再查询数据库，下次有订阅者时从这里继续
+        }
+        try (Operation.Sample sample = POLL.start()) {
+            if (cursor < 0) {
+                cursor = documentDao.findLastEventId();
+                synchronized (bufferLock) {
+                    bufferStart = cursor;
+                    bufferEnd = cursor;
+                    bufferLock.notifyAll();
+                }
+            }
+            int dispatched = 0;
+            List<DocumentEvent> events;
+            List<DocumentEvent> ready;
+            do {
+                events = documentDao.findEventsAfter(cursor, BATCH_SIZE);
+                ready = takeReady(events);
+                if (!ready.isEmpty()) {
+                    dispatch(ready);
+                    dispatched += ready.size();
+                }
+            } while (events.size() == BATCH_SIZE && ready.size() == events.size());
+            sample.rows(dispatched);
+            failing = false;
+        } catch (RuntimeException e) {
+            // 数据库暂时不可用：下一次轮询时重试，同一次故障只报告一次
+            if (!failing) {
+                System.err.println("读取文档变更事件失败: " + e.getMessage());
+                failing = true;
+            }
+        }
+    }
+
+    /**
+     * 取出可以分发的事件：ID连续的部分，以及等待超时的缺口之后的部分
+     */
+    private List<DocumentEvent> takeReady(List<DocumentEvent> events) {
+        List<DocumentEvent> ready = new ArrayList<>(events.size());
+        for (DocumentEvent event : events) {
+            if (event.getId() != cursor + 1) {
+                long now = System.currentTimeMillis();
+                if (gapSince == 0) {
+                    gapSince = now;
+                }
+                if (now - gapSince < GAP_TIMEOUT_MILLIS) {
+                    break; // 缺少的事件可能还没有提交，保持顺序，下一次轮询再看
+                }
+            }
+            gapSince = 0;
+            ready.add(event);
+            cursor = event.getId();
+        }
+        return ready;
+    }
+
+    private void dispatch(List<DocumentEvent> events) {
+        synchronized (bufferLock) {
+            for (DocumentEvent event : events) {
+                buffer.addLast(event);
+                if (buffer.size() > BUFFER_SIZE) {
+                    bufferStart = buffer.removeFirst().getId();
+                }
+            }
+            bufferEnd = cursor;
+            bufferLock.notifyAll();
+        }
+        for (Listener listener : listeners) {
+            listener.offer(events);
+        }
+    }
+
+    /**
+     * 一个订阅：有界队列加上在服务执行器上串行执行的投递任务
+     */
+    private final class Listener implements Subscription {
+        private final Predicate<DocumentEvent> filter;
+        private final DocumentEventListener target;
+        private final ArrayDeque<DocumentEvent> queue = new ArrayDeque<>();
+        private boolean overflowed;
+        private boolean draining;
+        private volatile boolean closed;
+
+        private Listener(Predicate<DocumentEvent> filter, DocumentEventListener target) {
+            this.filter = filter;
+            this.target = target;
+        }
+
+        /**
+         * 在轮询线程上调用，只入队，不等待订阅者
+         */
+        private void offer(List<DocumentEvent> events) {
+            boolean schedule;
+            synchronized (this) {
+                for (DocumentEvent event : events) {
+                    if (overflowed) {
+                        break; // 订阅者之后会整体刷新，不需要再保留事件
+                    }
+                    if (!filter.test(event)) {
+                        continue;
+                    }
+                    if (queue.size() >= QUEUE_CAPACITY) {
+                        queue.clear();
+                        overflowed = true;
+                        break;
+                    }
+                    queue.addLast(event);
+                }
+                schedule = !draining && (overflowed || !queue.isEmpty());
+                if (schedule) {
+                    draining = true;
+                }
+            }
+            if (schedule) {
+                ServiceExecutor.getExecutor().execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<DocumentEvent> batch;
+                boolean reset;
+                synchronized (this) {
+                    if (closed || (!overflowed && queue.isEmpty())) {
+                        draining = false;
+                        return;
+                    }
+                    reset = overflowed;
+                    overflowed = false;
+                    batch = reset ? new ArrayList<>() : new ArrayList<>(queue);
+                    queue.clear();
+                }
+                try (Operation.Sample sample = DELIVER.start()) {
+                    if (reset) {
+                        target.onReset();
+                    } else {
+                        target.onEvents(batch);
+                    }
+                    sample.rows(batch.size());
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            listeners.remove(this);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.company.docmgmt.documentmanagementsystem.events;
+
+import com.company.docmgmt.documentmanagementsystem.model.DocumentEvent;
+
+import java.util.List;
+
+/**
+ * 文档变更通知的订阅者
+ * 回调在后台线程上执行，同一个订阅的回调不会并发；回调执行期间到达的事件合并到下一次回调中
+ */
+public interface DocumentEventListener {
+
+    /**
+     * 一批新事件
+     * @param events 事件，按发生顺序 (事件ID升序)
+     */
+    void onEvents(List<DocumentEvent> events);
+
+    /**
+     * 有事件没能送达 (积压超过上限，或与服务端断开期间服务端的缓存已经淘汰了这些事件)，订阅者应整体刷新
+     */
+    void onReset();
+}
@@ -0,0 +1,49 @@
+package com.company.docmgmt.documentmanagementsystem.events;
+
+import com.company.docmgmt.documentmanagementsystem.model.DocumentEvent;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 长轮询的一次结果：游标之后的事件，以及下一次请求使用的游标
+ */
+public class EventBatch {
+    private final List<DocumentEvent> events;
+    private final long last;
+    private final boolean reset;
+
+    public EventBatch(List<DocumentEvent> events, long last, boolean reset) {
+        this.events = Collections.unmodifiableList(events);
+        this.last = last;
+        this.reset = reset;
+    }
+
+    /**
+     * 没有新事件
+     * @param last 下一次请求使用的游标
+     * @return 空的结果
+     */
+    public static EventBatch empty(long last) {
+        return new EventBatch(Collections.emptyList(), last, false);
+    }
+
+    // --- Getters ---
+    public List<DocumentEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * @return 下一次请求使用的游标；当前用户看不到的事件也会推进游标
+     */
+    public long getLast() {
+        return last;
+    }
+
+    /**
+     * @return 游标之后的部分事件已经不在服务端的缓存中，客户端应整体刷新，然后从 {@link #getLast()} 继续
+     */
+    public boolean isReset() {
+        return reset;
+    }
+}
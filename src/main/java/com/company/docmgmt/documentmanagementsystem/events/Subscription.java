@@ -0,0 +1,10 @@
+package com.company.docmgmt.documentmanagementsystem.events;
+
+/**
+ * 一个变更通知的订阅，关闭后不再收到回调
+ */
+public interface Subscription extends AutoCloseable {
+
+    @Override
+    void close();
+}
@@ -0,0 +1,126 @@
+package com.company.docmgmt.documentmanagementsystem.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的对数-线性延迟直方图 (与HdrHistogram相同的分桶方式)
+ * 小于64ns的值每纳秒一个桶；更大的值按2的幂分段，每段再均分成32个桶，相对误差不超过约3%。
+ * 记录只有一次数组下标计算和一次原子自增，不分配对象。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;      // 64
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;      // 32
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时(纳秒)，负值按0处理
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(Math.max(0, nanos)));
+    }
+
+    /**
+     * 复制当前计数；并发记录时快照不保证是某一瞬间的精确状态，用于统计已经足够
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift); // [32, 64)
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (subBucket - SUB_BUCKET_HALF);
+    }
+
+    /**
+     * 桶内的最大值，作为该桶的代表值 (偏保守，不会低估延迟)
+     */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / SUB_BUCKET_HALF + 1;
+        long subBucket = offset % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        long highest = ((subBucket + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+
+    /**
+     * 直方图快照，支持分位数计算以及两个快照相减(得到一个时间窗口内的分布)
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long totalCount;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.totalCount = total;
+        }
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * @param quantile 0到1之间，例如0.99
+         * @return 对应分位的耗时(纳秒)，没有数据时为0
+         */
+        public long valueAtQuantile(double quantile) {
+            if (totalCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * totalCount));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValueAt(i);
+                }
+            }
+            return highestValueAt(counts.length - 1);
+        }
+
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return highestValueAt(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @param earlier 更早的快照
+         * @return 两次快照之间新增的记录
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] diff = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                diff[i] = Math.max(0, counts[i] - earlier.counts[i]);
+            }
+            return new Snapshot(diff);
+        }
+
+        static Snapshot empty() {
+            return new Snapshot(new long[BUCKET_COUNT]);
+        }
+    }
+}
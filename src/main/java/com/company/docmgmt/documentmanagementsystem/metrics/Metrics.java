@@ -0,0 +1,102 @@
+package com.company.docmgmt.documentmanagementsystem.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 进程内的指标注册表
+ * 每个DAO/服务方法对应一个 {@link Operation}，按名称注册一次后保存在静态常量中，记录时不再查表。
+ */
+public final class Metrics {
+
+    private static final ConcurrentSkipListMap<String, Operation> OPERATIONS = new ConcurrentSkipListMap<>();
+
+    // Prometheus导出的分位数
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private Metrics() {
+    }
+
+    /**
+     * 获取(或注册)一个操作
+     * @param name 操作名称，约定为 "类名.方法名"
+     * @return 操作
+     */
+    public static Operation operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, Operation::new);
+    }
+
+    /**
+     * @return 所有操作按名称排序的快照
+     */
+    public static List<Operation.Snapshot> snapshot() {
+        List<Operation.Snapshot> snapshots = new ArrayList<>(OPERATIONS.size());
+        for (Operation operation : OPERATIONS.values()) {
+            snapshots.add(operation.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * 导出为Prometheus文本格式 (text/plain; version=0.0.4)
+     * 延迟以summary形式输出，分位数基于进程启动以来的全部调用
+     * @return 指标文本
+     */
+    public static String toPrometheusText() {
+        List<Operation.Snapshot> snapshots = snapshot();
+        StringBuilder sb = new StringBuilder(256 + snapshots.size() * 512);
+
+        sb.append("# HELP docmgmt_operation_duration_seconds Latency of DAO and service operations.\n");
+        sb.append("# TYPE docmgmt_operation_duration_seconds summary\n");
+        for (Operation.Snapshot s : snapshots) {
+            String label = "operation=\"" + s.getName() + "\"";
+            for (double q : QUANTILES) {
+                sb.append("docmgmt_operation_duration_seconds{").append(label)
+                        .append(",quantile=\"").append(q).append("\"} ")
+                        .append(seconds(s.getLatency().valueAtQuantile(q))).append('\n');
+            }
+            sb.append("docmgmt_operation_duration_seconds_sum{").append(label).append("} ")
+                    .append(seconds(s.getTotalNanos())).append('\n');
+            sb.append("docmgmt_operation_duration_seconds_count{").append(label).append("} ")
+                    .append(s.getCalls()).append('\n');
+        }
+
+        sb.append("# HELP docmgmt_operation_errors_total Failed DAO and service operations.\n");
+        sb.append("# TYPE docmgmt_operation_errors_total counter\n");
+        for (Operation.Snapshot s : snapshots) {
+            sb.append("docmgmt_operation_errors_total{operation=\"").append(s.getName()).append("\"} ")
+                    .append(s.getErrors()).append('\n');
+        }
+
+        sb.append("# HELP docmgmt_operation_rows_total Rows returned or affected by DAO and service operations.\n");
+        sb.append("# TYPE docmgmt_operation_rows_total counter\n");
+        for (Operation.Snapshot s : snapshots) {
+            sb.append("docmgmt_operation_rows_total{operation=\"").append(s.getName()).append("\"} ")
+                    .append(s.getRows()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 格式化为一行便于阅读的日志
+     * @param s 快照(通常是一个时间窗口内的增量)
+     * @return 日志文本
+     */
+    public static String toLogLine(Operation.Snapshot s) {
+        LatencyHistogram.Snapshot latency = s.getLatency();
+        return String.format(Locale.ROOT,
+                "%s calls=%d errors=%d rows=%d p50=%.3fms p99=%.3fms max=%.3fms",
+                s.getName(), s.getCalls(), s.getErrors(), s.getRows(),
+                millis(latency.valueAtQuantile(0.5)), millis(latency.valueAtQuantile(0.99)), millis(latency.getMax()));
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
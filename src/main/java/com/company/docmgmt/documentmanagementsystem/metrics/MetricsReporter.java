@@ -0,0 +1,143 @@
+package com.company.docmgmt.documentmanagementsystem.metrics;
+
+import com.company.docmgmt.documentmanagementsystem.util.SlowQueryLog;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标导出，三种方式均通过系统属性开启：
+ * <ul>
+ *     <li>-Ddocmgmt.metrics.logIntervalSec=60 每隔一段时间输出本周期内有调用的操作，0表示关闭</li>
+ *     <li>-Ddocmgmt.metrics.file=/path/metrics.prom 按同样的周期写入Prometheus文本文件(供node_exporter textfile采集)</li>
+ *     <li>-Ddocmgmt.metrics.port=9464 在本机回环地址上提供 /metrics HTTP端点，/slow-queries 导出慢查询日志</li>
+ * </ul>
+ */
+public final class MetricsReporter {
+
+    private static final long INTERVAL_SECONDS = Long.getLong("docmgmt.metrics.logIntervalSec", 60L);
+    private static final String FILE = System.getProperty("docmgmt.metrics.file");
+    private static final int PORT = Integer.getInteger("docmgmt.metrics.port", 0);
+
+    private static ScheduledExecutorService scheduler;
+    private static HttpServer server;
+    // 上一个周期结束时的快照，用于计算周期内的增量
+    private static final Map<String, Operation.Snapshot> lastSnapshots = new HashMap<>();
+
+    private MetricsReporter() {
+    }
+
+    /**
+     * 按配置启动导出，重复调用无效
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        if (INTERVAL_SECONDS > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-reporter");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleAtFixedRate(MetricsReporter::report, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        if (PORT > 0) {
+            startHttpServer();
+        }
+    }
+
+    /**
+     * 停止导出；配置了文件时最后写一次
+     */
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        writeFile();
+    }
+
+    private static void report() {
+        try {
+            logInterval();
+            writeFile();
+        } catch (RuntimeException e) {
+            // 不能让异常终止周期任务
+            e.printStackTrace();
+        }
+    }
+
+    private static void logInterval() {
+        for (Operation.Snapshot current : Metrics.snapshot()) {
+            Operation.Snapshot previous = lastSnapshots.getOrDefault(current.getName(), Operation.Snapshot.empty(current.getName()));
+            lastSnapshots.put(current.getName(), current);
+            Operation.Snapshot delta = current.minus(previous);
+            if (delta.getCalls() > 0) {
+                System.out.println("[metrics] " + Metrics.toLogLine(delta));
+            }
+        }
+    }
+
+    private static void writeFile() {
+        if (FILE == null || FILE.isEmpty()) {
+            return;
+        }
+        Path target = Paths.get(FILE);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.writeString(temp, Metrics.toPrometheusText(), StandardCharsets.UTF_8);
+            // 先写临时文件再原子替换，采集方不会读到写了一半的文件
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("写入指标文件失败: " + target + " (" + e.getMessage() + ")");
+        }
+    }
+
+    private static void startHttpServer() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), PORT), 0);
+            server.createContext("/metrics", exchange ->
+                    respond(exchange, "text/plain; version=0.0.4; charset=utf-8", Metrics.toPrometheusText()));
+            server.createContext("/slow-queries", exchange ->
+                    respond(exchange, "text/plain; charset=utf-8", SlowQueryLog.dump()));
+            server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "metrics-http");
+                t.setDaemon(true);
+                return t;
+            }));
+            server.start();
+            System.out.println("指标端点已启动: http://127.0.0.1:" + PORT + "/metrics");
+        } catch (IOException e) {
+            System.err.println("指标端点启动失败，端口 " + PORT + ": " + e.getMessage());
+            server = null;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.company.docmgmt.documentmanagementsystem.metrics;
+
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 一个被监控的操作(例如 "DocumentDao.findAll")：调用次数、错误次数、返回行数和延迟直方图
+ * 通过 {@link Metrics#operation(String)} 获取，通常保存在静态常量中。
+ */
+public final class Operation {
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 开始计时，配合try-with-resources使用：
+     * <pre>
+     * try (Sample sample = FIND_ALL.start(); Connection conn = ...) {
+     *     ...
+     *     sample.rows(documents.size());
+     * }
+     * </pre>
+     * 关闭时如果没有调用过 {@link Sample#rows(long)} 或 {@link Sample#success()}，本次调用计为错误。
+     * @return 计时样本
+     */
+    public Sample start() {
+        return new Sample(this, System.nanoTime());
+    }
+
+    /**
+     * 执行并记录一次调用；抛出异常计为错误，返回值为集合/Optional/Page时记录行数
+     * @param action 要执行的操作
+     * @return action的返回值
+     */
+    public <T> T call(Supplier<T> action) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        long rowCount = 0;
+        try {
+            T result = action.get();
+            rowCount = rowsOf(result);
+            failed = false;
+            return result;
+        } finally {
+            record(System.nanoTime() - start, rowCount, failed);
+        }
+    }
+
+    /**
+     * 执行并记录一次没有返回值的调用
+     * @param action 要执行的操作
+     */
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    void record(long nanos, long rowCount, boolean failed) {
+        calls.increment();
+        totalNanos.add(nanos);
+        histogram.record(nanos);
+        if (failed) {
+            errors.increment();
+        } else if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+    }
+
+    private static long rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Page) {
+            return ((Page<?>) result).getItems().size();
+        }
+        return 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 当前累计值的快照
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(name, calls.sum(), errors.sum(), rows.sum(), totalNanos.sum(), histogram.snapshot());
+    }
+
+    /**
+     * 一次调用的计时样本
+     */
+    public static final class Sample implements AutoCloseable {
+        private final Operation operation;
+        private final long startNanos;
+        private long rowCount;
+        private boolean completed;
+
+        private Sample(Operation operation, long startNanos) {
+            this.operation = operation;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * 标记调用成功并记录返回/影响的行数
+         * @param count 行数
+         */
+        public void rows(long count) {
+            this.rowCount = count;
+            this.completed = true;
+        }
+
+        /**
+         * 标记调用成功
+         */
+        public void success() {
+            this.completed = true;
+        }
+
+        @Override
+        public void close() {
+            operation.record(System.nanoTime() - startNanos, rowCount, !completed);
+        }
+    }
+
+    /**
+     * 操作统计快照
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final long totalNanos;
+        private final LatencyHistogram.Snapshot latency;
+
+        Snapshot(String name, long calls, long errors, long rows, long totalNanos, LatencyHistogram.Snapshot latency) {
+            this.name = name;
+            this.calls = calls;
+            this.errors = errors;
+            this.rows = rows;
+            this.totalNanos = totalNanos;
+            this.latency = latency;
+        }
+
+        public String getName() { return name; }
+        public long getCalls() { return calls; }
+        public long getErrors() { return errors; }
+        public long getRows() { return rows; }
+        public long getTotalNanos() { return totalNanos; }
+        public LatencyHistogram.Snapshot getLatency() { return latency; }
+
+        /**
+         * @param earlier 同一操作更早的快照
+         * @return 两次快照之间的增量
+         */
+        public Snapshot minus(Snapshot earlier) {
+            return new Snapshot(name, calls - earlier.calls, errors - earlier.errors, rows - earlier.rows,
+                    totalNanos - earlier.totalNanos, latency.minus(earlier.latency));
+        }
+
+        static Snapshot empty(String name) {
+            return new Snapshot(name, 0, 0, 0, 0, LatencyHistogram.Snapshot.empty());
+        }
+    }
+}
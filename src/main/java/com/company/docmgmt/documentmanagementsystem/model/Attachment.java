@@ -0,0 +1,77 @@
+package com.company.docmgmt.documentmanagementsystem.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文档的附件：只包含元数据，内容按哈希存放在blob存储中，需要时再单独打开
+ * (见 DocumentService#openAttachment)
+ */
+public class Attachment {
+    private int id;
+    private int documentId;
+    private String name;
+    private long sizeBytes;
+    private LocalDateTime createdAt;
+
+    public Attachment() {
+    }
+
+    public Attachment(int id, int documentId, String name, long sizeBytes, LocalDateTime createdAt) {
+        this.id = id;
+        this.documentId = documentId;
+        this.name = name;
+        this.sizeBytes = sizeBytes;
+        this.createdAt = createdAt;
+    }
+
+    // --- Getters and Setters ---
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(int documentId) {
+        this.documentId = documentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Attachment{" +
+                "id=" + id +
+                ", documentId=" + documentId +
+                ", name='" + name + '\'' +
+                ", sizeBytes=" + sizeBytes +
+                '}';
+    }
+}
@@ -10,6 +10,8 @@ public class Document {
     private String status;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // 乐观锁版本号，每次更新加一
+    private int version;
 
     public Document() {
     }
@@ -24,6 +26,11 @@ public class Document {
         this.updatedAt = updatedAt;
     }
 
+    public Document(int id, String title, String content, int ownerUserId, String status, LocalDateTime createdAt, LocalDateTime updatedAt, int version) {
+        this(id, title, content, ownerUserId, status, createdAt, updatedAt);
+        this.version = version;
+    }
+
     // --- Getters and Setters ---
     public int getId() {
         return id;
@@ -81,6 +88,14 @@ public class Document {
         this.updatedAt = updatedAt;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Document{" +
@@ -88,6 +103,7 @@ public class Document {
                 ", title='" + title + '\'' +
                 ", ownerUserId=" + ownerUserId +
                 ", status='" + status + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
\ No newline at end of file
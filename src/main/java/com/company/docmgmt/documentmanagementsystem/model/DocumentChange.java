@@ -0,0 +1,64 @@
+package com.company.docmgmt.documentmanagementsystem.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文档的一条变更：新增或修改时带有变更后的摘要，删除时只有文档ID (来自墓碑)
+ * 变更按 (changedAt, documentId) 升序返回，客户端据此增量同步本地副本 (见 DocumentService#getDocumentChanges)
+ */
+public class DocumentChange {
+    private final int documentId;
+    private final LocalDateTime changedAt;
+    private final DocumentSummary summary; // 删除时为null
+
+    private DocumentChange(int documentId, LocalDateTime changedAt, DocumentSummary summary) {
+        this.documentId = documentId;
+        this.changedAt = changedAt;
+        this.summary = summary;
+    }
+
+    /**
+     * 新增或修改的文档，变更时间为它的updated_at
+     * @param summary 变更后的文档摘要
+     * @return 变更
+     */
+    public static DocumentChange upsert(DocumentSummary summary) {
+        return new DocumentChange(summary.getId(), summary.getUpdatedAt(), summary);
+    }
+
+    /**
+     * 被删除的文档
+     * @param documentId 文档ID
+     * @param deletedAt 删除时间
+     * @return 变更
+     */
+    public static DocumentChange deleted(int documentId, LocalDateTime deletedAt) {
+        return new DocumentChange(documentId, deletedAt, null);
+    }
+
+    // --- Getters ---
+    public int getDocumentId() {
+        return documentId;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    public DocumentSummary getSummary() {
+        return summary;
+    }
+
+    public boolean isDeleted() {
+        return summary == null;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentChange{" +
+                "documentId=" + documentId +
+                ", changedAt=" + changedAt +
+                ", deleted=" + isDeleted() +
+                '}';
+    }
+}
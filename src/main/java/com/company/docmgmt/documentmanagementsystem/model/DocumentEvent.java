@@ -0,0 +1,62 @@
+package com.company.docmgmt.documentmanagementsystem.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 发件箱 (document_events) 中的一条文档变更通知
+ * 只记录哪个文档发生了什么变化，不带内容；订阅者按需读取变化后的文档摘要
+ */
+public class DocumentEvent {
+
+    /**
+     * 变更类型
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final long id;
+    private final Type type;
+    private final int documentId;
+    private final int ownerUserId;
+    private final LocalDateTime occurredAt;
+
+    public DocumentEvent(long id, Type type, int documentId, int ownerUserId, LocalDateTime occurredAt) {
+        this.id = id;
+        this.type = type;
+        this.documentId = documentId;
+        this.ownerUserId = ownerUserId;
+        this.occurredAt = occurredAt;
+    }
+
+    // --- Getters ---
+    public long getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getDocumentId() {
+        return documentId;
+    }
+
+    public int getOwnerUserId() {
+        return ownerUserId;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentEvent{" +
+                "id=" + id +
+                ", type=" + type +
+                ", documentId=" + documentId +
+                ", ownerUserId=" + ownerUserId +
+                '}';
+    }
+}
@@ -0,0 +1,93 @@
+package com.company.docmgmt.documentmanagementsystem.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文档修订历史中的一条记录 (不含正文)，revision 是该次更新之后的文档版本号
+ * 需要某个修订的完整内容时再单独读取 (见 DocumentService#getDocumentRevision)
+ */
+public class DocumentRevision {
+    private final int documentId;
+    private final int revision;
+    private final String title;
+    private final String status;
+    private final boolean snapshot;
+    private final int contentBytes;
+    private final int storedBytes;
+    private final Integer createdBy;
+    private final LocalDateTime createdAt;
+
+    public DocumentRevision(int documentId, int revision, String title, String status, boolean snapshot,
+                            int contentBytes, int storedBytes, Integer createdBy, LocalDateTime createdAt) {
+        this.documentId = documentId;
+        this.revision = revision;
+        this.title = title;
+        this.status = status;
+        this.snapshot = snapshot;
+        this.contentBytes = contentBytes;
+        this.storedBytes = storedBytes;
+        this.createdBy = createdBy;
+        this.createdAt = createdAt;
+    }
+
+    // --- Getters ---
+    public int getDocumentId() {
+        return documentId;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return 是否保存为完整快照；否则只保存了相对上一个修订的差异
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return 该修订正文的大小 (UTF-8字节数)
+     */
+    public int getContentBytes() {
+        return contentBytes;
+    }
+
+    /**
+     * @return 该修订在历史表中实际占用的字节数，引用blob存储的快照不计入
+     */
+    public int getStoredBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * @return 执行该次更新的用户ID，未知时为null
+     */
+    public Integer getCreatedBy() {
+        return createdBy;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentRevision{" +
+                "documentId=" + documentId +
+                ", revision=" + revision +
+                ", title='" + title + '\'' +
+                ", snapshot=" + snapshot +
+                ", contentBytes=" + contentBytes +
+                ", storedBytes=" + storedBytes +
+                '}';
+    }
+}
@@ -0,0 +1,87 @@
+package com.company.docmgmt.documentmanagementsystem.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文档摘要：列表视图只需要的字段，不包含体积较大的content
+ * 需要正文时再按ID单独加载 (见 DocumentService#getDocumentById)
+ */
+public class DocumentSummary {
+    private int id;
+    private String title;
+    private int ownerUserId;
+    private String status;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public DocumentSummary() {
+    }
+
+    public DocumentSummary(int id, String title, int ownerUserId, String status, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.ownerUserId = ownerUserId;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    // --- Getters and Setters ---
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public int getOwnerUserId() {
+        return ownerUserId;
+    }
+
+    public void setOwnerUserId(int ownerUserId) {
+        this.ownerUserId = ownerUserId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentSummary{" +
+                "id=" + id +
+                ", title='" + title + '\'' +
+                ", ownerUserId=" + ownerUserId +
+                ", status='" + status + '\'' +
+                '}';
+    }
+}
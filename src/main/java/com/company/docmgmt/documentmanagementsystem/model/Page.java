@@ -0,0 +1,43 @@
+package com.company.docmgmt.documentmanagementsystem.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一页查询结果
+ * @param <T> 元素类型
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final PageCursor nextCursor; // 没有下一页时为null
+
+    public Page(List<T> items, PageCursor nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(Collections.emptyList(), null);
+    }
+
+    // --- Getters ---
+    public List<T> getItems() {
+        return items;
+    }
+
+    public PageCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "size=" + items.size() +
+                ", nextCursor=" + nextCursor +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+package com.company.docmgmt.documentmanagementsystem.model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 键集分页(keyset pagination)游标
+ * 记录上一页最后一行的 (created_at, id)，下一页从严格小于它的位置继续，
+ * 不需要OFFSET，因此翻到任意深度的代价都相同。
+ * 变更流 ({@link DocumentChange}) 也用它记录位置，此时是 (变更时间, 文档ID)，方向为升序。
+ */
+public class PageCursor {
+    private final LocalDateTime createdAt;
+    private final int id;
+
+    public PageCursor(LocalDateTime createdAt, int id) {
+        this.createdAt = Objects.requireNonNull(createdAt, "createdAt");
+        this.id = id;
+    }
+
+    /**
+     * 以一个文档作为游标位置
+     * @param document 上一页的最后一个文档
+     * @return 游标
+     */
+    public static PageCursor after(Document document) {
+        return new PageCursor(document.getCreatedAt(), document.getId());
+    }
+
+    /**
+     * 以一个文档摘要作为游标位置
+     * @param summary 上一页的最后一个文档摘要
+     * @return 游标
+     */
+    public static PageCursor after(DocumentSummary summary) {
+        return new PageCursor(summary.getCreatedAt(), summary.getId());
+    }
+
+    /**
+     * 以一条变更作为变更流中的位置
+     * @param change 上一批的最后一条变更
+     * @return 游标
+     */
+    public static PageCursor after(DocumentChange change) {
+        return new PageCursor(change.getChangedAt(), change.getDocumentId());
+    }
+
+    // --- Getters ---
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PageCursor)) return false;
+        PageCursor that = (PageCursor) o;
+        return id == that.id && createdAt.equals(that.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdAt, id);
+    }
+
+    @Override
+    public String toString() {
+        return "PageCursor{" +
+                "createdAt=" + createdAt +
+                ", id=" + id +
+                '}';
+    }
+}
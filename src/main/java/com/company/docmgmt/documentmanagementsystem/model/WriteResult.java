@@ -0,0 +1,31 @@
+package com.company.docmgmt.documentmanagementsystem.model;
+
+/**
+ * 单条文档写操作的结果，调用方据此区分失败原因并给出相应提示
+ */
+public enum WriteResult {
+    /**
+     * 写入成功
+     */
+    SUCCESS,
+    /**
+     * 文档已被其他人修改(版本号不一致)，需要重新加载后再编辑
+     */
+    CONFLICT,
+    /**
+     * 文档不存在(或已被删除)
+     */
+    NOT_FOUND,
+    /**
+     * 权限不足
+     */
+    FORBIDDEN,
+    /**
+     * 数据库访问失败
+     */
+    FAILED;
+
+    public boolean isSuccess() {
+        return this == SUCCESS;
+    }
+}
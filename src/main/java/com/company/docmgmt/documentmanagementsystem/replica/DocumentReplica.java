@@ -0,0 +1,480 @@
+package com.company.docmgmt.documentmanagementsystem.replica;
+
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentChange;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.model.PageCursor;
+import com.company.docmgmt.documentmanagementsystem.service.AuthService;
+import com.company.docmgmt.documentmanagementsystem.service.DocumentListSource;
+import com.company.docmgmt.documentmanagementsystem.service.DocumentClient;
+import com.company.docmgmt.documentmanagementsystem.service.DocumentService;
+import com.company.docmgmt.documentmanagementsystem.service.Permissions;
+import com.company.docmgmt.documentmanagementsystem.service.RemoteClient;
+import com.company.docmgmt.documentmanagementsystem.service.SecurityContext;
+import com.company.docmgmt.documentmanagementsystem.service.ServiceExecutor;
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 桌面客户端的本地文档副本：当前用户可见的文档摘要保存在本机的H2文件数据库中，文档列表直接从这里读取
+ * <p>
+ * 同步时只拉取上次水位 (变更时间, 文档ID) 之后的变更 ({@link DocumentClient#getDocumentChanges})，删除通过墓碑传递，
+ * 刷新的代价与变更数成正比，与文档总数无关。同步在后台进行，中心数据库缓慢或不可用时列表照常显示本地数据。
+ * <p>
+ * updated_at在语句执行时取值、事务提交后才可见，比水位早但提交较晚的行会被跳过；因此每次同步从水位之前
+ * docmgmt.replica.overlapSec (默认30秒) 开始重新读取，重复读到的行与本地比较，没有变化时不计为变更。
+ * 每个数据源和用户一个数据库文件，位于 docmgmt.replica.dir (默认 ~/.docmgmt/replica)；
+ * 可见范围 (全部文档/自己的文档) 变化，或者超过墓碑保留期没有同步时，丢弃本地数据从头同步。
+ */
+public class DocumentReplica implements DocumentListSource, AutoCloseable {
+
+    private static final int SYNC_BATCH_SIZE = Integer.getInteger("docmgmt.replica.batchSize", 500);
+    private static final long OVERLAP_SECONDS = Long.getLong("docmgmt.replica.overlapSec", 30L);
+
+    private static final String[] SQL_SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS replica_documents (id INT PRIMARY KEY, title VARCHAR(255) NOT NULL,"
+                    + " owner_user_id INT NOT NULL, status VARCHAR(20) NOT NULL,"
+                    + " created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS idx_replica_documents_created ON replica_documents (created_at DESC, id DESC)",
+            "CREATE TABLE IF NOT EXISTS replica_meta (name VARCHAR(32) PRIMARY KEY, val VARCHAR(255))",
+    };
+    private static final String COLUMNS = "id, title, owner_user_id, status, created_at, updated_at";
+    private static final String SQL_COUNT = "SELECT COUNT(*) FROM replica_documents";
+    private static final String SQL_FIRST_PAGE = "SELECT " + COLUMNS + " FROM replica_documents"
+            + " ORDER BY created_at DESC, id DESC LIMIT ?";
+    private static final String SQL_PAGE_AFTER = "SELECT " + COLUMNS + " FROM replica_documents"
+            + " WHERE created_at < ? OR (created_at = ? AND id < ?) ORDER BY created_at DESC, id DESC LIMIT ?";
+    private static final String SQL_PAGE_AT = "SELECT " + COLUMNS + " FROM replica_documents"
+            + " ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?";
+    private static final String SQL_FIND_SUMMARY = "SELECT " + COLUMNS + " FROM replica_documents WHERE id = ?";
+    private static final String SQL_FIND = "SELECT title, status, updated_at FROM replica_documents WHERE id = ?";
+    private static final String SQL_INSERT = "INSERT INTO replica_documents (title, owner_user_id, status, created_at, updated_at, id)"
+            + " VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_UPDATE = "UPDATE replica_documents SET title = ?, owner_user_id = ?, status = ?,"
+            + " created_at = ?, updated_at = ? WHERE id = ?";
+    private static final String SQL_DELETE = "DELETE FROM replica_documents WHERE id = ?";
+    private static final String SQL_CLEAR = "DELETE FROM replica_documents";
+    private static final String SQL_FIND_META = "SELECT name, val FROM replica_meta";
+    private static final String SQL_PUT_META = "MERGE INTO replica_meta (name, val) KEY (name) VALUES (?, ?)";
+    private static final String SQL_CLEAR_META = "DELETE FROM replica_meta";
+
+    private static final String META_SCOPE = "scope";
+    private static final String META_WATERMARK_AT = "watermark_at";
+    private static final String META_WATERMARK_ID = "watermark_id";
+    private static final String META_SYNCED_AT = "synced_at";
+
+    private static final Operation SYNC = Metrics.operation("DocumentReplica.sync");
+    private static final Operation COUNT = Metrics.operation("DocumentReplica.count");
+    private static final Operation FIND_PAGE = Metrics.operation("DocumentReplica.findPage");
+    private static final Operation FIND_AT = Metrics.operation("DocumentReplica.findAt");
+    private static final Operation FIND_BY_IDS = Metrics.operation("DocumentReplica.findByIds");
+
+    private final DocumentClient source;
+    private final String scope;
+    private final Connection conn;
+    // conn上的读写互斥；同步只在写入一批变更时持有，从文档服务拉取变更期间列表照常读取
+    private final Object lock = new Object();
+    // 同一时间只有一个同步在进行
+    private final Object syncLock = new Object();
+    private final Object queueLock = new Object();
+    private CompletableFuture<Integer> queuedSync;
+    private volatile boolean closed;
+
+    /**
+     * 打开(或新建)本地副本
+     * @param file 数据库文件路径 (不含H2的扩展名)
+     * @param scope 可见范围，与上次同步时不同则丢弃本地数据
+     * @param source 拉取变更的文档服务
+     * @throws SQLException 数据库文件无法打开时 (例如正被另一个客户端使用)
+     */
+    public DocumentReplica(Path file, String scope, DocumentClient source) throws SQLException {
+        this.source = source;
+        this.scope = scope;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            throw new SQLException("Failed to create replica directory: " + e.getMessage(), e);
+        }
+        this.conn = DriverManager.getConnection("jdbc:h2:file:" + file.toAbsolutePath(), "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : SQL_SCHEMA) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 为桌面客户端的当前用户打开本地副本
+     * -Ddocmgmt.replica.enabled=false 时，或者数据库文件打不开 (例如同一用户的另一个客户端正在使用) 时返回空，
+     * 调用方直接访问文档服务
+     * @param source 桌面客户端使用的文档服务
+     * @return 本地副本
+     */
+    public static Optional<DocumentReplica> openForDesktop(DocumentClient source) {
+        if (!Boolean.parseBoolean(System.getProperty("docmgmt.replica.enabled", "true"))) {
+            return Optional.empty();
+        }
+        SecurityContext ctx = AuthService.getInstance().getCurrentContext();
+        if (!ctx.isAuthenticated()) {
+            return Optional.empty();
+        }
+        String origin = RemoteClient.isConfigured() ? RemoteClient.getInstance().getBaseUrl() : DatabaseUtil.getUrl();
+        String dir = System.getProperty("docmgmt.replica.dir",
+                Paths.get(System.getProperty("user.home"), ".docmgmt", "replica").toString());
+        String scope = ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL) ? "all" : "own";
+        try {
+            return Optional.of(new DocumentReplica(Paths.get(dir, fileName(origin, ctx.getUser().getId())), scope, source));
+        } catch (SQLException e) {
+            System.err.println("本地副本无法打开，直接访问文档服务: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // --- 列表读取 (只访问本地) ---
+
+    @Override
+    public int countVisibleDocuments() {
+        synchronized (lock) {
+            try (Operation.Sample sample = COUNT.start();
+                 PreparedStatement stmt = conn.prepareStatement(SQL_COUNT);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                sample.rows(1);
+                return rs.getInt(1);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public Page<DocumentSummary> getVisibleDocumentSummariesPage(PageCursor after, int pageSize) {
+        synchronized (lock) {
+            try (Operation.Sample sample = FIND_PAGE.start();
+                 PreparedStatement stmt = conn.prepareStatement(after == null ? SQL_FIRST_PAGE : SQL_PAGE_AFTER)) {
+                int index = 1;
+                if (after != null) {
+                    Timestamp createdAt = Timestamp.valueOf(after.getCreatedAt());
+                    stmt.setTimestamp(index++, createdAt);
+                    stmt.setTimestamp(index++, createdAt);
+                    stmt.setInt(index++, after.getId());
+                }
+                // 多取一行，用来判断是否还有下一页
+                stmt.setInt(index, pageSize + 1);
+                List<DocumentSummary> rows = readSummaries(stmt);
+                sample.rows(Math.min(rows.size(), pageSize));
+                if (rows.size() > pageSize) {
+                    rows.remove(pageSize);
+                    return new Page<>(rows, PageCursor.after(rows.get(pageSize - 1)));
+                }
+                return new Page<>(rows, null);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return Page.empty();
+            }
+        }
+    }
+
+    @Override
+    public Page<DocumentSummary> getVisibleDocumentSummariesAt(int offset, int limit) {
+        synchronized (lock) {
+            try (Operation.Sample sample = FIND_AT.start();
+                 PreparedStatement stmt = conn.prepareStatement(SQL_PAGE_AT)) {
+                stmt.setInt(1, limit);
+                stmt.setInt(2, offset);
+                List<DocumentSummary> rows = readSummaries(stmt);
+                sample.rows(rows.size());
+                return new Page<>(rows, rows.size() == limit ? PageCursor.after(rows.get(limit - 1)) : null);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return Page.empty();
+            }
+        }
+    }
+
+    @Override
+    public List<DocumentSummary> getVisibleDocumentSummariesByIds(Collection<Integer> ids) {
+        synchronized (lock) {
+            try (Operation.Sample sample = FIND_BY_IDS.start();
+                 PreparedStatement stmt = conn.prepareStatement(SQL_FIND_SUMMARY)) {
+                List<DocumentSummary> rows = new ArrayList<>(ids.size());
+                for (Integer id : ids) {
+                    stmt.setInt(1, id);
+                    rows.addAll(readSummaries(stmt));
+                }
+                sample.rows(rows.size());
+                return rows;
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+        }
+    }
+
+    // --- 同步 ---
+
+    /**
+     * 在服务执行器上同步；已经排队但尚未开始的同步直接复用，连续多次刷新只同步一次
+     * @return 本地发生变化的行数；文档服务不可用时异常完成
+     */
+    public CompletableFuture<Integer> syncAsync() {
+        synchronized (queueLock) {
+            if (queuedSync != null) {
+                return queuedSync;
+            }
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            queuedSync = future;
+            ServiceExecutor.supplyAsync(() -> {
+                synchronized (queueLock) {
+                    if (queuedSync == future) {
+                        queuedSync = null;
+                    }
+                }
+                return sync();
+            }).whenComplete((changed, error) -> {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(changed);
+                }
+            });
+            return future;
+        }
+    }
+
+    /**
+     * 拉取水位之后的变更并写入本地，在调用线程上执行
+     * 每批变更和新的水位在同一个本地事务中写入，中途失败时已写入的批次保留，下次从那里继续
+     * @return 本地发生变化的行数
+     * @throws RuntimeException 文档服务或中心数据库不可用时
+     */
+    public int sync() {
+        synchronized (syncLock) {
+            if (closed) {
+                return 0;
+            }
+            try (Operation.Sample sample = SYNC.start()) {
+                Map<String, String> meta = readMeta();
+                PageCursor watermark = prepare(meta);
+                // 从水位之前的重叠窗口开始，补上提交较晚的行
+                PageCursor cursor = watermark == null ? null
+                        : new PageCursor(watermark.getCreatedAt().minusSeconds(OVERLAP_SECONDS), 0);
+                int changed = 0;
+                Page<DocumentChange> page;
+                do {
+                    page = source.getDocumentChanges(cursor, SYNC_BATCH_SIZE);
+                    if (page.getItems().isEmpty()) {
+                        break;
+                    }
+                    cursor = PageCursor.after(page.getItems().get(page.getItems().size() - 1));
+                    PageCursor next = max(watermark, cursor);
+                    changed += apply(page.getItems(), next, !next.equals(watermark));
+                    watermark = next;
+                } while (page.hasMore());
+                // 同步时间只用于判断是否超过墓碑保留期，没有变化时不必每次都写入
+                String syncedAt = meta.get(META_SYNCED_AT);
+                LocalDateTime now = LocalDateTime.now();
+                if (changed > 0 || syncedAt == null || LocalDateTime.parse(syncedAt).isBefore(now.minusHours(1))) {
+                    putMeta(META_SYNCED_AT, now.toString());
+                }
+                sample.rows(changed);
+                return changed;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to update local replica: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 关闭本地数据库，登出时调用
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (lock) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // --- Private Helper Methods ---
+
+    /**
+     * 读取水位；可见范围变化或超过墓碑保留期没有同步时清空本地数据
+     * @param meta 本地保存的同步状态
+     * @return 上次同步的水位，需要从头同步时为null
+     */
+    private PageCursor prepare(Map<String, String> meta) throws SQLException {
+        String syncedAt = meta.get(META_SYNCED_AT);
+        boolean expired = syncedAt != null && LocalDateTime.parse(syncedAt)
+                .isBefore(LocalDateTime.now().minusDays(DocumentService.TOMBSTONE_RETENTION_DAYS));
+        if (scope.equals(meta.get(META_SCOPE)) && !expired) {
+            String watermarkAt = meta.get(META_WATERMARK_AT);
+            return watermarkAt == null ? null
+                    : new PageCursor(LocalDateTime.parse(watermarkAt), Integer.parseInt(meta.get(META_WATERMARK_ID)));
+        }
+        // 本地数据可能包含已经看不到的文档，或者缺少已被清理的墓碑：丢弃后从头同步
+        synchronized (lock) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(SQL_CLEAR);
+                stmt.executeUpdate(SQL_CLEAR_META);
+                putMeta(META_SCOPE, scope);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 在一个本地事务中应用一批变更并推进水位
+     * @param advanced 水位是否前进；只重读了重叠窗口且没有变化时不提交
+     * @return 实际发生变化的行数 (重叠窗口中重复读到、内容没有变化的行不计)
+     */
+    private int apply(List<DocumentChange> changes, PageCursor watermark, boolean advanced) throws SQLException {
+        synchronized (lock) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement find = conn.prepareStatement(SQL_FIND);
+                 PreparedStatement insert = conn.prepareStatement(SQL_INSERT);
+                 PreparedStatement update = conn.prepareStatement(SQL_UPDATE);
+                 PreparedStatement delete = conn.prepareStatement(SQL_DELETE)) {
+                int changed = 0;
+                for (DocumentChange change : changes) {
+                    if (change.isDeleted()) {
+                        delete.setInt(1, change.getDocumentId());
+                        changed += delete.executeUpdate();
+                        continue;
+                    }
+                    DocumentSummary summary = change.getSummary();
+                    find.setInt(1, summary.getId());
+                    PreparedStatement write;
+                    try (ResultSet rs = find.executeQuery()) {
+                        if (!rs.next()) {
+                            write = insert;
+                        } else if (!Objects.equals(rs.getString("title"), summary.getTitle())
+                                || !Objects.equals(rs.getString("status"), summary.getStatus())
+                                || !rs.getTimestamp("updated_at").toLocalDateTime().equals(summary.getUpdatedAt())) {
+                            write = update;
+                        } else {
+                            continue;
+                        }
+                    }
+                    write.setString(1, summary.getTitle());
+                    write.setInt(2, summary.getOwnerUserId());
+                    write.setString(3, summary.getStatus());
+                    write.setTimestamp(4, Timestamp.valueOf(summary.getCreatedAt()));
+                    write.setTimestamp(5, Timestamp.valueOf(summary.getUpdatedAt()));
+                    write.setInt(6, summary.getId());
+                    changed += write.executeUpdate();
+                }
+                if (changed == 0 && !advanced) {
+                    conn.rollback();
+                    return 0;
+                }
+                putMeta(META_WATERMARK_AT, watermark.getCreatedAt().toString());
+                putMeta(META_WATERMARK_ID, Integer.toString(watermark.getId()));
+                conn.commit();
+                return changed;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private Map<String, String> readMeta() throws SQLException {
+        Map<String, String> meta = new HashMap<>();
+        synchronized (lock) {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_FIND_META);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    meta.put(rs.getString("name"), rs.getString("val"));
+                }
+            }
+        }
+        return meta;
+    }
+
+    private void putMeta(String name, String value) throws SQLException {
+        synchronized (lock) {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_PUT_META)) {
+                stmt.setString(1, name);
+                stmt.setString(2, value);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private static List<DocumentSummary> readSummaries(PreparedStatement stmt) throws SQLException {
+        List<DocumentSummary> rows = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(new DocumentSummary(rs.getInt("id"), rs.getString("title"), rs.getInt("owner_user_id"),
+                        rs.getString("status"), rs.getTimestamp("created_at").toLocalDateTime(),
+                        rs.getTimestamp("updated_at").toLocalDateTime()));
+            }
+        }
+        return rows;
+    }
+
+    private static PageCursor max(PageCursor a, PageCursor b) {
+        if (a == null) {
+            return b;
+        }
+        int byTime = a.getCreatedAt().compareTo(b.getCreatedAt());
+        return byTime > 0 || (byTime == 0 && a.getId() >= b.getId()) ? a : b;
+    }
+
+    /**
+     * 数据库文件名：数据源地址和用户ID的摘要，不同的服务端/数据库和用户互不影响
+     */
+    private static String fileName(String origin, int userId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((origin + '|' + userId).getBytes(StandardCharsets.UTF_8));
+            return "replica-" + userId + "-" + HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
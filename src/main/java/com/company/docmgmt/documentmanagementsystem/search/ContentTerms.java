@@ -0,0 +1,110 @@
+package com.company.docmgmt.documentmanagementsystem.search;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 正文的词频，在正文写入数据库的同时统计
+ * <p>
+ * 流式写入正文时用 {@link #tee(Reader)} 包装输入，提交后用 {@link SearchIndex#index(int, int, String, ContentTerms)}
+ * 更新索引，不需要再从数据库读回整篇正文。分词器只保留当前的一个词，占用的内存与正文中不同词的个数成正比，与正文长度无关。
+ * 不是线程安全的，由写入正文的线程使用。
+ */
+public final class ContentTerms {
+
+    private final Map<String, Integer> frequencies = new HashMap<>();
+    private int length;
+    private final Tokenizer.Incremental tokenizer = new Tokenizer.Incremental(token -> {
+        frequencies.merge(token, 1, Integer::sum);
+        length++;
+    });
+    private boolean finished;
+
+    /**
+     * 统计一段完整的正文
+     * @param content 正文，可以为null
+     * @return 词频
+     */
+    static ContentTerms of(String content) {
+        ContentTerms terms = new ContentTerms();
+        if (content != null) {
+            terms.tokenizer.feed(content.toCharArray(), 0, content.length());
+        }
+        return terms;
+    }
+
+    /**
+     * 包装正文输入，读出的字符同时参与分词；不支持mark/reset
+     * @param source 原始输入
+     * @return 包装后的输入，关闭时关闭原始输入
+     */
+    public Reader tee(Reader source) {
+        return new FilterReader(source) {
+            @Override
+            public int read() throws IOException {
+                int c = super.read();
+                if (c >= 0) {
+                    tokenizer.feed(new char[]{(char) c}, 0, 1);
+                }
+                return c;
+            }
+
+            @Override
+            public int read(char[] buffer, int offset, int count) throws IOException {
+                int n = super.read(buffer, offset, count);
+                if (n > 0) {
+                    tokenizer.feed(buffer, offset, n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                // 跳过的字符也要参与分词
+                char[] buffer = new char[(int) Math.min(n, 8192)];
+                long skipped = 0;
+                int read;
+                while (skipped < n && (read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) > 0) {
+                    skipped += read;
+                }
+                return skipped;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+
+            @Override
+            public void mark(int readAheadLimit) throws IOException {
+                throw new IOException("mark() not supported");
+            }
+        };
+    }
+
+    /**
+     * 结束输入，此后不能再读包装的输入
+     */
+    Map<String, Integer> frequencies() {
+        finish();
+        return frequencies;
+    }
+
+    /**
+     * 正文的词数
+     */
+    int length() {
+        finish();
+        return length;
+    }
+
+    private void finish() {
+        if (!finished) {
+            tokenizer.finish();
+            finished = true;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.company.docmgmt.documentmanagementsystem.search;
+
+/**
+ * 一条全文检索结果
+ */
+public class SearchHit {
+    private final int documentId;
+    private final int ownerUserId;
+    private final String title;
+    private final double score;
+
+    public SearchHit(int documentId, int ownerUserId, String title, double score) {
+        this.documentId = documentId;
+        this.ownerUserId = ownerUserId;
+        this.title = title;
+        this.score = score;
+    }
+
+    // --- Getters ---
+    public int getDocumentId() {
+        return documentId;
+    }
+
+    public int getOwnerUserId() {
+        return ownerUserId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchHit{" +
+                "documentId=" + documentId +
+                ", title='" + title + '\'' +
+                ", score=" + String.format("%.4f", score) +
+                '}';
+    }
+}
@@ -0,0 +1,602 @@
+package com.company.docmgmt.documentmanagementsystem.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * 嵌入式倒排索引，覆盖文档的标题和正文
+ * <p>
+ * 内存结构：词 -> 按文档ID有序的倒排表(文档ID + 词频)，外加每个文档的正排信息(用于增量删除)。
+ * 排序使用BM25，标题中的词按 {@link #TITLE_BOOST} 倍计入词频；最后一个查询词可以按前缀匹配，用于边输入边搜索。
+ * <p>
+ * 持久化：全量快照 + 追加写的操作日志，启动时加载快照并重放日志；日志过长或关闭索引时重新生成快照。
+ */
+public class SearchIndex implements AutoCloseable {
+
+    private static final int TITLE_BOOST = 3;
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+    // 前缀查询最多展开的词数，防止一两个字母的前缀展开出整个词典
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    // 日志中累计多少条操作后重新生成快照
+    private static final int COMPACT_THRESHOLD = 10_000;
+
+    private static final int SNAPSHOT_MAGIC = 0x44534958; // "DSIX"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final byte OP_UPSERT = 1;
+    private static final byte OP_DELETE = 2;
+
+    private static SearchIndex defaultInstance;
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final Map<Integer, DocEntry> documents = new HashMap<>();
+    private long totalLength;
+
+    private DataOutputStream journal;
+    private int journalOps;
+    private boolean initialized; // 是否已经从数据库完成过一次全量构建
+
+    /**
+     * 打开(或新建)位于指定目录下的索引
+     * @param directory 索引目录
+     */
+    public SearchIndex(Path directory) {
+        this.snapshotFile = directory.resolve("index.snapshot");
+        this.journalFile = directory.resolve("index.journal");
+        try {
+            Files.createDirectories(directory);
+            load();
+        } catch (IOException e) {
+            // 索引损坏时丢弃，等待从数据库重建
+            System.err.println("全文索引加载失败，将重新构建: " + e.getMessage());
+            clearInMemory();
+            initialized = false;
+        }
+    }
+
+    /**
+     * 获取应用默认的索引，目录可通过 -Ddocmgmt.search.dir 配置
+     * @return 索引实例
+     */
+    public static synchronized SearchIndex getDefault() {
+        if (defaultInstance == null) {
+            String dir = System.getProperty("docmgmt.search.dir",
+                    Paths.get(System.getProperty("user.home"), ".docmgmt", "search-index").toString());
+            defaultInstance = new SearchIndex(Paths.get(dir));
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * 关闭默认索引，应用退出时调用
+     */
+    public static synchronized void closeDefault() {
+        if (defaultInstance != null) {
+            defaultInstance.close();
+            defaultInstance = null;
+        }
+    }
+
+    /**
+     * 新增或替换一个文档的索引
+     * @param documentId 文档ID
+     * @param ownerUserId 文档所有者，用于检索结果的可见性过滤
+     * @param title 标题
+     * @param content 正文
+     */
+    public void index(int documentId, int ownerUserId, String title, String content) {
+        index(documentId, ownerUserId, title, ContentTerms.of(content));
+    }
+
+    /**
+     * 新增或替换一个文档的索引，正文的词频已在写入正文时统计
+     * @param documentId 文档ID
+     * @param ownerUserId 文档所有者，用于检索结果的可见性过滤
+     * @param title 标题
+     * @param content 正文的词频
+     */
+    public void index(int documentId, int ownerUserId, String title, ContentTerms content) {
+        DocEntry entry = analyze(ownerUserId, title, content);
+        lock.writeLock().lock();
+        try {
+            applyUpsert(documentId, entry);
+            appendJournal(out -> {
+                out.writeByte(OP_UPSERT);
+                writeEntry(out, documentId, entry);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从索引中删除一个文档
+     * @param documentId 文档ID
+     */
+    public void remove(int documentId) {
+        lock.writeLock().lock();
+        try {
+            if (applyDelete(documentId)) {
+                appendJournal(out -> {
+                    out.writeByte(OP_DELETE);
+                    out.writeInt(documentId);
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 检索，所有查询词都必须出现(AND)，结果按BM25得分降序
+     * @param query 查询文本，按与建索引相同的规则分词
+     * @param prefix 为true时最后一个查询词按前缀匹配
+     * @param limit 最多返回条数
+     * @param ownerFilter 可见性过滤，参数为文档所有者ID
+     * @return 检索结果
+     */
+    public List<SearchHit> search(String query, boolean prefix, int limit, IntPredicate ownerFilter) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokenize(query)));
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return Collections.emptyList();
+            }
+            // 每个查询词对应一组候选倒排表：精确匹配只有一个，前缀匹配可能有多个
+            List<Postings[]> clauses = new ArrayList<>(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                boolean expand = prefix && i == terms.size() - 1;
+                Postings[] clause = expand ? expandPrefix(terms.get(i)) : exact(terms.get(i));
+                if (clause.length == 0) {
+                    return Collections.emptyList(); // 有一个词不存在，AND结果必然为空
+                }
+                clauses.add(clause);
+            }
+            // 从文档频率最低的条件开始遍历，候选集最小
+            clauses.sort(Comparator.comparingInt(SearchIndex::documentFrequency));
+
+            double avgLength = (double) totalLength / documents.size();
+            PriorityQueue<SearchHit> top = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(SearchHit::getScore));
+            Postings[] driver = clauses.get(0);
+            for (int docId : candidates(driver)) {
+                DocEntry doc = documents.get(docId);
+                if (doc == null || !ownerFilter.test(doc.ownerUserId)) {
+                    continue;
+                }
+                double score = 0;
+                boolean matched = true;
+                for (Postings[] clause : clauses) {
+                    double best = 0;
+                    for (Postings p : clause) {
+                        int tf = p.get(docId);
+                        if (tf > 0) {
+                            best = Math.max(best, bm25(tf, p.size, doc.length, avgLength));
+                        }
+                    }
+                    if (best == 0) {
+                        matched = false;
+                        break;
+                    }
+                    score += best;
+                }
+                if (!matched) {
+                    continue;
+                }
+                if (top.size() < limit) {
+                    top.add(new SearchHit(docId, doc.ownerUserId, doc.title, score));
+                } else if (score > top.peek().getScore()) {
+                    top.poll();
+                    top.add(new SearchHit(docId, doc.ownerUserId, doc.title, score));
+                }
+            }
+
+            List<SearchHit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 用一批文档替换整个索引，用于首次构建或手动重建
+     * @param loader 逐个回调 {@link Builder#add} 提供全部文档
+     */
+    public void rebuild(Consumer<Builder> loader) {
+        lock.writeLock().lock();
+        try {
+            clearInMemory();
+            loader.accept((documentId, ownerUserId, title, content) ->
+                    applyUpsert(documentId, analyze(ownerUserId, title, content)));
+            initialized = true;
+            writeSnapshot();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 是否已经完成过全量构建；否则需要先从数据库调用 {@link #rebuild} 构建
+     * @return 已构建返回true
+     */
+    public boolean isInitialized() {
+        lock.readLock().lock();
+        try {
+            return initialized;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已索引的文档数
+     * @return 文档数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 生成快照并关闭操作日志
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (initialized) {
+                writeSnapshot();
+            }
+            closeJournal();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 全量构建时逐个添加文档
+     */
+    @FunctionalInterface
+    public interface Builder {
+        void add(int documentId, int ownerUserId, String title, String content);
+    }
+
+    // --- 索引维护 ---
+
+    private static DocEntry analyze(int ownerUserId, String title, String content) {
+        return analyze(ownerUserId, title, ContentTerms.of(content));
+    }
+
+    private static DocEntry analyze(int ownerUserId, String title, ContentTerms content) {
+        Map<String, Integer> tf = new HashMap<>(content.frequencies());
+        int length = content.length();
+        for (String token : Tokenizer.tokenize(title)) {
+            tf.merge(token, TITLE_BOOST, Integer::sum);
+            length++;
+        }
+        String[] terms = new String[tf.size()];
+        int[] freqs = new int[tf.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> e : tf.entrySet()) {
+            terms[i] = e.getKey();
+            freqs[i] = e.getValue();
+            i++;
+        }
+        return new DocEntry(ownerUserId, title == null ? "" : title, length, terms, freqs);
+    }
+
+    private void applyUpsert(int documentId, DocEntry entry) {
+        applyDelete(documentId);
+        for (int i = 0; i < entry.terms.length; i++) {
+            postings.computeIfAbsent(entry.terms[i], t -> new Postings()).put(documentId, entry.freqs[i]);
+        }
+        documents.put(documentId, entry);
+        totalLength += entry.length;
+    }
+
+    private boolean applyDelete(int documentId) {
+        DocEntry old = documents.remove(documentId);
+        if (old == null) {
+            return false;
+        }
+        for (String term : old.terms) {
+            Postings p = postings.get(term);
+            if (p != null) {
+                p.remove(documentId);
+                if (p.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= old.length;
+        return true;
+    }
+
+    private void clearInMemory() {
+        postings.clear();
+        documents.clear();
+        totalLength = 0;
+    }
+
+    // --- 检索 ---
+
+    private Postings[] exact(String term) {
+        Postings p = postings.get(term);
+        return p == null ? new Postings[0] : new Postings[]{p};
+    }
+
+    private Postings[] expandPrefix(String prefix) {
+        List<Postings> expanded = new ArrayList<>();
+        for (Postings p : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            expanded.add(p);
+            if (expanded.size() >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+        }
+        return expanded.toArray(new Postings[0]);
+    }
+
+    private static int documentFrequency(Postings[] clause) {
+        int df = 0;
+        for (Postings p : clause) {
+            df += p.size;
+        }
+        return df;
+    }
+
+    private static int[] candidates(Postings[] clause) {
+        if (clause.length == 1) {
+            return Arrays.copyOf(clause[0].docs, clause[0].size);
+        }
+        // 前缀展开的多个倒排表取并集
+        return Arrays.stream(clause)
+                .flatMapToInt(p -> Arrays.stream(p.docs, 0, p.size))
+                .distinct()
+                .toArray();
+    }
+
+    private double bm25(int tf, int df, int docLength, double avgLength) {
+        int n = documents.size();
+        double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+        double norm = BM25_K1 * (1 - BM25_B + BM25_B * docLength / avgLength);
+        return idf * tf * (BM25_K1 + 1) / (tf + norm);
+    }
+
+    // --- 持久化 ---
+
+    private void load() throws IOException {
+        clearInMemory();
+        initialized = false;
+        if (Files.exists(snapshotFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+                if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                    throw new IOException("Unrecognized search index snapshot: " + snapshotFile);
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    int documentId = in.readInt();
+                    applyUpsert(documentId, readEntry(in));
+                }
+            }
+            initialized = true;
+        }
+        if (Files.exists(journalFile)) {
+            replayJournal();
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException end) {
+                    break;
+                }
+                try {
+                    int documentId = in.readInt();
+                    if (op == OP_UPSERT) {
+                        applyUpsert(documentId, readEntry(in));
+                    } else if (op == OP_DELETE) {
+                        applyDelete(documentId);
+                    } else {
+                        throw new IOException("Corrupt search index journal, op=" + op);
+                    }
+                    journalOps++;
+                } catch (EOFException truncated) {
+                    // 进程崩溃时最后一条记录可能只写了一半，忽略即可
+                    break;
+                }
+            }
+        }
+    }
+
+    private void appendJournal(JournalWriter writer) {
+        try {
+            if (journal == null) {
+                OutputStream out = Files.newOutputStream(journalFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                journal = new DataOutputStream(new BufferedOutputStream(out));
+            }
+            writer.write(journal);
+            journal.flush();
+            if (++journalOps >= COMPACT_THRESHOLD && initialized) {
+                writeSnapshot();
+            }
+        } catch (IOException e) {
+            // 索引写盘失败不影响业务写入，下次启动时可从数据库重建
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 写入新的快照并清空日志；先写临时文件再原子替换，避免写到一半时崩溃导致快照损坏
+     */
+    private void writeSnapshot() throws IOException {
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(documents.size());
+            for (Map.Entry<Integer, DocEntry> e : documents.entrySet()) {
+                writeEntry(out, e.getKey(), e.getValue());
+            }
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        closeJournal();
+        Files.deleteIfExists(journalFile);
+        journalOps = 0;
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, int documentId, DocEntry entry) throws IOException {
+        out.writeInt(documentId);
+        out.writeInt(entry.ownerUserId);
+        out.writeUTF(entry.title.length() > 8192 ? entry.title.substring(0, 8192) : entry.title);
+        out.writeInt(entry.length);
+        out.writeInt(entry.terms.length);
+        for (int i = 0; i < entry.terms.length; i++) {
+            out.writeUTF(entry.terms[i]);
+            out.writeInt(entry.freqs[i]);
+        }
+    }
+
+    private static DocEntry readEntry(DataInputStream in) throws IOException {
+        int ownerUserId = in.readInt();
+        String title = in.readUTF();
+        int length = in.readInt();
+        int termCount = in.readInt();
+        String[] terms = new String[termCount];
+        int[] freqs = new int[termCount];
+        for (int i = 0; i < termCount; i++) {
+            terms[i] = in.readUTF().intern();
+            freqs[i] = in.readInt();
+        }
+        return new DocEntry(ownerUserId, title, length, terms, freqs);
+    }
+
+    @FunctionalInterface
+    private interface JournalWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * 单个文档的正排信息
+     */
+    private static final class DocEntry {
+        private final int ownerUserId;
+        private final String title;
+        private final int length;
+        private final String[] terms;
+        private final int[] freqs;
+
+        private DocEntry(int ownerUserId, String title, int length, String[] terms, int[] freqs) {
+            this.ownerUserId = ownerUserId;
+            this.title = title;
+            this.length = length;
+            this.terms = terms;
+            this.freqs = freqs;
+        }
+    }
+
+    /**
+     * 一个词的倒排表，文档ID升序存储在原始数组中，查找用二分
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        private void put(int docId, int tf) {
+            // 文档ID通常自增，优先走追加的快速路径
+            if (size == 0 || docs[size - 1] < docId) {
+                ensureCapacity();
+                docs[size] = docId;
+                freqs[size] = tf;
+                size++;
+                return;
+            }
+            int pos = Arrays.binarySearch(docs, 0, size, docId);
+            if (pos >= 0) {
+                freqs[pos] = tf;
+                return;
+            }
+            int insertAt = -pos - 1;
+            ensureCapacity();
+            System.arraycopy(docs, insertAt, docs, insertAt + 1, size - insertAt);
+            System.arraycopy(freqs, insertAt, freqs, insertAt + 1, size - insertAt);
+            docs[insertAt] = docId;
+            freqs[insertAt] = tf;
+            size++;
+        }
+
+        private void remove(int docId) {
+            int pos = Arrays.binarySearch(docs, 0, size, docId);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+            System.arraycopy(freqs, pos + 1, freqs, pos, size - pos - 1);
+            size--;
+        }
+
+        private int get(int docId) {
+            int pos = Arrays.binarySearch(docs, 0, size, docId);
+            return pos >= 0 ? freqs[pos] : 0;
+        }
+
+        private void ensureCapacity() {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+        }
+    }
+}
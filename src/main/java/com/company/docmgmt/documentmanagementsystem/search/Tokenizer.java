@@ -0,0 +1,140 @@
+package com.company.docmgmt.documentmanagementsystem.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * 全文检索分词器
+ * <ul>
+ *     <li>字母/数字连续串作为一个词，统一转小写</li>
+ *     <li>中日韩文字没有空格分隔，按相邻两字切分(bigram)，单独一个字时保留单字</li>
+ *     <li>其余字符(空白、标点等)作为分隔符</li>
+ * </ul>
+ */
+public final class Tokenizer {
+
+    // 过长的"词"(例如base64、长URL)没有检索价值，直接截断
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    /**
+     * 对文本分词，结果保留重复项，用于统计词频
+     * @param text 原始文本，可以为null
+     * @return 词列表
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        Incremental tokenizer = new Incremental(tokens::add);
+        tokenizer.feed(text.toCharArray(), 0, text.length());
+        tokenizer.finish();
+        return tokens;
+    }
+
+    /**
+     * 分段输入的分词器，规则同 {@link #tokenize(String)}，词和代理对可以跨段
+     * 只保留当前的一个词 (最多 {@link #MAX_TOKEN_LENGTH} 个字符) 和上一个中日韩字符，占用的内存与输入长度无关
+     */
+    public static final class Incremental {
+        private final Consumer<String> sink;
+        private final StringBuilder word = new StringBuilder();
+        private boolean inWord;
+        private int cjkPrevious;
+        private int cjkRun; // 当前中日韩连续串已读的字数
+        private char pendingHigh; // 段末尾的高位代理，等待下一段的低位代理
+
+        /**
+         * @param sink 按顺序接收每个词
+         */
+        public Incremental(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * 输入一段文本
+         */
+        public void feed(char[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                char c = buffer[i];
+                if (pendingHigh != 0) {
+                    char high = pendingHigh;
+                    pendingHigh = 0;
+                    if (Character.isLowSurrogate(c)) {
+                        accept(Character.toCodePoint(high, c));
+                        continue;
+                    }
+                    accept(high);
+                }
+                if (Character.isHighSurrogate(c)) {
+                    pendingHigh = c;
+                } else {
+                    accept(c);
+                }
+            }
+        }
+
+        /**
+         * 输入结束，输出最后一个词
+         */
+        public void finish() {
+            if (pendingHigh != 0) {
+                accept(pendingHigh);
+                pendingHigh = 0;
+            }
+            endWord();
+            endCjkRun();
+        }
+
+        private void accept(int cp) {
+            if (isCjk(cp)) {
+                // 中日韩文字没有空格分隔，按相邻两字切分
+                endWord();
+                if (cjkRun > 0) {
+                    sink.accept(new String(new int[]{cjkPrevious, cp}, 0, 2));
+                }
+                cjkPrevious = cp;
+                cjkRun++;
+            } else if (Character.isLetterOrDigit(cp)) {
+                endCjkRun();
+                inWord = true;
+                if (word.length() < MAX_TOKEN_LENGTH) {
+                    word.appendCodePoint(cp);
+                    word.setLength(Math.min(word.length(), MAX_TOKEN_LENGTH));
+                }
+            } else {
+                endWord();
+                endCjkRun();
+            }
+        }
+
+        private void endWord() {
+            if (inWord) {
+                sink.accept(word.toString().toLowerCase(Locale.ROOT));
+                word.setLength(0);
+                inWord = false;
+            }
+        }
+
+        private void endCjkRun() {
+            if (cjkRun == 1) {
+                // 单独一个字时保留单字
+                sink.accept(new String(Character.toChars(cjkPrevious)));
+            }
+            cjkRun = 0;
+        }
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,89 @@
+package com.company.docmgmt.documentmanagementsystem.server;
+
+import com.company.docmgmt.documentmanagementsystem.dao.BlobStore;
+import com.company.docmgmt.documentmanagementsystem.dao.DocumentDao;
+import com.company.docmgmt.documentmanagementsystem.service.DocumentService;
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+import com.company.docmgmt.documentmanagementsystem.util.SchemaMigrator;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享数据库的定期维护：清理旧版本的正文分块，回收不再被引用的blob，清理超过保留期的墓碑和变更通知
+ * <p>
+ * 这些清理作用于整个数据库，只应由一个节点执行，桌面客户端不执行：
+ * 部署了 {@link DocumentServer} 时由服务端进程在启动时执行一次，之后每隔 docmgmt.maintenance.intervalMin
+ * (默认60分钟) 执行一次；桌面客户端直连数据库、没有服务端时，由一台机器的定时任务运行本类的 main 方法。
+ * <pre>
+ * java -cp ... com.company.docmgmt.documentmanagementsystem.server.DatabaseMaintenance
+ * </pre>
+ */
+public final class DatabaseMaintenance {
+
+    private static final long INTERVAL_MINUTES = Long.getLong("docmgmt.maintenance.intervalMin", 60L);
+
+    private static ScheduledExecutorService scheduler;
+
+    private DatabaseMaintenance() {
+    }
+
+    /**
+     * 依次执行全部清理；某一项失败时输出错误并继续执行其余各项
+     */
+    public static void runOnce() {
+        DocumentDao documentDao = new DocumentDao();
+        run("清理旧版本分块", documentDao::deleteOrphanChunks);
+        run("回收blob", () -> BlobStore.getInstance().collectGarbage());
+        run("清理墓碑", () -> documentDao.pruneTombstones(
+                LocalDateTime.now().minusDays(DocumentService.TOMBSTONE_RETENTION_DAYS)));
+        run("清理变更通知", () -> documentDao.pruneEvents(
+                LocalDateTime.now().minusHours(DocumentService.EVENT_RETENTION_HOURS)));
+    }
+
+    /**
+     * 在后台线程上立即执行一次，之后按间隔定期执行；间隔为0时只执行一次。重复调用无效
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "database-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        if (INTERVAL_MINUTES > 0) {
+            scheduler.scheduleWithFixedDelay(DatabaseMaintenance::runOnce, 0, INTERVAL_MINUTES, TimeUnit.MINUTES);
+        } else {
+            scheduler.execute(DatabaseMaintenance::runOnce);
+        }
+    }
+
+    /**
+     * 停止定期执行，不等待正在进行的清理
+     */
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public static void main(String[] args) {
+        SchemaMigrator.migrate();
+        runOnce();
+        DatabaseUtil.shutdown();
+    }
+
+    private static void run(String name, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // 不能让一项失败终止其余各项或周期任务
+            System.err.println("数据库维护失败 (" + name + "): " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.company.docmgmt.documentmanagementsystem.server;
+
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
+import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentRevision;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.model.PageCursor;
+import com.company.docmgmt.documentmanagementsystem.model.WriteResult;
+import com.company.docmgmt.documentmanagementsystem.search.SearchHit;
+import com.company.docmgmt.documentmanagementsystem.service.ApiCodec;
+import com.company.docmgmt.documentmanagementsystem.service.AuthService;
+import com.company.docmgmt.documentmanagementsystem.service.DocumentService;
+import com.company.docmgmt.documentmanagementsystem.service.Permissions;
+import com.company.docmgmt.documentmanagementsystem.service.SecurityContext;
+import com.company.docmgmt.documentmanagementsystem.util.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 文档服务的HTTP/JSON接口
+ * <pre>
+ * POST   /api/sessions              登录 {"username","password"}，返回令牌、用户和权限
+ * DELETE /api/sessions              登出
+ * GET    /api/documents?limit=&after=&afterId=   键集分页的文档摘要；或 ?offset=&limit= 按偏移跳转；或 ?ids=1,2,3 按ID读取
+ * GET    /api/documents/count       可见文档数
+ * GET    /api/documents/changes?limit=&after=&afterId=   游标之后的文档变更(含删除)，按变更时间升序，供客户端增量同步
+ * GET    /api/documents/events?after=&wait=&limit=   长轮询游标之后的文档变更通知，没有时最多等待wait秒；
+ *                                   after=-1 只返回当前游标，游标过期时返回 reset=true，客户端应整体刷新
+ * GET    /api/documents/{id}        文档(含正文)，支持 ETag / If-None-Match
+ * POST   /api/documents             创建 {"title","content"}
+ * PUT    /api/documents/{id}        更新 {"title","content","status","version"}，整体替换标题、正文和状态；
+ *                                   读取时的版本号放在 version 字段或 If-Match 头中，都没有时返回428，版本不一致返回409
+ * DELETE /api/documents/{id}        删除
+ * GET    /api/documents/{id}/revisions         修订历史 (不含正文)，按修订号倒序
+ * GET    /api/documents/{id}/revisions/{rev}   某个历史修订的完整文档
+ * GET    /api/search?q=&prefix=&limit=   全文检索
+ * </pre>
+ * 除登录外的请求都要带 {@code Authorization: Bearer <令牌>}。每个请求按令牌找到自己的会话，
+ * 用 {@code new DocumentService(context)} 执行，权限规则与桌面客户端完全相同。
+ * 客户端声明 Accept-Encoding: gzip 且响应不小于 docmgmt.server.gzipMinBytes (默认1024字节) 时压缩响应。
+ */
+final class DocumentApi {
+
+    private static final Operation REQUEST = Metrics.operation("DocumentServer.request");
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    // 长轮询的最长等待时间，小于客户端的默认超时 (30秒)
+    private static final int MAX_EVENT_WAIT_SECONDS = 25;
+
+    private final AuthService authService = AuthService.getInstance();
+    private final int gzipMinBytes = Integer.getInteger("docmgmt.server.gzipMinBytes", 1024);
+
+    /**
+     * 在服务器上注册全部接口
+     * @param server HTTP服务器
+     */
+    void register(HttpServer server) {
+        server.createContext("/api/sessions", handler(this::sessions));
+        server.createContext("/api/documents", handler(this::documents));
+        server.createContext("/api/search", handler(this::search));
+    }
+
+    // --- 接口 ---
+
+    private void sessions(HttpExchange exchange) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "POST": {
+                Map<String, Object> body = readJson(exchange);
+                Optional<SecurityContext> context = authService.authenticate(
+                        requireString(body, "username"), requireString(body, "password"));
+                if (context.isEmpty()) {
+                    throw new ApiException(401, "用户名或密码错误");
+                }
+                Map<String, Object> json = new LinkedHashMap<>();
+                json.put("token", context.get().getToken());
+                json.put("user", ApiCodec.toJson(context.get().getUser()));
+                json.put("permissions", context.get().getPermissions().toNames());
+                sendJson(exchange, 200, json);
+                return;
+            }
+            case "DELETE":
+                authService.logout(bearerToken(exchange));
+                sendEmpty(exchange, 204);
+                return;
+            default:
+                throw new ApiException(405, "不支持的方法");
+        }
+    }
+
+    private void documents(HttpExchange exchange) throws IOException {
+        SecurityContext context = requireSession(exchange);
+        DocumentService documentService = new DocumentService(context);
+        String path = exchange.getRequestURI().getPath().substring("/api/documents".length());
+        String method = exchange.getRequestMethod();
+
+        if (path.isEmpty() || path.equals("/")) {
+            if (method.equals("GET")) {
+                sendJson(exchange, 200, ApiCodec.toJson(listPage(documentService, queryParams(exchange))));
+            } else if (method.equals("POST")) {
+                Map<String, Object> body = readJson(exchange);
+                if (!documentService.createDocument(requireString(body, "title"), optionalString(body, "content"))) {
+                    throw new ApiException(403, "无权创建文档");
+                }
+                sendJson(exchange, 201, Map.of("created", true));
+            } else {
+                throw new ApiException(405, "不支持的方法");
+            }
+            return;
+        }
+        if (path.equals("/count")) {
+            requireMethod(exchange, "GET");
+            sendJson(exchange, 200, Map.of("count", documentService.countVisibleDocuments()));
+            return;
+        }
+        if (path.equals("/changes")) {
+            requireMethod(exchange, "GET");
+            Map<String, String> params = queryParams(exchange);
+            sendJson(exchange, 200, ApiCodec.toChangesJson(documentService.getDocumentChanges(
+                    cursor(params), parseInt(params.get("limit"), DocumentService.DEFAULT_PAGE_SIZE))));
+            return;
+        }
+        if (path.equals("/events")) {
+            requireMethod(exchange, "GET");
+            Map<String, String> params = queryParams(exchange);
+            long after = parseLong(params.get("after"), -1L);
+            int wait = Math.max(0, Math.min(parseInt(params.get("wait"), 0), MAX_EVENT_WAIT_SECONDS));
+            sendJson(exchange, 200, ApiCodec.toEventsJson(documentService.awaitDocumentEvents(
+                    after, parseInt(params.get("limit"), DocumentService.DEFAULT_PAGE_SIZE), wait * 1000L)));
+            return;
+        }
+
+        int revisions = path.indexOf("/revisions");
+        if (revisions > 0) {
+            requireMethod(exchange, "GET");
+            int documentId = parseId(path.substring(1, revisions));
+            String revision = path.substring(revisions + "/revisions".length());
+            if (revision.isEmpty() || revision.equals("/")) {
+                List<Object> items = new ArrayList<>();
+                for (DocumentRevision item : documentService.getDocumentRevisions(documentId)) {
+                    items.add(ApiCodec.toJson(item));
+                }
+                sendJson(exchange, 200, Map.of("items", items));
+            } else {
+                Document document = documentService.getDocumentRevision(documentId, parseId(revision.substring(1)))
+                        .orElseThrow(() -> new ApiException(404, "修订不存在"));
+                sendJson(exchange, 200, ApiCodec.toJson(document));
+            }
+            return;
+        }
+
+        int documentId = parseId(path.substring(1));
+        if (method.equals("DELETE")) {
+            // 删除不需要先读取文档：所有者检查在DELETE语句中完成
+            WriteResult result = hideInvisible(context, documentService.deleteDocument(documentId));
+            if (!result.isSuccess()) {
+                throw failure(result);
+            }
+            sendEmpty(exchange, 204);
+            return;
+        }
+        switch (method) {
+            case "GET": {
+                // 按当前会话读取(通常命中文档缓存)：不存在或无权查看时统一返回404，不暴露文档是否存在
+                Document current = documentService.getDocumentById(documentId)
+                        .orElseThrow(() -> new ApiException(404, "文档不存在"));
+                String etag = etag(current);
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.getResponseHeaders().set("Cache-Control", "private, no-cache");
+                if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                    sendEmpty(exchange, 304);
+                } else {
+                    sendJson(exchange, 200, ApiCodec.toJson(current));
+                }
+                return;
+            }
+            case "PUT": {
+                // 整体替换标题、正文和状态；所有者和版本号由UPDATE语句检查，不需要先读出文档
+                Map<String, Object> body = readJson(exchange);
+                Document update = new Document(documentId,
+                        requireString(body, "title"),
+                        optionalString(body, "content"),
+                        context.getUserId(),
+                        requireString(body, "status"),
+                        null, null,
+                        expectedVersion(exchange, body, documentId));
+                WriteResult result = hideInvisible(context, documentService.updateDocument(update));
+                if (!result.isSuccess()) {
+                    throw failure(result);
+                }
+                exchange.getResponseHeaders().set("ETag", etag(update));
+                sendJson(exchange, 200, Map.of("version", update.getVersion()));
+                return;
+            }
+            default:
+                throw new ApiException(405, "不支持的方法");
+        }
+    }
+
+    private void search(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "GET");
+        DocumentService documentService = new DocumentService(requireSession(exchange));
+        Map<String, String> params = queryParams(exchange);
+        String query = params.getOrDefault("q", "");
+        int limit = parseInt(params.get("limit"), 20);
+        List<SearchHit> hits = Boolean.parseBoolean(params.get("prefix"))
+                ? documentService.searchDocumentsByPrefix(query, limit)
+                : documentService.searchDocuments(query, limit);
+        List<Object> items = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            items.add(ApiCodec.toJson(hit));
+        }
+        sendJson(exchange, 200, Map.of("items", items));
+    }
+
+    private static Page<DocumentSummary> listPage(DocumentService documentService, Map<String, String> params) {
+        if (params.containsKey("ids")) {
+            List<Integer> ids = new ArrayList<>();
+            for (String id : params.get("ids").split(",")) {
+                if (!id.isEmpty()) {
+                    ids.add(parseInt(id, 0));
+                }
+            }
+            if (ids.size() > DocumentService.MAX_PAGE_SIZE) {
+                throw new ApiException(400, "ID过多");
+            }
+            return new Page<>(documentService.getVisibleDocumentSummariesByIds(ids), null);
+        }
+        int limit = parseInt(params.get("limit"), DocumentService.DEFAULT_PAGE_SIZE);
+        if (params.containsKey("offset")) {
+            return documentService.getVisibleDocumentSummariesAt(parseInt(params.get("offset"), 0), limit);
+        }
+        return documentService.getVisibleDocumentSummariesPage(cursor(params), limit);
+    }
+
+    /**
+     * 查询参数 after/afterId 中的游标，没有时为null
+     */
+    private static PageCursor cursor(Map<String, String> params) {
+        if (!params.containsKey("after")) {
+            return null;
+        }
+        try {
+            return new PageCursor(LocalDateTime.parse(params.get("after")), parseInt(params.get("afterId"), 0));
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "无效的分页游标");
+        }
+    }
+
+    // --- Private Helper Methods ---
+
+    /**
+     * 统一的异常处理和计时，并保证每个交换都被关闭，连接才能被复用
+     */
+    private HttpHandler handler(Route route) {
+        return exchange -> {
+            try (Operation.Sample sample = REQUEST.start()) {
+                try {
+                    route.handle(exchange);
+                    sample.success();
+                } catch (ApiException e) {
+                    sendJson(exchange, e.status, Map.of("error", e.getMessage()));
+                    sample.success(); // 客户端错误不计为服务异常
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    sendJson(exchange, 500, Map.of("error", "服务器内部错误"));
+                }
+            } finally {
+                // close会读完剩余的请求体，连接随后回到keep-alive状态
+                exchange.close();
+            }
+        };
+    }
+
+    private SecurityContext requireSession(HttpExchange exchange) {
+        return authService.findSession(bearerToken(exchange))
+                .orElseThrow(() -> new ApiException(401, "未登录或会话已过期"));
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new ApiException(405, "不支持的方法");
+        }
+    }
+
+    private static Map<String, Object> readJson(HttpExchange exchange) throws IOException {
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try {
+            return Json.parseObject(body);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "无效的JSON: " + e.getMessage());
+        }
+    }
+
+    private static String requireString(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (!(value instanceof String) || ((String) value).isEmpty()) {
+            throw new ApiException(400, "缺少字段: " + field);
+        }
+        return (String) value;
+    }
+
+    private static String optionalString(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (value != null && !(value instanceof String)) {
+            throw new ApiException(400, "字段类型错误: " + field);
+        }
+        return (String) value;
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "文档不存在");
+        }
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "无效的数字: " + value);
+        }
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "无效的数字: " + value);
+        }
+    }
+
+    /**
+     * 弱ETag：文档ID + 版本号，每次更新版本号都会加一 (响应可能被gzip压缩，所以使用弱ETag)
+     */
+    static String etag(Document document) {
+        return "W/\"" + document.getId() + '-' + document.getVersion() + '"';
+    }
+
+    /**
+     * 客户端读取文档时的版本号：请求体中的 version 字段优先，其次是 If-Match 头中的ETag
+     * 都没有时返回428，不允许不带版本号的后写覆盖
+     */
+    private static int expectedVersion(HttpExchange exchange, Map<String, Object> body, int documentId) {
+        Object version = body.get("version");
+        if (version != null) {
+            if (!(version instanceof Number)) {
+                throw new ApiException(400, "字段类型错误: version");
+            }
+            return ((Number) version).intValue();
+        }
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch == null) {
+            throw new ApiException(428, "缺少版本号：请在请求体中提供 version 或使用 If-Match");
+        }
+        String prefix = (ifMatch.startsWith("W/") ? "W/" : "") + "\"" + documentId + '-';
+        if (!ifMatch.startsWith(prefix) || !ifMatch.endsWith("\"")) {
+            throw new ApiException(412, "If-Match与文档不匹配");
+        }
+        return parseInt(ifMatch.substring(prefix.length(), ifMatch.length() - 1), 0);
+    }
+
+    /**
+     * 与读取一致：看不到的文档按不存在处理，不暴露文档是否存在
+     */
+    private static WriteResult hideInvisible(SecurityContext context, WriteResult result) {
+        if (result == WriteResult.FORBIDDEN && !context.hasPermission(Permissions.DOCUMENT_LIST_ALL)) {
+            return WriteResult.NOT_FOUND;
+        }
+        return result;
+    }
+
+    private static ApiException failure(WriteResult result) {
+        switch (result) {
+            case CONFLICT:
+                return new ApiException(409, "文档已被其他人修改，请重新加载");
+            case NOT_FOUND:
+                return new ApiException(404, "文档不存在");
+            case FORBIDDEN:
+                return new ApiException(403, "权限不足");
+            default:
+                return new ApiException(500, "服务器内部错误");
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        // 比较时忽略弱标记 W/
+        String tag = etag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*") || c.equals(etag) || c.equals(tag) || (c.startsWith("W/") && c.substring(2).equals(tag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object json) throws IOException {
+        byte[] body = Json.write(json).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (body.length >= gzipMinBytes && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            body = gzip(body);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        // 固定长度的响应，连接可以被客户端复用(keep-alive)
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        // 没有响应体时交换在发送响应头时就结束了，请求体必须先读完，否则服务器会关闭这个keep-alive连接
+        exchange.getRequestBody().close();
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Route {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * 以指定状态码结束请求的业务错误
+     */
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        private ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.company.docmgmt.documentmanagementsystem.server;
+
+import com.company.docmgmt.documentmanagementsystem.dao.QueryPlanChecker;
+import com.company.docmgmt.documentmanagementsystem.metrics.MetricsReporter;
+import com.company.docmgmt.documentmanagementsystem.search.SearchIndex;
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+import com.company.docmgmt.documentmanagementsystem.util.SchemaMigrator;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 无界面的服务端模式：通过HTTP/JSON提供文档服务 (接口见 {@link DocumentApi})
+ * 桌面客户端配置 -Ddocmgmt.server.url 后通过本服务访问数据，不再各自直连数据库，
+ * 数据库连接数只取决于服务端连接池的大小。
+ * <p>
+ * 基于JDK自带的HttpServer，运行在JDK 21+上时每个请求一个虚拟线程，否则使用固定大小的线程池
+ * (docmgmt.server.threads，默认64)。监听地址和端口由 docmgmt.server.host (默认0.0.0.0)
+ * 和 docmgmt.server.port (默认8080) 配置。启动后在后台定期执行数据库维护 (见 {@link DatabaseMaintenance})。
+ * <pre>
+ * java -cp ... com.company.docmgmt.documentmanagementsystem.server.DocumentServer
+ * </pre>
+ */
+public final class DocumentServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private DocumentServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * 在指定地址上启动服务
+     * @param host 监听地址
+     * @param port 端口，0表示随机分配
+     * @return 已启动的服务
+     * @throws IOException 如果端口无法绑定
+     */
+    public static DocumentServer start(String host, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port),
+                Integer.getInteger("docmgmt.server.backlog", 256));
+        new DocumentApi().register(server);
+        ExecutorService executor = createExecutor();
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("文档服务已启动: http://" + host + ":" + server.getAddress().getPort() + "/api");
+        return new DocumentServer(server, executor);
+    }
+
+    /**
+     * 实际监听的端口
+     * @return 端口号
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 停止服务，最多等待进行中的请求若干秒
+     * @param delaySeconds 等待秒数
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        SchemaMigrator.migrate();
+        QueryPlanChecker.warnOnTableScans();
+        DatabaseMaintenance.start();
+        MetricsReporter.start();
+        DocumentServer documentServer = start(System.getProperty("docmgmt.server.host", "0.0.0.0"),
+                Integer.getInteger("docmgmt.server.port", 8080));
+
+        // HttpServer的分发线程不是守护线程，进程一直运行到收到终止信号
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            documentServer.stop(5);
+            DatabaseMaintenance.stop();
+            MetricsReporter.stop();
+            SearchIndex.closeDefault();
+            DatabaseUtil.shutdown();
+        }, "document-server-shutdown"));
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // 与ServiceExecutor相同：通过反射调用，保证在JDK 17上也能编译和运行
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(Integer.getInteger("docmgmt.server.threads", 64), r -> {
+                Thread t = new Thread(r, "document-server-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.events.EventBatch;
+import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentChange;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentEvent;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentRevision;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.model.PageCursor;
+import com.company.docmgmt.documentmanagementsystem.model.User;
+import com.company.docmgmt.documentmanagementsystem.search.SearchHit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * HTTP接口的JSON格式：模型对象和 {@link com.company.docmgmt.documentmanagementsystem.util.Json} 的Map/List之间的转换
+ * 服务端 (server.DocumentApi) 和远程客户端 ({@link RemoteDocumentService}) 共用，保证两端格式一致。
+ * 时间使用ISO-8601本地时间格式，用户对象不包含密码。
+ */
+public final class ApiCodec {
+
+    private ApiCodec() {
+    }
+
+    // --- 模型 -> JSON ---
+
+    public static Map<String, Object> toJson(User user) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", user.getId());
+        json.put("username", user.getUsername());
+        json.put("email", user.getEmail());
+        json.put("createdAt", format(user.getCreatedAt()));
+        return json;
+    }
+
+    public static Map<String, Object> toJson(DocumentSummary summary) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", summary.getId());
+        json.put("title", summary.getTitle());
+        json.put("ownerUserId", summary.getOwnerUserId());
+        json.put("status", summary.getStatus());
+        json.put("createdAt", format(summary.getCreatedAt()));
+        json.put("updatedAt", format(summary.getUpdatedAt()));
+        return json;
+    }
+
+    public static Map<String, Object> toJson(Document document) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", document.getId());
+        json.put("title", document.getTitle());
+        json.put("content", document.getContent());
+        json.put("ownerUserId", document.getOwnerUserId());
+        json.put("status", document.getStatus());
+        json.put("createdAt", format(document.getCreatedAt()));
+        json.put("updatedAt", format(document.getUpdatedAt()));
+        json.put("version", document.getVersion());
+        return json;
+    }
+
+    public static Map<String, Object> toJson(SearchHit hit) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("documentId", hit.getDocumentId());
+        json.put("ownerUserId", hit.getOwnerUserId());
+        json.put("title", hit.getTitle());
+        json.put("score", hit.getScore());
+        return json;
+    }
+
+    public static Map<String, Object> toJson(DocumentRevision revision) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("documentId", revision.getDocumentId());
+        json.put("revision", revision.getRevision());
+        json.put("title", revision.getTitle());
+        json.put("status", revision.getStatus());
+        json.put("snapshot", revision.isSnapshot());
+        json.put("contentBytes", revision.getContentBytes());
+        json.put("storedBytes", revision.getStoredBytes());
+        json.put("createdBy", revision.getCreatedBy());
+        json.put("createdAt", format(revision.getCreatedAt()));
+        return json;
+    }
+
+    public static Map<String, Object> toJson(PageCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("createdAt", format(cursor.getCreatedAt()));
+        json.put("id", cursor.getId());
+        return json;
+    }
+
+    public static Map<String, Object> toJson(Page<DocumentSummary> page) {
+        List<Object> items = new ArrayList<>(page.getItems().size());
+        for (DocumentSummary summary : page.getItems()) {
+            items.add(toJson(summary));
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("items", items);
+        json.put("next", toJson(page.getNextCursor()));
+        return json;
+    }
+
+    /**
+     * 一批文档变更：删除的文档只有documentId、changedAt和deleted，其余的带有summary
+     */
+    public static Map<String, Object> toChangesJson(Page<DocumentChange> page) {
+        List<Object> items = new ArrayList<>(page.getItems().size());
+        for (DocumentChange change : page.getItems()) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("documentId", change.getDocumentId());
+            json.put("changedAt", format(change.getChangedAt()));
+            json.put("deleted", change.isDeleted());
+            if (!change.isDeleted()) {
+                json.put("summary", toJson(change.getSummary()));
+            }
+            items.add(json);
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("items", items);
+        json.put("next", toJson(page.getNextCursor()));
+        return json;
+    }
+
+    public static Map<String, Object> toEventsJson(EventBatch batch) {
+        List<Object> items = new ArrayList<>(batch.getEvents().size());
+        for (DocumentEvent event : batch.getEvents()) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("id", event.getId());
+            json.put("type", event.getType().name());
+            json.put("documentId", event.getDocumentId());
+            json.put("ownerUserId", event.getOwnerUserId());
+            json.put("occurredAt", format(event.getOccurredAt()));
+            items.add(json);
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("items", items);
+        json.put("last", batch.getLast());
+        json.put("reset", batch.isReset());
+        return json;
+    }
+
+    // --- JSON -> 模型 ---
+
+    public static User toUser(Map<String, Object> json) {
+        return new User(getInt(json, "id"), (String) json.get("username"), null,
+                (String) json.get("email"), parseTime(json.get("createdAt")));
+    }
+
+    public static DocumentSummary toSummary(Map<String, Object> json) {
+        return new DocumentSummary(getInt(json, "id"), (String) json.get("title"), getInt(json, "ownerUserId"),
+                (String) json.get("status"), parseTime(json.get("createdAt")), parseTime(json.get("updatedAt")));
+    }
+
+    public static Document toDocument(Map<String, Object> json) {
+        return new Document(getInt(json, "id"), (String) json.get("title"), (String) json.get("content"),
+                getInt(json, "ownerUserId"), (String) json.get("status"),
+                parseTime(json.get("createdAt")), parseTime(json.get("updatedAt")), getInt(json, "version"));
+    }
+
+    public static SearchHit toSearchHit(Map<String, Object> json) {
+        return new SearchHit(getInt(json, "documentId"), getInt(json, "ownerUserId"), (String) json.get("title"),
+                ((Number) json.get("score")).doubleValue());
+    }
+
+    public static DocumentRevision toRevision(Map<String, Object> json) {
+        Object createdBy = json.get("createdBy");
+        return new DocumentRevision(getInt(json, "documentId"), getInt(json, "revision"), (String) json.get("title"),
+                (String) json.get("status"), Boolean.TRUE.equals(json.get("snapshot")), getInt(json, "contentBytes"),
+                getInt(json, "storedBytes"), createdBy == null ? null : ((Number) createdBy).intValue(),
+                parseTime(json.get("createdAt")));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static PageCursor toCursor(Object json) {
+        if (!(json instanceof Map)) {
+            return null;
+        }
+        Map<String, Object> cursor = (Map<String, Object>) json;
+        return new PageCursor(parseTime(cursor.get("createdAt")), getInt(cursor, "id"));
+    }
+
+    public static Page<DocumentSummary> toSummaryPage(Map<String, Object> json) {
+        return new Page<>(toList(json.get("items"), ApiCodec::toSummary), toCursor(json.get("next")));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static DocumentChange toChange(Map<String, Object> json) {
+        if (Boolean.TRUE.equals(json.get("deleted"))) {
+            return DocumentChange.deleted(getInt(json, "documentId"), parseTime(json.get("changedAt")));
+        }
+        return DocumentChange.upsert(toSummary((Map<String, Object>) json.get("summary")));
+    }
+
+    public static Page<DocumentChange> toChangePage(Map<String, Object> json) {
+        return new Page<>(toList(json.get("items"), ApiCodec::toChange), toCursor(json.get("next")));
+    }
+
+    public static DocumentEvent toEvent(Map<String, Object> json) {
+        return new DocumentEvent(getLong(json, "id"), DocumentEvent.Type.valueOf((String) json.get("type")),
+                getInt(json, "documentId"), getInt(json, "ownerUserId"), parseTime(json.get("occurredAt")));
+    }
+
+    public static EventBatch toEventBatch(Map<String, Object> json) {
+        return new EventBatch(toList(json.get("items"), ApiCodec::toEvent), getLong(json, "last"),
+                Boolean.TRUE.equals(json.get("reset")));
+    }
+
+    /**
+     * 把JSON数组中的每个对象转换成模型对象
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> toList(Object json, Function<Map<String, Object>, T> mapper) {
+        List<T> items = new ArrayList<>();
+        if (json instanceof List) {
+            for (Object item : (List<Object>) json) {
+                items.add(mapper.apply((Map<String, Object>) item));
+            }
+        }
+        return items;
+    }
+
+    public static int getInt(Map<String, Object> json, String field) {
+        Object value = json.get(field);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    public static long getLong(Map<String, Object> json, String field) {
+        Object value = json.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    public static String format(LocalDateTime time) {
+        return time == null ? null : time.toString();
+    }
+
+    public static LocalDateTime parseTime(Object value) {
+        return value == null ? null : LocalDateTime.parse(value.toString());
+    }
+}
@@ -1,84 +1,154 @@
 package com.company.docmgmt.documentmanagementsystem.service;
 
-import com.company.docmgmt.documentmanagementsystem.dao.PermissionDao;
 import com.company.docmgmt.documentmanagementsystem.dao.UserDao;
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
 import com.company.docmgmt.documentmanagementsystem.model.User;
 
-import java.util.Collections;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 认证和授权服务 (Authentication and Authorization Service)
- * 采用单例模式，确保整个应用中只有一个用户会话状态。
+ * 采用单例模式。每次登录创建一个独立的会话 ({@link SecurityContext})，按令牌保存在并发会话表中，
+ * 服务端部署时一个JVM可以同时服务多个用户；桌面客户端另外保留一个"当前会话"，供视图模型直接使用。
  */
 public class AuthService {
 
     // ----------- 单例模式实现 -----------
-    private static AuthService instance;
+    // 类初始化时创建，getInstance() 在多线程下不会创建出多个实例
+    private static final AuthService INSTANCE = new AuthService();
 
     public static AuthService getInstance() {
-        if (instance == null) {
-            instance = new AuthService();
-        }
-        return instance;
+        return INSTANCE;
     }
     // ------------------------------------
 
 
+    // hasPermission 是纳秒级的位运算，不做统计，以免统计本身成为主要开销
+    private static final Operation LOGIN = Metrics.operation("AuthService.login");
+
     private final UserDao userDao = new UserDao();
-    private final PermissionDao permissionDao = new PermissionDao();
+    private final SessionRegistry sessions = SessionRegistry.fromSystemProperties();
 
-    private User currentUser;
-    private Set<String> currentUserPermissions = Collections.emptySet();
+    // 桌面客户端的当前会话；登录可能在后台线程完成，使用volatile保证JavaFX线程能看到最新的会话状态
+    private volatile SecurityContext currentContext = SecurityContext.ANONYMOUS;
 
     // 私有构造函数，防止外部直接实例化
     private AuthService() {
     }
 
     /**
-     * 用户登录逻辑
+     * 认证用户并创建新会话，不影响其他会话 (服务端使用)
+     * @param username 用户名
+     * @param password 密码 (明文)
+     * @return 登录成功时返回新会话，否则为空
+     */
+    public Optional<SecurityContext> authenticate(String username, String password) {
+        return verify(username, password).map(user -> {
+            SecurityContext context = sessions.create(user);
+            context.getPermissions(); // 登录时即解析权限 (缓存加载后不再访问数据库)
+            return context;
+        });
+    }
+
+    /**
+     * 按令牌查找会话，并刷新会话的最近访问时间
+     * @param token 会话令牌
+     * @return 有效的会话；令牌无效或已过期时为空
+     */
+    public Optional<SecurityContext> findSession(String token) {
+        return sessions.find(token);
+    }
+
+    /**
+     * 结束某个会话
+     * @param token 会话令牌
+     * @return 会话存在返回true
+     */
+    public boolean logout(String token) {
+        return sessions.remove(token);
+    }
+
+    /**
+     * 结束某个用户的全部会话，例如用户被删除或修改密码后
+     * @param userId 用户ID
+     * @return 结束的会话数
+     */
+    public int logoutUser(int userId) {
+        return sessions.removeUser(userId);
+    }
+
+    /**
+     * @return 当前有效(或尚未清理)的会话数
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    // --- 桌面客户端：单个"当前会话" ---
+
+    /**
+     * 用户登录逻辑，成功后替换桌面客户端的当前会话
      * @param username 用户名
      * @param password 密码 (明文)
      * @return 如果登录成功返回true，否则返回false
      */
     public boolean login(String username, String password) {
-        // 1. 根据用户名从数据库查找用户
-        Optional<User> userOpt = userDao.findByUsername(username);
-
-        // 2. 如果用户存在，则校验密码
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            // 演示项目：直接比较明文密码
-            if (user.getPassword().equals(password)) {
-                // 3. 密码正确，设置当前用户状态
-                this.currentUser = user;
-                // 4. 加载并缓存该用户的所有权限
-                this.currentUserPermissions = permissionDao.findPermissionsByUserId(user.getId());
-                System.out.println("登录成功! 用户: " + currentUser.getUsername() + ", 权限: " + currentUserPermissions);
-                return true;
-            }
+        Optional<SecurityContext> context;
+        if (RemoteClient.isConfigured()) {
+            // 远程模式：由服务端认证，会话令牌和权限都来自服务端
+            context = LOGIN.call(() -> RemoteClient.getInstance().login(username, password));
+        } else {
+            // 桌面会话不放进会话表：没有令牌，也不会因为空闲而过期
+            context = verify(username, password).map(user -> new SecurityContext(null, user, System.currentTimeMillis()));
+        }
+        if (context.isEmpty()) {
+            return false;
         }
-        // 用户不存在或密码错误
-        System.out.println("登录失败: 用户名或密码错误。");
-        return false;
+        SecurityContext previous = currentContext;
+        this.currentContext = context.get();
+        endRemoteSession(previous);
+        previous.invalidate();
+        System.out.println("登录成功! 用户: " + username + ", 权限: " + currentContext.getPermissions());
+        return true;
+    }
+
+    /**
+     * 异步登录，在ServiceExecutor上执行数据库查询
+     * @param username 用户名
+     * @param password 密码 (明文)
+     * @return 登录结果
+     */
+    public CompletableFuture<Boolean> loginAsync(String username, String password) {
+        return ServiceExecutor.supplyAsync(() -> login(username, password));
     }
 
     /**
      * 用户登出
      */
     public void logout() {
-        this.currentUser = null;
-        this.currentUserPermissions = Collections.emptySet();
+        SecurityContext previous = currentContext;
+        this.currentContext = SecurityContext.ANONYMOUS;
+        endRemoteSession(previous);
+        previous.invalidate(); // 后台线程中仍持有旧会话的操作也随之失去权限
         System.out.println("用户已登出。");
     }
 
+    /**
+     * 获取桌面客户端的当前会话
+     * @return 当前会话，未登录时为 {@link SecurityContext#ANONYMOUS}
+     */
+    public SecurityContext getCurrentContext() {
+        return currentContext;
+    }
+
     /**
      * 获取当前登录的用户对象
      * @return 当前用户，如果未登录则返回null
      */
     public User getCurrentUser() {
-        return currentUser;
+        return currentContext.getUser();
     }
 
     /**
@@ -86,19 +156,68 @@ public class AuthService {
      * @return 如果已登录返回true
      */
     public boolean isLoggedIn() {
-        return currentUser != null;
+        return currentContext.isAuthenticated();
     }
 
     /**
      * 检查当前登录的用户是否拥有指定的权限
      * 这是整个RBAC系统的核心检查点
+     * 未登录时权限集合为空，因此不需要单独判断登录状态
+     * @param permission 需要检查的权限，使用 {@link Permissions} 中的常量
+     * @return 如果拥有该权限返回true
+     */
+    public boolean hasPermission(PermissionRegistry.Key permission) {
+        return currentContext.hasPermission(permission);
+    }
+
+    /**
+     * 按名称检查权限，保留给动态拼接权限名称的调用方
+     * 热路径请使用 {@link #hasPermission(PermissionRegistry.Key)}
      * @param permission 需要检查的权限字符串，例如 "document:create"
      * @return 如果拥有该权限返回true
      */
     public boolean hasPermission(String permission) {
-        if (!isLoggedIn()) {
-            return false; // 未登录用户没有任何权限
+        return currentContext.hasPermission(permission);
+    }
+
+    /**
+     * 获取当前用户的权限集合
+     * 返回的集合不可变，可以在后台线程中长时间持有，用于批量过滤
+     * @return 权限集合，未登录时为空集合
+     */
+    public PermissionSet getCurrentUserPermissions() {
+        return currentContext.getPermissions();
+    }
+
+    /**
+     * 远程模式下在后台通知服务端结束会话，不阻塞调用线程(通常是JavaFX应用线程)
+     */
+    private static void endRemoteSession(SecurityContext context) {
+        if (context.getToken() == null || !RemoteClient.isConfigured()) {
+            return;
         }
-        return currentUserPermissions.contains(permission);
+        ServiceExecutor.supplyAsync(() -> {
+            RemoteClient.getInstance().logout(context.getToken());
+            return null;
+        }).whenComplete((ignored, error) -> {
+            if (error != null) {
+                System.err.println("通知服务端登出失败: " + error.getMessage());
+            }
+        });
+    }
+
+    private Optional<User> verify(String username, String password) {
+        return LOGIN.call(() -> {
+            // 1. 根据用户名从数据库查找用户
+            Optional<User> userOpt = userDao.findByUsername(username);
+
+            // 2. 如果用户存在，则校验密码 (演示项目：直接比较明文密码)
+            if (userOpt.isPresent() && userOpt.get().getPassword().equals(password)) {
+                return userOpt;
+            }
+            // 用户不存在或密码错误
+            System.out.println("登录失败: 用户名或密码错误。");
+            return Optional.empty();
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.events.DocumentEventListener;
+import com.company.docmgmt.documentmanagementsystem.events.Subscription;
+import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentChange;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentRevision;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.model.PageCursor;
+import com.company.docmgmt.documentmanagementsystem.model.WriteResult;
+import com.company.docmgmt.documentmanagementsystem.search.SearchHit;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 桌面客户端使用的文档操作：直连数据库时由 {@link DocumentService} 实现，配置了 docmgmt.server.url 时由
+ * {@link RemoteDocumentService} 经由服务端实现，两者都完整支持这里的全部方法，客户端代码不区分二者
+ * <p>
+ * 批量写入、流式读写正文、附件和重建索引只在服务端本地使用，不在这个接口中，需要时直接使用 {@link DocumentService}。
+ */
+public interface DocumentClient extends DocumentListSource {
+
+    /**
+     * 桌面客户端使用的文档服务：配置了 docmgmt.server.url 时经由服务端访问，否则直连数据库
+     * 两者都以 {@link AuthService#getCurrentContext()} 的会话进行权限检查
+     * @return 文档服务
+     */
+    static DocumentClient forDesktop() {
+        return RemoteClient.isConfigured() ? new RemoteDocumentService() : new DocumentService();
+    }
+
+    /**
+     * @return 当前用户可见的全部文档摘要
+     */
+    List<DocumentSummary> getVisibleDocumentSummaries();
+
+    /**
+     * 读取游标之后的变更 (新增、修改和删除)，按 (变更时间, 文档ID) 升序，用于本地副本的增量同步
+     * 读取失败时抛出异常，调用方据此保留本地数据而不是当作没有变更
+     * @param after 上一批返回的游标，从头读取时传null
+     * @param limit 每批条数
+     * @return 一批变更
+     */
+    Page<DocumentChange> getDocumentChanges(PageCursor after, int limit);
+
+    /**
+     * 订阅当前用户可见的文档的变更通知，回调在后台线程上串行执行
+     * @param listener 订阅者
+     * @return 订阅，登出或不再需要时关闭
+     */
+    Subscription subscribeToChanges(DocumentEventListener listener);
+
+    /**
+     * @param documentId 文档ID
+     * @return 文档(含正文)，不存在或无权查看时为空
+     */
+    Optional<Document> getDocumentById(int documentId);
+
+    /**
+     * @return 如果创建成功返回true
+     */
+    boolean createDocument(String title, String content);
+
+    /**
+     * 按文档的版本号更新 (乐观锁)，成功时把新的版本号写回 docToUpdate
+     * @param docToUpdate 要更新的文档
+     * @return 更新结果
+     */
+    WriteResult updateDocument(Document docToUpdate);
+
+    /**
+     * @param documentId 文档ID
+     * @return 删除结果
+     */
+    WriteResult deleteDocument(int documentId);
+
+    /**
+     * 全文检索当前用户有权查看的文档
+     * @param query 查询文本
+     * @param limit 最多返回条数
+     * @return 检索结果
+     */
+    List<SearchHit> searchDocuments(String query, int limit);
+
+    /**
+     * 与 {@link #searchDocuments} 相同，但最后一个词按前缀匹配
+     */
+    List<SearchHit> searchDocumentsByPrefix(String query, int limit);
+
+    /**
+     * @param documentId 文档ID
+     * @return 文档的修订列表 (不含正文)，按修订号倒序；无权查看时为空列表
+     */
+    List<DocumentRevision> getDocumentRevisions(int documentId);
+
+    /**
+     * @param documentId 文档ID
+     * @param revision 修订号
+     * @return 该修订的标题、状态和正文；不存在或无权查看时为空
+     */
+    Optional<Document> getDocumentRevision(int documentId, int revision);
+
+    // --- 异步版本：在ServiceExecutor上执行，避免在JavaFX应用线程上做阻塞的JDBC或HTTP调用 ---
+
+    default CompletableFuture<List<DocumentSummary>> getVisibleDocumentSummariesAsync() {
+        return ServiceExecutor.supplyAsync(this::getVisibleDocumentSummaries);
+    }
+
+    default CompletableFuture<Page<DocumentSummary>> getVisibleDocumentSummariesPageAsync(PageCursor after, int pageSize) {
+        return ServiceExecutor.supplyAsync(() -> getVisibleDocumentSummariesPage(after, pageSize));
+    }
+
+    default CompletableFuture<Integer> countVisibleDocumentsAsync() {
+        return ServiceExecutor.supplyAsync(this::countVisibleDocuments);
+    }
+
+    default CompletableFuture<Optional<Document>> getDocumentByIdAsync(int documentId) {
+        return ServiceExecutor.supplyAsync(() -> getDocumentById(documentId));
+    }
+
+    default CompletableFuture<Boolean> createDocumentAsync(String title, String content) {
+        return ServiceExecutor.supplyAsync(() -> createDocument(title, content));
+    }
+
+    default CompletableFuture<WriteResult> updateDocumentAsync(Document docToUpdate) {
+        return ServiceExecutor.supplyAsync(() -> updateDocument(docToUpdate));
+    }
+
+    default CompletableFuture<WriteResult> deleteDocumentAsync(int documentId) {
+        return ServiceExecutor.supplyAsync(() -> deleteDocument(documentId));
+    }
+
+    default CompletableFuture<List<SearchHit>> searchDocumentsAsync(String query, boolean prefix, int limit) {
+        return ServiceExecutor.supplyAsync(() -> prefix ? searchDocumentsByPrefix(query, limit) : searchDocuments(query, limit));
+    }
+}
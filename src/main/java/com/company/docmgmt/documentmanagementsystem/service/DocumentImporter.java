@@ -0,0 +1,109 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.search.SearchIndex;
+import com.company.docmgmt.documentmanagementsystem.util.DatabaseUtil;
+import com.company.docmgmt.documentmanagementsystem.util.SchemaMigrator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 从磁盘目录批量导入文档
+ * 递归遍历目录下的所有普通文件，文件名(去掉扩展名)作为标题，文件内容(UTF-8)作为正文。
+ * 文件按批读取并交给 {@link DocumentService#createDocuments(List, int)} 写入，内存中最多只有一批文档。
+ */
+public class DocumentImporter {
+
+    private final DocumentService documentService;
+
+    public DocumentImporter(DocumentService documentService) {
+        this.documentService = documentService;
+    }
+
+    /**
+     * 导入目录下的所有文件，以当前登录用户作为所有者
+     * @param directory 要导入的目录
+     * @param batchSize 每批(每个事务)的文档数
+     * @return 成功导入的文档数
+     * @throws IOException 如果目录无法遍历
+     */
+    public int importDirectory(Path directory, int batchSize) throws IOException {
+        int imported = 0;
+        int skipped = 0;
+        long start = System.nanoTime();
+        List<Document> batch = new ArrayList<>(batchSize);
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            Iterator<Path> it = files.filter(Files::isRegularFile).iterator();
+            while (it.hasNext()) {
+                Path file = it.next();
+                try {
+                    batch.add(readDocument(file));
+                } catch (IOException | UncheckedIOException e) {
+                    skipped++;
+                    System.err.println("跳过无法读取的文件: " + file + " (" + e.getMessage() + ")");
+                    continue;
+                }
+                if (batch.size() >= batchSize) {
+                    imported += flush(batch, batchSize);
+                    System.out.println("已导入 " + imported + " 个文档...");
+                }
+            }
+        }
+        imported += flush(batch, batchSize);
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("导入完成：成功 " + imported + " 个，跳过 " + skipped + " 个，耗时 " + elapsedMs + " ms");
+        return imported;
+    }
+
+    private int flush(List<Document> batch, int batchSize) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int saved = documentService.createDocuments(batch, batchSize).size();
+        batch.clear();
+        return saved;
+    }
+
+    private static Document readDocument(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        Document doc = new Document();
+        doc.setTitle(dot > 0 ? fileName.substring(0, dot) : fileName);
+        doc.setContent(Files.readString(file, StandardCharsets.UTF_8));
+        return doc;
+    }
+
+    /**
+     * 命令行入口：DocumentImporter &lt;目录&gt; &lt;用户名&gt; &lt;密码&gt; [每批条数]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("用法: DocumentImporter <目录> <用户名> <密码> [每批条数]");
+            System.exit(1);
+        }
+        Path directory = Paths.get(args[0]);
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : DocumentService.DEFAULT_BATCH_SIZE;
+
+        try {
+            SchemaMigrator.migrate();
+            if (!AuthService.getInstance().login(args[1], args[2])) {
+                System.exit(1);
+            }
+            new DocumentImporter(new DocumentService()).importDirectory(directory, batchSize);
+        } finally {
+            SearchIndex.closeDefault();
+            DatabaseUtil.shutdown();
+        }
+    }
+}
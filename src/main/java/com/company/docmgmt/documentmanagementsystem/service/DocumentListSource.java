@@ -0,0 +1,42 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.model.PageCursor;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 文档列表的数据来源：当前用户可见的文档摘要，按 (created_at, id) 倒序分页
+ * 由 {@link DocumentService} (直连数据库或经由服务端) 和本地副本
+ * ({@link com.company.docmgmt.documentmanagementsystem.replica.DocumentReplica}) 实现，列表视图不区分二者
+ */
+public interface DocumentListSource {
+
+    /**
+     * @return 可见文档数
+     */
+    int countVisibleDocuments();
+
+    /**
+     * @param after 上一页返回的游标，查询第一页时传null
+     * @param pageSize 每页条数
+     * @return 一页文档摘要
+     */
+    Page<DocumentSummary> getVisibleDocumentSummariesPage(PageCursor after, int pageSize);
+
+    /**
+     * @param offset 起始偏移
+     * @param limit 读取条数
+     * @return 一页文档摘要
+     */
+    Page<DocumentSummary> getVisibleDocumentSummariesAt(int offset, int limit);
+
+    /**
+     * 按ID读取可见的文档摘要，用于把变更通知应用到已加载的列表
+     * @param ids 文档ID
+     * @return 其中存在且可见的文档摘要，顺序不定；不在结果中的ID已被删除或不可见
+     */
+    List<DocumentSummary> getVisibleDocumentSummariesByIds(Collection<Integer> ids);
+}
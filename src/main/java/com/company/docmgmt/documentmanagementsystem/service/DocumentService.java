@@ -1,21 +1,120 @@
 package com.company.docmgmt.documentmanagementsystem.service;
 
+import com.company.docmgmt.documentmanagementsystem.dao.AttachmentDao;
 import com.company.docmgmt.documentmanagementsystem.dao.DocumentDao;
+import com.company.docmgmt.documentmanagementsystem.events.DocumentEventDispatcher;
+import com.company.docmgmt.documentmanagementsystem.events.DocumentEventListener;
+import com.company.docmgmt.documentmanagementsystem.events.EventBatch;
+import com.company.docmgmt.documentmanagementsystem.events.Subscription;
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
+import com.company.docmgmt.documentmanagementsystem.model.Attachment;
 import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentChange;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentEvent;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentRevision;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.model.PageCursor;
 import com.company.docmgmt.documentmanagementsystem.model.User;
+import com.company.docmgmt.documentmanagementsystem.model.WriteResult;
+import com.company.docmgmt.documentmanagementsystem.search.ContentTerms;
+import com.company.docmgmt.documentmanagementsystem.search.SearchHit;
+import com.company.docmgmt.documentmanagementsystem.search.SearchIndex;
+import com.company.docmgmt.documentmanagementsystem.util.LruCache;
+import com.company.docmgmt.documentmanagementsystem.util.UnitOfWork;
 
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
- * 文档相关的业务逻辑服务
+ * 文档相关的业务逻辑服务，直连数据库
+ * 桌面客户端通过 {@link DocumentClient} 使用，服务端和批量导入等本地工具直接使用本类
  */
-public class DocumentService {
+public class DocumentService implements DocumentClient {
+
+    // 分页查询的默认每页条数，可通过 -Ddocmgmt.page.size 配置
+    public static final int DEFAULT_PAGE_SIZE = Integer.getInteger("docmgmt.page.size", 200);
+    // 单页上限，防止调用方一次性拉取过多数据
+    public static final int MAX_PAGE_SIZE = 5000;
+    // 流式遍历时JDBC每批读取的默认行数
+    public static final int DEFAULT_FETCH_SIZE = Integer.getInteger("docmgmt.fetch.size", 500);
+    // 批量写入时每批(每个事务)的条数
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("docmgmt.batch.size", 500);
+    // 删除文档的墓碑保留天数：本地副本超过这么久没有同步时整体重建
+    public static final int TOMBSTONE_RETENTION_DAYS = Integer.getInteger("docmgmt.replica.tombstoneRetentionDays", 30);
+    // 文档变更通知的保留小时数：断开更久的客户端整体刷新
+    public static final int EVENT_RETENTION_HOURS = Integer.getInteger("docmgmt.events.retentionHours", 24);
+
+    // 进程内共享的文档缓存(含正文)，按ID读穿透，写操作时失效
+    // 条目数、总字符数和过期时间均可配置，条目数设置为0即关闭缓存
+    private static final LruCache<Integer, Document> DOCUMENT_CACHE = new LruCache<>(
+            Integer.getInteger("docmgmt.document.cache.size", 1024),
+            Long.getLong("docmgmt.document.cache.maxChars", 16L * 1024 * 1024),
+            Long.getLong("docmgmt.document.cache.ttlMs", 0L),
+            doc -> 64L + (doc.getTitle() == null ? 0 : doc.getTitle().length())
+                    + (doc.getContent() == null ? 0 : doc.getContent().length()));
+
+    // 每个业务方法的调用次数、异常数、返回行数和延迟 (权限不足等业务失败不计为异常)
+    private static final Operation GET_VISIBLE_DOCUMENTS = Metrics.operation("DocumentService.getVisibleDocuments");
+    private static final Operation GET_VISIBLE_DOCUMENT_SUMMARIES = Metrics.operation("DocumentService.getVisibleDocumentSummaries");
+    private static final Operation GET_VISIBLE_DOCUMENT_SUMMARIES_PAGE = Metrics.operation("DocumentService.getVisibleDocumentSummariesPage");
+    private static final Operation COUNT_VISIBLE_DOCUMENTS = Metrics.operation("DocumentService.countVisibleDocuments");
+    private static final Operation GET_VISIBLE_DOCUMENT_SUMMARIES_AT = Metrics.operation("DocumentService.getVisibleDocumentSummariesAt");
+    private static final Operation GET_VISIBLE_DOCUMENTS_PAGE = Metrics.operation("DocumentService.getVisibleDocumentsPage");
+    private static final Operation GET_VISIBLE_DOCUMENT_SUMMARIES_BY_IDS = Metrics.operation("DocumentService.getVisibleDocumentSummariesByIds");
+    private static final Operation GET_DOCUMENT_CHANGES = Metrics.operation("DocumentService.getDocumentChanges");
+    private static final Operation GET_DOCUMENT_BY_ID = Metrics.operation("DocumentService.getDocumentById");
+    private static final Operation OPEN_DOCUMENT_CONTENT = Metrics.operation("DocumentService.openDocumentContent");
+    private static final Operation WRITE_DOCUMENT_CONTENT = Metrics.operation("DocumentService.writeDocumentContent");
+    private static final Operation REBUILD_SEARCH_INDEX = Metrics.operation("DocumentService.rebuildSearchIndex");
+    private static final Operation CREATE_DOCUMENT = Metrics.operation("DocumentService.createDocument");
+    private static final Operation UPDATE_DOCUMENT = Metrics.operation("DocumentService.updateDocument");
+    private static final Operation DELETE_DOCUMENT = Metrics.operation("DocumentService.deleteDocument");
+    private static final Operation CREATE_DOCUMENTS = Metrics.operation("DocumentService.createDocuments");
+    private static final Operation UPDATE_DOCUMENTS = Metrics.operation("DocumentService.updateDocuments");
+    private static final Operation DELETE_DOCUMENTS = Metrics.operation("DocumentService.deleteDocuments");
+    private static final Operation SEARCH = Metrics.operation("DocumentService.search");
+    private static final Operation ADD_ATTACHMENT = Metrics.operation("DocumentService.addAttachment");
+    private static final Operation GET_ATTACHMENTS = Metrics.operation("DocumentService.getAttachments");
+    private static final Operation OPEN_ATTACHMENT = Metrics.operation("DocumentService.openAttachment");
+    private static final Operation DELETE_ATTACHMENT = Metrics.operation("DocumentService.deleteAttachment");
+    private static final Operation GET_DOCUMENT_REVISIONS = Metrics.operation("DocumentService.getDocumentRevisions");
+    private static final Operation GET_DOCUMENT_REVISION = Metrics.operation("DocumentService.getDocumentRevision");
 
     private final DocumentDao documentDao = new DocumentDao();
-    // 依赖认证服务来获取当前用户信息和权限
-    private final AuthService authService = AuthService.getInstance();
+    private final AttachmentDao attachmentDao = new AttachmentDao();
+    // 调用者的安全上下文：桌面客户端跟随 AuthService 的当前会话，服务端每个请求传入自己的会话
+    private final Supplier<SecurityContext> securityContext;
+
+    /**
+     * 桌面客户端使用：权限检查基于 {@link AuthService#getCurrentContext()}
+     */
+    public DocumentService() {
+        this(AuthService.getInstance()::getCurrentContext);
+    }
+
+    /**
+     * 以指定会话的身份访问文档，多个会话可以在不同线程中同时使用各自的实例
+     * @param context 调用者的安全上下文
+     */
+    public DocumentService(SecurityContext context) {
+        this(() -> context);
+    }
+
+    private DocumentService(Supplier<SecurityContext> securityContext) {
+        this.securityContext = securityContext;
+    }
 
     /**
      * 获取当前用户有权查看的文档列表。
@@ -23,43 +122,301 @@ public class DocumentService {
      * @return 文档列表
      */
     public List<Document> getVisibleDocuments() {
-        if (!authService.isLoggedIn()) {
-            return Collections.emptyList(); // 未登录用户看不到任何文档
-        }
+        SecurityContext ctx = securityContext.get();
+        return GET_VISIBLE_DOCUMENTS.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Collections.emptyList(); // 未登录用户看不到任何文档
+            }
+
+            User currentUser = ctx.getUser();
+
+            // 业务规则：如果用户有 "document:list:all" 权限 (如管理员、访客)，则返回所有文档
+            if (ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL)) {
+                return documentDao.findAll();
+            }
+            // 否则，只返回该用户自己创建的文档
+            else {
+                return documentDao.findByOwnerId(currentUser.getId());
+            }
+        });
+    }
+
+    /**
+     * 获取当前用户有权查看的文档摘要列表 (不含正文)，供列表视图使用
+     * @return 文档摘要列表
+     */
+    @Override
+    public List<DocumentSummary> getVisibleDocumentSummaries() {
+        SecurityContext ctx = securityContext.get();
+        return GET_VISIBLE_DOCUMENT_SUMMARIES.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Collections.emptyList();
+            }
+            if (ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL)) {
+                return documentDao.findAllSummaries();
+            }
+            return documentDao.findSummariesByOwnerId(ctx.getUser().getId());
+        });
+    }
+
+    /**
+     * 分页获取当前用户有权查看的文档摘要 (不含正文)
+     * @param after 上一页返回的游标，查询第一页时传null
+     * @param pageSize 每页条数 (1 ~ MAX_PAGE_SIZE)
+     * @return 一页文档摘要
+     */
+    @Override
+    public Page<DocumentSummary> getVisibleDocumentSummariesPage(PageCursor after, int pageSize) {
+        SecurityContext ctx = securityContext.get();
+        return GET_VISIBLE_DOCUMENT_SUMMARIES_PAGE.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Page.empty();
+            }
+            int size = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+            if (ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL)) {
+                return documentDao.findSummaryPage(after, size);
+            }
+            return documentDao.findSummaryPageByOwnerId(ctx.getUser().getId(), after, size);
+        });
+    }
+
+    /**
+     * 统计当前用户有权查看的文档数
+     * @return 文档数
+     */
+    @Override
+    public int countVisibleDocuments() {
+        SecurityContext ctx = securityContext.get();
+        return COUNT_VISIBLE_DOCUMENTS.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return 0;
+            }
+            if (ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL)) {
+                return documentDao.countAll();
+            }
+            return documentDao.countByOwnerId(ctx.getUser().getId());
+        });
+    }
+
+    /**
+     * 按偏移量获取当前用户有权查看的一段文档摘要，用于列表的随机跳转
+     * @param offset 起始偏移
+     * @param limit 读取条数 (1 ~ MAX_PAGE_SIZE)
+     * @return 一页文档摘要
+     */
+    @Override
+    public Page<DocumentSummary> getVisibleDocumentSummariesAt(int offset, int limit) {
+        SecurityContext ctx = securityContext.get();
+        return GET_VISIBLE_DOCUMENT_SUMMARIES_AT.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Page.empty();
+            }
+            int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            Integer ownerId = ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL) ? null : ctx.getUser().getId();
+            return documentDao.findSummariesAt(ownerId, Math.max(0, offset), size);
+        });
+    }
+
+    /**
+     * 分页获取当前用户有权查看的文档，使用默认每页条数
+     * @param after 上一页返回的游标，查询第一页时传null
+     * @return 一页文档
+     */
+    public Page<Document> getVisibleDocumentsPage(PageCursor after) {
+        return getVisibleDocumentsPage(after, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 分页获取当前用户有权查看的文档，可见性规则与 {@link #getVisibleDocuments()} 相同
+     * @param after 上一页返回的游标，查询第一页时传null
+     * @param pageSize 每页条数 (1 ~ MAX_PAGE_SIZE)
+     * @return 一页文档
+     */
+    public Page<Document> getVisibleDocumentsPage(PageCursor after, int pageSize) {
+        SecurityContext ctx = securityContext.get();
+        return GET_VISIBLE_DOCUMENTS_PAGE.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Page.empty();
+            }
+            int size = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+            if (ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL)) {
+                return documentDao.findPage(after, size);
+            }
+            return documentDao.findPageByOwnerId(ctx.getUser().getId(), after, size);
+        });
+    }
 
-        User currentUser = authService.getCurrentUser();
+    /**
+     * 读取游标之后当前用户可见的文档的变更 (新增、修改和删除)，按 (变更时间, 文档ID) 升序，供本地副本增量同步
+     * 可见性规则与 {@link #getVisibleDocumentSummariesPage(PageCursor, int)} 相同；数据库不可用时抛出异常，
+     * 调用方据此保留本地数据而不是当作没有变更
+     * @param after 上一批返回的游标，从头读取时传null
+     * @param limit 每批条数 (1 ~ MAX_PAGE_SIZE)
+     * @return 一批变更
+     */
+    @Override
+    public Page<DocumentChange> getDocumentChanges(PageCursor after, int limit) {
+        SecurityContext ctx = securityContext.get();
+        return GET_DOCUMENT_CHANGES.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Page.empty();
+            }
+            int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            Integer ownerId = ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL) ? null : ctx.getUser().getId();
+            return documentDao.findChanges(ownerId, after, size);
+        });
+    }
+
+    /**
+     * 按ID读取当前用户可见的文档摘要，可见性规则与 {@link #getVisibleDocumentSummariesPage(PageCursor, int)} 相同
+     * 数据库不可用时抛出异常，调用方据此区分"文档已删除"和"读取失败"
+     * @param ids 文档ID
+     * @return 其中存在且可见的文档摘要
+     */
+    @Override
+    public List<DocumentSummary> getVisibleDocumentSummariesByIds(Collection<Integer> ids) {
+        SecurityContext ctx = securityContext.get();
+        return GET_VISIBLE_DOCUMENT_SUMMARIES_BY_IDS.call(() -> {
+            if (!ctx.isAuthenticated() || ids.isEmpty()) {
+                return Collections.emptyList();
+            }
+            Integer ownerId = ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL) ? null : ctx.getUser().getId();
+            return documentDao.findSummariesByIds(new ArrayList<>(ids), ownerId);
+        });
+    }
 
-        // 业务规则：如果用户有 "document:list:all" 权限 (如管理员、访客)，则返回所有文档
-        if (authService.hasPermission("document:list:all")) {
-            return documentDao.findAll();
+    /**
+     * 订阅当前用户可见的文档的变更通知 (新增、修改和删除)，代替定时重新查询文档列表
+     * 回调在后台线程上串行执行；订阅者处理不过来、积压过多时收到 {@link DocumentEventListener#onReset()}，应整体刷新
+     * @param listener 订阅者
+     * @return 订阅，登出或不再需要时关闭
+     */
+    @Override
+    public Subscription subscribeToChanges(DocumentEventListener listener) {
+        return DocumentEventDispatcher.getInstance().subscribe(visibleEvents(securityContext.get()), listener);
+    }
+
+    /**
+     * 长轮询当前用户可见的文档变更，供服务端转发给远程客户端
+     * @param after 上一次返回的游标，第一次调用时传-1 (只返回当前游标)
+     * @param limit 最多返回的事件数 (1 ~ MAX_PAGE_SIZE)
+     * @param timeoutMillis 没有新事件时最长等待的毫秒数
+     * @return 一批事件和下一次使用的游标
+     */
+    public EventBatch awaitDocumentEvents(long after, int limit, long timeoutMillis) {
+        SecurityContext ctx = securityContext.get();
+        if (!ctx.isAuthenticated()) {
+            return EventBatch.empty(after);
         }
-        // 否则，只返回该用户自己创建的文档
-        else {
-            return documentDao.findByOwnerId(currentUser.getId());
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return DocumentEventDispatcher.getInstance().awaitEvents(after, size, timeoutMillis, visibleEvents(ctx));
+    }
+
+    /**
+     * 以流的方式遍历当前用户有权查看的全部文档，内存占用恒定。
+     * 返回的Stream持有数据库连接，必须在 try-with-resources 中使用。
+     * @param fetchSize JDBC每批读取的行数
+     * @return 文档流
+     */
+    public Stream<Document> streamVisibleDocuments(int fetchSize) {
+        SecurityContext ctx = securityContext.get();
+        if (!ctx.isAuthenticated()) {
+            return Stream.empty();
+        }
+        if (ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL)) {
+            return documentDao.streamAll(fetchSize);
         }
+        return documentDao.streamByOwnerId(ctx.getUser().getId(), fetchSize);
     }
 
     /**
-     * 根据ID获取文档，并进行权限检查
+     * 根据ID获取文档(含正文)，并进行权限检查
+     * 列表只加载摘要，真正打开文档时才调用此方法；文档会被缓存，重复打开不再访问数据库
      * @param documentId 文档ID
      * @return 如果找到且有权查看，则返回文档对象
      */
+    @Override
     public Optional<Document> getDocumentById(int documentId) {
-        if (!authService.isLoggedIn()) {
+        SecurityContext ctx = securityContext.get();
+        return GET_DOCUMENT_BY_ID.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Optional.empty();
+            }
+
+            Optional<Document> docOpt = loadDocument(documentId);
+            if (docOpt.isPresent()) {
+                Document doc = docOpt.get();
+                User currentUser = ctx.getUser();
+
+                // 业务规则：管理员可以看任何文档，普通用户只能看自己的文档
+                if (ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL) || doc.getOwnerUserId() == currentUser.getId()) {
+                    return Optional.of(doc);
+                }
+            }
             return Optional.empty();
-        }
+        });
+    }
 
-        Optional<Document> docOpt = documentDao.findById(documentId);
-        if (docOpt.isPresent()) {
-            Document doc = docOpt.get();
-            User currentUser = authService.getCurrentUser();
+    /**
+     * 按需加载文档正文
+     * @param documentId 文档ID
+     * @return 如果找到且有权查看，则返回正文
+     */
+    public Optional<String> getDocumentContent(int documentId) {
+        return getDocumentById(documentId).map(Document::getContent);
+    }
 
-            // 业务规则：管理员可以看任何文档，普通用户只能看自己的文档
-            if (authService.hasPermission("document:list:all") || doc.getOwnerUserId() == currentUser.getId()) {
-                return Optional.of(doc);
+    /**
+     * 以流的方式读取文档正文，大文档逐块读取，不会被整个读进内存；权限规则同 {@link #getDocumentById(int)}
+     * 返回的Reader占用一个数据库连接，使用完毕后必须关闭
+     * @param documentId 文档ID
+     * @return 如果找到且有权查看，则返回正文
+     */
+    public Optional<Reader> openDocumentContent(int documentId) {
+        SecurityContext ctx = securityContext.get();
+        return OPEN_DOCUMENT_CONTENT.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Optional.empty();
             }
+            // 普通用户只能看自己的文档：所有者条件放进查询中，不需要先读出文档
+            Integer ownerId = ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL) ? null : ctx.getUser().getId();
+            return documentDao.openContentReader(documentId, ownerId);
+        });
+    }
+
+    /**
+     * 全文检索当前用户有权查看的文档，查询中的所有词都必须出现，结果按相关度排序
+     * @param query 查询文本
+     * @param limit 最多返回条数
+     * @return 检索结果
+     */
+    @Override
+    public List<SearchHit> searchDocuments(String query, int limit) {
+        return search(query, false, limit);
+    }
+
+    /**
+     * 边输入边搜索：与 {@link #searchDocuments} 相同，但最后一个词按前缀匹配
+     * @param query 用户当前已输入的文本
+     * @param limit 最多返回条数
+     * @return 检索结果
+     */
+    @Override
+    public List<SearchHit> searchDocumentsByPrefix(String query, int limit) {
+        return search(query, true, limit);
+    }
+
+    /**
+     * 从数据库全量重建全文索引，索引的文档数记在 DocumentService.rebuildSearchIndex 指标的行数中
+     */
+    public void rebuildSearchIndex() {
+        SearchIndex index = SearchIndex.getDefault();
+        try (Operation.Sample sample = REBUILD_SEARCH_INDEX.start();
+             Stream<Document> all = documentDao.streamAll(DEFAULT_FETCH_SIZE)) {
+            index.rebuild(builder -> all.forEach(doc ->
+                    builder.add(doc.getId(), doc.getOwnerUserId(), doc.getTitle(), doc.getContent())));
+            sample.rows(index.size());
         }
-        return Optional.empty();
     }
 
     /**
@@ -68,85 +425,451 @@ public class DocumentService {
      * @param content 内容
      * @return 如果创建成功返回true
      */
+    @Override
     public boolean createDocument(String title, String content) {
-        if (!authService.hasPermission("document:create")) {
-            System.err.println("权限不足：无法创建文档。");
-            return false;
-        }
+        SecurityContext ctx = securityContext.get();
+        return CREATE_DOCUMENT.call(() -> {
+            if (!ctx.hasPermission(Permissions.DOCUMENT_CREATE)) {
+                System.err.println("权限不足：无法创建文档。");
+                return false;
+            }
 
-        User currentUser = authService.getCurrentUser();
-        Document newDoc = new Document();
-        newDoc.setTitle(title);
-        newDoc.setContent(content);
-        newDoc.setOwnerUserId(currentUser.getId());
-        newDoc.setStatus("DRAFT"); // 新文档默认为草稿状态
+            User currentUser = ctx.getUser();
+            Document newDoc = new Document();
+            newDoc.setTitle(title);
+            newDoc.setContent(content);
+            newDoc.setOwnerUserId(currentUser.getId());
+            newDoc.setStatus("DRAFT"); // 新文档默认为草稿状态
 
-        return documentDao.save(newDoc);
+            boolean saved = documentDao.save(newDoc);
+            if (saved) {
+                UnitOfWork.afterCommit(() -> {
+                    SearchIndex.getDefault().index(newDoc.getId(), newDoc.getOwnerUserId(), title, content);
+                    DocumentEventDispatcher.getInstance().wakeUp();
+                });
+            }
+            return saved;
+        });
     }
 
     /**
-     * 更新文档
-     * @param docToUpdate 包含更新后信息的文档对象
-     * @return 如果更新成功返回true
+     * 更新文档 (乐观并发控制)
+     * 文档在读取之后被其他人修改过时不会覆盖对方的修改，而是返回 {@link WriteResult#CONFLICT}。
+     * 所有者和版本号都由UPDATE语句的WHERE条件检查；更新后在同一个事务中写入修订历史，差异以已存的最新修订为基础，不需要先读出文档。
+     * @param docToUpdate 包含更新后信息的文档对象，版本号为读取时的版本号；成功后版本号更新为新值
+     * @return 更新结果
      */
-    public boolean updateDocument(Document docToUpdate) {
-        if (!authService.isLoggedIn()) return false;
+    @Override
+    public WriteResult updateDocument(Document docToUpdate) {
+        SecurityContext ctx = securityContext.get();
+        return UPDATE_DOCUMENT.call(() -> {
+            // 1. 权限检查：用户必须拥有 'document:edit:own' 权限 (在内存中完成)
+            if (!ctx.hasPermission(Permissions.DOCUMENT_EDIT_OWN)) {
+                System.err.println("权限不足：无法编辑文档。");
+                return WriteResult.FORBIDDEN;
+            }
+            int currentUserId = ctx.getUser().getId();
 
-        // 1. 先从数据库获取原始文档，确保它存在
-        Optional<Document> originalDocOpt = documentDao.findById(docToUpdate.getId());
-        if (originalDocOpt.isEmpty()) {
-            System.err.println("更新失败：文档不存在。");
-            return false;
-        }
-        Document originalDoc = originalDocOpt.get();
-        User currentUser = authService.getCurrentUser();
+            // 2. 执行更新，只有当前用户是所有者且版本号一致时才命中；无论成功与否都让缓存失效
+            // (成功时在提交之后失效：在工作单元中时，提交之前其他线程仍可能读到并缓存旧版本)
+            WriteResult result = documentDao.updateOwned(docToUpdate, currentUserId);
+            int documentId = docToUpdate.getId();
+            if (result.isSuccess()) {
+                String title = docToUpdate.getTitle();
+                String content = docToUpdate.getContent();
+                UnitOfWork.afterCommit(() -> {
+                    DOCUMENT_CACHE.invalidate(documentId);
+                    SearchIndex.getDefault().index(documentId, currentUserId, title, content);
+                    DocumentEventDispatcher.getInstance().wakeUp();
+                });
+            } else {
+                DOCUMENT_CACHE.invalidate(documentId);
+                reportUpdateFailure(documentId, result);
+            }
+            return result;
+        });
+    }
 
-        // 2. 权限检查：用户必须拥有 'document:edit:own' 权限，并且是文档的所有者
-        boolean canEdit = authService.hasPermission("document:edit:own") && originalDoc.getOwnerUserId() == currentUser.getId();
+    /**
+     * 获取文档的修订历史 (不含正文)，可见性规则同 {@link #getDocumentById(int)}
+     * 每次 {@link #updateDocument(Document)} 成功后记录一个修订，修订号就是更新后的版本号
+     * @param documentId 文档ID
+     * @return 按修订号倒序的修订；文档没有历史、不存在或无权查看时为空列表
+     */
+    @Override
+    public List<DocumentRevision> getDocumentRevisions(int documentId) {
+        SecurityContext ctx = securityContext.get();
+        return GET_DOCUMENT_REVISIONS.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Collections.<DocumentRevision>emptyList();
+            }
+            Integer ownerId = ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL) ? null : ctx.getUser().getId();
+            return documentDao.findRevisions(documentId, ownerId);
+        });
+    }
 
-        // (可以扩展：如果管理员有全局编辑权限)
-        // boolean isAdmin = authService.hasPermission("document:edit:all");
-        // if (!canEdit && !isAdmin) { ... }
+    /**
+     * 获取文档某个历史修订的完整内容，可见性规则同 {@link #getDocumentById(int)}
+     * @param documentId 文档ID
+     * @param revision 修订号
+     * @return 该修订的文档 (version 为修订号)；修订不存在或无权查看时为空
+     */
+    @Override
+    public Optional<Document> getDocumentRevision(int documentId, int revision) {
+        SecurityContext ctx = securityContext.get();
+        return GET_DOCUMENT_REVISION.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Optional.<Document>empty();
+            }
+            Integer ownerId = ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL) ? null : ctx.getUser().getId();
+            return documentDao.findRevision(documentId, revision, ownerId);
+        });
+    }
 
-        if (!canEdit) {
-            System.err.println("权限不足：你只能编辑自己的文档。");
-            return false;
-        }
+    /**
+     * 以流的方式替换文档正文 (乐观并发控制)，大正文边读边压缩写入，不需要先拼成一个字符串
+     * 权限和版本号规则同 {@link #updateDocument(Document)}
+     * @param documentId 文档ID
+     * @param expectedVersion 读取时的版本号
+     * @param content 新正文，由调用方关闭
+     * @return 更新结果
+     */
+    public WriteResult writeDocumentContent(int documentId, int expectedVersion, Reader content) {
+        SecurityContext ctx = securityContext.get();
+        return WRITE_DOCUMENT_CONTENT.call(() -> {
+            if (!ctx.hasPermission(Permissions.DOCUMENT_EDIT_OWN)) {
+                System.err.println("权限不足：无法编辑文档。");
+                return WriteResult.FORBIDDEN;
+            }
+            int currentUserId = ctx.getUser().getId();
 
-        // 3. 执行更新
-        return documentDao.update(docToUpdate);
+            // 写入的同时统计正文词频，提交后更新全文索引时不需要从数据库读回整篇正文
+            ContentTerms terms = new ContentTerms();
+            WriteResult result = documentDao.writeContentOwned(documentId, expectedVersion, currentUserId, terms.tee(content));
+            if (result.isSuccess()) {
+                UnitOfWork.afterCommit(() -> {
+                    DOCUMENT_CACHE.invalidate(documentId);
+                    DocumentEventDispatcher.getInstance().wakeUp();
+                    // 标题没有改变，只读摘要
+                    documentDao.findSummariesByIds(List.of(documentId), null).forEach(summary ->
+                            SearchIndex.getDefault().index(documentId, currentUserId, summary.getTitle(), terms));
+                });
+            } else {
+                DOCUMENT_CACHE.invalidate(documentId);
+                reportUpdateFailure(documentId, result);
+            }
+            return result;
+        });
     }
 
     /**
-     * 删除文档
+     * 删除文档，所有者由DELETE语句的WHERE条件检查，不需要先读出文档；删除和墓碑在同一个事务中写入
      * @param documentId 要删除的文档ID
-     * @return 如果删除成功返回true
+     * @return 删除结果：SUCCESS、NOT_FOUND、FORBIDDEN 或 FAILED
      */
-    public boolean deleteDocument(int documentId) {
-        if (!authService.isLoggedIn()) return false;
+    @Override
+    public WriteResult deleteDocument(int documentId) {
+        SecurityContext ctx = securityContext.get();
+        return DELETE_DOCUMENT.call(() -> {
+            // 1. 权限检查：用户必须拥有 'document:delete:own' 权限 (在内存中完成)
+            if (!ctx.hasPermission(Permissions.DOCUMENT_DELETE_OWN)) {
+                System.err.println("权限不足：无法删除文档。");
+                return WriteResult.FORBIDDEN;
+            }
 
-        // 1. 先从数据库获取文档信息，特别是所有者ID
-        Optional<Document> docOpt = documentDao.findById(documentId);
-        if (docOpt.isEmpty()) {
-            System.err.println("删除失败：文档不存在。");
-            return false; // 或者返回true，因为文档已经“没了”
-        }
-        Document doc = docOpt.get();
-        User currentUser = authService.getCurrentUser();
+            // 2. 执行删除，只有当前用户是所有者时才命中
+            WriteResult result = documentDao.deleteOwned(documentId, ctx.getUser().getId());
+            switch (result) {
+                case SUCCESS:
+                    UnitOfWork.afterCommit(() -> {
+                        DOCUMENT_CACHE.invalidate(documentId);
+                        SearchIndex.getDefault().remove(documentId);
+                        DocumentEventDispatcher.getInstance().wakeUp();
+                    });
+                    break;
+                case NOT_FOUND:
+                    System.err.println("删除失败：文档不存在。");
+                    break;
+                case FORBIDDEN:
+                    System.err.println("权限不足：你只能删除自己的文档。");
+                    break;
+                default:
+                    break;
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 为文档添加附件，只能为自己的文档添加；相同内容的附件只存一份
+     * @param documentId 文档ID
+     * @param name 附件名称
+     * @param data 附件内容，由调用方关闭
+     * @return SUCCESS、NOT_FOUND、FORBIDDEN 或 FAILED
+     */
+    public WriteResult addAttachment(int documentId, String name, InputStream data) {
+        SecurityContext ctx = securityContext.get();
+        return ADD_ATTACHMENT.call(() -> {
+            if (!ctx.hasPermission(Permissions.DOCUMENT_EDIT_OWN)) {
+                System.err.println("权限不足：无法编辑文档。");
+                return WriteResult.FORBIDDEN;
+            }
+            Attachment attachment = new Attachment();
+            attachment.setDocumentId(documentId);
+            attachment.setName(name);
+            WriteResult result = attachmentDao.addOwned(attachment, ctx.getUser().getId(), data);
+            reportUpdateFailure(documentId, result);
+            return result;
+        });
+    }
+
+    /**
+     * 获取文档的附件列表 (不含内容)，可见性规则同 {@link #getDocumentById(int)}
+     * @param documentId 文档ID
+     * @return 附件列表；文档不存在或无权查看时为空列表
+     */
+    public List<Attachment> getAttachments(int documentId) {
+        SecurityContext ctx = securityContext.get();
+        return GET_ATTACHMENTS.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Collections.<Attachment>emptyList();
+            }
+            Integer ownerId = ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL) ? null : ctx.getUser().getId();
+            return attachmentDao.findByDocumentId(documentId, ownerId);
+        });
+    }
 
-        // 2. 权限检查：用户必须拥有 'document:delete:own' 权限，并且是文档的所有者
-        boolean canDelete = authService.hasPermission("document:delete:own") && doc.getOwnerUserId() == currentUser.getId();
+    /**
+     * 打开附件内容，可见性规则同 {@link #getDocumentById(int)}
+     * @param attachmentId 附件ID
+     * @return 附件内容，使用完毕后必须关闭；不存在或无权查看时为空
+     */
+    public Optional<InputStream> openAttachment(int attachmentId) {
+        SecurityContext ctx = securityContext.get();
+        return OPEN_ATTACHMENT.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Optional.empty();
+            }
+            Integer ownerId = ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL) ? null : ctx.getUser().getId();
+            return attachmentDao.openContent(attachmentId, ownerId);
+        });
+    }
 
-        // (可以扩展：如果管理员有全局删除权限)
-        // boolean isAdmin = authService.hasPermission("document:delete:all");
-        // if (!canDelete && !isAdmin) { ... }
+    /**
+     * 删除附件，只能删除自己文档的附件
+     * @param attachmentId 附件ID
+     * @return SUCCESS、NOT_FOUND、FORBIDDEN 或 FAILED
+     */
+    public WriteResult deleteAttachment(int attachmentId) {
+        SecurityContext ctx = securityContext.get();
+        return DELETE_ATTACHMENT.call(() -> {
+            if (!ctx.hasPermission(Permissions.DOCUMENT_EDIT_OWN)) {
+                System.err.println("权限不足：无法编辑文档。");
+                return WriteResult.FORBIDDEN;
+            }
+            return attachmentDao.deleteOwned(attachmentId, ctx.getUser().getId());
+        });
+    }
 
-        if (!canDelete) {
-            System.err.println("权限不足：你只能删除自己的文档。");
-            return false;
+    /**
+     * 获取文档缓存的统计信息(命中、未命中、淘汰等)
+     * @return 统计快照
+     */
+    public static LruCache.Stats getDocumentCacheStats() {
+        return DOCUMENT_CACHE.getStats();
+    }
+
+    /**
+     * 批量创建文档，所有者为当前用户，状态为草稿
+     * @param drafts 只使用其中的标题和内容
+     * @return 成功创建的文档ID
+     */
+    public List<Integer> createDocuments(List<Document> drafts) {
+        return createDocuments(drafts, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 批量创建文档，每batchSize条一个事务
+     * @param drafts 只使用其中的标题和内容
+     * @param batchSize 每批条数
+     * @return 成功创建的文档ID
+     */
+    public List<Integer> createDocuments(List<Document> drafts, int batchSize) {
+        SecurityContext ctx = securityContext.get();
+        return CREATE_DOCUMENTS.call(() -> {
+            if (!ctx.hasPermission(Permissions.DOCUMENT_CREATE)) {
+                System.err.println("权限不足：无法创建文档。");
+                return Collections.emptyList();
+            }
+            int ownerId = ctx.getUser().getId();
+            List<Document> newDocs = new ArrayList<>(drafts.size());
+            for (Document draft : drafts) {
+                Document newDoc = new Document();
+                newDoc.setTitle(draft.getTitle());
+                newDoc.setContent(draft.getContent());
+                newDoc.setOwnerUserId(ownerId);
+                newDoc.setStatus("DRAFT");
+                newDocs.add(newDoc);
+            }
+
+            List<Integer> ids = documentDao.saveAll(newDocs, batchSize);
+            if (!ids.isEmpty()) {
+                UnitOfWork.afterCommit(() -> {
+                    SearchIndex index = SearchIndex.getDefault();
+                    for (int i = 0; i < ids.size(); i++) {
+                        Document doc = newDocs.get(i);
+                        index.index(doc.getId(), ownerId, doc.getTitle(), doc.getContent());
+                    }
+                    DocumentEventDispatcher.getInstance().wakeUp();
+                });
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * 批量更新文档，只会更新当前用户拥有 'document:edit:own' 权限且是所有者的文档，其余跳过
+     * 与 {@link #updateDocument(Document)} 一样检查版本号，已被其他人修改的文档不会被覆盖
+     * @param docsToUpdate 包含更新后信息的文档 (版本号为读取时的版本号)
+     * @return 实际更新的文档数
+     */
+    public int updateDocuments(List<Document> docsToUpdate) {
+        SecurityContext ctx = securityContext.get();
+        return UPDATE_DOCUMENTS.call(() -> {
+            if (!ctx.hasPermission(Permissions.DOCUMENT_EDIT_OWN)) {
+                System.err.println("权限不足：无法编辑文档。");
+                return 0;
+            }
+            int currentUserId = ctx.getUser().getId();
+
+            // 所有者和版本号在每条UPDATE中检查，不需要先查询所有者
+            List<Integer> updated = documentDao.updateAllOwned(docsToUpdate, currentUserId, DEFAULT_BATCH_SIZE);
+            if (updated.size() < docsToUpdate.size()) {
+                System.err.println("批量更新：跳过 " + (docsToUpdate.size() - updated.size())
+                        + " 个不存在、无权编辑或已被其他人修改的文档。");
+            }
+            Set<Integer> updatedIds = new HashSet<>(updated);
+            List<Document> updatedDocs = new ArrayList<>(updated.size());
+            for (Document doc : docsToUpdate) {
+                if (updatedIds.contains(doc.getId())) {
+                    updatedDocs.add(new Document(doc.getId(), doc.getTitle(), doc.getContent(), currentUserId,
+                            doc.getStatus(), doc.getCreatedAt(), doc.getUpdatedAt(), doc.getVersion()));
+                } else {
+                    DOCUMENT_CACHE.invalidate(doc.getId());
+                }
+            }
+            if (!updatedDocs.isEmpty()) {
+                UnitOfWork.afterCommit(() -> {
+                    SearchIndex index = SearchIndex.getDefault();
+                    for (Document doc : updatedDocs) {
+                        DOCUMENT_CACHE.invalidate(doc.getId());
+                        index.index(doc.getId(), currentUserId, doc.getTitle(), doc.getContent());
+                    }
+                    DocumentEventDispatcher.getInstance().wakeUp();
+                });
+            }
+            return updated.size();
+        });
+    }
+
+    /**
+     * 批量删除文档，只会删除当前用户拥有 'document:delete:own' 权限且是所有者的文档，其余跳过
+     * @param documentIds 要删除的文档ID
+     * @return 实际删除的文档数
+     */
+    public int deleteDocuments(List<Integer> documentIds) {
+        SecurityContext ctx = securityContext.get();
+        return DELETE_DOCUMENTS.call(() -> {
+            if (!ctx.hasPermission(Permissions.DOCUMENT_DELETE_OWN)) {
+                System.err.println("权限不足：无法删除文档。");
+                return 0;
+            }
+            List<Integer> deleted = documentDao.deleteAllOwned(documentIds, ctx.getUser().getId(), DEFAULT_BATCH_SIZE);
+            if (deleted.size() < documentIds.size()) {
+                System.err.println("批量删除：跳过 " + (documentIds.size() - deleted.size()) + " 个不存在或无权删除的文档。");
+            }
+            if (!deleted.isEmpty()) {
+                UnitOfWork.afterCommit(() -> {
+                    SearchIndex index = SearchIndex.getDefault();
+                    for (Integer id : deleted) {
+                        DOCUMENT_CACHE.invalidate(id);
+                        index.remove(id);
+                    }
+                    DocumentEventDispatcher.getInstance().wakeUp();
+                });
+            }
+            return deleted.size();
+        });
+    }
+
+    // --- Private Helper Methods ---
+
+    private List<SearchHit> search(String query, boolean prefix, int limit) {
+        SecurityContext ctx = securityContext.get();
+        return SEARCH.call(() -> {
+            if (!ctx.isAuthenticated()) {
+                return Collections.emptyList();
+            }
+            SearchIndex index = SearchIndex.getDefault();
+            synchronized (index) {
+                // 首次使用(或索引文件丢失)时从数据库全量构建一次，之后随写操作增量更新
+                if (!index.isInitialized()) {
+                    rebuildSearchIndex();
+                }
+            }
+            int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            // 与文档列表相同的可见性规则
+            if (ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL)) {
+                return index.search(query, prefix, size, ownerId -> true);
+            }
+            int currentUserId = ctx.getUser().getId();
+            return index.search(query, prefix, size, ownerId -> ownerId == currentUserId);
+        });
+    }
+
+    /**
+     * 变更通知的可见性规则，与文档列表相同
+     */
+    private static Predicate<DocumentEvent> visibleEvents(SecurityContext ctx) {
+        if (!ctx.isAuthenticated()) {
+            return event -> false;
+        }
+        if (ctx.hasPermission(Permissions.DOCUMENT_LIST_ALL)) {
+            return event -> true;
+        }
+        int userId = ctx.getUser().getId();
+        return event -> event.getOwnerUserId() == userId;
+    }
+
+    private static void reportUpdateFailure(int documentId, WriteResult result) {
+        switch (result) {
+            case CONFLICT:
+                System.err.println("更新冲突：文档 " + documentId + " 已被其他人修改。");
+                break;
+            case NOT_FOUND:
+                System.err.println("更新失败：文档不存在。");
+                break;
+            case FORBIDDEN:
+                System.err.println("权限不足：你只能编辑自己的文档。");
+                break;
+            default:
+                break;
         }
+    }
+
+    /**
+     * 读穿透加载文档；返回副本，调用方修改返回的对象不会影响缓存
+     * 在工作单元中直接读取且不填充缓存：单元的连接能读到它自己尚未提交的写入，这些数据不能进入共享的缓存
+     */
+    private Optional<Document> loadDocument(int documentId) {
+        if (UnitOfWork.isActive()) {
+            return documentDao.findById(documentId);
+        }
+        return DOCUMENT_CACHE.getOrLoad(documentId, documentDao::findById).map(DocumentService::copyOf);
+    }
 
-        // 3. 执行删除
-        return documentDao.delete(documentId);
+    private static Document copyOf(Document doc) {
+        return new Document(doc.getId(), doc.getTitle(), doc.getContent(), doc.getOwnerUserId(),
+                doc.getStatus(), doc.getCreatedAt(), doc.getUpdatedAt(), doc.getVersion());
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 权限注册表：把权限名称字符串一次性转换(intern)成紧凑的整数编号
+ * 之后的权限检查只需要对 {@link PermissionSet} 做一次位运算，不再对字符串做hash和equals。
+ * 编号按首次注册的顺序分配，{@link Permissions} 中的常量最先注册，因此常用权限都落在前64位，
+ * 检查时只访问一个long。
+ */
+public final class PermissionRegistry {
+
+    private static final PermissionRegistry INSTANCE = new PermissionRegistry();
+
+    private final ConcurrentHashMap<String, Key> keysByName = new ConcurrentHashMap<>();
+    private final List<Key> keysByIndex = new ArrayList<>();
+
+    private PermissionRegistry() {
+    }
+
+    public static PermissionRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 注册一个权限名称，已注册过则返回原有的Key
+     * @param name 权限名称，例如 "document:create"
+     * @return 对应的Key
+     */
+    public Key intern(String name) {
+        Key key = keysByName.get(name);
+        if (key != null) {
+            return key;
+        }
+        synchronized (this) {
+            return keysByName.computeIfAbsent(name, n -> {
+                Key created = new Key(keysByIndex.size(), n);
+                keysByIndex.add(created);
+                return created;
+            });
+        }
+    }
+
+    /**
+     * 批量注册权限名称，例如启动时从 permissions 表加载的全部权限
+     * @param names 权限名称
+     */
+    public void internAll(Collection<String> names) {
+        names.forEach(this::intern);
+    }
+
+    /**
+     * 查找已注册的权限，不会注册新名称
+     * @param name 权限名称
+     * @return 对应的Key，未注册时为null
+     */
+    public Key lookup(String name) {
+        return keysByName.get(name);
+    }
+
+    /**
+     * 把一组权限名称编译成位集合
+     * @param names 权限名称
+     * @return 位集合
+     */
+    public PermissionSet compile(Collection<String> names) {
+        PermissionSet.Builder builder = PermissionSet.builder();
+        for (String name : names) {
+            builder.add(intern(name));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 根据编号取回Key
+     * @param index 编号
+     * @return 对应的Key
+     */
+    synchronized Key keyAt(int index) {
+        return keysByIndex.get(index);
+    }
+
+    /**
+     * 已注册的一个权限：名称 + 编号
+     */
+    public static final class Key {
+        private final int index;
+        private final String name;
+
+        private Key(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
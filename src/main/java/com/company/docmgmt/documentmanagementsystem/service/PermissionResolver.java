@@ -0,0 +1,304 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.dao.PermissionDao;
+import com.company.docmgmt.documentmanagementsystem.dao.RoleDao;
+import com.company.docmgmt.documentmanagementsystem.metrics.Metrics;
+import com.company.docmgmt.documentmanagementsystem.metrics.Operation;
+import com.company.docmgmt.documentmanagementsystem.model.Role;
+import com.company.docmgmt.documentmanagementsystem.util.UnitOfWork;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+
+/**
+ * 用户权限解析缓存
+ * 第一次使用时一次性读取 角色 -> 权限 矩阵和全部 用户 -> 角色 关系，之后解析任意用户的权限都不再访问数据库：
+ * 用户的权限集合由其角色的权限集合按位合并得到，并按用户缓存(物化视图)。
+ * <p>
+ * 通过本类修改角色或授权时增量更新：只重新计算受影响的角色，并丢弃拥有该角色(或该用户)的已物化结果。
+ * 在 {@link UnitOfWork} 中修改时，缓存在工作单元提交之后才更新，回滚时保持不变；在工作单元中填充缓存时只读取已提交的数据。
+ * 其他进程直接修改数据库时，缓存最迟在 docmgmt.permissions.maxAgeSec (默认300秒) 后在后台整体重新加载，
+ * 也可以调用 {@link #reload()} 立即重新加载。读取失败时保留原来的快照，不会因为数据库短暂不可用而清空所有人的权限。
+ * <p>
+ * 所有数据放在一个不可变的快照中，修改时复制并整体替换；读线程写入的物化结果只会进入它读到的那个快照，
+ * 因此不会把修改之前计算出的旧结果写进新快照。
+ */
+public final class PermissionResolver {
+
+    private static final PermissionResolver INSTANCE = new PermissionResolver();
+    private static final Operation LOAD = Metrics.operation("PermissionResolver.load");
+
+    private final RoleDao roleDao = new RoleDao();
+    private final PermissionDao permissionDao = new PermissionDao();
+    private final PermissionRegistry permissionRegistry = PermissionRegistry.getInstance();
+    private final long maxAgeNanos = TimeUnit.SECONDS.toNanos(Long.getLong("docmgmt.permissions.maxAgeSec", 300L));
+
+    private volatile Snapshot snapshot;
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    private PermissionResolver() {
+    }
+
+    public static PermissionResolver getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 解析用户的权限集合
+     * 已物化的用户直接返回；快照中没有的用户(例如加载之后新建的用户)只按主键读一次 user_roles
+     * @param userId 用户ID
+     * @return 权限集合
+     * @throws RuntimeException 需要读取数据库而读取失败时，失败的结果不缓存，下次调用重新读取
+     */
+    public PermissionSet resolve(int userId) {
+        Snapshot current = current();
+        PermissionSet permissions = current.userPermissions.get(userId);
+        if (permissions != null) {
+            return permissions;
+        }
+        List<Integer> roleIds = roleIdsOf(current, userId);
+        permissions = PermissionSet.EMPTY;
+        for (int roleId : roleIds) {
+            permissions = permissions.union(current.rolePermissions.getOrDefault(roleId, PermissionSet.EMPTY));
+        }
+        current.userPermissions.putIfAbsent(userId, permissions);
+        return permissions;
+    }
+
+    /**
+     * 查询用户的角色，不访问数据库 (代替 RoleDao.findRolesByUserId 的连接查询)
+     * @param userId 用户ID
+     * @return 角色列表
+     * @throws RuntimeException 需要读取数据库而读取失败时，规则同 {@link #resolve(int)}
+     */
+    public List<Role> getRoles(int userId) {
+        Snapshot current = current();
+        List<Integer> roleIds = roleIdsOf(current, userId);
+        List<Role> roles = new ArrayList<>(roleIds.size());
+        for (int roleId : roleIds) {
+            Role role = current.roles.get(roleId);
+            if (role != null) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * 快照版本号，每次重新加载或增量修改后加一
+     * 持有权限集合的调用方(例如当前会话)比较版本号即可知道是否需要重新解析
+     * @return 版本号，尚未加载时为0
+     */
+    public long getVersion() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.version;
+    }
+
+    /**
+     * 给角色授予权限，并只重新计算拥有该角色的用户
+     * @param roleId 角色ID
+     * @param permissionName 权限名称
+     * @return 如果成功授予返回true
+     */
+    public boolean grantPermission(int roleId, String permissionName) {
+        if (!permissionDao.grantPermission(roleId, permissionName)) {
+            return false;
+        }
+        PermissionRegistry.Key key = permissionRegistry.intern(permissionName);
+        UnitOfWork.afterCommit(() -> updateRole(roleId, permissions -> permissions.with(key)));
+        return true;
+    }
+
+    /**
+     * 收回角色的权限，并只重新计算拥有该角色的用户
+     * @param roleId 角色ID
+     * @param permissionName 权限名称
+     * @return 如果成功收回返回true
+     */
+    public boolean revokePermission(int roleId, String permissionName) {
+        if (!permissionDao.revokePermission(roleId, permissionName)) {
+            return false;
+        }
+        PermissionRegistry.Key key = permissionRegistry.intern(permissionName);
+        UnitOfWork.afterCommit(() -> updateRole(roleId, permissions -> permissions.without(key)));
+        return true;
+    }
+
+    /**
+     * 给用户分配角色，并只重新计算该用户
+     * @param userId 用户ID
+     * @param roleId 角色ID
+     * @return 如果成功分配返回true
+     */
+    public boolean assignRole(int userId, int roleId) {
+        if (!roleDao.assignRole(userId, roleId)) {
+            return false;
+        }
+        UnitOfWork.afterCommit(() -> updateUser(userId));
+        return true;
+    }
+
+    /**
+     * 移除用户的角色，并只重新计算该用户
+     * @param userId 用户ID
+     * @param roleId 角色ID
+     * @return 如果成功移除返回true
+     */
+    public boolean removeRole(int userId, int roleId) {
+        if (!roleDao.removeRole(userId, roleId)) {
+            return false;
+        }
+        UnitOfWork.afterCommit(() -> updateUser(userId));
+        return true;
+    }
+
+    /**
+     * 丢弃全部缓存并从数据库重新加载，用于其他进程修改了角色或授权之后
+     * 读取失败时保留原来的快照并输出错误，过期的快照在下一次访问时再次尝试重新加载
+     * @return 重新加载成功返回true
+     */
+    public synchronized boolean reload() {
+        Snapshot previous = snapshot;
+        long version = previous == null ? 1 : previous.version + 1;
+        try {
+            snapshot = UnitOfWork.outside(() -> load(version));
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("权限缓存重新加载失败，继续使用原来的数据: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 用户的角色ID：快照中没有时按主键读取并补充到快照；读取失败时抛出异常，不缓存
+     */
+    private List<Integer> roleIdsOf(Snapshot current, int userId) {
+        List<Integer> roleIds = current.userRoles.get(userId);
+        if (roleIds == null) {
+            roleIds = Collections.unmodifiableList(UnitOfWork.outside(() -> roleDao.findRoleIdsByUserId(userId)));
+            current.userRoles.putIfAbsent(userId, roleIds);
+        }
+        return roleIds;
+    }
+
+    /**
+     * 当前快照；还没有加载时在这里加载，加载失败时抛出异常，下一次调用重新加载
+     */
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = UnitOfWork.outside(() -> load(1));
+                }
+                return snapshot;
+            }
+        }
+        // 过期后继续使用旧快照，同时在后台重新加载，登录高峰期不会有请求排队等待
+        if (maxAgeNanos > 0 && System.nanoTime() - current.loadedAtNanos > maxAgeNanos
+                && reloading.compareAndSet(false, true)) {
+            ServiceExecutor.supplyAsync(() -> {
+                try {
+                    reload();
+                } finally {
+                    reloading.set(false);
+                }
+                return null;
+            });
+        }
+        return current;
+    }
+
+    /**
+     * 读取全部权限数据；任何一个查询失败时抛出异常，不会得到缺了一部分数据的快照
+     * 加载次数、耗时和用户数记在 PermissionResolver.load 指标中
+     */
+    private Snapshot load(long version) {
+        try (Operation.Sample sample = LOAD.start()) {
+            Snapshot loaded = loadSnapshot(version);
+            sample.rows(loaded.userRoles.size());
+            return loaded;
+        }
+    }
+
+    private Snapshot loadSnapshot(long version) {
+        // 先按 permissions 表的顺序注册全部权限名称，保证编号稳定
+        permissionRegistry.internAll(permissionDao.findAllPermissionNames());
+
+        Map<Integer, Role> roles = new HashMap<>();
+        for (Role role : roleDao.findAll()) {
+            roles.put(role.getId(), role);
+        }
+        Map<Integer, PermissionSet> rolePermissions = new HashMap<>();
+        permissionDao.findPermissionNamesByRole().forEach((roleId, names) ->
+                rolePermissions.put(roleId, permissionRegistry.compile(names)));
+
+        ConcurrentHashMap<Integer, List<Integer>> userRoles = new ConcurrentHashMap<>();
+        roleDao.findAllUserRoleIds().forEach((userId, roleIds) ->
+                userRoles.put(userId, Collections.unmodifiableList(roleIds)));
+        return new Snapshot(version, System.nanoTime(), roles, rolePermissions, userRoles, new ConcurrentHashMap<>());
+    }
+
+    private synchronized void updateRole(int roleId, UnaryOperator<PermissionSet> change) {
+        Snapshot previous = current();
+        Map<Integer, PermissionSet> rolePermissions = new HashMap<>(previous.rolePermissions);
+        rolePermissions.put(roleId, change.apply(rolePermissions.getOrDefault(roleId, PermissionSet.EMPTY)));
+
+        // 保留不受影响的用户的物化结果，拥有该角色的用户下次解析时重新计算
+        ConcurrentHashMap<Integer, PermissionSet> userPermissions = new ConcurrentHashMap<>(previous.userPermissions);
+        previous.userRoles.forEach((userId, roleIds) -> {
+            if (roleIds.contains(roleId)) {
+                userPermissions.remove(userId);
+            }
+        });
+        snapshot = new Snapshot(previous.version + 1, previous.loadedAtNanos, previous.roles, rolePermissions,
+                new ConcurrentHashMap<>(previous.userRoles), userPermissions);
+    }
+
+    private synchronized void updateUser(int userId) {
+        Snapshot previous = current();
+        ConcurrentHashMap<Integer, List<Integer>> userRoles = new ConcurrentHashMap<>(previous.userRoles);
+        try {
+            userRoles.put(userId, Collections.unmodifiableList(roleDao.findRoleIdsByUserId(userId)));
+        } catch (RuntimeException e) {
+            // 读取失败时丢弃该用户的角色，下次解析时重新读取，不继续使用修改之前的角色
+            System.err.println("重新读取用户 " + userId + " 的角色失败: " + e.getMessage());
+            userRoles.remove(userId);
+        }
+        ConcurrentHashMap<Integer, PermissionSet> userPermissions = new ConcurrentHashMap<>(previous.userPermissions);
+        userPermissions.remove(userId);
+        snapshot = new Snapshot(previous.version + 1, previous.loadedAtNanos, previous.roles, previous.rolePermissions,
+                userRoles, userPermissions);
+    }
+
+    /**
+     * 某一时刻的权限数据；角色相关的部分不可变，用户相关的部分只会被读线程补充
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final long loadedAtNanos;
+        private final Map<Integer, Role> roles;
+        private final Map<Integer, PermissionSet> rolePermissions;
+        private final ConcurrentHashMap<Integer, List<Integer>> userRoles;
+        private final ConcurrentHashMap<Integer, PermissionSet> userPermissions;
+
+        private Snapshot(long version, long loadedAtNanos, Map<Integer, Role> roles,
+                         Map<Integer, PermissionSet> rolePermissions,
+                         ConcurrentHashMap<Integer, List<Integer>> userRoles,
+                         ConcurrentHashMap<Integer, PermissionSet> userPermissions) {
+            this.version = version;
+            this.loadedAtNanos = loadedAtNanos;
+            this.roles = roles;
+            this.rolePermissions = rolePermissions;
+            this.userRoles = userRoles;
+            this.userPermissions = userPermissions;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 不可变的权限位集合
+ * 编号小于64的权限存放在一个long掩码中，检查只需一次移位和与运算；更多的权限才落到BitSet里。
+ */
+public final class PermissionSet {
+
+    public static final PermissionSet EMPTY = new PermissionSet(0L, null);
+
+    private final long mask;
+    private final BitSet overflow; // 编号 >= 64 的权限，通常为null
+
+    private PermissionSet(long mask, BitSet overflow) {
+        this.mask = mask;
+        this.overflow = overflow;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 检查是否包含某个权限，不分配任何对象
+     * @param key 权限
+     * @return 包含返回true
+     */
+    public boolean contains(PermissionRegistry.Key key) {
+        int index = key.getIndex();
+        if (index < 64) {
+            return (mask & (1L << index)) != 0;
+        }
+        return overflow != null && overflow.get(index);
+    }
+
+    /**
+     * 检查是否同时包含另一个集合中的全部权限
+     * @param required 需要的权限
+     * @return 全部包含返回true
+     */
+    public boolean containsAll(PermissionSet required) {
+        if ((mask & required.mask) != required.mask) {
+            return false;
+        }
+        if (required.overflow == null) {
+            return true;
+        }
+        BitSet missing = (BitSet) required.overflow.clone();
+        if (overflow != null) {
+            missing.andNot(overflow);
+        }
+        return missing.isEmpty();
+    }
+
+    /**
+     * 并集，用于把用户的多个角色的权限合并
+     * @param other 另一个集合
+     * @return 新的集合
+     */
+    public PermissionSet union(PermissionSet other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        BitSet merged = null;
+        if (overflow != null || other.overflow != null) {
+            merged = new BitSet();
+            if (overflow != null) {
+                merged.or(overflow);
+            }
+            if (other.overflow != null) {
+                merged.or(other.overflow);
+            }
+        }
+        return new PermissionSet(mask | other.mask, merged);
+    }
+
+    /**
+     * 增加一个权限
+     * @param key 权限
+     * @return 新的集合，已包含时返回自身
+     */
+    public PermissionSet with(PermissionRegistry.Key key) {
+        return contains(key) ? this : union(builder().add(key).build());
+    }
+
+    /**
+     * 去掉一个权限
+     * @param key 权限
+     * @return 新的集合，不包含时返回自身
+     */
+    public PermissionSet without(PermissionRegistry.Key key) {
+        if (!contains(key)) {
+            return this;
+        }
+        int index = key.getIndex();
+        if (index < 64) {
+            long remaining = mask & ~(1L << index);
+            return remaining == 0 && overflow == null ? EMPTY : new PermissionSet(remaining, overflow);
+        }
+        BitSet remaining = (BitSet) overflow.clone();
+        remaining.clear(index);
+        return mask == 0 && remaining.isEmpty() ? EMPTY : new PermissionSet(mask, remaining.isEmpty() ? null : remaining);
+    }
+
+    public boolean isEmpty() {
+        return mask == 0 && (overflow == null || overflow.isEmpty());
+    }
+
+    /**
+     * 转换回权限名称，用于日志和调试
+     * @return 权限名称列表
+     */
+    public List<String> toNames() {
+        List<String> names = new ArrayList<>();
+        PermissionRegistry registry = PermissionRegistry.getInstance();
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            names.add(registry.keyAt(Long.numberOfTrailingZeros(bits)).getName());
+        }
+        if (overflow != null) {
+            overflow.stream().forEach(i -> names.add(registry.keyAt(i).getName()));
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return toNames().toString();
+    }
+
+    /**
+     * 构造器
+     */
+    public static final class Builder {
+        private long mask;
+        private BitSet overflow;
+
+        private Builder() {
+        }
+
+        public Builder add(PermissionRegistry.Key key) {
+            int index = key.getIndex();
+            if (index < 64) {
+                mask |= 1L << index;
+            } else {
+                if (overflow == null) {
+                    overflow = new BitSet();
+                }
+                overflow.set(index);
+            }
+            return this;
+        }
+
+        public PermissionSet build() {
+            return mask == 0 && overflow == null ? EMPTY : new PermissionSet(mask, overflow);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+/**
+ * 系统中使用的权限常量，类加载时预先注册到 {@link PermissionRegistry}
+ * 业务代码应使用这些常量调用 {@link AuthService#hasPermission(PermissionRegistry.Key)}，而不是字符串
+ */
+public final class Permissions {
+
+    public static final PermissionRegistry.Key DOCUMENT_LIST_ALL = register("document:list:all");
+    public static final PermissionRegistry.Key DOCUMENT_CREATE = register("document:create");
+    public static final PermissionRegistry.Key DOCUMENT_EDIT_OWN = register("document:edit:own");
+    public static final PermissionRegistry.Key DOCUMENT_DELETE_OWN = register("document:delete:own");
+    public static final PermissionRegistry.Key USER_MANAGE = register("user:manage");
+
+    private Permissions() {
+    }
+
+    private static PermissionRegistry.Key register(String name) {
+        return PermissionRegistry.getInstance().intern(name);
+    }
+}
@@ -0,0 +1,167 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.util.Json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 文档服务端 (server.DocumentServer) 的HTTP客户端
+ * 通过 -Ddocmgmt.server.url=http://host:8080 开启远程模式，此时桌面客户端的登录和文档操作都经由服务端完成，
+ * 本机不再连接数据库。底层使用一个共享的 {@link HttpClient}，连接保持复用(keep-alive)，响应支持gzip压缩。
+ */
+public final class RemoteClient {
+
+    private static final String BASE_URL = System.getProperty("docmgmt.server.url");
+
+    private static final class Holder {
+        private static final RemoteClient INSTANCE = new RemoteClient(BASE_URL);
+    }
+
+    private final String baseUrl;
+    private final Duration timeout = Duration.ofSeconds(Long.getLong("docmgmt.server.timeoutSec", 30L));
+    private final HttpClient httpClient;
+
+    RemoteClient(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        // 服务端是HTTP/1.1，不尝试h2c升级
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * 是否配置了服务端地址(远程模式)
+     * @return 配置了 docmgmt.server.url 返回true
+     */
+    public static boolean isConfigured() {
+        return BASE_URL != null && !BASE_URL.isEmpty();
+    }
+
+    /**
+     * @return 按 docmgmt.server.url 创建的共享客户端
+     * @throws IllegalStateException 如果没有配置服务端地址
+     */
+    public static RemoteClient getInstance() {
+        if (!isConfigured()) {
+            throw new IllegalStateException("docmgmt.server.url is not set");
+        }
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * @return 服务端地址 (不含结尾的/)
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * 在服务端登录，返回的会话携带服务端的令牌和权限
+     * @param username 用户名
+     * @param password 密码 (明文)
+     * @return 登录成功时返回会话，否则为空
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<SecurityContext> login(String username, String password) {
+        Response response = send("POST", "/api/sessions", null, Map.of("username", username, "password", password), null);
+        if (response.status == 401) {
+            return Optional.empty();
+        }
+        Map<String, Object> json = response.expectJson(200);
+        PermissionSet permissions = PermissionRegistry.getInstance().compile((List<String>) json.get("permissions"));
+        return Optional.of(new SecurityContext((String) json.get("token"),
+                ApiCodec.toUser((Map<String, Object>) json.get("user")), System.currentTimeMillis(), permissions));
+    }
+
+    /**
+     * 结束服务端会话
+     * @param token 会话令牌
+     */
+    public void logout(String token) {
+        send("DELETE", "/api/sessions", token, null, null);
+    }
+
+    /**
+     * 发送一个请求
+     * @param method HTTP方法
+     * @param path 以 /api 开头的路径(含查询参数)
+     * @param token 会话令牌，可以为null
+     * @param body 请求体，序列化为JSON；为null时不带请求体
+     * @param ifNoneMatch 缓存的ETag，可以为null
+     * @return 响应
+     */
+    Response send(String method, String path, String token, Object body, String ifNoneMatch) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        if (body != null) {
+            request.header("Content-Type", "application/json; charset=utf-8");
+            request.method(method, HttpRequest.BodyPublishers.ofString(Json.write(body), StandardCharsets.UTF_8));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            byte[] bytes = response.body();
+            if ("gzip".equalsIgnoreCase(response.headers().firstValue("Content-Encoding").orElse(""))) {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                    bytes = in.readAllBytes();
+                }
+            }
+            return new Response(response.statusCode(), response.headers().firstValue("ETag").orElse(null),
+                    new String(bytes, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to call document server: " + method + " " + path, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while calling document server: " + method + " " + path, e);
+        }
+    }
+
+    /**
+     * 一次请求的响应
+     */
+    static final class Response {
+        final int status;
+        final String etag;
+        final String body;
+
+        private Response(int status, String etag, String body) {
+            this.status = status;
+            this.etag = etag;
+            this.body = body;
+        }
+
+        /**
+         * 检查状态码并解析JSON响应体
+         * @param expectedStatus 期望的状态码
+         * @return 响应对象
+         */
+        Map<String, Object> expectJson(int expectedStatus) {
+            if (status != expectedStatus) {
+                throw new RuntimeException("Unexpected response from document server: " + status + " " + body);
+            }
+            return Json.parseObject(body);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.events.DocumentEventListener;
+import com.company.docmgmt.documentmanagementsystem.events.Subscription;
+import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentChange;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentRevision;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.model.PageCursor;
+import com.company.docmgmt.documentmanagementsystem.model.WriteResult;
+import com.company.docmgmt.documentmanagementsystem.search.SearchHit;
+import com.company.docmgmt.documentmanagementsystem.util.LruCache;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 远程模式下的文档服务：{@link DocumentClient} 的全部方法都通过HTTP调用服务端，不访问本地数据库
+ * 权限检查由服务端按会话完成，这里只转发请求。打开过的文档连同ETag一起缓存，
+ * 再次打开时服务端返回304，不再传输正文。
+ */
+public class RemoteDocumentService implements DocumentClient {
+
+    private static final LruCache<Integer, CachedDocument> DOCUMENT_CACHE = new LruCache<>(
+            Integer.getInteger("docmgmt.document.cache.size", 1024),
+            Long.getLong("docmgmt.document.cache.maxChars", 16L * 1024 * 1024),
+            0L,
+            cached -> 64L + (cached.document.getContent() == null ? 0 : cached.document.getContent().length()));
+
+    // 按ID读取摘要时每个请求的ID数，保持URL长度适中
+    private static final int MAX_IDS_PER_REQUEST = 200;
+
+    private final RemoteClient client;
+
+    /**
+     * 以桌面客户端的当前会话访问服务端
+     */
+    public RemoteDocumentService() {
+        this(RemoteClient.getInstance());
+    }
+
+    RemoteDocumentService(RemoteClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public Page<DocumentSummary> getVisibleDocumentSummariesPage(PageCursor after, int pageSize) {
+        StringBuilder path = new StringBuilder("/api/documents?limit=").append(pageSize);
+        if (after != null) {
+            path.append("&after=").append(encode(after.getCreatedAt().toString())).append("&afterId=").append(after.getId());
+        }
+        return getPage(path.toString());
+    }
+
+    @Override
+    public Page<DocumentSummary> getVisibleDocumentSummariesAt(int offset, int limit) {
+        return getPage("/api/documents?offset=" + offset + "&limit=" + limit);
+    }
+
+    @Override
+    public Page<DocumentChange> getDocumentChanges(PageCursor after, int limit) {
+        StringBuilder path = new StringBuilder("/api/documents/changes?limit=").append(limit);
+        if (after != null) {
+            path.append("&after=").append(encode(after.getCreatedAt().toString())).append("&afterId=").append(after.getId());
+        }
+        RemoteClient.Response response = client.send("GET", path.toString(), token(), null, null);
+        if (isUnauthorized(response)) {
+            // 会话失效时不能当作没有变更，本地副本保留原有数据
+            throw new RuntimeException("Document server session expired");
+        }
+        return ApiCodec.toChangePage(response.expectJson(200));
+    }
+
+    @Override
+    public List<DocumentSummary> getVisibleDocumentSummariesByIds(Collection<Integer> ids) {
+        List<DocumentSummary> all = new ArrayList<>(ids.size());
+        List<Integer> chunk = new ArrayList<>();
+        for (Integer id : ids) {
+            chunk.add(id);
+            if (chunk.size() == MAX_IDS_PER_REQUEST) {
+                all.addAll(getSummariesByIds(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            all.addAll(getSummariesByIds(chunk));
+        }
+        return all;
+    }
+
+    /**
+     * 在后台线程上长轮询服务端的变更通知，见 {@link RemoteEventStream}
+     */
+    @Override
+    public Subscription subscribeToChanges(DocumentEventListener listener) {
+        RemoteEventStream stream = new RemoteEventStream(client, token(), listener);
+        stream.start();
+        return stream;
+    }
+
+    @Override
+    public List<DocumentSummary> getVisibleDocumentSummaries() {
+        List<DocumentSummary> all = new ArrayList<>();
+        Page<DocumentSummary> page = getVisibleDocumentSummariesPage(null, DocumentService.MAX_PAGE_SIZE);
+        all.addAll(page.getItems());
+        while (page.hasMore()) {
+            page = getVisibleDocumentSummariesPage(page.getNextCursor(), DocumentService.MAX_PAGE_SIZE);
+            all.addAll(page.getItems());
+        }
+        return all;
+    }
+
+    @Override
+    public int countVisibleDocuments() {
+        RemoteClient.Response response = client.send("GET", "/api/documents/count", token(), null, null);
+        if (isUnauthorized(response)) {
+            return 0;
+        }
+        return ApiCodec.getInt(response.expectJson(200), "count");
+    }
+
+    @Override
+    public Optional<Document> getDocumentById(int documentId) {
+        String token = token();
+        if (token == null) {
+            return Optional.empty();
+        }
+        CachedDocument cached = DOCUMENT_CACHE.get(documentId).orElse(null);
+        RemoteClient.Response response = client.send("GET", "/api/documents/" + documentId, token, null,
+                cached == null ? null : cached.etag);
+        if (response.status == 304 && cached != null) {
+            return Optional.of(copyOf(cached.document));
+        }
+        if (response.status == 404 || isUnauthorized(response)) {
+            DOCUMENT_CACHE.invalidate(documentId);
+            return Optional.empty();
+        }
+        Document document = ApiCodec.toDocument(response.expectJson(200));
+        if (response.etag != null) {
+            DOCUMENT_CACHE.put(documentId, new CachedDocument(response.etag, document));
+        }
+        return Optional.of(copyOf(document));
+    }
+
+    @Override
+    public boolean createDocument(String title, String content) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("title", title);
+        body.put("content", content);
+        return isSuccess(client.send("POST", "/api/documents", token(), body, null));
+    }
+
+    @Override
+    public WriteResult updateDocument(Document docToUpdate) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("title", docToUpdate.getTitle());
+        body.put("content", docToUpdate.getContent());
+        body.put("status", docToUpdate.getStatus());
+        body.put("version", docToUpdate.getVersion());
+        RemoteClient.Response response = client.send("PUT", "/api/documents/" + docToUpdate.getId(), token(), body, null);
+        DOCUMENT_CACHE.invalidate(docToUpdate.getId());
+        WriteResult result = toWriteResult(response);
+        if (result.isSuccess()) {
+            docToUpdate.setVersion(ApiCodec.getInt(response.expectJson(200), "version"));
+        }
+        return result;
+    }
+
+    @Override
+    public WriteResult deleteDocument(int documentId) {
+        WriteResult result = toWriteResult(client.send("DELETE", "/api/documents/" + documentId, token(), null, null));
+        DOCUMENT_CACHE.invalidate(documentId);
+        return result;
+    }
+
+    @Override
+    public List<SearchHit> searchDocuments(String query, int limit) {
+        return search(query, false, limit);
+    }
+
+    @Override
+    public List<SearchHit> searchDocumentsByPrefix(String query, int limit) {
+        return search(query, true, limit);
+    }
+
+    @Override
+    public List<DocumentRevision> getDocumentRevisions(int documentId) {
+        String token = token();
+        if (token == null) {
+            return Collections.emptyList();
+        }
+        RemoteClient.Response response = client.send("GET", "/api/documents/" + documentId + "/revisions", token, null, null);
+        if (isUnauthorized(response)) {
+            return Collections.emptyList();
+        }
+        return ApiCodec.toList(response.expectJson(200).get("items"), ApiCodec::toRevision);
+    }
+
+    @Override
+    public Optional<Document> getDocumentRevision(int documentId, int revision) {
+        String token = token();
+        if (token == null) {
+            return Optional.empty();
+        }
+        // 历史修订不会再变化，但一般只查看一次，不放进文档缓存
+        RemoteClient.Response response = client.send("GET", "/api/documents/" + documentId + "/revisions/" + revision,
+                token, null, null);
+        if (response.status == 404 || isUnauthorized(response)) {
+            return Optional.empty();
+        }
+        return Optional.of(ApiCodec.toDocument(response.expectJson(200)));
+    }
+
+    // --- Private Helper Methods ---
+
+    private Page<DocumentSummary> getPage(String path) {
+        RemoteClient.Response response = client.send("GET", path, token(), null, null);
+        if (isUnauthorized(response)) {
+            return Page.empty();
+        }
+        return ApiCodec.toSummaryPage(response.expectJson(200));
+    }
+
+    private List<DocumentSummary> getSummariesByIds(List<Integer> ids) {
+        StringBuilder path = new StringBuilder("/api/documents?ids=");
+        for (int i = 0; i < ids.size(); i++) {
+            path.append(i == 0 ? "" : ",").append(ids.get(i));
+        }
+        RemoteClient.Response response = client.send("GET", path.toString(), token(), null, null);
+        if (isUnauthorized(response)) {
+            // 不能当作文档已被删除
+            throw new RuntimeException("Document server session expired");
+        }
+        return ApiCodec.toSummaryPage(response.expectJson(200)).getItems();
+    }
+
+    private List<SearchHit> search(String query, boolean prefix, int limit) {
+        RemoteClient.Response response = client.send("GET",
+                "/api/search?q=" + encode(query) + "&prefix=" + prefix + "&limit=" + limit, token(), null, null);
+        if (isUnauthorized(response)) {
+            return Collections.emptyList();
+        }
+        return ApiCodec.toList(response.expectJson(200).get("items"), ApiCodec::toSearchHit);
+    }
+
+    private static String token() {
+        return AuthService.getInstance().getCurrentContext().getToken();
+    }
+
+    private static boolean isUnauthorized(RemoteClient.Response response) {
+        if (response.status == 401) {
+            System.err.println("服务端会话无效或已过期，请重新登录。");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 写操作的结果：权限不足或文档不存在时服务端返回4xx，与本地模式一样返回false
+     */
+    private static boolean isSuccess(RemoteClient.Response response) {
+        if (response.status >= 200 && response.status < 300) {
+            return true;
+        }
+        if (response.status >= 500) {
+            throw new RuntimeException("Document server error: " + response.status + " " + response.body);
+        }
+        if (!isUnauthorized(response)) {
+            System.err.println("服务端拒绝了请求: " + response.status + " " + response.body);
+        }
+        return false;
+    }
+
+    private static WriteResult toWriteResult(RemoteClient.Response response) {
+        switch (response.status) {
+            case 200:
+            case 204:
+                return WriteResult.SUCCESS;
+            case 409:
+                return WriteResult.CONFLICT;
+            case 404:
+                return WriteResult.NOT_FOUND;
+            case 401:
+            case 403:
+                isUnauthorized(response);
+                return WriteResult.FORBIDDEN;
+            default:
+                System.err.println("服务端拒绝了请求: " + response.status + " " + response.body);
+                return WriteResult.FAILED;
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static Document copyOf(Document doc) {
+        return new Document(doc.getId(), doc.getTitle(), doc.getContent(), doc.getOwnerUserId(),
+                doc.getStatus(), doc.getCreatedAt(), doc.getUpdatedAt(), doc.getVersion());
+    }
+
+    /**
+     * 缓存的文档及其ETag
+     */
+    private static final class CachedDocument {
+        private final String etag;
+        private final Document document;
+
+        private CachedDocument(String etag, Document document) {
+            this.etag = etag;
+            this.document = document;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.events.DocumentEventListener;
+import com.company.docmgmt.documentmanagementsystem.events.EventBatch;
+import com.company.docmgmt.documentmanagementsystem.events.Subscription;
+
+/**
+ * 远程模式下的变更通知订阅：后台线程循环长轮询 GET /api/documents/events，把收到的事件交给订阅者
+ * <p>
+ * 订阅者在这个线程上执行，处理完一批才会请求下一批，处理得慢时服务端的事件在游标之后等待，不会在客户端堆积；
+ * 落后太多 (游标已被服务端丢弃) 时收到 {@link DocumentEventListener#onReset()}。
+ * 请求失败时按指数退避重试 (最长30秒)，会话失效时停止。
+ */
+final class RemoteEventStream implements Subscription, Runnable {
+
+    // 每次长轮询的等待秒数，小于客户端超时 docmgmt.server.timeoutSec
+    private static final int LONG_POLL_SECONDS = Integer.getInteger("docmgmt.events.longPollSec", 20);
+    private static final int BATCH_SIZE = Integer.getInteger("docmgmt.events.batchSize", 500);
+    private static final long MAX_BACKOFF_MILLIS = 30_000L;
+
+    private final RemoteClient client;
+    private final String token;
+    private final DocumentEventListener listener;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    RemoteEventStream(RemoteClient client, String token, DocumentEventListener listener) {
+        this.client = client;
+        this.token = token;
+        this.listener = listener;
+        this.thread = new Thread(this, "document-event-stream");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        long cursor = -1;
+        long backoff = 0;
+        boolean failing = false;
+        while (!closed) {
+            try {
+                // 第一次请求只取得当前游标 (立即返回)，订阅之前的变更已经包含在列表的首次加载中
+                RemoteClient.Response response = client.send("GET", "/api/documents/events?after=" + cursor
+                        + "&wait=" + LONG_POLL_SECONDS + "&limit=" + BATCH_SIZE, token, null, null);
+                if (response.status == 401) {
+                    System.err.println("服务端会话无效或已过期，停止接收文档变更通知。");
+                    return;
+                }
+                EventBatch batch = ApiCodec.toEventBatch(response.expectJson(200));
+                backoff = 0;
+                failing = false;
+                if (closed) {
+                    return;
+                }
+                if (batch.isReset()) {
+                    listener.onReset();
+                } else if (!batch.getEvents().isEmpty()) {
+                    listener.onEvents(batch.getEvents());
+                }
+                cursor = batch.getLast();
+            } catch (RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                if (!failing) {
+                    System.err.println("接收文档变更通知失败，稍后重试: " + e.getMessage());
+                    failing = true;
+                }
+                backoff = backoff == 0 ? 1000L : Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+}
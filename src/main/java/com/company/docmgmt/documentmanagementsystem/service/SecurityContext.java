@@ -0,0 +1,184 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.model.User;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 一个已认证会话的安全上下文：用户、会话令牌和权限
+ * 由 {@link AuthService#authenticate(String, String)} 创建，显式传给 {@link DocumentService}，
+ * 同一个JVM中的多个会话互不影响。线程安全，可以在多个请求线程之间共享。
+ * <p>
+ * 权限集合来自 {@link PermissionResolver}，角色或授权变化后在下一次检查时自动重新解析。
+ * <p>
+ * 会话表中的会话带有会话表的过期时间：空闲或存活超时之后，已经持有该上下文的调用方 (例如服务端的请求线程)
+ * 的检查也立即失败，不需要等会话表查找或清理时使其失效。桌面会话和远程会话不会过期。
+ */
+public final class SecurityContext {
+
+    /**
+     * 未登录：不属于任何用户，没有任何权限
+     */
+    public static final SecurityContext ANONYMOUS = new SecurityContext(null, null, 0L);
+
+    private final String token;
+    private final User user;
+    private final long createdAtMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+
+    // 会话表按最近访问时间判断空闲过期
+    private volatile long lastAccessMillis;
+    private volatile boolean invalidated;
+
+    // 权限集合和解析它时的权限缓存版本号放在一起整体替换，不会读到不配对的两者
+    private final AtomicReference<ResolvedPermissions> resolved =
+            new AtomicReference<>(new ResolvedPermissions(PermissionSet.EMPTY, -1));
+
+    // 远程模式下权限由服务端解析，登录时一次性给定，不再查本地的 PermissionResolver
+    private final PermissionSet fixedPermissions;
+
+    SecurityContext(String token, User user, long nowMillis) {
+        this(token, user, nowMillis, Long.MAX_VALUE, Long.MAX_VALUE, null);
+    }
+
+    SecurityContext(String token, User user, long nowMillis, PermissionSet fixedPermissions) {
+        this(token, user, nowMillis, Long.MAX_VALUE, Long.MAX_VALUE, fixedPermissions);
+    }
+
+    /**
+     * 会话表使用：带有空闲和存活超时的会话
+     */
+    SecurityContext(String token, User user, long nowMillis, long idleTimeoutMillis, long maxLifetimeMillis) {
+        this(token, user, nowMillis, idleTimeoutMillis, maxLifetimeMillis, null);
+    }
+
+    private SecurityContext(String token, User user, long nowMillis, long idleTimeoutMillis, long maxLifetimeMillis,
+                            PermissionSet fixedPermissions) {
+        this.token = token;
+        this.user = user;
+        this.createdAtMillis = nowMillis;
+        this.lastAccessMillis = nowMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.fixedPermissions = fixedPermissions;
+    }
+
+    /**
+     * 是否是有效的已登录会话，登出或过期后返回false
+     * @return 已登录返回true
+     */
+    public boolean isAuthenticated() {
+        return user != null && !invalidated && !isExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * @param nowMillis 当前时间
+     * @return 空闲或存活时间超过会话表的超时返回true
+     */
+    boolean isExpired(long nowMillis) {
+        return nowMillis - lastAccessMillis > idleTimeoutMillis || nowMillis - createdAtMillis > maxLifetimeMillis;
+    }
+
+    /**
+     * 会话令牌，服务端部署时由客户端在每个请求中携带
+     * @return 令牌，未登录时为null
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return 当前用户，未登录时为null
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * @return 当前用户ID，未登录时为0
+     */
+    public int getUserId() {
+        return user == null ? 0 : user.getId();
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    /**
+     * 检查权限，会话失效后一律返回false
+     * @param permission 需要检查的权限，使用 {@link Permissions} 中的常量
+     * @return 如果拥有该权限返回true
+     */
+    public boolean hasPermission(PermissionRegistry.Key permission) {
+        return getPermissions().contains(permission);
+    }
+
+    /**
+     * 按名称检查权限，热路径请使用 {@link #hasPermission(PermissionRegistry.Key)}
+     * @param permission 权限名称，例如 "document:create"
+     * @return 如果拥有该权限返回true
+     */
+    public boolean hasPermission(String permission) {
+        PermissionRegistry.Key key = PermissionRegistry.getInstance().lookup(permission);
+        return key != null && hasPermission(key);
+    }
+
+    /**
+     * 获取权限集合；权限缓存的版本号变化后重新解析
+     * @return 权限集合，会话失效后为空集合
+     */
+    public PermissionSet getPermissions() {
+        if (!isAuthenticated()) {
+            return PermissionSet.EMPTY;
+        }
+        if (fixedPermissions != null) {
+            return fixedPermissions;
+        }
+        PermissionResolver resolver = PermissionResolver.getInstance();
+        ResolvedPermissions cached = resolved.get();
+        // 先读版本号再解析：解析结果不会比这个版本旧，最多是更新的结果被记成旧版本，下次多解析一次
+        long version = resolver.getVersion();
+        if (cached.version == version) {
+            return cached.permissions;
+        }
+        ResolvedPermissions fresh = new ResolvedPermissions(resolver.resolve(user.getId()), version);
+        // 并发解析时只用更新的版本替换，旧版本的结果不会覆盖新版本的结果
+        while (cached.version < version && !resolved.compareAndSet(cached, fresh)) {
+            cached = resolved.get();
+        }
+        return fresh.permissions;
+    }
+
+    void touch(long nowMillis) {
+        lastAccessMillis = nowMillis;
+    }
+
+    void invalidate() {
+        invalidated = true;
+    }
+
+    /**
+     * 一次解析的结果：权限集合和解析之前读到的权限缓存版本号
+     */
+    private static final class ResolvedPermissions {
+        private final PermissionSet permissions;
+        private final long version;
+
+        private ResolvedPermissions(PermissionSet permissions, long version) {
+            this.permissions = permissions;
+            this.version = version;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return user == null ? "SecurityContext{anonymous}"
+                : "SecurityContext{user=" + user.getUsername() + ", permissions=" + getPermissions() + '}';
+    }
+}
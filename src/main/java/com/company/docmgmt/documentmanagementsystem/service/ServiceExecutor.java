@@ -0,0 +1,68 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 服务层异步调用使用的执行器
+ * 运行在JDK 21+上时每个任务一个虚拟线程；更低版本的JDK退化为固定大小的守护线程池。
+ * 真正的数据库并发度仍由连接池的maxSize限制。
+ */
+public final class ServiceExecutor {
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private ServiceExecutor() {
+    }
+
+    /**
+     * 在服务执行器上异步执行一个任务
+     * 如果返回的Future在任务开始之前就被取消(例如请求已过期)，任务不会再执行
+     * @param task 要执行的任务，通常是一次阻塞的DAO调用
+     * @return 任务结果
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        EXECUTOR.execute(() -> {
+            if (future.isDone()) {
+                return; // 已被取消
+            }
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 获取底层执行器
+     * @return 执行器
+     */
+    public static ExecutorService getExecutor() {
+        return EXECUTOR;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // 通过反射调用，保证在JDK 17上也能编译和运行
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            int threads = Integer.getInteger("docmgmt.service.threads", 8);
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory threadFactory = r -> {
+                Thread t = new Thread(r, "service-worker-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            return Executors.newFixedThreadPool(threads, threadFactory);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.model.User;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 并发会话表，按会话令牌查找
+ * 会话在空闲超过 docmgmt.session.idleTimeoutMin (默认30分钟) 或存活超过 docmgmt.session.maxLifetimeMin
+ * (默认12小时) 后过期。过期的会话立即失去权限 (见 {@link SecurityContext#isAuthenticated()})；
+ * 它在查找时立即移除，其余的由创建新会话时顺带进行的清理 (每分钟最多一次) 移除，不需要后台线程。
+ */
+final class SessionRegistry {
+
+    // 256位随机令牌
+    private static final int TOKEN_BYTES = 32;
+    private static final long DEFAULT_SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final ConcurrentHashMap<String, SecurityContext> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweepMillis = new AtomicLong(System.currentTimeMillis());
+
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long sweepIntervalMillis;
+
+    SessionRegistry(long idleTimeoutMillis, long maxLifetimeMillis, long sweepIntervalMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.sweepIntervalMillis = sweepIntervalMillis;
+    }
+
+    static SessionRegistry fromSystemProperties() {
+        return new SessionRegistry(
+                TimeUnit.MINUTES.toMillis(Long.getLong("docmgmt.session.idleTimeoutMin", 30L)),
+                TimeUnit.MINUTES.toMillis(Long.getLong("docmgmt.session.maxLifetimeMin", 12 * 60L)),
+                DEFAULT_SWEEP_INTERVAL_MILLIS);
+    }
+
+    /**
+     * 为用户创建新会话
+     * @param user 已通过认证的用户
+     * @return 新会话的安全上下文
+     */
+    SecurityContext create(User user) {
+        long now = System.currentTimeMillis();
+        sweepIfDue(now);
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        SecurityContext context = new SecurityContext(encoder.encodeToString(bytes), user, now,
+                idleTimeoutMillis, maxLifetimeMillis);
+        sessions.put(context.getToken(), context);
+        return context;
+    }
+
+    /**
+     * 按令牌查找会话，并刷新最近访问时间
+     * @param token 会话令牌
+     * @return 有效的会话；令牌不存在或已过期时为空
+     */
+    Optional<SecurityContext> find(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        SecurityContext context = sessions.get(token);
+        if (context == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        if (context.isExpired(now)) {
+            remove(token);
+            return Optional.empty();
+        }
+        context.touch(now);
+        return Optional.of(context);
+    }
+
+    /**
+     * 移除并使会话失效，已经持有该上下文的线程之后的权限检查都会失败
+     * @param token 会话令牌
+     * @return 会话存在返回true
+     */
+    boolean remove(String token) {
+        SecurityContext removed = token == null ? null : sessions.remove(token);
+        if (removed == null) {
+            return false;
+        }
+        removed.invalidate();
+        return true;
+    }
+
+    /**
+     * 移除某个用户的全部会话，例如用户被删除或修改密码后
+     * @param userId 用户ID
+     * @return 移除的会话数
+     */
+    int removeUser(int userId) {
+        int removed = 0;
+        for (SecurityContext context : sessions.values()) {
+            if (context.getUserId() == userId && remove(context.getToken())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    private void sweepIfDue(long now) {
+        long last = lastSweepMillis.get();
+        if (now - last < sweepIntervalMillis || !lastSweepMillis.compareAndSet(last, now)) {
+            return;
+        }
+        Iterator<SecurityContext> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            SecurityContext context = it.next();
+            if (context.isExpired(now)) {
+                it.remove();
+                context.invalidate();
+            }
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package com.company.docmgmt.documentmanagementsystem.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界、线程安全的JDBC连接池
+ * 借出的是一个代理Connection，调用close()时并不会真正关闭物理连接，而是归还到池中，
+ * 因此DAO层原有的 try-with-resources 写法无需任何修改。
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Config config;
+
+    // 空闲连接按LIFO使用：最近归还的连接最"热"，也最不可能已被服务端断开
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition connectionReturned = lock.newCondition();
+    private int totalConnections; // 已创建(或正在创建)的物理连接数
+    private int activeConnections; // 已借出的连接数
+    private int waitingThreads;
+    private boolean closed;
+
+    // --- 统计信息 ---
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder waitCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder validationFailureCount = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String url, String user, String password, Config config) {
+        if (config.maxSize <= 0 || config.minIdle < 0 || config.minIdle > config.maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: minIdle=" + config.minIdle + ", maxSize=" + config.maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.config = config;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, config.idleTimeoutMillis / 2);
+        // 立即执行一次以预热到minIdle，之后周期性回收超时的空闲连接
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从池中借出一个连接，在maxWait内无可用连接时抛出SQLTimeoutException
+     * @return 连接代理，close()即归还
+     * @throws SQLException 如果连接池已关闭、等待超时或创建物理连接失败
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.maxWaitMillis);
+        boolean waited = false;
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean createNew = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+                    if (totalConnections < config.maxSize) {
+                        totalConnections++;
+                        createNew = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.increment();
+                        throw new SQLTimeoutException("Timed out after " + config.maxWaitMillis
+                                + "ms waiting for a connection (active=" + activeConnections + ", max=" + config.maxSize + ")");
+                    }
+                    waited = true;
+                    waitingThreads++;
+                    try {
+                        connectionReturned.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a connection", e);
+                    } finally {
+                        waitingThreads--;
+                    }
+                }
+                activeConnections++;
+            } finally {
+                lock.unlock();
+            }
+
+            // 创建与校验都在锁外进行，避免网络往返阻塞其他借还线程
+            if (createNew) {
+                try {
+                    candidate = createPhysicalConnection();
+                } catch (SQLException e) {
+                    lock.lock();
+                    try {
+                        totalConnections--;
+                        activeConnections--;
+                        connectionReturned.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                    throw e;
+                }
+            } else if (!validate(candidate)) {
+                validationFailureCount.increment();
+                lock.lock();
+                try {
+                    activeConnections--;
+                } finally {
+                    lock.unlock();
+                }
+                destroy(candidate);
+                continue;
+            }
+
+            recordBorrow(System.nanoTime() - start, waited);
+            return candidate.newHandle();
+        }
+    }
+
+    /**
+     * 获取当前连接池的统计快照
+     * @return 统计信息
+     */
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(activeConnections, idle.size(), totalConnections, config.maxSize, waitingThreads,
+                    borrowCount.sum(), waitCount.sum(), totalWaitNanos.sum(), maxWaitNanos.get(),
+                    timeoutCount.sum(), createdCount.sum(), destroyedCount.sum(), validationFailureCount.sum(),
+                    statementCacheHits.sum(), statementCacheMisses.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 关闭连接池：关闭所有空闲连接，借出中的连接在归还时关闭
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            connectionReturned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        toClose.forEach(this::destroy);
+    }
+
+    // --- Private Helper Methods ---
+
+    private PooledConnection createPhysicalConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        createdCount.increment();
+        return new PooledConnection(physical);
+    }
+
+    /**
+     * 空闲时间超过validationInterval的连接在借出前需要校验
+     */
+    private boolean validate(PooledConnection pc) {
+        if (System.nanoTime() - pc.lastReturnedNanos < TimeUnit.MILLISECONDS.toNanos(config.validationIntervalMillis)) {
+            return true;
+        }
+        try {
+            return pc.physical.isValid(config.validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordBorrow(long waitNanos, boolean waited) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        if (waited) {
+            waitCount.increment();
+        }
+    }
+
+    private void release(PooledConnection pc) {
+        boolean healthy = resetState(pc);
+        lock.lock();
+        try {
+            activeConnections--;
+            if (healthy && !closed) {
+                pc.lastReturnedNanos = System.nanoTime();
+                idle.offerFirst(pc);
+                connectionReturned.signal();
+                return;
+            }
+            connectionReturned.signal();
+        } finally {
+            lock.unlock();
+        }
+        destroy(pc);
+    }
+
+    /**
+     * 归还前重置连接状态，未提交的事务一律回滚
+     */
+    private boolean resetState(PooledConnection pc) {
+        try {
+            if (pc.physical.isClosed()) {
+                return false;
+            }
+            if (pc.statements != null) {
+                pc.statements.releaseAll();
+            }
+            if (!pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            if (pc.physical.isReadOnly()) {
+                pc.physical.setReadOnly(false);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection pc) {
+        lock.lock();
+        try {
+            totalConnections--;
+        } finally {
+            lock.unlock();
+        }
+        destroyedCount.increment();
+        if (pc.statements != null) {
+            pc.statements.close();
+        }
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+            // 物理连接已不可用，忽略关闭异常
+        }
+    }
+
+    /**
+     * 后台维护：回收超过idleTimeout的空闲连接(保留minIdle个)，并补足到minIdle
+     */
+    private void houseKeep() {
+        List<PooledConnection> expired = new ArrayList<>();
+        int toCreate;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            long now = System.nanoTime();
+            long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.idleTimeoutMillis);
+            // 从最久未使用的一端开始回收
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && totalConnections - expired.size() > config.minIdle) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastReturnedNanos > idleTimeoutNanos) {
+                    it.remove();
+                    expired.add(pc);
+                }
+            }
+            toCreate = Math.max(0, Math.min(config.minIdle - (idle.size() + activeConnections),
+                    config.maxSize - totalConnections));
+            totalConnections += toCreate;
+        } finally {
+            lock.unlock();
+        }
+        expired.forEach(this::destroy);
+
+        for (int i = 0; i < toCreate; i++) {
+            PooledConnection pc = null;
+            try {
+                pc = createPhysicalConnection();
+            } catch (SQLException e) {
+                System.err.println("连接池预热失败: " + e.getMessage());
+            }
+            lock.lock();
+            try {
+                if (pc == null) {
+                    totalConnections--;
+                } else if (!closed) {
+                    pc.lastReturnedNanos = System.nanoTime();
+                    idle.offerLast(pc);
+                    connectionReturned.signal();
+                    pc = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (pc != null) {
+                destroy(pc);
+            }
+        }
+    }
+
+    /**
+     * 池中的一个物理连接
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statements; // 为null表示未开启语句缓存
+        private volatile long lastReturnedNanos = System.nanoTime();
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = config.statementCacheSize > 0
+                    ? new StatementCache(physical, config.statementCacheSize, statementCacheHits, statementCacheMisses)
+                    : null;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new ConnectionHandle(this));
+        }
+    }
+
+    /**
+     * 每次借出都生成一个新的句柄，close()只生效一次，关闭后的句柄不能再使用
+     */
+    private final class ConnectionHandle implements InvocationHandler {
+        // 借出线程使用，归还后可能由其他线程 (例如关闭连接池时) 读到
+        private volatile PooledConnection pooled;
+
+        private ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            PooledConnection current = pooled;
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return current == null || current.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (current == null ? "closed" : current.physical) + "]";
+                case "prepareStatement":
+                    if (current != null && current.statements != null) {
+                        return current.statements.prepare(method, args, (Connection) proxy);
+                    }
+                    // 未开启缓存时按普通调用处理
+                    return invokePhysical(current, method, args);
+                default:
+                    return invokePhysical(current, method, args);
+            }
+        }
+
+        private void close() {
+            PooledConnection pc;
+            synchronized (this) {
+                pc = pooled;
+                pooled = null;
+            }
+            if (pc != null) {
+                release(pc);
+            }
+        }
+
+        private Object invokePhysical(PooledConnection current, Method method, Object[] args) throws Throwable {
+            if (current == null) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(current.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * 连接池配置
+     */
+    public static class Config {
+        private int minIdle = 2;
+        private int maxSize = 10;
+        private long idleTimeoutMillis = 10 * 60 * 1000L;
+        private long maxWaitMillis = 30 * 1000L;
+        private long validationIntervalMillis = 5 * 1000L;
+        private int validationTimeoutSeconds = 3;
+        private int statementCacheSize = 64;
+
+        public Config minIdle(int minIdle) { this.minIdle = minIdle; return this; }
+        public Config maxSize(int maxSize) { this.maxSize = maxSize; return this; }
+        public Config idleTimeoutMillis(long idleTimeoutMillis) { this.idleTimeoutMillis = idleTimeoutMillis; return this; }
+        public Config maxWaitMillis(long maxWaitMillis) { this.maxWaitMillis = maxWaitMillis; return this; }
+        public Config validationIntervalMillis(long validationIntervalMillis) { this.validationIntervalMillis = validationIntervalMillis; return this; }
+        public Config validationTimeoutSeconds(int validationTimeoutSeconds) { this.validationTimeoutSeconds = validationTimeoutSeconds; return this; }
+        public Config statementCacheSize(int statementCacheSize) { this.statementCacheSize = statementCacheSize; return this; }
+
+        public int getMinIdle() { return minIdle; }
+        public int getMaxSize() { return maxSize; }
+        public long getIdleTimeoutMillis() { return idleTimeoutMillis; }
+        public long getMaxWaitMillis() { return maxWaitMillis; }
+        public long getValidationIntervalMillis() { return validationIntervalMillis; }
+        public int getValidationTimeoutSeconds() { return validationTimeoutSeconds; }
+        public int getStatementCacheSize() { return statementCacheSize; }
+    }
+
+    /**
+     * 连接池统计快照
+     */
+    public static class Stats {
+        private final int active;
+        private final int idle;
+        private final int total;
+        private final int maxSize;
+        private final int waitingThreads;
+        private final long borrowCount;
+        private final long waitCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long timeoutCount;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long validationFailureCount;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+
+        Stats(int active, int idle, int total, int maxSize, int waitingThreads, long borrowCount, long waitCount,
+              long totalWaitNanos, long maxWaitNanos, long timeoutCount, long createdCount, long destroyedCount,
+              long validationFailureCount, long statementCacheHits, long statementCacheMisses) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.maxSize = maxSize;
+            this.waitingThreads = waitingThreads;
+            this.borrowCount = borrowCount;
+            this.waitCount = waitCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.timeoutCount = timeoutCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+            this.validationFailureCount = validationFailureCount;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getTotal() { return total; }
+        public int getMaxSize() { return maxSize; }
+        public int getWaitingThreads() { return waitingThreads; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getWaitCount() { return waitCount; }
+        public double getAverageWaitMillis() { return borrowCount == 0 ? 0 : totalWaitNanos / 1_000_000.0 / borrowCount; }
+        public double getMaxWaitMillis() { return maxWaitNanos / 1_000_000.0; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getCreatedCount() { return createdCount; }
+        public long getDestroyedCount() { return destroyedCount; }
+        public long getValidationFailureCount() { return validationFailureCount; }
+        public long getStatementCacheHits() { return statementCacheHits; }
+        public long getStatementCacheMisses() { return statementCacheMisses; }
+
+        @Override
+        public String toString() {
+            return "PoolStats{" +
+                    "active=" + active +
+                    ", idle=" + idle +
+                    ", total=" + total + "/" + maxSize +
+                    ", waiting=" + waitingThreads +
+                    ", borrows=" + borrowCount +
+                    ", waits=" + waitCount +
+                    ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) +
+                    ", maxWaitMs=" + String.format("%.3f", getMaxWaitMillis()) +
+                    ", timeouts=" + timeoutCount +
+                    ", created=" + createdCount +
+                    ", destroyed=" + destroyedCount +
+                    ", stmtCacheHits=" + statementCacheHits +
+                    ", stmtCacheMisses=" + statementCacheMisses +
+                    '}';
+        }
+    }
+}
@@ -1,22 +1,86 @@
 package com.company.docmgmt.documentmanagementsystem.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseUtil {
     // !!! 请务必修改成你自己的数据库配置 !!!
-    private static final String URL = "jdbc:mysql://localhost:3306/doc_management_db?serverTimezone=UTC";
-    private static final String USER = "root";       // 你的MySQL用户名
-    private static final String PASSWORD = "xjtuse"; // 你的MySQL密码
+    // useCursorFetch=true 让MySQL驱动按fetchSize分批读取结果集，而不是一次性把结果全部读入内存
+    // rewriteBatchedStatements=true 让MySQL驱动把批量INSERT改写成一条多值语句，批量导入时减少网络往返
+    // useServerPrepStmts=true 使用服务端预处理语句：连接池按连接缓存PreparedStatement，复用时服务端不再重新解析SQL
+    // (驱动自带的cachePrepStmts保持关闭，缓存由连接池负责)
+    // 也可以通过系统属性覆盖，例如 -Ddocmgmt.db.url=jdbc:h2:mem:docmgmt;DB_CLOSE_DELAY=-1 使用H2进行测试
+    private static final String URL = System.getProperty("docmgmt.db.url", "jdbc:mysql://localhost:3306/doc_management_db?serverTimezone=UTC&useCursorFetch=true&rewriteBatchedStatements=true&useServerPrepStmts=true");
+    private static final String USER = System.getProperty("docmgmt.db.user", "root");           // 你的MySQL用户名
+    private static final String PASSWORD = System.getProperty("docmgmt.db.password", "xjtuse"); // 你的MySQL密码
+
+    // 连接池配置，同样可以通过系统属性覆盖
+    private static final ConnectionPool.Config POOL_CONFIG = new ConnectionPool.Config()
+            .minIdle(Integer.getInteger("docmgmt.pool.minIdle", 2))
+            .maxSize(Integer.getInteger("docmgmt.pool.maxSize", 10))
+            .idleTimeoutMillis(Long.getLong("docmgmt.pool.idleTimeoutMs", 10 * 60 * 1000L))
+            .maxWaitMillis(Long.getLong("docmgmt.pool.maxWaitMs", 30 * 1000L))
+            .validationIntervalMillis(Long.getLong("docmgmt.pool.validationIntervalMs", 5 * 1000L))
+            .validationTimeoutSeconds(Integer.getInteger("docmgmt.pool.validationTimeoutSec", 3))
+            .statementCacheSize(Integer.getInteger("docmgmt.pool.statementCacheSize", 64)); // 每个连接缓存的语句数，0表示关闭
+
+    private static volatile ConnectionPool pool;
 
     /**
      * 获取数据库连接
+     * 连接来自连接池，使用完毕后调用close()即归还到池中；
+     * 开启语句跟踪时(默认开启)，在该连接上执行的慢语句会记录到 {@link SlowQueryLog}
+     * 当前线程在 {@link UnitOfWork} 中时返回工作单元的连接，事务由工作单元提交
      * @return 数据库连接对象
      * @throws SQLException 如果连接失败
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        Connection bound = UnitOfWork.join();
+        if (bound != null) {
+            return bound;
+        }
+        Connection connection = getPool().getConnection();
+        return SlowQueryLog.isEnabled() ? StatementTracer.wrap(connection) : connection;
+    }
+
+    /**
+     * 当前连接的数据库的JDBC URL，本地副本据此区分不同的数据库
+     * @return JDBC URL
+     */
+    public static String getUrl() {
+        return URL;
+    }
+
+    /**
+     * 获取连接池的统计信息(活跃数、空闲数、等待时间等)
+     * @return 统计快照
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * 关闭连接池，应用退出时调用
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseUtil.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(URL, USER, PASSWORD, POOL_CONFIG);
+                    pool = p;
+                }
+            }
+        }
+        return p;
     }
 
     // =============================================================
@@ -32,6 +96,7 @@ public class DatabaseUtil {
                 System.out.println("==========================================");
                 System.out.println("数据库产品名称: " + connection.getMetaData().getDatabaseProductName());
                 System.out.println("数据库产品版本: " + connection.getMetaData().getDatabaseProductVersion());
+                System.out.println("连接池状态: " + getPoolStats());
             }
         } catch (SQLException e) {
             System.err.println("==========================================");
@@ -43,6 +108,8 @@ public class DatabaseUtil {
             System.err.println("3. pom.xml中是否已添加MySQL驱动依赖？");
             System.err.println("\n--- 详细错误信息 ---");
             e.printStackTrace();
+        } finally {
+            shutdown();
         }
     }
 }
\ No newline at end of file
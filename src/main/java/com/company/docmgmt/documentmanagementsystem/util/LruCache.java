@@ -0,0 +1,214 @@
+package com.company.docmgmt.documentmanagementsystem.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * 线程安全的有界LRU缓存
+ * 同时按条目数和总权重(例如正文字符数)限制大小，可选按写入时间过期(TTL)，并记录命中/未命中/淘汰统计。
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class LruCache<K, V> {
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final ToLongFunction<V> weigher;
+
+    private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    // 每次失效加一；加载期间发生过失效的值不写回缓存，避免把刚被修改前读到的旧数据放进去
+    private long invalidationStamp;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expirationCount;
+
+    /**
+     * @param maxEntries 最大条目数，0表示不缓存
+     * @param maxWeight 最大总权重
+     * @param ttlMillis 写入后多久过期，0表示不过期
+     * @param weigher 计算单个值的权重
+     */
+    public LruCache(int maxEntries, long maxWeight, long ttlMillis, ToLongFunction<V> weigher) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.weigher = weigher;
+    }
+
+    /**
+     * 查询缓存
+     * @param key 键
+     * @return 未命中或已过期时为空
+     */
+    public synchronized Optional<V> get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            missCount++;
+            return Optional.empty();
+        }
+        if (isExpired(entry, System.nanoTime())) {
+            removeEntry(key);
+            expirationCount++;
+            missCount++;
+            return Optional.empty();
+        }
+        hitCount++;
+        return Optional.of(entry.value);
+    }
+
+    /**
+     * 读穿透：未命中时调用loader加载并写入缓存
+     * loader在锁外执行，并发未命中同一个键时可能会加载多次，但不会阻塞其他键的读取
+     * @param key 键
+     * @param loader 加载函数，返回空表示数据不存在(不缓存)
+     * @return 缓存或加载得到的值
+     */
+    public Optional<V> getOrLoad(K key, Function<K, Optional<V>> loader) {
+        long stamp;
+        synchronized (this) {
+            Optional<V> cached = get(key);
+            if (cached.isPresent()) {
+                return cached;
+            }
+            stamp = invalidationStamp;
+        }
+        Optional<V> loaded = loader.apply(key);
+        loaded.ifPresent(value -> {
+            synchronized (this) {
+                if (stamp == invalidationStamp) {
+                    put(key, value);
+                }
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * 写入缓存，超出条目数或总权重时从最久未访问的一端淘汰
+     * @param key 键
+     * @param value 值
+     */
+    public synchronized void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (maxEntries <= 0 || weight > maxWeight) {
+            removeEntry(key);
+            return; // 单个值超过上限，直接不缓存
+        }
+        Entry<V> old = map.put(key, new Entry<>(value, weight, System.nanoTime() + ttlNanos));
+        if (old != null) {
+            totalWeight -= old.weight;
+        }
+        totalWeight += weight;
+
+        Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+        while ((map.size() > maxEntries || totalWeight > maxWeight) && it.hasNext()) {
+            Map.Entry<K, Entry<V>> eldest = it.next();
+            it.remove();
+            totalWeight -= eldest.getValue().weight;
+            evictionCount++;
+        }
+    }
+
+    /**
+     * 使某个键失效
+     * @param key 键
+     */
+    public synchronized void invalidate(K key) {
+        invalidationStamp++;
+        removeEntry(key);
+    }
+
+    /**
+     * 清空缓存(统计信息保留)
+     */
+    public synchronized void invalidateAll() {
+        invalidationStamp++;
+        map.clear();
+        totalWeight = 0;
+    }
+
+    /**
+     * 获取统计快照
+     * @return 统计信息
+     */
+    public synchronized Stats getStats() {
+        return new Stats(map.size(), totalWeight, hitCount, missCount, evictionCount, expirationCount);
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return ttlNanos > 0 && now - entry.expiresAtNanos > 0;
+    }
+
+    private void removeEntry(K key) {
+        Entry<V> removed = map.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long expiresAtNanos;
+
+        private Entry(V value, long weight, long expiresAtNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    /**
+     * 缓存统计快照
+     */
+    public static class Stats {
+        private final int size;
+        private final long weight;
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long expirationCount;
+
+        Stats(int size, long weight, long hitCount, long missCount, long evictionCount, long expirationCount) {
+            this.size = size;
+            this.weight = weight;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.expirationCount = expirationCount;
+        }
+
+        public int getSize() { return size; }
+        public long getWeight() { return weight; }
+        public long getHitCount() { return hitCount; }
+        public long getMissCount() { return missCount; }
+        public long getEvictionCount() { return evictionCount; }
+        public long getExpirationCount() { return expirationCount; }
+        public double getHitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 0 : (double) hitCount / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{" +
+                    "size=" + size +
+                    ", weight=" + weight +
+                    ", hits=" + hitCount +
+                    ", misses=" + missCount +
+                    ", hitRate=" + String.format("%.2f", getHitRate()) +
+                    ", evictions=" + evictionCount +
+                    ", expirations=" + expirationCount +
+                    '}';
+        }
+    }
+}
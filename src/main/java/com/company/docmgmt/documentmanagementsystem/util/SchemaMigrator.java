@@ -0,0 +1,267 @@
+package com.company.docmgmt.documentmanagementsystem.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 带版本号的表结构迁移
+ * 迁移脚本放在 db/migration/&lt;方言&gt;/ 下，按版本号顺序执行，已执行的版本及脚本校验和记录在 schema_version 表中。
+ * 新增迁移时只追加新版本的脚本(MySQL和H2各一份)并登记到 {@link #MIGRATIONS}，不要修改已发布的脚本。
+ * 可以通过 -Ddocmgmt.db.migrate=false 关闭(例如数据库账号没有DDL权限时)。
+ */
+public final class SchemaMigrator {
+
+    private static final String RESOURCE_DIR = "/com/company/docmgmt/documentmanagementsystem/db/migration/";
+
+    // 按版本号顺序登记，文件名格式 V<版本>__<说明>.sql
+    private static final String[] MIGRATIONS = {
+            "V1__create_tables.sql",
+            "V2__add_indexes.sql",
+            "V3__seed_roles_and_permissions.sql",
+            "V4__add_document_version.sql",
+            "V5__add_document_chunks.sql",
+            "V6__add_content_blobs.sql",
+            "V7__add_document_tombstones.sql",
+            "V8__add_document_events.sql",
+            "V9__add_document_revisions.sql",
+    };
+
+    // MySQL: 表已存在 / 列已存在 / 索引名已存在。DDL在MySQL中会隐式提交，脚本中途失败后重新执行时跳过已经完成的语句
+    private static final int MYSQL_TABLE_EXISTS = 1050;
+    private static final int MYSQL_DUPLICATE_COLUMN_NAME = 1060;
+    private static final int MYSQL_DUPLICATE_KEY_NAME = 1061;
+
+    // 多个应用实例同时启动时，只让一个实例执行迁移
+    private static final String MYSQL_LOCK_NAME = "docmgmt_schema_migration";
+    private static final int MYSQL_LOCK_TIMEOUT_SECONDS = 60;
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * 把数据库升级到最新版本，应用启动时在第一次访问DAO之前调用
+     * @return 本次执行的迁移数
+     */
+    public static int migrate() {
+        if (!Boolean.parseBoolean(System.getProperty("docmgmt.db.migrate", "true"))) {
+            return 0;
+        }
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            Dialect dialect = Dialect.of(conn);
+            if (dialect == Dialect.MYSQL) {
+                acquireLock(conn);
+            }
+            try {
+                return migrate(conn, dialect);
+            } finally {
+                if (dialect == Dialect.MYSQL) {
+                    releaseLock(conn);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to migrate database schema", e);
+        }
+    }
+
+    private static int migrate(Connection conn, Dialect dialect) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT NOT NULL PRIMARY KEY, " +
+                    "description VARCHAR(200) NOT NULL, " +
+                    "checksum VARCHAR(64) NOT NULL, " +
+                    "installed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "execution_ms BIGINT NOT NULL)");
+        }
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+
+        int count = 0;
+        for (String fileName : MIGRATIONS) {
+            Migration migration = Migration.load(dialect, fileName);
+            String appliedChecksum = applied.get(migration.version);
+            if (appliedChecksum != null) {
+                if (!appliedChecksum.equals(migration.checksum)) {
+                    System.err.println("[schema] 警告：已执行的迁移 V" + migration.version + " 的脚本已被修改，校验和与数据库记录不一致");
+                }
+                continue;
+            }
+            apply(conn, dialect, migration);
+            count++;
+        }
+        if (count > 0) {
+            System.out.println("[schema] 已执行 " + count + " 个迁移，当前版本 V" + Migration.versionOf(MIGRATIONS[MIGRATIONS.length - 1]));
+        }
+        return count;
+    }
+
+    private static void apply(Connection conn, Dialect dialect, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : migration.statements) {
+                try {
+                    stmt.execute(sql);
+                } catch (SQLException e) {
+                    if (!dialect.isAlreadyExists(e)) {
+                        throw e;
+                    }
+                    System.out.println("[schema] V" + migration.version + " 跳过已存在的对象: " + e.getMessage());
+                }
+            }
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO schema_version (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)")) {
+                insert.setInt(1, migration.version);
+                insert.setString(2, migration.description);
+                insert.setString(3, migration.checksum);
+                insert.setLong(4, (System.nanoTime() - start) / 1_000_000);
+                insert.executeUpdate();
+            }
+            conn.commit();
+            System.out.println("[schema] 已执行迁移 V" + migration.version + " " + migration.description);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, MYSQL_LOCK_NAME);
+            stmt.setInt(2, MYSQL_LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for schema migration lock");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, MYSQL_LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 数据库方言，决定使用哪一套迁移脚本
+     */
+    enum Dialect {
+        MYSQL("mysql"),
+        H2("h2");
+
+        private final String directory;
+
+        Dialect(String directory) {
+            this.directory = directory;
+        }
+
+        static Dialect of(Connection conn) throws SQLException {
+            String product = conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+            if (product.contains("mysql") || product.contains("mariadb")) {
+                return MYSQL;
+            }
+            if (product.contains("h2")) {
+                return H2;
+            }
+            throw new SQLException("Unsupported database: " + product);
+        }
+
+        boolean isAlreadyExists(SQLException e) {
+            return this == MYSQL
+                    && (e.getErrorCode() == MYSQL_TABLE_EXISTS || e.getErrorCode() == MYSQL_DUPLICATE_COLUMN_NAME
+                    || e.getErrorCode() == MYSQL_DUPLICATE_KEY_NAME);
+        }
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final String checksum;
+        private final List<String> statements;
+
+        private Migration(int version, String description, String checksum, List<String> statements) {
+            this.version = version;
+            this.description = description;
+            this.checksum = checksum;
+            this.statements = statements;
+        }
+
+        static Migration load(Dialect dialect, String fileName) {
+            String path = RESOURCE_DIR + dialect.directory + "/" + fileName;
+            String script;
+            try (InputStream in = SchemaMigrator.class.getResourceAsStream(path)) {
+                if (in == null) {
+                    throw new IllegalStateException("Migration script not found: " + path);
+                }
+                script = new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read migration script " + path, e);
+            }
+            String description = fileName.substring(fileName.indexOf("__") + 2, fileName.length() - ".sql".length());
+            return new Migration(versionOf(fileName), description, sha256(script), split(script));
+        }
+
+        static int versionOf(String fileName) {
+            return Integer.parseInt(fileName.substring(1, fileName.indexOf("__")));
+        }
+
+        /**
+         * 按行尾的分号拆分语句，忽略 -- 注释行；脚本中的字符串常量不能跨行包含分号
+         */
+        private static List<String> split(String script) {
+            List<String> statements = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            for (String line : script.split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                current.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    String sql = current.toString().trim();
+                    statements.add(sql.substring(0, sql.length() - 1));
+                    current.setLength(0);
+                }
+            }
+            if (!current.toString().isBlank()) {
+                statements.add(current.toString().trim());
+            }
+            return statements;
+        }
+
+        private static String sha256(String script) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                return HexFormat.of().formatHex(digest.digest(script.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.company.docmgmt.documentmanagementsystem.util;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 慢查询日志
+ * 通过 {@link DatabaseUtil#getConnection()} 获得的连接上执行的每条语句都会被计时，
+ * 执行时间 + 读取结果集时间超过阈值的语句连同参数、行数和调用方一起放入环形缓冲区，只保留最近的若干条。
+ * <ul>
+ *     <li>-Ddocmgmt.slowQuery.thresholdMs=200 阈值(毫秒)，0表示记录所有语句，负数表示完全关闭语句跟踪</li>
+ *     <li>-Ddocmgmt.slowQuery.capacity=256 缓冲区容量</li>
+ *     <li>-Ddocmgmt.slowQuery.print=true 记录时是否同时输出到System.err</li>
+ * </ul>
+ */
+public final class SlowQueryLog {
+
+    private static final int CAPACITY = Math.max(1, Integer.getInteger("docmgmt.slowQuery.capacity", 256));
+    private static final boolean PRINT = Boolean.parseBoolean(System.getProperty("docmgmt.slowQuery.print", "true"));
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static volatile long thresholdNanos = millisToNanos(Long.getLong("docmgmt.slowQuery.thresholdMs", 200L));
+
+    private static final Entry[] ring = new Entry[CAPACITY];
+    private static int next;        // 下一个写入位置
+    private static long totalLogged; // 累计记录的慢查询数(包括已被覆盖的)
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * @return 是否开启语句跟踪 (阈值为负数时关闭，连接不再被包装)
+     */
+    public static boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    /**
+     * 运行时调整阈值；对关闭前已借出的连接无效
+     * @param thresholdMillis 阈值(毫秒)，负数表示关闭
+     */
+    public static void setThresholdMillis(long thresholdMillis) {
+        thresholdNanos = millisToNanos(thresholdMillis);
+    }
+
+    public static long getThresholdMillis() {
+        return thresholdNanos < 0 ? -1 : thresholdNanos / 1_000_000;
+    }
+
+    static boolean isSlow(long totalNanos) {
+        long threshold = thresholdNanos;
+        return threshold >= 0 && totalNanos >= threshold;
+    }
+
+    static void record(Entry entry) {
+        synchronized (ring) {
+            ring[next] = entry;
+            next = (next + 1) % CAPACITY;
+            totalLogged++;
+        }
+        if (PRINT) {
+            System.err.println("[slow-query] " + entry);
+        }
+    }
+
+    /**
+     * @return 缓冲区中的慢查询，最新的在前
+     */
+    public static List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>(CAPACITY);
+        synchronized (ring) {
+            for (int i = 1; i <= CAPACITY; i++) {
+                Entry entry = ring[(next - i + CAPACITY) % CAPACITY];
+                if (entry == null) {
+                    break;
+                }
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 导出缓冲区内容，便于按需排查
+     * @return 每条慢查询一行，最新的在前
+     */
+    public static String dump() {
+        List<Entry> entries = snapshot();
+        long total;
+        synchronized (ring) {
+            total = totalLogged;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("# slow queries: threshold=").append(getThresholdMillis()).append("ms, buffered=")
+                .append(entries.size()).append(", total=").append(total).append('\n');
+        for (Entry entry : entries) {
+            sb.append(entry).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 清空缓冲区
+     */
+    public static void clear() {
+        synchronized (ring) {
+            Arrays.fill(ring, null);
+            next = 0;
+        }
+    }
+
+    private static long millisToNanos(long millis) {
+        return millis < 0 ? -1 : millis * 1_000_000;
+    }
+
+    /**
+     * 一条慢查询记录
+     */
+    public static final class Entry {
+        private final LocalDateTime time;
+        private final String sql;
+        private final String parameters;
+        private final int batchSize;
+        private final long executeNanos;
+        private final long fetchNanos;
+        private final long rows;
+        private final String caller;
+        private final String thread;
+
+        Entry(LocalDateTime time, String sql, String parameters, int batchSize, long executeNanos, long fetchNanos,
+              long rows, String caller, String thread) {
+            this.time = time;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.batchSize = batchSize;
+            this.executeNanos = executeNanos;
+            this.fetchNanos = fetchNanos;
+            this.rows = rows;
+            this.caller = caller;
+            this.thread = thread;
+        }
+
+        public LocalDateTime getTime() { return time; }
+        public String getSql() { return sql; }
+        public String getParameters() { return parameters; }
+        public int getBatchSize() { return batchSize; }
+        public double getExecuteMillis() { return executeNanos / 1e6; }
+        public double getFetchMillis() { return fetchNanos / 1e6; }
+        public double getTotalMillis() { return (executeNanos + fetchNanos) / 1e6; }
+        public long getRows() { return rows; }
+        public String getCaller() { return caller; }
+        public String getThread() { return thread; }
+
+        @Override
+        public String toString() {
+            return TIME_FORMAT.format(time) +
+                    String.format(" total=%.3fms exec=%.3fms fetch=%.3fms rows=%d",
+                            getTotalMillis(), getExecuteMillis(), getFetchMillis(), rows) +
+                    (batchSize > 0 ? " batch=" + batchSize : "") +
+                    " caller=" + caller +
+                    " thread=" + thread +
+                    " sql=[" + sql + "]" +
+                    " params=" + parameters;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.company.docmgmt.documentmanagementsystem.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个物理连接上的PreparedStatement缓存 (LRU)
+ * DAO照常调用 prepareStatement(sql) 和 close()：同一SQL(及相同的结果集/生成键选项)第二次准备时直接复用已解析的语句，
+ * close()只是清空参数并放回缓存。配合MySQL的服务端预处理语句，省去每次调用的解析和执行计划开销。
+ * 同一连接上同时打开同一SQL的两个语句时，第二个不走缓存，按普通语句处理。
+ * 只在借到该连接的线程中使用，连接池保证同一时间只有一个使用者。
+ */
+final class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 命中/未命中计数由连接池汇总
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    StatementCache(Connection physical, int maxSize, LongAdder hits, LongAdder misses) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * 准备语句，命中缓存时返回缓存中的语句
+     * @param method Connection上被调用的prepareStatement重载
+     * @param args 调用参数，第一个是SQL
+     * @param connectionHandle 借出的连接句柄，作为语句的getConnection()返回值
+     * @return 语句代理，close()即归还
+     */
+    synchronized PreparedStatement prepare(Method method, Object[] args, Connection connectionHandle) throws Throwable {
+        Key key = new Key((String) args[0], args.length == 1 ? null : Arrays.copyOfRange(args, 1, args.length));
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            hits.increment();
+        } else if (entry == null) {
+            misses.increment();
+            entry = new Entry(key, (PreparedStatement) invoke(physical, method, args));
+            entries.put(key, entry);
+            evictIfNeeded();
+        } else {
+            // 同一SQL正在使用中，临时创建一个不缓存的语句
+            misses.increment();
+            return (PreparedStatement) invoke(physical, method, args);
+        }
+        entry.inUse = true;
+        Lease lease = new Lease(entry, connectionHandle);
+        entry.lease = lease;
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, lease);
+    }
+
+    /**
+     * 连接归还到池时调用：强制收回使用者忘记关闭的语句
+     */
+    synchronized void releaseAll() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (entry.inUse) {
+                giveBack(entry);
+            }
+        }
+    }
+
+    /**
+     * 关闭所有缓存的语句，物理连接销毁前调用
+     */
+    synchronized void close() {
+        for (Entry entry : entries.values()) {
+            closeQuietly(entry.statement);
+        }
+        entries.clear();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.inUse) {
+                continue; // 正在使用的语句不淘汰，归还时再检查
+            }
+            it.remove();
+            closeQuietly(eldest.statement);
+        }
+    }
+
+    private synchronized void giveBack(Entry entry) {
+        if (entry.lease != null) {
+            entry.lease.returned = true;
+            entry.lease = null;
+        }
+        entry.inUse = false;
+        try {
+            // 重置到刚准备好时的状态，下一个使用者看不到上一次的参数和结果集
+            ResultSet open = entry.statement.getResultSet();
+            if (open != null) {
+                open.close();
+            }
+            entry.statement.clearParameters();
+            if (entry.batched) {
+                entry.statement.clearBatch();
+                entry.batched = false;
+            }
+            if (entry.settingsChanged) {
+                entry.statement.setFetchSize(0);
+                entry.statement.setMaxRows(0);
+                entry.statement.setQueryTimeout(0);
+                entry.settingsChanged = false;
+            }
+        } catch (SQLException e) {
+            // 语句已不可用，从缓存中移除
+            entries.remove(entry.key);
+            closeQuietly(entry.statement);
+            return;
+        }
+        evictIfNeeded();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // 连接可能已断开，忽略
+        }
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final Object[] options; // 结果集类型/并发/生成键等重载参数，null表示 prepareStatement(sql)
+        private final int hash;
+
+        private Key(String sql, Object[] options) {
+            this.sql = sql;
+            this.options = options;
+            this.hash = 31 * sql.hashCode() + Arrays.deepHashCode(options);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && sql.equals(other.sql) && Arrays.deepEquals(options, other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final Key key;
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean batched;
+        private boolean settingsChanged;
+        private Lease lease;
+
+        private Entry(Key key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * 一次借用；归还后该代理不能再使用
+     */
+    private final class Lease implements InvocationHandler {
+        private final Entry entry;
+        private final Connection connectionHandle;
+        private volatile boolean returned;
+
+        private Lease(Entry entry, Connection connectionHandle) {
+            this.entry = entry;
+            this.connectionHandle = connectionHandle;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        giveBack(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.statement.isClosed();
+                case "getConnection":
+                    return connectionHandle;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.key.sql + "]";
+                case "addBatch":
+                    entry.batched = true;
+                    break;
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setQueryTimeout":
+                    entry.settingsChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Statement has already been returned to the cache");
+            }
+            return StatementCache.invoke(entry.statement, method, args);
+        }
+    }
+}
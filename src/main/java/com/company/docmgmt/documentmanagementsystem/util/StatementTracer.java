@@ -0,0 +1,375 @@
+package com.company.docmgmt.documentmanagementsystem.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC语句跟踪：包装Connection，使其创建的Statement/PreparedStatement/ResultSet都带计时
+ * 记录SQL、绑定参数、执行时间、读取结果集时间(所有next()调用的耗时之和)和行数，
+ * 超过阈值的交给 {@link SlowQueryLog}。users.password列对应的参数在记录时会被替换为***。
+ */
+final class StatementTracer {
+
+    // 字符串参数最多保留的长度，避免把整篇文档内容放进日志
+    private static final int MAX_PARAMETER_LENGTH = 100;
+    private static final String REDACTED = "***";
+
+    // SQL -> 需要脱敏的参数位置(从1开始)；DAO中的SQL数量有限，只缓存前若干条
+    private static final int MAX_CACHED_SQL = 1024;
+    private static final Map<String, boolean[]> REDACTION_CACHE = new ConcurrentHashMap<>();
+    private static final boolean[] NO_REDACTION = new boolean[0];
+
+    private static final Pattern INSERT_USERS = Pattern.compile(
+            "insert\\s+into\\s+`?users`?\\s*\\(([^)]*)\\)\\s*values\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMPARED_COLUMN = Pattern.compile(
+            "([\\w.`]+)\\s*(=|<>|!=|like)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private StatementTracer() {
+    }
+
+    /**
+     * 包装一个连接
+     * @param connection 原连接 (通常是连接池借出的句柄)
+     * @return 带跟踪的连接，close()等调用原样转发
+     */
+    static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        private ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Traced" + target;
+                default:
+                    break;
+            }
+            Object result = invokeTarget(target, method, args);
+            if (result instanceof CallableStatement) {
+                return wrapStatement(result, CallableStatement.class, (String) args[0], proxy);
+            }
+            if (result instanceof PreparedStatement) {
+                return wrapStatement(result, PreparedStatement.class, (String) args[0], proxy);
+            }
+            if (result instanceof Statement) {
+                return wrapStatement(result, Statement.class, null, proxy);
+            }
+            return result;
+        }
+    }
+
+    private static Object wrapStatement(Object statement, Class<?> type, String sql, Object connectionProxy) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new StatementHandler((Statement) statement, sql, connectionProxy));
+    }
+
+    /**
+     * 一条语句的跟踪状态；同一个PreparedStatement可以执行多次，每次执行单独计时
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Object connectionProxy;
+        private String sql;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private int batchSize;
+
+        // 当前正在读取的结果集的跟踪数据
+        private boolean pending;
+        private long executeNanos;
+        private long fetchNanos;
+        private long rows;
+        private String pendingParameters;
+        private int pendingBatchSize;
+
+        private StatementHandler(Statement target, String sql, Object connectionProxy) {
+            this.target = target;
+            this.sql = sql;
+            this.connectionProxy = connectionProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Traced" + target;
+                case "getConnection":
+                    return connectionProxy;
+                case "close":
+                    finish();
+                    return invokeTarget(target, method, args);
+                case "clearParameters":
+                    parameters.clear();
+                    return invokeTarget(target, method, args);
+                case "addBatch":
+                    if (args != null && args.length == 1 && args[0] instanceof String) {
+                        sql = (String) args[0]; // Statement.addBatch(String)
+                    }
+                    batchSize++;
+                    return invokeTarget(target, method, args);
+                case "clearBatch":
+                    batchSize = 0;
+                    return invokeTarget(target, method, args);
+                default:
+                    break;
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                // setInt/setString/setTimestamp/setNull... (只记录第一组批量参数之前的最新值)
+                if (batchSize == 0) {
+                    parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                }
+                return invokeTarget(target, method, args);
+            }
+            if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+            if (name.equals("getResultSet")) {
+                Object result = invokeTarget(target, method, args);
+                return result instanceof ResultSet && pending ? wrapResultSet((ResultSet) result, proxy) : result;
+            }
+            return invokeTarget(target, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            finish(); // 上一次执行的结果集还没关闭，先结算
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                sql = (String) args[0]; // Statement.execute(String)...
+            }
+            long start = System.nanoTime();
+            Object result = invokeTarget(target, method, args);
+            executeNanos = System.nanoTime() - start;
+            fetchNanos = 0;
+            rows = 0;
+            pendingParameters = formatParameters();
+            pendingBatchSize = batchSize;
+            batchSize = 0;
+            pending = true;
+
+            if (result instanceof ResultSet) {
+                return wrapResultSet((ResultSet) result, proxy); // 读完或关闭结果集时结算
+            }
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+                }
+            } else if (result instanceof Number) {
+                rows = ((Number) result).longValue();
+            } else if (Boolean.FALSE.equals(result)) {
+                rows = Math.max(0, target.getUpdateCount());
+            } else {
+                return result; // execute()返回true，结果集通过getResultSet()读取
+            }
+            finish();
+            return result;
+        }
+
+        private ResultSet wrapResultSet(ResultSet resultSet, Object statementProxy) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next": {
+                                long start = System.nanoTime();
+                                Object hasNext = invokeTarget(resultSet, method, args);
+                                fetchNanos += System.nanoTime() - start;
+                                if (Boolean.TRUE.equals(hasNext)) {
+                                    rows++;
+                                }
+                                return hasNext;
+                            }
+                            case "close":
+                                finish();
+                                return invokeTarget(resultSet, method, args);
+                            case "getStatement":
+                                return statementProxy;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                return invokeTarget(resultSet, method, args);
+                        }
+                    });
+        }
+
+        private void finish() {
+            if (!pending) {
+                return;
+            }
+            pending = false;
+            if (SlowQueryLog.isSlow(executeNanos + fetchNanos)) {
+                SlowQueryLog.record(new SlowQueryLog.Entry(LocalDateTime.now(), sql, pendingParameters, pendingBatchSize,
+                        executeNanos, fetchNanos, rows, findCaller(), Thread.currentThread().getName()));
+            }
+        }
+
+        private String formatParameters() {
+            if (parameters.isEmpty()) {
+                return "[]";
+            }
+            boolean[] redacted = redactedParameters(sql);
+            StringBuilder sb = new StringBuilder("[");
+            for (Map.Entry<Integer, Object> entry : parameters.entrySet()) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                int index = entry.getKey();
+                sb.append(index).append('=');
+                if (index < redacted.length && redacted[index]) {
+                    sb.append(REDACTED);
+                } else {
+                    sb.append(formatValue(entry.getValue()));
+                }
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    private static String formatValue(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof String) {
+            String s = (String) value;
+            return s.length() > MAX_PARAMETER_LENGTH
+                    ? "'" + s.substring(0, MAX_PARAMETER_LENGTH) + "...'(" + s.length() + " chars)"
+                    : "'" + s + "'";
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof java.util.Date
+                || value instanceof java.time.temporal.Temporal) {
+            return value.toString();
+        }
+        return "<" + value.getClass().getSimpleName() + ">"; // 流、LOB、字节数组等
+    }
+
+    /**
+     * 找出SQL中对应users.password列的占位符位置
+     * 支持 INSERT INTO users (...) VALUES (...) 的列表对应关系，以及 password = ? 形式的赋值/比较
+     */
+    static boolean[] redactedParameters(String sql) {
+        if (sql == null) {
+            return NO_REDACTION;
+        }
+        boolean[] cached = REDACTION_CACHE.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        boolean[] result = computeRedactedParameters(sql);
+        if (REDACTION_CACHE.size() < MAX_CACHED_SQL) {
+            REDACTION_CACHE.put(sql, result);
+        }
+        return result;
+    }
+
+    private static boolean[] computeRedactedParameters(String sql) {
+        String lower = sql.toLowerCase(Locale.ROOT);
+        if (!lower.contains("password") || !lower.matches("(?s).*\\busers\\b.*")) {
+            return NO_REDACTION;
+        }
+        int placeholders = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                placeholders++;
+            }
+        }
+        boolean[] redacted = new boolean[placeholders + 1];
+
+        Matcher insert = INSERT_USERS.matcher(sql);
+        if (insert.find()) {
+            String[] columns = insert.group(1).split(",");
+            String[] values = insert.group(2).split(",");
+            int placeholderIndex = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i].trim().equals("?")) {
+                    placeholderIndex++;
+                    if (i < columns.length && isPasswordColumn(columns[i])) {
+                        redacted[placeholderIndex] = true;
+                    }
+                }
+            }
+            return redacted;
+        }
+
+        int placeholderIndex = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) != '?') {
+                continue;
+            }
+            placeholderIndex++;
+            Matcher compared = COMPARED_COLUMN.matcher(sql.substring(Math.max(0, i - 64), i));
+            if (compared.find() && isPasswordColumn(compared.group(1))) {
+                redacted[placeholderIndex] = true;
+            }
+        }
+        return redacted;
+    }
+
+    private static boolean isPasswordColumn(String column) {
+        String name = column.trim().replace("`", "");
+        int dot = name.lastIndexOf('.');
+        return name.substring(dot + 1).equalsIgnoreCase("password");
+    }
+
+    /**
+     * 只在确认是慢查询时才调用：取调用栈中第一个DAO/服务层的栈帧
+     */
+    private static String findCaller() {
+        String fallback = "unknown";
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.contains(".dao.") || className.contains(".service.")) {
+                return frame.getClassName().substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+            }
+            if (fallback.equals("unknown") && !className.startsWith("java.") && !className.startsWith("jdk.")
+                    && !className.startsWith("com.sun.proxy") && !className.contains("$Proxy")
+                    && !className.equals(StatementTracer.class.getName())
+                    && !className.startsWith(StatementTracer.class.getName() + "$")) {
+                fallback = frame.getClassName() + "." + frame.getMethodName();
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,269 @@
+package com.company.docmgmt.documentmanagementsystem.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 工作单元：把多次DAO调用放进同一个连接和同一个事务，最后只提交一次
+ * <pre>
+ * UnitOfWork.execute(() -&gt; {
+ *     documentDao.save(document);
+ *     resolver.assignRole(userId, roleId);
+ *     resolver.grantPermission(roleId, "document:edit:own");
+ *     return null;
+ * });
+ * </pre>
+ * 执行期间连接绑定在当前线程上，{@link DatabaseUtil#getConnection()} 返回的都是这个连接的句柄，
+ * DAO不需要任何修改就加入同一个事务：句柄上的 setAutoCommit/commit 不生效，close() 不归还连接，
+ * 事务由工作单元在结束时统一提交或回滚。整个单元只借用一次连接、只提交一次 (一次日志刷盘)，并且是原子的。
+ * <p>
+ * 回滚的情况：work 抛出异常 (原样抛出)；调用了 {@link #setRollbackOnly()}；单元内有语句执行失败。
+ * DAO通常捕获 SQLException 后返回失败值，所以失败的语句由工作单元自己记录，结束时回滚并抛出 SQLException，
+ * 不会只提交其余的部分。DAO返回 CONFLICT 等业务失败时不会自动回滚，由调用方决定是否 setRollbackOnly()。
+ * <p>
+ * 嵌套调用加入外层的工作单元，由最外层提交。连接只绑定在当前线程上，单元内不要把工作交给其他线程执行。
+ * 缓存、索引等需要在提交之后才能更新的状态通过 {@link #afterCommit(Runnable)} 登记；
+ * 填充缓存的读取通过 {@link #outside(Supplier)} 执行，不会把未提交的数据放进缓存。
+ */
+public final class UnitOfWork {
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final Connection connection;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private SQLException failure;
+    private boolean rollbackOnly;
+
+    private UnitOfWork(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * 单元中执行的工作
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T execute() throws SQLException;
+    }
+
+    /**
+     * 在一个工作单元中执行，成功时提交一次；已经在工作单元中时加入外层
+     * @param work 要执行的工作
+     * @return work 的返回值 (回滚时同样返回，除非是因为异常或语句失败)
+     * @throws SQLException 借用连接或提交失败，或者单元内有语句执行失败 (此时已回滚)
+     */
+    public static <T> T execute(Work<T> work) throws SQLException {
+        UnitOfWork outer = CURRENT.get();
+        if (outer != null) {
+            try {
+                return work.execute();
+            } catch (SQLException | RuntimeException | Error e) {
+                outer.rollbackOnly = true;
+                throw e;
+            }
+        }
+
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            UnitOfWork unit = new UnitOfWork(conn);
+            CURRENT.set(unit);
+            T result;
+            try {
+                result = work.execute();
+            } catch (SQLException | RuntimeException | Error e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                CURRENT.remove();
+            }
+            if (unit.failure != null) {
+                conn.rollback();
+                throw new SQLException("Unit of work rolled back after a failed statement: " + unit.failure.getMessage(),
+                        unit.failure.getSQLState(), unit.failure);
+            }
+            if (unit.rollbackOnly) {
+                conn.rollback();
+                return result;
+            }
+            conn.commit();
+            // 连接归还之前执行：回调中再访问数据库时借用的是新连接，读到的是已提交的数据
+            for (Runnable callback : unit.afterCommit) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @return 当前线程是否在工作单元中
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * 让当前的工作单元在结束时回滚，例如某一步返回了 CONFLICT
+     * @throws IllegalStateException 当前线程不在工作单元中
+     */
+    public static void setRollbackOnly() {
+        UnitOfWork unit = CURRENT.get();
+        if (unit == null) {
+            throw new IllegalStateException("No active unit of work");
+        }
+        unit.rollbackOnly = true;
+    }
+
+    /**
+     * 登记一个在提交之后执行的回调 (更新缓存、索引、通知等)；单元回滚时不执行
+     * 不在工作单元中时立即执行，调用方不需要区分两种情况
+     * @param callback 回调
+     */
+    public static void afterCommit(Runnable callback) {
+        UnitOfWork unit = CURRENT.get();
+        if (unit == null) {
+            callback.run();
+        } else {
+            unit.afterCommit.add(callback);
+        }
+    }
+
+    /**
+     * 暂时离开当前的工作单元执行：期间借用独立的连接，只读到已提交的数据，写入也单独提交
+     * 不在工作单元中时直接执行
+     * @param action 要执行的操作
+     * @return action 的返回值
+     */
+    public static <T> T outside(Supplier<T> action) {
+        UnitOfWork unit = CURRENT.get();
+        if (unit == null) {
+            return action.get();
+        }
+        CURRENT.remove();
+        try {
+            return action.get();
+        } finally {
+            CURRENT.set(unit);
+        }
+    }
+
+    /**
+     * 当前线程绑定的连接的一个新句柄，供 {@link DatabaseUtil#getConnection()} 使用
+     * @return 句柄；不在工作单元中时为null
+     */
+    static Connection join() {
+        UnitOfWork unit = CURRENT.get();
+        if (unit == null) {
+            return null;
+        }
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                unit.new ConnectionHandle());
+    }
+
+    private void fail(SQLException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 交给DAO的连接句柄：事务控制由工作单元负责，DAO自己的 setAutoCommit/commit/close 不生效
+     */
+    private final class ConnectionHandle implements InvocationHandler {
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed || connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "UnitOfWork[" + connection + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been closed");
+            }
+            switch (method.getName()) {
+                case "setAutoCommit":
+                case "commit":
+                    return null;
+                case "getAutoCommit":
+                    return false;
+                case "rollback":
+                    if (args == null) {
+                        // DAO在语句失败后回滚自己的事务，整个单元随之回滚
+                        rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            Object result = invokeTarget(connection, method, args);
+            if (result instanceof CallableStatement) {
+                return wrapStatement(result, CallableStatement.class, proxy);
+            }
+            if (result instanceof PreparedStatement) {
+                return wrapStatement(result, PreparedStatement.class, proxy);
+            }
+            if (result instanceof Statement) {
+                return wrapStatement(result, Statement.class, proxy);
+            }
+            return result;
+        }
+
+        private Object wrapStatement(Object statement, Class<?> type, Object connectionProxy) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getConnection":
+                        return connectionProxy;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+                try {
+                    return invokeTarget(statement, method, args);
+                } catch (SQLException e) {
+                    // 失败的语句可能已经让数据库回滚了整个事务 (例如死锁)，单元不能再提交
+                    fail(e);
+                    throw e;
+                }
+            });
+        }
+    }
+}
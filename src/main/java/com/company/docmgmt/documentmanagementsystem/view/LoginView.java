@@ -24,6 +24,8 @@ public class LoginView {
 
         // 2. 将错误标签的文本单向绑定到ViewModel的错误信息属性
         errorLabel.textProperty().bind(viewModel.errorMessageProperty());
+        // 登录请求进行中时禁用登录按钮
+        loginButton.disableProperty().bind(viewModel.busyProperty());
 
         // 3. 监听ViewModel的登录成功状态属性
         viewModel.loginSuccessfulProperty().addListener((obs, oldValue, newValue) -> {
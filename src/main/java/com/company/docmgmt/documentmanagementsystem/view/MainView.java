@@ -1,11 +1,12 @@
 package com.company.docmgmt.documentmanagementsystem.view;
 
-import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
 import com.company.docmgmt.documentmanagementsystem.view.manager.ViewManager;
 import com.company.docmgmt.documentmanagementsystem.viewmodel.MainViewModel;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -20,13 +21,15 @@ public class MainView {
     @FXML private Button editButton;
     @FXML private Button deleteButton;
     @FXML private Button refreshButton;
-    @FXML private TableView<Document> documentTableView;
-    @FXML private TableColumn<Document, Integer> idColumn;
-    @FXML private TableColumn<Document, String> titleColumn;
-    @FXML private TableColumn<Document, Integer> ownerIdColumn;
-    @FXML private TableColumn<Document, String> statusColumn;
-    @FXML private TableColumn<Document, LocalDateTime> createdAtColumn;
-    @FXML private TableColumn<Document, LocalDateTime> updatedAtColumn;
+    @FXML private ProgressIndicator loadingIndicator;
+    @FXML private Label statusLabel;
+    @FXML private TableView<DocumentSummary> documentTableView;
+    @FXML private TableColumn<DocumentSummary, Integer> idColumn;
+    @FXML private TableColumn<DocumentSummary, String> titleColumn;
+    @FXML private TableColumn<DocumentSummary, Integer> ownerIdColumn;
+    @FXML private TableColumn<DocumentSummary, String> statusColumn;
+    @FXML private TableColumn<DocumentSummary, LocalDateTime> createdAtColumn;
+    @FXML private TableColumn<DocumentSummary, LocalDateTime> updatedAtColumn;
 
     private final MainViewModel viewModel = new MainViewModel();
 
@@ -36,15 +39,19 @@ public class MainView {
         welcomeLabel.textProperty().bind(viewModel.welcomeMessageProperty());
         createButton.visibleProperty().bind(viewModel.canCreateProperty());
         // 编辑和删除按钮的可用状态是动态的，所以绑定disable属性
+        // 有写操作在后台执行时同样禁用，避免重复提交
+        createButton.disableProperty().bind(viewModel.busyProperty());
         editButton.disableProperty().bind(viewModel.canEditProperty().not());
-        deleteButton.disableProperty().bind(viewModel.canDeleteProperty().not());
+        deleteButton.disableProperty().bind(viewModel.canDeleteProperty().not().or(viewModel.busyProperty()));
+        loadingIndicator.visibleProperty().bind(viewModel.loadingProperty());
+        statusLabel.textProperty().bind(viewModel.statusMessageProperty());
 
         // --- 2. 绑定表格数据 ---
         // 将表格的items属性绑定到ViewModel的ObservableList
         documentTableView.setItems(viewModel.getDocumentList());
 
         // --- 3. 配置表格列 ---
-        // 将每一列与Document对象的属性关联起来
+        // 将每一列与DocumentSummary对象的属性关联起来
         idColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
         titleColumn.setCellValueFactory(new PropertyValueFactory<>("title"));
         ownerIdColumn.setCellValueFactory(new PropertyValueFactory<>("ownerUserId"));
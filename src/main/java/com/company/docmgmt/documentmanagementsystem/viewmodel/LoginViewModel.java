@@ -1,6 +1,7 @@
 package com.company.docmgmt.documentmanagementsystem.viewmodel;
 
 import com.company.docmgmt.documentmanagementsystem.service.AuthService;
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -16,21 +17,34 @@ public class LoginViewModel {
     private final StringProperty errorMessage = new SimpleStringProperty("");
     // 用于通知View登录成功的状态
     private final BooleanProperty loginSuccessful = new SimpleBooleanProperty(false);
+    // 登录请求正在后台执行
+    private final BooleanProperty busy = new SimpleBooleanProperty(false);
 
     // --- Actions/Commands for View ---
     public void login() {
+        if (busy.get()) {
+            return; // 上一次登录请求尚未返回，忽略重复提交
+        }
         if (username.get().isEmpty() || password.get().isEmpty()) {
             errorMessage.set("用户名或密码不能为空");
             return;
         }
-        boolean success = authService.login(username.get(), password.get());
-        if (success) {
-            errorMessage.set("");
-            loginSuccessful.set(true); // 设置成功状态
-        } else {
-            errorMessage.set("用户名或密码错误");
-            loginSuccessful.set(false);
-        }
+        busy.set(true);
+        errorMessage.set("");
+        // 数据库查询在后台线程执行，结果回到JavaFX应用线程再更新界面
+        authService.loginAsync(username.get(), password.get()).whenComplete((success, error) -> Platform.runLater(() -> {
+            busy.set(false);
+            if (error == null && success) {
+                errorMessage.set("");
+                loginSuccessful.set(true); // 设置成功状态
+            } else {
+                if (error != null) {
+                    error.printStackTrace();
+                }
+                errorMessage.set(error == null ? "用户名或密码错误" : "登录失败，请稍后重试");
+                loginSuccessful.set(false);
+            }
+        }));
     }
 
     // --- Getters for Properties ---
@@ -38,4 +52,5 @@ public class LoginViewModel {
     public StringProperty passwordProperty() { return password; }
     public StringProperty errorMessageProperty() { return errorMessage; }
     public BooleanProperty loginSuccessfulProperty() { return loginSuccessful; }
+    public BooleanProperty busyProperty() { return busy; }
 }
\ No newline at end of file
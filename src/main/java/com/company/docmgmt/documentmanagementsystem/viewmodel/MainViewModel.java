@@ -1,25 +1,61 @@
 package com.company.docmgmt.documentmanagementsystem.viewmodel;
 
+import com.company.docmgmt.documentmanagementsystem.events.DocumentEventListener;
+import com.company.docmgmt.documentmanagementsystem.events.Subscription;
 import com.company.docmgmt.documentmanagementsystem.model.Document;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentEvent;
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.model.PageCursor;
+import com.company.docmgmt.documentmanagementsystem.replica.DocumentReplica;
 import com.company.docmgmt.documentmanagementsystem.service.AuthService;
+import com.company.docmgmt.documentmanagementsystem.service.DocumentClient;
+import com.company.docmgmt.documentmanagementsystem.service.DocumentListSource;
 import com.company.docmgmt.documentmanagementsystem.service.DocumentService;
+import com.company.docmgmt.documentmanagementsystem.service.Permissions;
+import com.company.docmgmt.documentmanagementsystem.service.ServiceExecutor;
+import javafx.application.Platform;
 import javafx.beans.property.*;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 public class MainViewModel {
 
+    // 表格内存中最多保留的页数，超出后按最近最少使用淘汰
+    private static final int MAX_CACHED_PAGES = Integer.getInteger("docmgmt.table.cachedPages", 20);
+    private static final String OFFLINE_MESSAGE = "无法连接服务器，显示的是本地保存的文档列表。";
+
     private final AuthService authService = AuthService.getInstance();
-    private final DocumentService documentService = new DocumentService();
+    private final DocumentClient documentService = DocumentClient.forDesktop();
+    // 本地副本：列表从这里读取，刷新时只在后台拉取增量；无法打开时为null，列表直接访问文档服务
+    // 本地H2文件数据库在后台线程上打开，磁盘慢或文件被锁住时不会卡住界面
+    private final CompletableFuture<DocumentReplica> replicaReady = ServiceExecutor
+            .supplyAsync(() -> DocumentReplica.openForDesktop(documentService).orElse(null))
+            .exceptionally(e -> {
+                System.err.println("本地副本无法打开，直接访问文档服务: " + e.getMessage());
+                return null;
+            });
 
     // --- Properties for Data Binding in View ---
 
     // 用户信息
     private final StringProperty welcomeMessage = new SimpleStringProperty("欢迎, 游客");
 
-    // 文档列表
-    private final ObservableList<Document> documentList = FXCollections.observableArrayList();
-    private final ObjectProperty<Document> selectedDocument = new SimpleObjectProperty<>();
+    // 文档列表 (只包含摘要，正文在打开文档时按需加载)
+    // 随滚动在后台分页加载，内存中只保留有限的页
+    private final PagedDocumentList documentList = new PagedDocumentList(
+            new ListSource(), DocumentService.DEFAULT_PAGE_SIZE, MAX_CACHED_PAGES);
+    private final ObjectProperty<DocumentSummary> selectedDocument = new SimpleObjectProperty<>();
 
     // UI元素权限控制
     private final BooleanProperty canCreate = new SimpleBooleanProperty(false);
@@ -27,19 +63,44 @@ public class MainViewModel {
     private final BooleanProperty canDelete = new SimpleBooleanProperty(false);
     private final BooleanProperty isAdminPanelVisible = new SimpleBooleanProperty(false);
 
+    // 有写操作(创建/删除)正在后台执行
+    private final BooleanProperty busy = new SimpleBooleanProperty(false);
+    // 本地副本正在与服务端同步
+    private final BooleanProperty syncing = new SimpleBooleanProperty(false);
+    // 列表正在加载或有写操作进行中，用于显示进度指示
+    private final BooleanProperty loading = new SimpleBooleanProperty(false);
+    // 最近一次操作的提示信息，例如保存时发现文档已被其他人修改
+    private final StringProperty statusMessage = new SimpleStringProperty("");
+
+    // 正在进行中的后台请求，过期或登出时取消
+    private CompletableFuture<?> pendingWrite;
+    private CompletableFuture<?> pendingOpen;
+    // 文档变更通知的订阅，登出时关闭
+    private Subscription changes;
+
     public MainViewModel() {
         // ViewModel初始化时，加载初始数据和权限
         initialize();
     }
 
     public void initialize() {
+        loading.bind(documentList.loadingProperty().or(busy).or(syncing));
         if (authService.isLoggedIn()) {
             welcomeMessage.set("欢迎, " + authService.getCurrentUser().getUsername());
         }
         // 根据权限设置UI元素的可见/可用状态
         updatePermissions();
-        // 加载文档列表
-        refreshDocumentList();
+        // 先订阅变更通知再加载列表，加载期间发生的变更不会遗漏；之后列表由通知更新，不再定时或在写操作后重新查询
+        if (authService.isLoggedIn()) {
+            changes = documentService.subscribeToChanges(new ChangeListener());
+        }
+        // 本地副本打开后加载文档列表：有本地副本时先显示上次同步的数据，再在后台拉取增量
+        replicaReady.thenAccept(replica -> Platform.runLater(() -> {
+            if (replica != null) {
+                documentList.refresh();
+            }
+            refreshDocumentList();
+        }));
 
         // 关键：监听selectedDocument的变化，以动态更新“编辑”和“删除”按钮的可用状态
         selectedDocument.addListener((obs, oldSelection, newSelection) -> updateEditDeleteState());
@@ -48,70 +109,296 @@ public class MainViewModel {
     // --- Actions/Commands for View ---
 
     public void refreshDocumentList() {
-        documentList.setAll(documentService.getVisibleDocuments());
+        // 本地副本还没打开时直接刷新列表，列表在后台加载时会等待本地副本
+        DocumentReplica replica = replicaReady.getNow(null);
+        if (replica == null) {
+            // 后台重新统计并加载，完成后只更新发生变化的行
+            documentList.refresh();
+            return;
+        }
+        // 只拉取上次同步之后的变更；本地有变化时再从本地重新加载，服务端不可用时继续显示本地数据
+        syncing.set(true);
+        replica.syncAsync().whenComplete((changed, error) -> Platform.runLater(() -> {
+            syncing.set(false);
+            if (error != null) {
+                System.err.println("同步失败: " + error.getMessage());
+                statusMessage.set(OFFLINE_MESSAGE);
+                return;
+            }
+            if (OFFLINE_MESSAGE.equals(statusMessage.get())) {
+                statusMessage.set("");
+            }
+            if (changed > 0) {
+                documentList.refresh();
+            }
+        }));
     }
 
     public void createNewDocument() {
+        if (busy.get()) {
+            return; // 上一次写操作尚未完成，忽略重复点击
+        }
         // 实际应用中，这里会弹出一个新的窗口来创建文档
         System.out.println("Action: 创建新文档...");
-        documentService.createDocument("新文档标题", "这是内容...");
-        refreshDocumentList();
+        // 新文档通过变更通知出现在列表中
+        pendingWrite = runWrite(documentService.createDocumentAsync("新文档标题", "这是内容..."), success -> { });
     }
 
     public void editSelectedDocument() {
-        if (selectedDocument.get() != null) {
-            // 实际应用中，这里会弹出一个窗口来编辑文档
-            System.out.println("Action: 编辑文档 " + selectedDocument.get().getTitle());
-            // ... documentService.updateDocument(...)
+        if (selectedDocument.get() != null && !PagedDocumentList.isPlaceholder(selectedDocument.get())) {
+            // 只保留最近一次打开请求，之前尚未完成的请求取消
+            cancel(pendingOpen);
+            // 列表中只有摘要，真正打开文档时才按需加载正文
+            pendingOpen = onFxThread(documentService.getDocumentByIdAsync(selectedDocument.get().getId()), docOpt ->
+                    docOpt.ifPresent(document -> {
+                        // 实际应用中，这里会弹出一个窗口来编辑文档
+                        System.out.println("Action: 编辑文档 " + document.getTitle());
+                        // ... 编辑完成后调用 saveDocument(document)，document保留了打开时的版本号
+                    }));
+        }
+    }
+
+    /**
+     * 保存编辑后的文档；文档是打开时读取的对象，带有当时的版本号
+     * 保存期间如果文档已被其他人修改，不会覆盖对方的内容，而是提示用户；列表由变更通知更新
+     * @param edited 编辑后的文档
+     */
+    public void saveDocument(Document edited) {
+        if (busy.get()) {
+            return;
         }
+        statusMessage.set("");
+        pendingWrite = runWrite(documentService.updateDocumentAsync(edited), result -> {
+            switch (result) {
+                case SUCCESS:
+                    statusMessage.set("已保存: " + edited.getTitle());
+                    break;
+                case CONFLICT:
+                    statusMessage.set("保存失败：文档已被其他人修改，请重新打开后再编辑。");
+                    break;
+                case NOT_FOUND:
+                    statusMessage.set("保存失败：文档已被删除。");
+                    break;
+                case FORBIDDEN:
+                    statusMessage.set("保存失败：权限不足。");
+                    break;
+                default:
+                    statusMessage.set("保存失败，请稍后重试。");
+            }
+        });
     }
 
     public void deleteSelectedDocument() {
-        if (selectedDocument.get() != null) {
+        if (busy.get()) {
+            return;
+        }
+        if (selectedDocument.get() != null && !PagedDocumentList.isPlaceholder(selectedDocument.get())) {
             System.out.println("Action: 删除文档 " + selectedDocument.get().getTitle());
-            boolean success = documentService.deleteDocument(selectedDocument.get().getId());
-            if(success) {
-                refreshDocumentList();
-            } else {
-                // 可以在这里设置一个状态属性，让View显示一个错误提示
-                System.err.println("删除失败，请检查权限或日志。");
-            }
+            String title = selectedDocument.get().getTitle();
+            statusMessage.set("");
+            pendingWrite = runWrite(documentService.deleteDocumentAsync(selectedDocument.get().getId()), result -> {
+                switch (result) {
+                    case SUCCESS:
+                        statusMessage.set("已删除: " + title);
+                        break;
+                    case NOT_FOUND:
+                        statusMessage.set("删除失败：文档已被删除。");
+                        break;
+                    case FORBIDDEN:
+                        statusMessage.set("删除失败：你只能删除自己的文档。");
+                        break;
+                    default:
+                        statusMessage.set("删除失败，请稍后重试。");
+                }
+            });
         }
     }
 
     public void logout() {
+        cancel(pendingWrite);
+        cancel(pendingOpen);
+        if (changes != null) {
+            changes.close();
+        }
+        documentList.dispose();
+        replicaReady.thenAccept(replica -> {
+            if (replica != null) {
+                replica.close();
+            }
+        });
         authService.logout();
         // 这里需要一种机制通知View切换回登录界面
     }
 
     // --- Private Helper Methods ---
 
+    /**
+     * 把一批变更通知转换成列表的增量修改，在后台线程上读取变化后的摘要，再回到JavaFX应用线程修改列表
+     */
+    private void applyEvents(List<DocumentEvent> events) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        Set<Integer> createdIds = new HashSet<>();
+        for (DocumentEvent event : events) {
+            ids.add(event.getDocumentId());
+            if (event.getType() == DocumentEvent.Type.CREATED) {
+                createdIds.add(event.getDocumentId());
+            }
+        }
+        List<DocumentSummary> found;
+        DocumentReplica replica = replicaReady.join();
+        try {
+            if (replica != null) {
+                replica.sync(); // 本地副本是列表的数据来源，先把这些变更同步到本地
+            }
+            found = (replica != null ? replica : documentService).getVisibleDocumentSummariesByIds(ids);
+        } catch (RuntimeException e) {
+            System.err.println("同步失败: " + e.getMessage());
+            if (replica != null) {
+                Platform.runLater(() -> statusMessage.set(OFFLINE_MESSAGE));
+            }
+            return;
+        }
+        Map<Integer, DocumentSummary> byId = new HashMap<>();
+        for (DocumentSummary summary : found) {
+            byId.put(summary.getId(), summary);
+        }
+        List<DocumentSummary> created = new ArrayList<>();
+        List<DocumentSummary> updated = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        for (Integer id : ids) {
+            DocumentSummary summary = byId.get(id);
+            if (summary == null) {
+                if (!createdIds.contains(id)) {
+                    deleted.add(id); // 新增后又在同一批中删除的文档不在列表中，跳过
+                }
+            } else if (createdIds.contains(id)) {
+                created.add(summary);
+            } else {
+                updated.add(summary);
+            }
+        }
+        Platform.runLater(() -> {
+            if (OFFLINE_MESSAGE.equals(statusMessage.get())) {
+                statusMessage.set("");
+            }
+            documentList.applyChanges(created, updated, deleted);
+        });
+    }
+
+    /**
+     * 变更通知的订阅者，回调在后台线程上串行执行
+     */
+    private final class ChangeListener implements DocumentEventListener {
+        @Override
+        public void onEvents(List<DocumentEvent> events) {
+            applyEvents(events);
+        }
+
+        @Override
+        public void onReset() {
+            // 积压的通知已被丢弃，整体刷新一次
+            Platform.runLater(MainViewModel.this::refreshDocumentList);
+        }
+    }
+
+    /**
+     * 执行一个后台写操作，期间busy为true
+     */
+    private <T> CompletableFuture<T> runWrite(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        busy.set(true);
+        return onFxThread(future, result -> {
+            busy.set(false);
+            onSuccess.accept(result);
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                Platform.runLater(() -> busy.set(false));
+            }
+        });
+    }
+
+    /**
+     * 后台任务完成后回到JavaFX应用线程处理结果；任务被取消时不回调
+     */
+    private <T> CompletableFuture<T> onFxThread(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            if (error != null) {
+                error.printStackTrace();
+                return;
+            }
+            Platform.runLater(() -> onSuccess.accept(result));
+        });
+        return future;
+    }
+
+    private static void cancel(CompletableFuture<?> future) {
+        if (future != null && !future.isDone()) {
+            future.cancel(false);
+        }
+    }
+
     private void updatePermissions() {
-        canCreate.set(authService.hasPermission("document:create"));
-        isAdminPanelVisible.set(authService.hasPermission("user:manage"));
+        canCreate.set(authService.hasPermission(Permissions.DOCUMENT_CREATE));
+        isAdminPanelVisible.set(authService.hasPermission(Permissions.USER_MANAGE));
         // 编辑和删除按钮的初始状态依赖于是否有对应权限
         updateEditDeleteState();
     }
 
     private void updateEditDeleteState() {
-        Document selected = selectedDocument.get();
-        if (selected == null) {
+        DocumentSummary selected = selectedDocument.get();
+        if (selected == null || PagedDocumentList.isPlaceholder(selected)) {
             canEdit.set(false);
             canDelete.set(false);
             return;
         }
         // 动态判断：用户不仅要有权限，还必须是文档的所有者
         boolean isOwner = selected.getOwnerUserId() == authService.getCurrentUser().getId();
-        canEdit.set(authService.hasPermission("document:edit:own") && isOwner);
-        canDelete.set(authService.hasPermission("document:delete:own") && isOwner);
+        canEdit.set(authService.hasPermission(Permissions.DOCUMENT_EDIT_OWN) && isOwner);
+        canDelete.set(authService.hasPermission(Permissions.DOCUMENT_DELETE_OWN) && isOwner);
     }
 
     // --- Getters for Properties ---
     public StringProperty welcomeMessageProperty() { return welcomeMessage; }
-    public ObservableList<Document> getDocumentList() { return documentList; }
-    public ObjectProperty<Document> selectedDocumentProperty() { return selectedDocument; }
+    public ObservableList<DocumentSummary> getDocumentList() { return documentList; }
+    public ObjectProperty<DocumentSummary> selectedDocumentProperty() { return selectedDocument; }
     public BooleanProperty canCreateProperty() { return canCreate; }
     public BooleanProperty canEditProperty() { return canEdit; }
     public BooleanProperty canDeleteProperty() { return canDelete; }
     public BooleanProperty isAdminPanelVisibleProperty() { return isAdminPanelVisible; }
-}
\ No newline at end of file
+    public BooleanProperty busyProperty() { return busy; }
+    public BooleanProperty loadingProperty() { return loading; }
+    public StringProperty statusMessageProperty() { return statusMessage; }
+
+    /**
+     * 列表的数据来源：本地副本打开后从本地读取，无法打开时直接访问文档服务
+     * 只在列表的后台加载线程上调用，本地副本还在打开时在这里等待
+     */
+    private final class ListSource implements DocumentListSource {
+        private DocumentListSource current() {
+            DocumentReplica replica = replicaReady.join();
+            return replica != null ? replica : documentService;
+        }
+
+        @Override
+        public int countVisibleDocuments() {
+            return current().countVisibleDocuments();
+        }
+
+        @Override
+        public Page<DocumentSummary> getVisibleDocumentSummariesPage(PageCursor after, int pageSize) {
+            return current().getVisibleDocumentSummariesPage(after, pageSize);
+        }
+
+        @Override
+        public Page<DocumentSummary> getVisibleDocumentSummariesAt(int offset, int limit) {
+            return current().getVisibleDocumentSummariesAt(offset, limit);
+        }
+
+        @Override
+        public List<DocumentSummary> getVisibleDocumentSummariesByIds(Collection<Integer> ids) {
+            return current().getVisibleDocumentSummariesByIds(ids);
+        }
+    }
+}
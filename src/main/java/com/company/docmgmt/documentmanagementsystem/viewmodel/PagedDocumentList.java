@@ -0,0 +1,444 @@
+package com.company.docmgmt.documentmanagementsystem.viewmodel;
+
+import com.company.docmgmt.documentmanagementsystem.model.DocumentSummary;
+import com.company.docmgmt.documentmanagementsystem.model.Page;
+import com.company.docmgmt.documentmanagementsystem.model.PageCursor;
+import com.company.docmgmt.documentmanagementsystem.service.DocumentListSource;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 按需分页加载的文档列表，供TableView直接绑定
+ * <p>
+ * 列表的size()是文档总数，但内存中只保留最近访问过的若干页；TableView渲染到尚未加载的行时，
+ * get()先返回占位对象 {@link #LOADING}，同时在后台线程加载该页，加载完成后只对变化的行发出更新通知。
+ * 刷新时旧数据继续显示，新数据到达后按行比较差异，不会整表替换。
+ * 连续多次刷新会合并为一次查询，过期的加载请求在开始执行前直接丢弃。
+ * 收到变更通知时用 {@link #applyChanges} 直接修改已加载的行，不重新查询；无法在内存中确定位置时才整体刷新。
+ * <p>
+ * 除后台加载任务外，所有方法都必须在JavaFX应用线程上调用。
+ */
+public class PagedDocumentList extends ObservableListBase<DocumentSummary> {
+
+    /**
+     * 尚未加载的行显示的占位对象
+     */
+    public static final DocumentSummary LOADING = new DocumentSummary(0, "加载中...", 0, "", null, null);
+
+    private final DocumentListSource source;
+    private final int pageSize;
+    private final ExecutorService loader;
+
+    private int size;
+    // 每次刷新加一，后台任务据此判断自己的请求是否已过期
+    private volatile long generation;
+    private boolean countPending;
+    private boolean refreshRequested;
+    private final ReadOnlyBooleanWrapper loading = new ReadOnlyBooleanWrapper(false);
+    // 已加载的页，按访问顺序淘汰，保证内存中的行数有上限
+    private final Map<Integer, List<DocumentSummary>> pages;
+    private final Set<Integer> pendingPages = new HashSet<>();
+    private final Set<Integer> stalePages = new HashSet<>();
+    // 页号 -> 该页第一行之前的键集游标，由后台线程在加载完前一页后写入；每次刷新换一个新的Map
+    private volatile Map<Integer, PageCursor> cursors = new ConcurrentHashMap<>();
+
+    /**
+     * @param source 数据来源：文档服务，或者本地副本
+     * @param pageSize 每页行数
+     * @param maxCachedPages 内存中最多保留的页数
+     */
+    public PagedDocumentList(DocumentListSource source, int pageSize, int maxCachedPages) {
+        this.source = source;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<DocumentSummary>> eldest) {
+                if (size() > maxCachedPages) {
+                    stalePages.remove(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+        // 单线程按请求顺序加载，避免快速滚动时对数据库并发发起大量查询
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "document-page-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public DocumentSummary get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int page = index / pageSize;
+        int offset = index % pageSize;
+        List<DocumentSummary> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return LOADING;
+        }
+        // 滚动到页尾附近时预取下一页，此时本页已加载，下一页可以走键集分页
+        if (offset >= pageSize * 3 / 4 && (page + 1) * pageSize < size && !pages.containsKey(page + 1)) {
+            requestPage(page + 1);
+        }
+        return offset < rows.size() ? rows.get(offset) : LOADING;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 判断某一行是否是尚未加载的占位对象
+     * @param summary 行对象
+     * @return 是占位对象返回true
+     */
+    public static boolean isPlaceholder(DocumentSummary summary) {
+        return summary == LOADING;
+    }
+
+    /**
+     * 是否有后台加载正在进行
+     * @return 加载状态属性
+     */
+    public ReadOnlyBooleanProperty loadingProperty() {
+        return loading.getReadOnlyProperty();
+    }
+
+    /**
+     * 重新统计总数并在后台重新加载内存中的页；旧数据在新数据到达前继续显示
+     * 上一次刷新尚未完成时不会立即发起新查询，而是在其完成后再补做一次
+     */
+    public void refresh() {
+        if (countPending) {
+            refreshRequested = true;
+            return;
+        }
+        long gen = ++generation;
+        countPending = true;
+        pendingPages.clear();
+        stalePages.addAll(pages.keySet());
+        cursors = new ConcurrentHashMap<>();
+        updateLoading();
+        loader.execute(() -> {
+            int count;
+            try {
+                count = source.countVisibleDocuments();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                count = -1;
+            }
+            int loaded = count;
+            Platform.runLater(() -> onCountLoaded(gen, loaded));
+        });
+    }
+
+    /**
+     * 把一批变更直接应用到已加载的行，不重新查询
+     * 修改过的行原地替换；新增的行按 (created_at, id) 倒序插入，删除的行移除，后面的行依次移动。
+     * 只有从第0页开始连续加载的页可以移动行，其余已加载的页丢弃，滚动到时重新加载。
+     * 位置无法在内存中确定时 (例如新增或删除的行落在尚未加载的范围内) 退化为 {@link #refresh()}。
+     * @param created 新增的文档
+     * @param updated 修改过的文档
+     * @param deleted 删除的文档ID
+     */
+    public void applyChanges(List<DocumentSummary> created, List<DocumentSummary> updated, List<Integer> deleted) {
+        if (countPending || !stalePages.isEmpty()) {
+            refresh(); // 刷新进行中，等它完成后再补做一次
+            return;
+        }
+        // 连续加载的前缀：第0页到第prefixPages-1页，除列表的最后一页外都是满页
+        List<DocumentSummary> rows = new ArrayList<>();
+        int prefixPages = 0;
+        while (pages.containsKey(prefixPages) && rows.size() == prefixPages * pageSize) {
+            rows.addAll(pages.get(prefixPages++));
+        }
+        if (rows.size() < prefixPages * pageSize && rows.size() != size) {
+            refresh(); // 中间出现了不满的页，已加载的数据与总数不一致
+            return;
+        }
+        boolean complete = rows.size() == size;
+
+        // 先在副本上确定每个变更的位置，有任何一个无法确定时整体刷新，不发出部分通知
+        List<DocumentSummary> replaced = new ArrayList<>();
+        List<DocumentSummary> inserted = new ArrayList<>();
+        for (DocumentSummary summary : updated) {
+            if (isLoaded(rows, summary.getId(), prefixPages)) {
+                replaced.add(summary);
+            } else if (complete) {
+                // 列表已全部加载却没有这一行：首次加载时尚未提交，按新增处理
+                inserted.add(summary);
+            }
+        }
+        for (DocumentSummary summary : created) {
+            // 首次加载时可能已经读到了订阅之前新增的行
+            (isLoaded(rows, summary.getId(), prefixPages) ? replaced : inserted).add(summary);
+        }
+        for (Integer id : deleted) {
+            if (indexOf(rows, id) < 0 && (!complete || isLoaded(rows, id, prefixPages))) {
+                refresh(); // 落在尚未加载的范围内，总数和后面各行的位置都无法确定
+                return;
+            }
+        }
+        for (DocumentSummary summary : inserted) {
+            if (!complete && (rows.isEmpty() || sortsBefore(rows.get(rows.size() - 1), summary))) {
+                refresh();
+                return;
+            }
+        }
+
+        beginChange();
+        for (DocumentSummary summary : replaced) {
+            replaceLoaded(summary);
+            int index = indexOf(rows, summary.getId());
+            if (index >= 0) {
+                rows.set(index, summary);
+            }
+        }
+        for (Integer id : deleted) {
+            int index = indexOf(rows, id);
+            if (index >= 0) {
+                nextRemove(index, rows.remove(index));
+                size--;
+            }
+        }
+        for (DocumentSummary summary : inserted) {
+            int index = 0;
+            while (index < rows.size() && !sortsBefore(summary, rows.get(index))) {
+                index++;
+            }
+            rows.add(index, summary);
+            nextAdd(index, index + 1);
+            size++;
+        }
+
+        // 加载中的页可能是变更之前的数据，丢弃后重新加载
+        List<Integer> reload = new ArrayList<>(pendingPages);
+        generation++;
+        pendingPages.clear();
+        if (!inserted.isEmpty() || !deleted.isEmpty()) {
+            // 行的位置变了：按新的前缀重新分页，前缀之外的页和游标作废，滚动到时重新加载
+            // (在结束通知之前完成，监听者收到通知时读取的已经是新的行)
+            pages.clear();
+            cursors = new ConcurrentHashMap<>();
+            for (int from = 0; from < rows.size(); from += pageSize) {
+                List<DocumentSummary> page = new ArrayList<>(rows.subList(from, Math.min(from + pageSize, rows.size())));
+                if (page.size() < pageSize && from + page.size() < size) {
+                    break; // 不满的页只能是列表的最后一页
+                }
+                pages.put(from / pageSize, page);
+                if (page.size() == pageSize) {
+                    cursors.put(from / pageSize + 1, PageCursor.after(page.get(pageSize - 1)));
+                }
+            }
+        }
+        endChange();
+        updateLoading();
+        Collections.sort(reload);
+        for (int page : reload) {
+            if (page * pageSize < size && !pages.containsKey(page)) {
+                requestPage(page);
+            }
+        }
+    }
+
+    /**
+     * 停止后台加载线程，视图关闭时调用
+     */
+    public void dispose() {
+        generation++;
+        countPending = false;
+        pendingPages.clear();
+        updateLoading();
+        loader.shutdownNow();
+    }
+
+    // --- Private Helper Methods ---
+
+    private void requestPage(int page) {
+        if (pendingPages.contains(page) || loader.isShutdown()) {
+            return;
+        }
+        pendingPages.add(page);
+        updateLoading();
+        long gen = generation;
+        Map<Integer, PageCursor> pageCursors = cursors;
+        loader.execute(() -> {
+            if (gen != generation) {
+                return; // 已过期的请求不再查询数据库
+            }
+            Page<DocumentSummary> result;
+            try {
+                // 前一页已加载过则用键集分页，否则(直接跳到中间)退化为OFFSET查询
+                PageCursor cursor = pageCursors.get(page);
+                if (page == 0 || cursor != null) {
+                    result = source.getVisibleDocumentSummariesPage(cursor, pageSize);
+                } else {
+                    result = source.getVisibleDocumentSummariesAt(page * pageSize, pageSize);
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                result = null;
+            }
+            if (result != null && result.getNextCursor() != null) {
+                pageCursors.put(page + 1, result.getNextCursor());
+            }
+            Page<DocumentSummary> loaded = result;
+            Platform.runLater(() -> onPageLoaded(gen, page, loaded));
+        });
+    }
+
+    private void onPageLoaded(long gen, int page, Page<DocumentSummary> result) {
+        if (gen != generation) {
+            return; // 刷新之前发出的请求，结果已过期
+        }
+        pendingPages.remove(page);
+        updateLoading();
+        if (result == null) {
+            return;
+        }
+        List<DocumentSummary> oldRows = pages.get(page);
+        List<DocumentSummary> newRows = result.getItems();
+        pages.put(page, newRows);
+        stalePages.remove(page);
+
+        // 只通知真正发生变化的行
+        int from = page * pageSize;
+        int count = Math.min(Math.max(newRows.size(), oldRows == null ? 0 : oldRows.size()), size - from);
+        beginChange();
+        for (int i = 0; i < count; i++) {
+            DocumentSummary oldRow = oldRows != null && i < oldRows.size() ? oldRows.get(i) : LOADING;
+            DocumentSummary newRow = i < newRows.size() ? newRows.get(i) : LOADING;
+            if (!sameRow(oldRow, newRow)) {
+                nextUpdate(from + i);
+            }
+        }
+        endChange();
+    }
+
+    private void onCountLoaded(long gen, int count) {
+        if (gen != generation) {
+            return;
+        }
+        countPending = false;
+        updateLoading();
+        if (refreshRequested) {
+            // 查询期间又有刷新请求，数据可能已变化，直接以新的一轮为准
+            refreshRequested = false;
+            refresh();
+            return;
+        }
+        if (count < 0) {
+            return;
+        }
+        int oldSize = size;
+        size = count;
+        pages.keySet().removeIf(page -> page * pageSize >= count);
+        stalePages.removeIf(page -> page * pageSize >= count);
+
+        if (count != oldSize) {
+            beginChange();
+            if (count > oldSize) {
+                nextAdd(oldSize, count);
+            } else {
+                nextRemove(count, Collections.nCopies(oldSize - count, LOADING));
+            }
+            endChange();
+        }
+
+        // 重新加载仍在内存中的页，从前往后，保证后续页可以使用键集游标
+        List<Integer> toReload = new ArrayList<>(stalePages);
+        Collections.sort(toReload);
+        if (toReload.isEmpty() && size > 0 && !pages.containsKey(0)) {
+            toReload.add(0);
+        }
+        toReload.forEach(this::requestPage);
+    }
+
+    /**
+     * 在已加载的页中原地替换同一文档的行 (created_at不会变化，行的位置不变)
+     */
+    private void replaceLoaded(DocumentSummary summary) {
+        for (Map.Entry<Integer, List<DocumentSummary>> entry : pages.entrySet()) {
+            List<DocumentSummary> rows = entry.getValue();
+            int index = indexOf(rows, summary.getId());
+            if (index >= 0) {
+                if (!sameRow(rows.get(index), summary)) {
+                    List<DocumentSummary> copy = new ArrayList<>(rows);
+                    copy.set(index, summary);
+                    entry.setValue(copy);
+                    nextUpdate(entry.getKey() * pageSize + index);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 文档是否在已加载的行中：连续前缀 (rows) 或前缀之外单独加载的页
+     */
+    private boolean isLoaded(List<DocumentSummary> rows, int id, int prefixPages) {
+        if (indexOf(rows, id) >= 0) {
+            return true;
+        }
+        for (Map.Entry<Integer, List<DocumentSummary>> entry : pages.entrySet()) {
+            if (entry.getKey() >= prefixPages && indexOf(entry.getValue(), id) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(List<DocumentSummary> rows, int id) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按列表顺序 (created_at DESC, id DESC) a是否排在b前面
+     */
+    private static boolean sortsBefore(DocumentSummary a, DocumentSummary b) {
+        int c = a.getCreatedAt().compareTo(b.getCreatedAt());
+        return c > 0 || (c == 0 && a.getId() > b.getId());
+    }
+
+    private void updateLoading() {
+        loading.set(countPending || !pendingPages.isEmpty());
+    }
+
+    private static boolean sameRow(DocumentSummary a, DocumentSummary b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == LOADING || b == LOADING) {
+            return false;
+        }
+        return a.getId() == b.getId()
+                && a.getOwnerUserId() == b.getOwnerUserId()
+                && Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getStatus(), b.getStatus())
+                && Objects.equals(a.getUpdatedAt(), b.getUpdatedAt());
+    }
+}
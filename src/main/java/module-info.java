@@ -3,6 +3,8 @@ module com.company.docmgmt.documentmanagementsystem {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.sql;
+    requires java.net.http;
+    requires jdk.httpserver;
 
     // 导出主应用程序包
     exports com.company.docmgmt.documentmanagementsystem;
@@ -0,0 +1,21 @@
+-- 与DAO查询形状对应的索引
+-- 使用 IF NOT EXISTS，已有同名索引时跳过
+
+-- UserDao.findByUsername；同时保证用户名唯一
+CREATE UNIQUE INDEX IF NOT EXISTS uk_users_username ON users (username);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_roles_role_name ON roles (role_name);
+
+-- 权限按名称引用(PermissionRegistry)，名称必须唯一
+CREATE UNIQUE INDEX IF NOT EXISTS uk_permissions_permission_name ON permissions (permission_name);
+
+-- 按创建者的列表、计数和键集分页：WHERE owner_user_id = ? ORDER BY created_at DESC, id DESC
+-- 等值列在前，排序列在后且方向与ORDER BY一致，分页时按索引顺序读取，不需要filesort (H2不会反向扫描升序索引)
+CREATE INDEX IF NOT EXISTS idx_documents_owner_created ON documents (owner_user_id, created_at DESC, id DESC);
+
+-- 全部文档的列表和键集分页：ORDER BY created_at DESC, id DESC / WHERE (created_at, id) < (?, ?)
+CREATE INDEX IF NOT EXISTS idx_documents_created ON documents (created_at DESC, id DESC);
+
+-- 反向查询(某个角色下的用户、某个权限所属的角色)，正向查询由主键覆盖
+CREATE INDEX IF NOT EXISTS idx_user_roles_role ON user_roles (role_id);
+CREATE INDEX IF NOT EXISTS idx_role_permissions_permission ON role_permissions (permission_id);
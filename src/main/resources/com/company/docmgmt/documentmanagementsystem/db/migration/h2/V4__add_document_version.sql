@@ -0,0 +1,3 @@
+-- 乐观并发控制：每次更新文档时版本号加一，UPDATE ... WHERE id = ? AND version = ? 未命中即表示发生冲突
+
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 0;
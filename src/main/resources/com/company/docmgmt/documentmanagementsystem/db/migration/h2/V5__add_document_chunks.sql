@@ -0,0 +1,13 @@
+-- 大文档正文分块存储：超过内联阈值的正文压缩后按顺序号分块存入 document_chunks，documents.content 置为NULL
+-- content_codec 记录压缩格式，为NULL表示正文内联存放在 documents.content 中 (已有的文档都是内联的)
+-- 删除文档时通过外键级联删除它的分块，删除仍然只需一条语句
+
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS content_codec VARCHAR(16) NULL;
+
+CREATE TABLE IF NOT EXISTS document_chunks (
+    document_id INT NOT NULL,
+    seq INT NOT NULL,
+    data BLOB NOT NULL,
+    PRIMARY KEY (document_id, seq),
+    CONSTRAINT fk_document_chunks_document FOREIGN KEY (document_id) REFERENCES documents (id) ON DELETE CASCADE
+);
@@ -0,0 +1,37 @@
+-- 按内容寻址的blob存储：超过内联阈值的正文和附件按SHA-256存放一次，相同内容的文档共用一份
+-- 引用就是 documents.content_hash 和 document_attachments.blob_hash 中的行，不单独保存计数；
+-- 删除文档仍然只需一条语句，没有引用的blob由 BlobStore 的回收任务删除 (acquired_at 用于给正在写入的事务留出宽限期)
+-- 已有的分块正文 (content_codec 不为NULL) 仍然从 document_chunks 读取，下次写入时改存为blob
+
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS content_hash CHAR(64) NULL;
+
+CREATE INDEX IF NOT EXISTS idx_documents_content_hash ON documents (content_hash);
+
+CREATE TABLE IF NOT EXISTS content_blobs (
+    hash CHAR(64) NOT NULL PRIMARY KEY,
+    codec VARCHAR(16) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    acquired_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS blob_chunks (
+    hash CHAR(64) NOT NULL,
+    seq INT NOT NULL,
+    data BLOB NOT NULL,
+    PRIMARY KEY (hash, seq),
+    CONSTRAINT fk_blob_chunks_blob FOREIGN KEY (hash) REFERENCES content_blobs (hash) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS document_attachments (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    document_id INT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    blob_hash CHAR(64) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_document_attachments_document FOREIGN KEY (document_id) REFERENCES documents (id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_document_attachments_document ON document_attachments (document_id);
+
+CREATE INDEX IF NOT EXISTS idx_document_attachments_blob ON document_attachments (blob_hash);
@@ -0,0 +1,24 @@
+-- 内置角色和权限
+-- 按名称判断是否已存在，已有数据库上重复执行不会产生重复行，也不依赖自增ID的具体取值
+INSERT INTO roles (role_name, description)
+SELECT 'ADMIN', '管理员' FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM roles WHERE role_name = 'ADMIN');
+INSERT INTO roles (role_name, description)
+SELECT 'USER', '普通用户' FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM roles WHERE role_name = 'USER');
+
+INSERT INTO permissions (permission_name, description)
+SELECT 'document:list:all', '查看所有文档' FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM permissions WHERE permission_name = 'document:list:all');
+INSERT INTO permissions (permission_name, description)
+SELECT 'document:create', '创建文档' FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM permissions WHERE permission_name = 'document:create');
+INSERT INTO permissions (permission_name, description)
+SELECT 'document:edit:own', '编辑自己的文档' FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM permissions WHERE permission_name = 'document:edit:own');
+INSERT INTO permissions (permission_name, description)
+SELECT 'document:delete:own', '删除自己的文档' FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM permissions WHERE permission_name = 'document:delete:own');
+INSERT INTO permissions (permission_name, description)
+SELECT 'user:manage', '管理用户' FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM permissions WHERE permission_name = 'user:manage');
+
+-- 管理员拥有全部权限，普通用户可以创建文档并编辑、删除自己的文档
+INSERT INTO role_permissions (role_id, permission_id)
+SELECT r.id, p.id FROM roles r, permissions p
+WHERE (r.role_name = 'ADMIN'
+       OR (r.role_name = 'USER' AND p.permission_name IN ('document:create', 'document:edit:own', 'document:delete:own')))
+  AND NOT EXISTS (SELECT 1 FROM role_permissions rp WHERE rp.role_id = r.id AND rp.permission_id = p.id);
@@ -0,0 +1,4 @@
+-- 乐观并发控制：每次更新文档时版本号加一，UPDATE ... WHERE id = ? AND version = ? 未命中即表示发生冲突
+-- MySQL不支持 ADD COLUMN IF NOT EXISTS，列已存在(错误1060)时迁移程序跳过该语句
+
+ALTER TABLE documents ADD COLUMN version INT NOT NULL DEFAULT 0;
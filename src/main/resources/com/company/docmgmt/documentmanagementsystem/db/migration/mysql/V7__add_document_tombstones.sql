@@ -0,0 +1,18 @@
+-- 增量同步：客户端的本地副本只拉取 (updated_at, id) 水位之后变化的文档
+-- 删除的文档在同一个事务中写入 document_tombstones，客户端据此删除本地副本中的行；墓碑保留一段时间后清理
+-- 文档ID可能被重新使用 (例如旧版本MySQL重启后自增值回退)，墓碑使用自己的自增主键，同一文档可以有多条
+
+-- 全部文档的变更：WHERE (updated_at, id) > (?, ?) ORDER BY updated_at, id
+CREATE INDEX idx_documents_updated ON documents (updated_at, id);
+
+-- 某个用户的文档的变更：WHERE owner_user_id = ? AND (updated_at, id) > (?, ?) ORDER BY updated_at, id
+CREATE INDEX idx_documents_owner_updated ON documents (owner_user_id, updated_at, id);
+
+CREATE TABLE IF NOT EXISTS document_tombstones (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    document_id INT NOT NULL,
+    owner_user_id INT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_document_tombstones_deleted (deleted_at, document_id),
+    INDEX idx_document_tombstones_owner_deleted (owner_user_id, deleted_at, document_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
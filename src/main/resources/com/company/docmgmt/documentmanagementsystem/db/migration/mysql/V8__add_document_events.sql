@@ -0,0 +1,11 @@
+-- 文档变更通知的发件箱：创建、修改和删除文档时在同一个事务中写入一行，事务回滚时事件也一起回滚
+-- 调度器按自增ID顺序读取新事件并分发给订阅者 (桌面客户端的列表、服务端的长轮询)，事件保留一段时间后清理
+
+CREATE TABLE IF NOT EXISTS document_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(10) NOT NULL,
+    document_id INT NOT NULL,
+    owner_user_id INT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_document_events_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
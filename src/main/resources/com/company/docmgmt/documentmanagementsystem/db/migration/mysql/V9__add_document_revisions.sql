@@ -0,0 +1,22 @@
+-- 文档的修订历史：每次更新 (DocumentService.updateDocument) 在同一个事务中写入一行，revision 就是更新后的 documents.version
+-- 一般的修订只保存相对上一个修订的二进制差异 (data)，小的修改只占用与修改大小相当的空间；
+-- 每隔一定数量的修订保存一次完整快照，base_revision 是每一行所在差异链开头的快照，重建任意修订最多读取一个快照间隔的行
+-- 快照内联压缩存放在 data 中 (codec 为压缩格式)；超过内联阈值的正文引用blob存储 (content_hash)，不重复保存
+-- 删除文档时通过外键级联删除它的历史
+
+CREATE TABLE IF NOT EXISTS document_revisions (
+    document_id INT NOT NULL,
+    revision INT NOT NULL,
+    base_revision INT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    content_hash CHAR(64) NULL,
+    codec VARCHAR(16) NULL,
+    data MEDIUMBLOB NULL,
+    content_bytes INT NOT NULL,
+    created_by INT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (document_id, revision),
+    INDEX idx_document_revisions_content_hash (content_hash),
+    CONSTRAINT fk_document_revisions_document FOREIGN KEY (document_id) REFERENCES documents (id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,129 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.dao.RoleDao;
+import com.company.docmgmt.documentmanagementsystem.dao.UserDao;
+import com.company.docmgmt.documentmanagementsystem.model.Role;
+import com.company.docmgmt.documentmanagementsystem.model.User;
+import com.company.docmgmt.documentmanagementsystem.util.SchemaMigrator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多个线程并发检查同一个会话的权限，同时不断修改角色授权使权限缓存的版本号变化：
+ * 收回权限之后开始的检查都不能再看到该权限
+ */
+class SecurityContextConcurrencyTest {
+
+    private static final int READERS = 8;
+    private static final int ROUNDS = 20;
+    private static final int BUMPS = 40;
+    private static final String REVOKED = "document:create";
+    private static final String CHURN = "user:manage";
+
+    private static final PermissionResolver resolver = PermissionResolver.getInstance();
+    private static int userRoleId;
+    private static SecurityContext context;
+
+    @BeforeAll
+    static void setUp() {
+        SchemaMigrator.migrate();
+        userRoleId = new RoleDao().findAll().stream()
+                .filter(role -> "USER".equals(role.getRoleName()))
+                .mapToInt(Role::getId)
+                .findFirst()
+                .orElseThrow();
+        User user = new UserDao().save(new User(0, "concurrent", "secret", null, LocalDateTime.now()));
+        assertTrue(resolver.assignRole(user.getId(), userRoleId));
+        context = new SecurityContext("concurrent-token", user, System.currentTimeMillis());
+    }
+
+    @Test
+    void revokedPermissionIsNeverSeenAfterRevoke() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                runRound(executor);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runRound(ExecutorService executor) throws Exception {
+        // 第一轮时内置的 USER 角色已经拥有该权限
+        if (!context.hasPermission(Permissions.DOCUMENT_CREATE)) {
+            assertTrue(resolver.grantPermission(userRoleId, REVOKED));
+        }
+        assertTrue(context.hasPermission(Permissions.DOCUMENT_CREATE));
+
+        AtomicBoolean revoked = new AtomicBoolean();
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong checks = new AtomicLong();
+        AtomicLong violations = new AtomicLong();
+        CountDownLatch started = new CountDownLatch(READERS);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            readers.add(executor.submit(() -> {
+                started.countDown();
+                while (!stop.get()) {
+                    // 先读标志再检查：标志为true时收回已经完成，这次检查不能再看到该权限
+                    boolean afterRevoke = revoked.get();
+                    if (context.hasPermission(Permissions.DOCUMENT_CREATE) && afterRevoke) {
+                        violations.incrementAndGet();
+                    }
+                    checks.incrementAndGet();
+                }
+            }));
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        bumpVersion();
+        assertTrue(resolver.revokePermission(userRoleId, REVOKED));
+        revoked.set(true);
+        bumpVersion();
+        stop.set(true);
+        for (Future<?> reader : readers) {
+            reader.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(0, violations.get(), "revoked permission seen " + violations.get() + " times in " + checks.get() + " checks");
+        assertTrue(checks.get() > 0);
+        assertFalse(context.hasPermission(Permissions.DOCUMENT_CREATE));
+    }
+
+    /**
+     * 修改与被检查的权限无关的授权，让权限缓存的版本号不断变化，偶尔整体重新加载
+     */
+    private void bumpVersion() {
+        boolean granted = false;
+        for (int i = 0; i < BUMPS; i++) {
+            if (i % 10 == 9) {
+                resolver.reload();
+            } else if (granted) {
+                assertTrue(resolver.revokePermission(userRoleId, CHURN));
+                granted = false;
+            } else {
+                assertTrue(resolver.grantPermission(userRoleId, CHURN));
+                granted = true;
+            }
+        }
+        if (granted) {
+            assertTrue(resolver.revokePermission(userRoleId, CHURN));
+        }
+    }
+}
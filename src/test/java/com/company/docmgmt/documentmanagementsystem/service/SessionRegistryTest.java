@@ -0,0 +1,164 @@
+package com.company.docmgmt.documentmanagementsystem.service;
+
+import com.company.docmgmt.documentmanagementsystem.dao.RoleDao;
+import com.company.docmgmt.documentmanagementsystem.dao.UserDao;
+import com.company.docmgmt.documentmanagementsystem.model.Role;
+import com.company.docmgmt.documentmanagementsystem.model.User;
+import com.company.docmgmt.documentmanagementsystem.util.SchemaMigrator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 会话表：多个线程同时登录并各自查找会话时互不串号；登出、空闲过期和清理都使会话失效
+ */
+class SessionRegistryTest {
+
+    private static final int THREADS = 16;
+    private static final int LOOKUPS = 500;
+    private static final long IDLE_MILLIS = 100;
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final List<User> users = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() {
+        SchemaMigrator.migrate();
+        Map<String, Integer> roleIds = new ConcurrentHashMap<>();
+        for (Role role : new RoleDao().findAll()) {
+            roleIds.put(role.getRoleName(), role.getId());
+        }
+        PermissionResolver resolver = PermissionResolver.getInstance();
+        UserDao userDao = new UserDao();
+        for (int i = 0; i < THREADS; i++) {
+            User user = userDao.save(new User(0, "session-" + i, "secret-" + i, null, LocalDateTime.now()));
+            // 一半是管理员，一半是普通用户，串号时权限检查也会出错
+            assertTrue(resolver.assignRole(user.getId(), roleIds.get(i % 2 == 0 ? "ADMIN" : "USER")));
+            users.add(user);
+        }
+    }
+
+    @Test
+    void concurrentSessionsStayIsolated() throws Exception {
+        AuthService authService = AuthService.getInstance();
+        Set<String> tokens = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<SecurityContext>> sessions = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int index = i;
+                sessions.add(executor.submit(() -> {
+                    User user = users.get(index);
+                    start.await();
+                    SecurityContext context = authService.authenticate(user.getUsername(), user.getPassword()).orElseThrow();
+                    assertTrue(tokens.add(context.getToken()), "duplicate token");
+                    boolean admin = index % 2 == 0;
+                    for (int n = 0; n < LOOKUPS; n++) {
+                        SecurityContext found = authService.findSession(context.getToken()).orElseThrow();
+                        assertSame(context, found);
+                        assertEquals(user.getId(), found.getUserId());
+                        assertEquals(admin, found.hasPermission(Permissions.DOCUMENT_LIST_ALL));
+                    }
+                    return context;
+                }));
+            }
+            start.countDown();
+            List<SecurityContext> contexts = new ArrayList<>();
+            for (Future<SecurityContext> session : sessions) {
+                contexts.add(session.get(30, TimeUnit.SECONDS));
+            }
+
+            // 登出一半：被登出的会话失效，其余的不受影响
+            for (int i = 0; i < THREADS; i += 2) {
+                assertTrue(authService.logout(contexts.get(i).getToken()));
+            }
+            for (int i = 0; i < THREADS; i++) {
+                SecurityContext context = contexts.get(i);
+                boolean loggedOut = i % 2 == 0;
+                assertEquals(!loggedOut, context.isAuthenticated());
+                assertEquals(!loggedOut, authService.findSession(context.getToken()).isPresent());
+                if (loggedOut) {
+                    assertFalse(context.hasPermission(Permissions.DOCUMENT_LIST_ALL));
+                    assertFalse(authService.logout(context.getToken()));
+                } else {
+                    assertEquals(users.get(i).getId(), authService.findSession(context.getToken()).get().getUserId());
+                    authService.logout(context.getToken());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void idleSessionExpiresForHoldersAndLookups() throws Exception {
+        SessionRegistry registry = new SessionRegistry(IDLE_MILLIS, HOUR_MILLIS, HOUR_MILLIS);
+        SecurityContext context = registry.create(users.get(0));
+        SecurityContext active = registry.create(users.get(1));
+        assertTrue(context.hasPermission(Permissions.DOCUMENT_LIST_ALL));
+
+        // 一个会话一直被访问，另一个空闲超时
+        long deadline = System.currentTimeMillis() + IDLE_MILLIS * 3;
+        while (System.currentTimeMillis() < deadline) {
+            assertTrue(registry.find(active.getToken()).isPresent());
+            Thread.sleep(IDLE_MILLIS / 5);
+        }
+
+        // 已经持有上下文的调用方不需要再查找就失去权限
+        assertFalse(context.isAuthenticated());
+        assertFalse(context.hasPermission(Permissions.DOCUMENT_LIST_ALL));
+        assertEquals(2, registry.size());
+        assertEquals(Optional.empty(), registry.find(context.getToken()));
+        assertEquals(1, registry.size());
+        assertTrue(active.isAuthenticated());
+    }
+
+    @Test
+    void maxLifetimeExpiresActiveSessions() throws Exception {
+        SessionRegistry registry = new SessionRegistry(HOUR_MILLIS, IDLE_MILLIS, HOUR_MILLIS);
+        SecurityContext context = registry.create(users.get(1));
+        long deadline = System.currentTimeMillis() + IDLE_MILLIS * 3;
+        while (System.currentTimeMillis() < deadline && registry.find(context.getToken()).isPresent()) {
+            Thread.sleep(IDLE_MILLIS / 5);
+        }
+        assertFalse(context.isAuthenticated());
+        assertFalse(registry.find(context.getToken()).isPresent());
+    }
+
+    @Test
+    void sweepRemovesExpiredSessions() throws Exception {
+        SessionRegistry registry = new SessionRegistry(IDLE_MILLIS, HOUR_MILLIS, 0);
+        List<SecurityContext> expired = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expired.add(registry.create(users.get(i)));
+        }
+        Thread.sleep(IDLE_MILLIS * 2);
+
+        // 创建新会话时顺带清理，过期的会话不经过查找也被移除
+        SecurityContext fresh = registry.create(users.get(5));
+        assertEquals(1, registry.size());
+        assertTrue(registry.find(fresh.getToken()).isPresent());
+        for (SecurityContext context : expired) {
+            assertFalse(context.isAuthenticated());
+            assertFalse(registry.remove(context.getToken()));
+        }
+    }
+}
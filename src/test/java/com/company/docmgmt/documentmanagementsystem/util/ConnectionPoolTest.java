@@ -0,0 +1,198 @@
+package com.company.docmgmt.documentmanagementsystem.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 连接池：耗尽时等待或超时、close()归还且只生效一次、校验失败的连接被丢弃、归还时回滚未提交的事务
+ */
+class ConnectionPoolTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * 每个测试使用独立的内存数据库，minIdle为0使后台预热不影响计数
+     */
+    private ConnectionPool newPool(ConnectionPool.Config config) {
+        String url = "jdbc:h2:mem:pool-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        pool = new ConnectionPool(url, "sa", "", config.minIdle(0));
+        return pool;
+    }
+
+    @Test
+    void exhaustedPoolTimesOut() throws Exception {
+        newPool(new ConnectionPool.Config().maxSize(2).maxWaitMillis(200));
+        try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+            long start = System.nanoTime();
+            assertThrows(SQLTimeoutException.class, pool::getConnection);
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+
+            ConnectionPool.Stats stats = pool.getStats();
+            assertEquals(2, stats.getActive());
+            assertEquals(2, stats.getTotal());
+            assertEquals(1, stats.getTimeoutCount());
+        }
+        assertEquals(0, pool.getStats().getActive());
+        assertEquals(2, pool.getStats().getIdle());
+    }
+
+    @Test
+    void exhaustedPoolBlocksUntilAConnectionIsReturned() throws Exception {
+        newPool(new ConnectionPool.Config().maxSize(1).maxWaitMillis(10_000));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Connection held = pool.getConnection();
+            Connection physical = held.unwrap(Connection.class);
+            Future<Connection> waiting = executor.submit(() -> pool.getConnection().unwrap(Connection.class));
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (pool.getStats().getWaitingThreads() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, pool.getStats().getWaitingThreads());
+            assertFalse(waiting.isDone());
+
+            held.close();
+            // 等待的线程拿到的是刚归还的同一个物理连接，没有新建
+            assertSame(physical, waiting.get(5, TimeUnit.SECONDS));
+            ConnectionPool.Stats stats = pool.getStats();
+            assertEquals(1, stats.getCreatedCount());
+            assertEquals(1, stats.getWaitCount());
+            assertEquals(0, stats.getTimeoutCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void closeReturnsTheConnectionOnlyOnce() throws Exception {
+        newPool(new ConnectionPool.Config().maxSize(2));
+        Connection connection = pool.getConnection();
+        Connection physical = connection.unwrap(Connection.class);
+        assertEquals(1, pool.getStats().getActive());
+
+        connection.close();
+        connection.close();
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(0, stats.getActive());
+        assertEquals(1, stats.getIdle());
+        assertEquals(1, stats.getTotal());
+
+        // 关闭后的句柄不能再使用，物理连接没有被关闭
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, connection::createStatement);
+        assertFalse(physical.isClosed());
+
+        // 重复close()不会让同一个物理连接被借给两个调用方
+        try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+            assertNotSame(first.unwrap(Connection.class), second.unwrap(Connection.class));
+            assertEquals(2, pool.getStats().getActive());
+        }
+        assertEquals(0, pool.getStats().getActive());
+    }
+
+    @Test
+    void connectionFailingValidationIsDiscarded() throws Exception {
+        // 校验间隔为0：每次从空闲队列借出都先校验
+        newPool(new ConnectionPool.Config().maxSize(1).validationIntervalMillis(0));
+        Connection broken;
+        try (Connection connection = pool.getConnection()) {
+            broken = connection.unwrap(Connection.class);
+        }
+        // 连接在池中空闲时被断开
+        broken.close();
+
+        try (Connection connection = pool.getConnection(); Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT 1")) {
+            assertNotSame(broken, connection.unwrap(Connection.class));
+            assertTrue(rs.next());
+        }
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(1, stats.getValidationFailureCount());
+        assertEquals(1, stats.getDestroyedCount());
+        assertEquals(2, stats.getCreatedCount());
+        assertEquals(1, stats.getTotal());
+    }
+
+    @Test
+    void connectionClosedWhileBorrowedIsNotReturnedToThePool() throws Exception {
+        newPool(new ConnectionPool.Config().maxSize(1));
+        Connection connection = pool.getConnection();
+        connection.unwrap(Connection.class).close();
+        connection.close();
+
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(0, stats.getIdle());
+        assertEquals(0, stats.getTotal());
+        assertEquals(1, stats.getDestroyedCount());
+        try (Connection fresh = pool.getConnection()) {
+            assertFalse(fresh.isClosed());
+        }
+    }
+
+    @Test
+    void releaseRollsBackAndResetsState() throws Exception {
+        newPool(new ConnectionPool.Config().maxSize(1));
+        try (Connection connection = pool.getConnection(); Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE items (id INT PRIMARY KEY)");
+        }
+
+        Connection physical;
+        try (Connection connection = pool.getConnection(); Statement st = connection.createStatement()) {
+            physical = connection.unwrap(Connection.class);
+            connection.setAutoCommit(false);
+            st.executeUpdate("INSERT INTO items VALUES (1)");
+            // 没有提交就归还
+        }
+
+        try (Connection connection = pool.getConnection(); Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM items")) {
+            assertSame(physical, connection.unwrap(Connection.class));
+            assertTrue(connection.getAutoCommit());
+            assertFalse(connection.isReadOnly());
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void closedPoolRefusesBorrowsAndClosesReturnedConnections() throws Exception {
+        newPool(new ConnectionPool.Config().maxSize(2));
+        Connection borrowed = pool.getConnection();
+        Connection physical = borrowed.unwrap(Connection.class);
+        pool.close();
+
+        assertThrows(SQLException.class, pool::getConnection);
+        assertFalse(physical.isClosed());
+        borrowed.close();
+        assertTrue(physical.isClosed());
+        assertEquals(0, pool.getStats().getTotal());
+    }
+}